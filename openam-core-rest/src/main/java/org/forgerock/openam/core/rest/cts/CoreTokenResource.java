@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.core.rest.cts;
 
@@ -59,6 +60,7 @@ import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
 import org.forgerock.openam.cts.utils.JSONSerialisation;
 import org.forgerock.openam.forgerockrest.utils.PrincipalRestUtils;
+import org.forgerock.openam.sm.datalayer.api.query.PagedQuery;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.openam.utils.JsonValueBuilder;
 import org.forgerock.services.context.Context;
@@ -291,16 +293,21 @@ public class CoreTokenResource {
 
         TokenFilter tokenFilter = new TokenFilterBuilder().withQuery(queryFilter).build();
 
-        try {
-            Collection<Token> tokens = store.query(tokenFilter);
-
-            for (Token token : tokens) {
-                String json = serialisation.serialise(token);
-                ResourceResponse resource = newResourceResponse(
-                        token.getTokenId(),
-                        String.valueOf(currentTimeMillis()),
-                        JsonValueBuilder.toJsonValue(json));
-                handler.handleResource(resource);
+        // Stream the results a page at a time, so that large queries do not have to be held in memory
+        try (PagedQuery<Token> query = store.pagedQuery(tokenFilter)) {
+            Collection<Token> tokens;
+            while ((tokens = query.nextPage()) != null) {
+                for (Token token : tokens) {
+                    String json = serialisation.serialise(token);
+                    ResourceResponse resource = newResourceResponse(
+                            token.getTokenId(),
+                            String.valueOf(currentTimeMillis()),
+                            JsonValueBuilder.toJsonValue(json));
+                    if (!handler.handleResource(resource)) {
+                        // The caller does not want any further results
+                        return newResultPromise(newQueryResponse());
+                    }
+                }
             }
         } catch (CoreTokenException e) {
             error(e, "QUERY: Error querying CTS with filter {0}", tokenFilter);
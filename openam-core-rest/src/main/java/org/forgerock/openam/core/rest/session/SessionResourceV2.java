@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions copyright 2024 Wren Security.
+ * Portions copyright 2024-2026 Wren Security.
  */
 package org.forgerock.openam.core.rest.session;
 
@@ -26,6 +26,7 @@ import static org.forgerock.util.promise.Promises.newResultPromise;
 import javax.inject.Inject;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import com.iplanet.dpro.session.SessionException;
 import com.iplanet.dpro.session.service.SessionService;
@@ -60,14 +61,17 @@ import org.forgerock.json.resource.ResourceException;
 import org.forgerock.json.resource.ResourceResponse;
 import org.forgerock.json.resource.UpdateRequest;
 import org.forgerock.json.resource.http.HttpContext;
+import org.forgerock.openam.audit.context.AMExecutorServiceFactory;
 import org.forgerock.openam.authentication.service.AuthUtilsWrapper;
 import org.forgerock.openam.core.rest.session.action.ActionHandler;
+import org.forgerock.openam.core.rest.session.action.BulkActionHandler;
 import org.forgerock.openam.core.rest.session.action.GetSessionInfoActionHandler;
 import org.forgerock.openam.core.rest.session.action.GetSessionPropertiesActionHandler;
 import org.forgerock.openam.core.rest.session.action.LogoutActionHandler;
 import org.forgerock.openam.core.rest.session.action.LogoutByHandleActionHandler;
 import org.forgerock.openam.core.rest.session.action.RefreshActionHandler;
 import org.forgerock.openam.core.rest.session.action.UpdateSessionPropertiesActionHandler;
+import org.forgerock.openam.core.rest.session.action.ValidateActionHandler;
 import org.forgerock.openam.dpro.session.PartialSession;
 import org.forgerock.openam.dpro.session.PartialSessionFactory;
 import org.forgerock.openam.rest.RestUtils;
@@ -116,6 +120,10 @@ public class SessionResourceV2 implements CollectionResourceProvider {
     public static final String GET_SESSION_PROPERTIES_ACTION_ID = "getSessionProperties";
     public static final String UPDATE_SESSION_PROPERTIES_ACTION_ID = "updateSessionProperties";
     public static final String LOGOUT_BY_HANDLE_ACTION_ID = "logoutByHandle";
+    public static final String VALIDATE_SESSIONS_ACTION_ID = "validateSessions";
+    public static final String GET_SESSIONS_INFO_ACTION_ID = "getSessionsInfo";
+
+    private static final int BULK_ACTION_THREAD_POOL_SIZE = 16;
 
     private final Map<String, ActionHandler> actionHandlers;
     private final SessionService sessionService;
@@ -127,18 +135,27 @@ public class SessionResourceV2 implements CollectionResourceProvider {
      * @param  authUtilsWrapper An instance of the AuthUtilsWrapper.
      * @param sessionResourceUtil An instance of the SessionResourceUtil.
      * @param sessionPropertyWhitelist An instance o the SessionPropertyWhitelist.
+     * @param executorServiceFactory Used to create the thread pool on which bulk actions resolve sessions.
      */
     @Inject
     public SessionResourceV2(final SSOTokenManager ssoTokenManager, AuthUtilsWrapper authUtilsWrapper,
             final SessionResourceUtil sessionResourceUtil, SessionPropertyWhitelist sessionPropertyWhitelist,
-            SessionService sessionService, PartialSessionFactory partialSessionFactory) {
+            SessionService sessionService, PartialSessionFactory partialSessionFactory,
+            AMExecutorServiceFactory executorServiceFactory) {
         this.sessionService = sessionService;
+        ExecutorService bulkActionExecutor = executorServiceFactory.createFixedThreadPool(
+                BULK_ACTION_THREAD_POOL_SIZE, "SessionBulkAction");
+        ActionHandler getSessionInfoActionHandler = new GetSessionInfoActionHandler(sessionResourceUtil,
+                partialSessionFactory);
         actionHandlers = new CaseInsensitiveHashMap<>();
         actionHandlers.put(REFRESH_ACTION_ID,
                 new RefreshActionHandler(ssoTokenManager, sessionResourceUtil));
         actionHandlers.put(LOGOUT_ACTION_ID, new LogoutActionHandler(ssoTokenManager, authUtilsWrapper));
-        actionHandlers.put(GET_SESSION_INFO_ACTION_ID, new GetSessionInfoActionHandler(sessionResourceUtil,
-                partialSessionFactory));
+        actionHandlers.put(GET_SESSION_INFO_ACTION_ID, getSessionInfoActionHandler);
+        actionHandlers.put(VALIDATE_SESSIONS_ACTION_ID, new BulkActionHandler(
+                new ValidateActionHandler(ssoTokenManager, sessionResourceUtil), bulkActionExecutor));
+        actionHandlers.put(GET_SESSIONS_INFO_ACTION_ID,
+                new BulkActionHandler(getSessionInfoActionHandler, bulkActionExecutor));
         actionHandlers.put(GET_SESSION_PROPERTIES_ACTION_ID,
                 new GetSessionPropertiesActionHandler(sessionPropertyWhitelist, sessionResourceUtil));
         actionHandlers.put(UPDATE_SESSION_PROPERTIES_ACTION_ID,
@@ -154,6 +171,9 @@ public class SessionResourceV2 implements CollectionResourceProvider {
      *     <li>{@link #REFRESH_ACTION_ID}</li>
      *     <li>{@link #GET_SESSION_PROPERTIES_ACTION_ID}</li>
      *     <li>{@link #UPDATE_SESSION_PROPERTIES_ACTION_ID}</li>
+     *     <li>{@link #LOGOUT_BY_HANDLE_ACTION_ID}</li>
+     *     <li>{@link #VALIDATE_SESSIONS_ACTION_ID}</li>
+     *     <li>{@link #GET_SESSIONS_INFO_ACTION_ID}</li>
      * </ul>
      *
      * @param context {@inheritDoc}
@@ -253,6 +273,42 @@ public class SessionResourceV2 implements CollectionResourceProvider {
             name = LOGOUT_BY_HANDLE_ACTION_ID,
             request = @Schema(schemaResource = "SessionResource.logoutByHandle.request.schema.json"),
             response = @Schema(schemaResource = "SessionResource.logoutByHandle.response.schema.json")
+        ),
+        @Action(
+            operationDescription = @Operation(
+                description = SESSION_RESOURCE + VALIDATE_SESSIONS_ACTION_ID + "." + ACTION_DESCRIPTION,
+                errors = {
+                    @ApiError(
+                        code = 400,
+                        description = SESSION_RESOURCE + "bulk." + ERROR_400_DESCRIPTION
+                    ),
+                    @ApiError(
+                        code = 401,
+                        description = SESSION_RESOURCE + ERROR_401_DESCRIPTION
+                    )
+                }
+            ),
+            name = VALIDATE_SESSIONS_ACTION_ID,
+            request = @Schema(schemaResource = "SessionResource.bulk.request.schema.json"),
+            response = @Schema(schemaResource = "SessionResource.bulk.response.schema.json")
+        ),
+        @Action(
+            operationDescription = @Operation(
+                description = SESSION_RESOURCE + GET_SESSIONS_INFO_ACTION_ID + "." + ACTION_DESCRIPTION,
+                errors = {
+                    @ApiError(
+                        code = 400,
+                        description = SESSION_RESOURCE + "bulk." + ERROR_400_DESCRIPTION
+                    ),
+                    @ApiError(
+                        code = 401,
+                        description = SESSION_RESOURCE + ERROR_401_DESCRIPTION
+                    )
+                }
+            ),
+            name = GET_SESSIONS_INFO_ACTION_ID,
+            request = @Schema(schemaResource = "SessionResource.bulk.request.schema.json"),
+            response = @Schema(schemaResource = "SessionResource.bulk.response.schema.json")
         )
     })
     @Override
@@ -0,0 +1,150 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.core.rest.session.action;
+
+import static org.forgerock.json.JsonValue.*;
+import static org.forgerock.json.resource.Responses.newActionResponse;
+import static org.forgerock.util.promise.Promises.newResultPromise;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.forgerock.json.JsonValue;
+import org.forgerock.json.JsonValueException;
+import org.forgerock.json.resource.ActionRequest;
+import org.forgerock.json.resource.ActionResponse;
+import org.forgerock.json.resource.BadRequestException;
+import org.forgerock.json.resource.InternalServerErrorException;
+import org.forgerock.json.resource.ResourceException;
+import org.forgerock.openam.session.SessionConstants;
+import org.forgerock.openam.utils.StringUtils;
+import org.forgerock.services.context.Context;
+import org.forgerock.util.promise.Promise;
+
+import com.sun.identity.shared.debug.Debug;
+
+/**
+ * Handler for actions that apply a single session action, such as 'validate' or 'getSessionInfo', to a batch of
+ * sessions in one request.
+ * <p>
+ * The sessions are resolved in parallel, and each distinct token ID is only resolved once however many times it
+ * appears in the batch. The response maps each token ID to the response the single session action gave for it.
+ */
+public class BulkActionHandler implements ActionHandler {
+
+    /** The maximum number of token IDs accepted in a single request. */
+    public static final int MAX_TOKEN_IDS = 1000;
+
+    private static final Debug LOGGER = Debug.getInstance(SessionConstants.SESSION_DEBUG);
+    private static final String TOKEN_IDS = "tokenIds";
+
+    private final ActionHandler actionHandler;
+    private final ExecutorService executorService;
+
+    /**
+     * Constructs a BulkActionHandler instance.
+     *
+     * @param actionHandler The handler for the action to apply to each session.
+     * @param executorService The executor on which the sessions are resolved.
+     */
+    public BulkActionHandler(ActionHandler actionHandler, ExecutorService executorService) {
+        this.actionHandler = actionHandler;
+        this.executorService = executorService;
+    }
+
+    /**
+     * Applies the action to each of the token IDs in the "tokenIds" field of the request.
+     *
+     * @param tokenId Not used by this implementation.
+     * @param context The CREST context.
+     * @param request The current ActionRequest.
+     * @return The response mapping each token ID to its result.
+     */
+    @Override
+    public Promise<ActionResponse, ResourceException> handle(String tokenId, final Context context,
+            final ActionRequest request) {
+        final JsonValue json = request.getContent().get(TOKEN_IDS);
+        if (!json.isList()) {
+            return new BadRequestException("The \"" + TOKEN_IDS + "\" field is not defined in the request or it's"
+                    + " not a JSON array").asPromise();
+        }
+        if (json.size() > MAX_TOKEN_IDS) {
+            return new BadRequestException("No more than " + MAX_TOKEN_IDS + " token IDs may be given in the \""
+                    + TOKEN_IDS + "\" field").asPromise();
+        }
+
+        final Set<String> tokenIds = new LinkedHashSet<>();
+        try {
+            for (String id : json.asList(String.class)) {
+                if (StringUtils.isNotEmpty(id)) {
+                    tokenIds.add(id);
+                }
+            }
+        } catch (JsonValueException e) {
+            return new BadRequestException("The \"" + TOKEN_IDS + "\" field must only contain strings").asPromise();
+        }
+
+        final List<Callable<JsonValue>> tasks = new ArrayList<>(tokenIds.size());
+        for (final String id : tokenIds) {
+            tasks.add(new Callable<JsonValue>() {
+                @Override
+                public JsonValue call() throws ResourceException {
+                    return actionHandler.handle(id, context, request).getOrThrowUninterruptibly().getJsonContent();
+                }
+            });
+        }
+
+        final List<Future<JsonValue>> futures;
+        try {
+            futures = executorService.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new InternalServerErrorException("Interrupted while resolving sessions").asPromise();
+        }
+
+        final Map<String, Object> results = new LinkedHashMap<>();
+        int i = 0;
+        for (String id : tokenIds) {
+            results.put(id, resultOf(futures.get(i++)).getObject());
+        }
+        return newResultPromise(newActionResponse(json(object(field("result", results)))));
+    }
+
+    private JsonValue resultOf(Future<JsonValue> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // Cannot happen, invokeAll only returns once every task has completed
+            Thread.currentThread().interrupt();
+            return new InternalServerErrorException(e).toJsonValue();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ResourceException) {
+                return ((ResourceException) e.getCause()).toJsonValue();
+            }
+            LOGGER.error("BulkActionHandler :: Unexpected error resolving session", e.getCause());
+            return new InternalServerErrorException(e.getCause()).toJsonValue();
+        }
+    }
+}
@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 package org.forgerock.openam.core.rest.cts;
 
@@ -22,23 +22,33 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.testng.Assert.fail;
 
+import java.util.Arrays;
+
+import org.forgerock.json.JsonPointer;
 import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.BadRequestException;
 import org.forgerock.json.resource.CreateRequest;
 import org.forgerock.json.resource.DeleteRequest;
+import org.forgerock.json.resource.QueryRequest;
+import org.forgerock.json.resource.QueryResourceHandler;
 import org.forgerock.json.resource.ReadRequest;
 import org.forgerock.json.resource.ResourceException;
 import org.forgerock.json.resource.ResourceResponse;
 import org.forgerock.json.resource.UpdateRequest;
 import org.forgerock.openam.cts.CTSPersistentStore;
+import org.forgerock.openam.cts.api.filter.TokenFilter;
 import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
 import org.forgerock.openam.cts.utils.JSONSerialisation;
+import org.forgerock.openam.sm.datalayer.api.query.PagedQuery;
 import org.forgerock.openam.test.apidescriptor.ApiAnnotationAssert;
 import org.forgerock.util.promise.Promise;
+import org.forgerock.util.query.QueryFilter;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -173,4 +183,26 @@ public class CoreTokenResourceTest {
     public void shouldFailIfAnnotationsAreNotValid() {
         ApiAnnotationAssert.assertThat(CoreTokenResource.class).hasValidAnnotations();
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldStreamQueryResultsUntilHandlerStops() throws CoreTokenException {
+        // Given
+        QueryRequest request = mock(QueryRequest.class);
+        given(request.getQueryFilter()).willReturn(QueryFilter.equalTo(new JsonPointer("coreTokenId"), "badger"));
+        PagedQuery<Token> query = mock(PagedQuery.class);
+        given(mockStore.pagedQuery(any(TokenFilter.class))).willReturn(query);
+        given(query.nextPage()).willReturn(Arrays.asList(mockToken, mockToken), Arrays.asList(mockToken), null);
+        given(mockSerialisation.serialise(any())).willReturn("{ \"value\": \"some JSON\" }");
+        QueryResourceHandler handler = mock(QueryResourceHandler.class);
+        given(handler.handleResource(any(ResourceResponse.class))).willReturn(true, false);
+
+        // When
+        resource.queryCollection(null, request, handler);
+
+        // Then
+        verify(handler, times(2)).handleResource(any(ResourceResponse.class));
+        verify(query).close();
+        verify(mockStore, never()).query(any(TokenFilter.class));
+    }
 }
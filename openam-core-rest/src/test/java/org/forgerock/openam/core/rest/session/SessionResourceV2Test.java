@@ -12,25 +12,34 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions Copyright 2023 Wren Security
+ * Portions Copyright 2023-2026 Wren Security
  */
 
 package org.forgerock.openam.core.rest.session;
 
 
-import static org.forgerock.json.JsonValue.json;
+import static org.forgerock.json.JsonValue.*;
 import static org.forgerock.json.resource.test.assertj.AssertJActionResponseAssert.assertThat;
 import static org.forgerock.json.resource.test.assertj.AssertJResourceResponseAssert.assertThat;
 import static org.forgerock.openam.core.rest.session.SessionResourceUtil.*;
 import static org.forgerock.openam.core.rest.session.SessionResourceV2.REFRESH_ACTION_ID;
+import static org.forgerock.openam.core.rest.session.SessionResourceV2.VALIDATE_SESSIONS_ACTION_ID;
 import static org.forgerock.openam.session.SessionConstants.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.iplanet.dpro.session.service.SessionService;
 import com.iplanet.sso.SSOException;
@@ -38,6 +47,8 @@ import com.iplanet.sso.SSOToken;
 import com.iplanet.sso.SSOTokenManager;
 import com.sun.identity.idm.AMIdentity;
 import com.sun.identity.idm.IdRepoException;
+import org.assertj.core.api.Assertions;
+import org.forgerock.json.JsonValue;
 import org.forgerock.json.resource.ActionRequest;
 import org.forgerock.json.resource.ActionResponse;
 import org.forgerock.json.resource.BadRequestException;
@@ -49,6 +60,7 @@ import org.forgerock.json.resource.PatchRequest;
 import org.forgerock.json.resource.ResourceException;
 import org.forgerock.json.resource.ResourceResponse;
 import org.forgerock.json.resource.UpdateRequest;
+import org.forgerock.openam.audit.context.AMExecutorServiceFactory;
 import org.forgerock.openam.authentication.service.AuthUtilsWrapper;
 import org.forgerock.openam.core.rest.session.query.SessionQueryManager;
 import org.forgerock.openam.dpro.session.PartialSession.Builder;
@@ -58,6 +70,7 @@ import org.forgerock.openam.session.SessionPropertyWhitelist;
 import org.forgerock.openam.test.apidescriptor.ApiAnnotationAssert;
 import org.forgerock.opendj.ldap.DN;
 import org.forgerock.util.promise.Promise;
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -76,6 +89,7 @@ public class SessionResourceV2Test {
     private SessionPropertyWhitelist sessionPropertyWhitelist;
     private SessionService sessionService;
     private PartialSessionFactory partialSessionFactory;
+    private ExecutorService bulkActionExecutor;
 
     private SessionResourceV2 sessionResource;
 
@@ -103,8 +117,12 @@ public class SessionResourceV2Test {
                 return REALM_PATH;
             }
         };
+        bulkActionExecutor = Executors.newFixedThreadPool(4);
+        AMExecutorServiceFactory executorServiceFactory = mock(AMExecutorServiceFactory.class);
+        given(executorServiceFactory.createFixedThreadPool(anyInt(), anyString())).willReturn(bulkActionExecutor);
         sessionResource = new SessionResourceV2(ssoTokenManager, authUtilsWrapper,
-                sessionResourceUtil, sessionPropertyWhitelist, sessionService, partialSessionFactory);
+                sessionResourceUtil, sessionPropertyWhitelist, sessionService, partialSessionFactory,
+                executorServiceFactory);
         given(mockContext.asContext(SSOTokenContext.class)).willReturn(mockContext);
         given(mockContext.getCallerSSOToken()).willReturn(ssoToken);
     }
@@ -360,11 +378,72 @@ public class SessionResourceV2Test {
         assertThat(promise).succeeded().withContent().booleanAt("valid").isFalse();
     }
 
+    @Test
+    public void validateSessionsShouldReturnResultForEachDistinctTokenId() throws SSOException {
+        //Given
+        given(ssoTokenManager.createSSOToken("valid")).willReturn(ssoToken);
+        given(ssoTokenManager.isValidToken(ssoToken)).willReturn(true);
+        given(ssoTokenManager.createSSOToken("unknown")).willThrow(SSOException.class);
+        ActionRequest request = bulkRequest(json(object(field("tokenIds", array("valid", "unknown", "valid")))));
+
+        //When
+        Promise<ActionResponse, ResourceException> promise =
+                sessionResource.actionCollection(mockContext, request);
+
+        //Then
+        JsonValue result = promise.getOrThrowUninterruptibly().getJsonContent().get("result");
+        Assertions.assertThat(result.keys()).containsExactly("valid", "unknown");
+        Assertions.assertThat(result.get("valid").get("valid").asBoolean()).isTrue();
+        Assertions.assertThat(result.get("valid").get("realm").asString()).isEqualTo(REALM_PATH);
+        Assertions.assertThat(result.get("unknown").get("valid").asBoolean()).isFalse();
+        verify(ssoTokenManager, times(1)).createSSOToken("valid");
+    }
+
+    @Test
+    public void bulkActionShouldRejectRequestWithoutTokenIds() {
+        //Given
+        ActionRequest request = bulkRequest(json(object()));
+
+        //When
+        Promise<ActionResponse, ResourceException> promise =
+                sessionResource.actionCollection(mockContext, request);
+
+        //Then
+        assertThat(promise).failedWithException().isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    public void bulkActionShouldRejectTooManyTokenIds() {
+        //Given
+        List<Object> tokenIds = new ArrayList<>(Collections.nCopies(1001, (Object) "tokenId"));
+        ActionRequest request = bulkRequest(json(object(field("tokenIds", tokenIds))));
+
+        //When
+        Promise<ActionResponse, ResourceException> promise =
+                sessionResource.actionCollection(mockContext, request);
+
+        //Then
+        assertThat(promise).failedWithException().isInstanceOf(BadRequestException.class);
+    }
+
     @Test
     public void shouldFailIfAnnotationsAreNotValid() {
         ApiAnnotationAssert.assertThat(SessionResourceV2.class).hasValidAnnotations();
     }
 
+    @AfterMethod
+    public void tearDown() {
+        bulkActionExecutor.shutdownNow();
+    }
+
+    private ActionRequest bulkRequest(JsonValue content) {
+        ActionRequest request = mock(ActionRequest.class);
+        given(request.getAction()).willReturn(VALIDATE_SESSIONS_ACTION_ID);
+        given(request.getAdditionalParameter("tokenId")).willReturn("tokenId");
+        given(request.getContent()).willReturn(content);
+        return request;
+    }
+
     private Map<String, String> setUpSessionProperties() throws SSOException {
         Map<String, String> properties = new HashMap<>();
         properties.put("foo", "bar");
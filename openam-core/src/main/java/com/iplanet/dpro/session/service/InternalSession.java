@@ -25,7 +25,7 @@
  * $Id: InternalSession.java,v 1.21 2009/03/20 21:05:25 weisun2 Exp $
  *
  * Portions Copyrighted 2011-2016 ForgeRock AS.
- * Portions Copyright 2023 Wren Security.
+ * Portions Copyright 2023-2026 Wren Security.
  */
 package com.iplanet.dpro.session.service;
 
@@ -105,6 +105,7 @@ public class InternalSession implements Serializable, AMSession, SessionPersiste
     private static final String UNIVERSAL_IDENTIFIER = "sun.am.UniversalIdentifier";
     private static final String SESSION_TIMED_OUT = "SessionTimedOut";
     private static final Set<String> protectedProperties = initialiseProtectedProperties();
+    private static final int MAX_IDLE_FLUSH_PERCENT = 50;
 
     /*
      * Support objects (do not serialize)
@@ -117,6 +118,8 @@ public class InternalSession implements Serializable, AMSession, SessionPersiste
     private transient SessionConstraint sessionConstraint;
     private transient AuthContextLocal authContext;
     private transient SessionPersistenceManager persistenceManager;
+    /* The access time last handed to the persistence manager, zero if unknown. */
+    private transient volatile long storedAccessTimeInSeconds;
 
     /*
      * System properties
@@ -126,6 +129,13 @@ public class InternalSession implements Serializable, AMSession, SessionPersiste
     /* Maximum frequency with which the access time in the repository will be updated. */
     private static int interval = SystemProperties.getAsInt("com.sun.identity.session.interval", 10);
 
+    /*
+     * Percentage of the max idle time by which the stored access time may lag behind the latest access before it is
+     * written to the repository. Zero keeps the fixed interval above and exact idle expiry.
+     */
+    private static int idleFlushPercent = Math.min(Math.max(
+            SystemProperties.getAsInt(Constants.SESSION_IDLE_FLUSH_PERCENT, 0), 0), MAX_IDLE_FLUSH_PERCENT);
+
     /* default idle time for invalid sessions */
     @JsonProperty("maxDefaultIdleTime")
     private static final long maxDefaultIdleTimeInMinutes =
@@ -856,16 +866,39 @@ public class InternalSession implements Serializable, AMSession, SessionPersiste
      * Sets the last time the client sent a request associated with this
      * session, as the number of seconds since midnight January 1, 1970 GMT.
      *
-     * Once updated the Session will be persisted.
+     * The Session is only persisted once the stored access time lags behind the new one by more than the access
+     * time flush threshold, so that frequent access does not cause a repository write per request.
      */
     public void setLatestAccessTime() {
-        long oldLatestAccessTime = latestAccessTimeInSeconds;
+        if (storedAccessTimeInSeconds == 0) {
+            // Loaded from the repository: the access time held is the stored one
+            storedAccessTimeInSeconds = latestAccessTimeInSeconds;
+        }
         latestAccessTimeInSeconds = currentTimeMillis() / 1000;
-        if ((latestAccessTimeInSeconds - oldLatestAccessTime) > interval) {
+        if ((latestAccessTimeInSeconds - storedAccessTimeInSeconds) > getAccessTimeFlushThreshold()) {
             notifyPersistenceManager();
         }
     }
 
+    /**
+     * Returns the number of seconds by which the stored access time may lag behind the latest access before the
+     * Session is persisted again.
+     *
+     * @return the flush threshold in seconds.
+     */
+    @VisibleForTesting
+    long getAccessTimeFlushThreshold() {
+        return Math.max(interval, getIdleExpiryTolerance());
+    }
+
+    /**
+     * The latest access time of a Session read from the repository may be older than the real one by up to the
+     * proportional flush threshold, so idle expiry is deferred by that amount to never expire an active Session.
+     */
+    private long getIdleExpiryTolerance() {
+        return MINUTES.toSeconds(maxIdleTimeInMinutes) * idleFlushPercent / 100;
+    }
+
     /**
      * Sets the {@link SessionState} of the Internal Session.
      *
@@ -1094,7 +1127,8 @@ public class InternalSession implements Serializable, AMSession, SessionPersiste
      * @return the result in the given units.
      */
     public long getExpirationTime(final TimeUnit timeUnit) {
-        long timeLeftInSeconds = Math.max(0L, MINUTES.toSeconds(getMaxIdleTime()) - getIdleTime());
+        long timeLeftInSeconds =
+                Math.max(0L, MINUTES.toSeconds(getMaxIdleTime()) + getIdleExpiryTolerance() - getIdleTime());
 
         return timeUnit.convert(currentTimeMillis(), MILLISECONDS)
                 + Math.min(timeUnit.convert(getTimeLeft(), SECONDS),
@@ -1116,7 +1150,8 @@ public class InternalSession implements Serializable, AMSession, SessionPersiste
     }
 
     /**
-     * Returns time at which session's idle time expires.
+     * Returns time at which session's idle time expires. When the latest access time is flushed lazily this
+     * includes the tolerance for the stored access time lagging behind the real one.
      * <p>
      * Time value is returned in the requested unit (accurate to millisecond) and uses the
      * same epoch as {@link System#currentTimeMillis()}.
@@ -1126,7 +1161,18 @@ public class InternalSession implements Serializable, AMSession, SessionPersiste
      * @return the result in the given units.
      */
     public long getMaxIdleExpirationTime(final TimeUnit timeUnit) {
-        return timeUnit.convert(latestAccessTimeInSeconds + MINUTES.toSeconds(maxIdleTimeInMinutes), SECONDS);
+        return timeUnit.convert(latestAccessTimeInSeconds + MINUTES.toSeconds(maxIdleTimeInMinutes)
+                + getIdleExpiryTolerance(), SECONDS);
+    }
+
+    /**
+     * Returns the last time the client sent a request associated with this session, as known to this server.
+     *
+     * @param timeUnit the time unit to return the result in.
+     * @return the result in the given units.
+     */
+    public long getLatestAccessTime(final TimeUnit timeUnit) {
+        return timeUnit.convert(latestAccessTimeInSeconds, SECONDS);
     }
 
     /**
@@ -1143,6 +1189,7 @@ public class InternalSession implements Serializable, AMSession, SessionPersiste
 
     private void notifyPersistenceManager() {
         if (persistenceManager != null) {
+            storedAccessTimeInSeconds = latestAccessTimeInSeconds;
             persistenceManager.notifyUpdate(this);
         }
     }
@@ -26,6 +26,7 @@
  *
  * Portions Copyrighted 2011-2016 ForgeRock AS.
  * Portions Copyrighted 2016 Nomura Research Institute, Ltd.
+ * Portions copyright 2026 Wren Security.
  */
 
 package com.iplanet.dpro.session.service;
@@ -126,12 +127,17 @@ public class SessionConstraint {
         // Step 1: get constraints for the given user via IDRepo
         int quota = getSessionQuota(internalSession);
 
-        // Step 2: get the information (session id and expiration
+        // Step 2: get the number and the information (session id and expiration
         // time) of all sessions for the given user from all
-        // AM servers and/or session repository
+        // AM servers and/or session repository, only once the quota is
+        // reached as the count is served from the local session index
         Map sessions = null;
         try {
-            sessions = InjectorHolder.getInstance(SessionQueryManager.class).getAllSessionsByUUID(internalSession.getUUID());
+            SessionQueryManager sessionQueryManager = InjectorHolder.getInstance(SessionQueryManager.class);
+            sessionCount = sessionQueryManager.getSessionCountByUUID(internalSession.getUUID());
+            if (sessionCount >= quota) {
+                sessions = sessionQueryManager.getAllSessionsByUUID(internalSession.getUUID());
+            }
         } catch (Exception e) {
             if (InjectorHolder.getInstance(SessionServiceConfig.class).isDenyLoginIfDBIsDown()) {
                 if (debug.messageEnabled()) {
@@ -0,0 +1,63 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.iplanet.dpro.session.service;
+
+/**
+ * Management interface exposing the delivery statistics of remote session notifications.
+ */
+public interface SessionNotificationDeliveryMXBean {
+
+    /**
+     * @return The number of notifications currently waiting to be delivered, across all destinations.
+     */
+    int getPendingCount();
+
+    /**
+     * @return The number of notifications that have been acknowledged by their destination.
+     */
+    long getDeliveredCount();
+
+    /**
+     * @return The number of notifications whose delivery request failed.
+     */
+    long getFailedCount();
+
+    /**
+     * @return The number of notifications discarded because a queue was full or a circuit was open.
+     */
+    long getDroppedCount();
+
+    /**
+     * @return The number of batched requests sent to destinations.
+     */
+    long getRequestCount();
+
+    /**
+     * @return The mean time, in milliseconds, between a notification being queued and its delivery completing.
+     */
+    double getAverageLatencyMillis();
+
+    /**
+     * @return The longest time, in milliseconds, between a notification being queued and its delivery completing.
+     */
+    long getMaximumLatencyMillis();
+
+    /**
+     * @return The number of destinations whose circuit is currently open.
+     */
+    int getOpenCircuitCount();
+}
@@ -0,0 +1,414 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.iplanet.dpro.session.service;
+
+import static org.forgerock.openam.utils.Time.currentTimeMillis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.forgerock.http.header.TransactionIdHeader;
+import org.forgerock.openam.audit.context.AuditRequestContext;
+import org.forgerock.util.annotations.VisibleForTesting;
+
+import com.iplanet.am.util.SystemProperties;
+import com.iplanet.services.comm.share.Notification;
+import com.iplanet.services.comm.share.NotificationSet;
+import com.sun.identity.common.HttpURLConnectionManager;
+import com.sun.identity.shared.Constants;
+import com.sun.identity.shared.debug.Debug;
+
+/**
+ * Delivers session notifications to remote PLL notification endpoints without blocking the caller.
+ * <p>
+ * Each destination URL has its own queue and at most one request in flight, so notifications for a destination are
+ * delivered in order and a slow or unreachable destination never holds up the others. Whatever has accumulated in a
+ * destination's queue while a request was in flight is sent as a single {@link NotificationSet}. Requests are made
+ * on the executor through {@link HttpURLConnectionManager}, so the configured connect and read timeouts and protocol
+ * handler apply, and connections are kept alive between requests. As each destination has at most one request in
+ * flight, an unresponsive destination holds at most one executor thread, and only until the read timeout.
+ * <p>
+ * Memory is bounded: the total number of queued notifications is capped, and no single destination may hold more
+ * than half of that cap. Notifications that do not fit are dropped and counted. After
+ * {@link #FAILURE_THRESHOLD} consecutive failed requests the destination's circuit opens: its queue is discarded and
+ * new notifications for it are dropped for {@link #OPEN_CIRCUIT_MILLIS}, after which the next batch is sent as a
+ * probe that either closes the circuit or opens it again. Destinations which have been idle for
+ * {@link #IDLE_DESTINATION_MILLIS} are forgotten, along with their failures and any open circuit, so that a
+ * destination which has gone away for good is not held onto. Notifications dropped while a circuit is open still
+ * count as use of the destination.
+ */
+final class SessionNotificationDispatcher implements SessionNotificationDeliveryMXBean {
+
+    static final int MAX_BATCH_SIZE = 100;
+    static final int FAILURE_THRESHOLD = 5;
+    static final long OPEN_CIRCUIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long IDLE_DESTINATION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final String CONTENT_TYPE = "text/xml;charset=UTF-8";
+
+    /**
+     * Posts notification sets using {@link HttpURLConnectionManager}.
+     */
+    static final Transport HTTP_TRANSPORT = new Transport() {
+        @Override
+        public boolean post(URL url, String xml) throws IOException {
+            byte[] body = xml.getBytes(StandardCharsets.UTF_8);
+            HttpURLConnection connection = HttpURLConnectionManager.getConnection(url);
+            connection.setDoOutput(true);
+            connection.setUseCaches(SystemProperties.getAsBoolean(Constants.URL_CONNECTION_USE_CACHE, false));
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", CONTENT_TYPE);
+            connection.setRequestProperty(TransactionIdHeader.NAME,
+                    AuditRequestContext.createSubTransactionIdValue());
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            // Reading the response fully allows the connection to be kept alive for the next request
+            try (InputStream in = status < HttpURLConnection.HTTP_BAD_REQUEST
+                    ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    byte[] buffer = new byte[1024];
+                    while (in.read(buffer) != -1) {
+                        // Discard - agents do not reliably answer "OK"
+                    }
+                }
+            }
+            return status >= 200 && status < 300;
+        }
+    };
+
+    private final Transport transport;
+    private final Executor executor;
+    private final Debug debug;
+    private final int maxPending;
+    private final int maxPendingPerDestination;
+    private final long idleMillis;
+    private final ConcurrentMap<String, Destination> destinations = new ConcurrentHashMap<>();
+    private final AtomicLong nextIdleSweep;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maximumLatency = new AtomicLong();
+
+    /**
+     * Constructs a new SessionNotificationDispatcher.
+     *
+     * @param transport The transport used to post notification sets.
+     * @param executor The executor on which requests are made.
+     * @param maxPending The maximum number of notifications queued across all destinations.
+     * @param debug The debug instance to log to.
+     */
+    SessionNotificationDispatcher(Transport transport, Executor executor, int maxPending, Debug debug) {
+        this(transport, executor, maxPending, IDLE_DESTINATION_MILLIS, debug);
+    }
+
+    @VisibleForTesting
+    SessionNotificationDispatcher(Transport transport, Executor executor, int maxPending, long idleMillis,
+            Debug debug) {
+        this.transport = transport;
+        this.executor = executor;
+        this.debug = debug;
+        this.maxPending = Math.max(maxPending, 1);
+        this.maxPendingPerDestination = Math.max(this.maxPending / 2, 1);
+        this.idleMillis = idleMillis;
+        this.nextIdleSweep = new AtomicLong(currentTimeMillis() + idleMillis);
+    }
+
+    /**
+     * Queues a notification for delivery to the given remote notification URL.
+     *
+     * @param url The remote PLL notification URL.
+     * @param notificationXml The XML form of the notification.
+     */
+    void send(URL url, String notificationXml) {
+        long now = currentTimeMillis();
+        evictIdleDestinations(now);
+        String key = url.toString();
+        Destination destination = destinations.get(key);
+        if (destination == null) {
+            destination = new Destination(key, url);
+            Destination existing = destinations.putIfAbsent(key, destination);
+            if (existing != null) {
+                destination = existing;
+            }
+        }
+        destination.enqueue(new PendingNotification(notificationXml, now));
+    }
+
+    /**
+     * Forgets destinations with nothing queued or in flight which have not been sent to recently, at most once per
+     * idle period. A notification racing with the eviction of its destination is still delivered, as the evicted
+     * destination schedules its own requests.
+     */
+    private void evictIdleDestinations(long now) {
+        long sweepAt = nextIdleSweep.get();
+        if (now < sweepAt || !nextIdleSweep.compareAndSet(sweepAt, now + idleMillis)) {
+            return;
+        }
+        Iterator<Destination> iterator = destinations.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isIdle(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int getDestinationCount() {
+        return destinations.size();
+    }
+
+    @Override
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    @Override
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public double getAverageLatencyMillis() {
+        long count = delivered.sum();
+        return count == 0 ? 0 : (double) totalLatency.sum() / count;
+    }
+
+    @Override
+    public long getMaximumLatencyMillis() {
+        return maximumLatency.get();
+    }
+
+    @Override
+    public int getOpenCircuitCount() {
+        long now = currentTimeMillis();
+        int count = 0;
+        for (Destination destination : destinations.values()) {
+            if (destination.isOpen(now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void recordLatency(long latency) {
+        totalLatency.add(latency);
+        long max = maximumLatency.get();
+        while (latency > max && !maximumLatency.compareAndSet(max, latency)) {
+            max = maximumLatency.get();
+        }
+    }
+
+    /**
+     * Posts a notification set to a remote notification URL, blocking until the response has been received.
+     */
+    interface Transport {
+
+        /**
+         * Posts the given notification set.
+         *
+         * @param url The remote PLL notification URL.
+         * @param xml The XML form of the notification set.
+         * @return {@code true} if the destination accepted the notifications.
+         * @throws IOException If the notifications could not be sent.
+         */
+        boolean post(URL url, String xml) throws IOException;
+    }
+
+    /**
+     * A notification waiting to be delivered, with the time it was queued.
+     */
+    private static final class PendingNotification {
+
+        private final String xml;
+        private final long queuedAt;
+
+        private PendingNotification(String xml, long queuedAt) {
+            this.xml = xml;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    /**
+     * The queue and circuit state of a single remote notification URL.
+     */
+    private final class Destination implements Runnable {
+
+        private final String name;
+        private final URL url;
+        private final Queue<PendingNotification> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // Only updated on completion of the single in-flight request.
+        private volatile int consecutiveFailures;
+        private volatile long openUntil;
+        private volatile long lastUsed;
+
+        private Destination(String name, URL url) {
+            this.name = name;
+            this.url = url;
+        }
+
+        private boolean isOpen(long now) {
+            return openUntil > now;
+        }
+
+        private boolean isIdle(long now) {
+            return !sending.get() && queue.isEmpty() && now - lastUsed >= idleMillis;
+        }
+
+        private void enqueue(PendingNotification notification) {
+            lastUsed = notification.queuedAt;
+            if (isOpen(notification.queuedAt) || !reserve()) {
+                dropped.increment();
+                if (debug.messageEnabled()) {
+                    debug.message("SessionNotificationDispatcher: Dropping notification to " + name);
+                }
+                return;
+            }
+            queue.offer(notification);
+            schedule();
+        }
+
+        private boolean reserve() {
+            if (size.incrementAndGet() > maxPendingPerDestination) {
+                size.decrementAndGet();
+                return false;
+            }
+            if (pending.incrementAndGet() > maxPending) {
+                pending.decrementAndGet();
+                size.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        private PendingNotification poll() {
+            PendingNotification notification = queue.poll();
+            if (notification != null) {
+                size.decrementAndGet();
+                pending.decrementAndGet();
+            }
+            return notification;
+        }
+
+        private void schedule() {
+            if (!queue.isEmpty() && sending.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    sending.set(false);
+                    discardQueue();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            List<PendingNotification> batch = new ArrayList<>();
+            PendingNotification notification;
+            while (batch.size() < MAX_BATCH_SIZE && (notification = poll()) != null) {
+                batch.add(notification);
+            }
+            if (batch.isEmpty()) {
+                sending.set(false);
+                schedule();
+                return;
+            }
+
+            NotificationSet notificationSet = new NotificationSet(SessionService.SESSION_SERVICE);
+            for (PendingNotification pendingNotification : batch) {
+                notificationSet.addNotification(new Notification(pendingNotification.xml));
+            }
+
+            requests.increment();
+            boolean success = false;
+            try {
+                success = transport.post(url, notificationSet.toXMLString());
+            } catch (IOException | RuntimeException e) {
+                debug.warning("SessionNotificationDispatcher: Unable to send notifications to {}", name, e);
+            }
+            complete(batch, success);
+        }
+
+        private void complete(List<PendingNotification> batch, boolean success) {
+            long now = currentTimeMillis();
+            if (success) {
+                delivered.add(batch.size());
+                for (PendingNotification notification : batch) {
+                    recordLatency(now - notification.queuedAt);
+                }
+                consecutiveFailures = 0;
+                openUntil = 0;
+            } else {
+                failed.add(batch.size());
+                if (++consecutiveFailures >= FAILURE_THRESHOLD) {
+                    openUntil = now + OPEN_CIRCUIT_MILLIS;
+                    debug.warning("SessionNotificationDispatcher: {} consecutive failures sending to {}, "
+                            + "suspending notifications for {}ms", consecutiveFailures, name, OPEN_CIRCUIT_MILLIS);
+                    discardQueue();
+                }
+            }
+            sending.set(false);
+            schedule();
+        }
+
+        private void discardQueue() {
+            while (poll() != null) {
+                dropped.increment();
+            }
+        }
+    }
+}
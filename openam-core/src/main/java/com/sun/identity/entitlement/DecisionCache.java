@@ -0,0 +1,342 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.sun.identity.entitlement;
+
+import static org.forgerock.openam.utils.Time.currentTimeMillis;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.security.auth.Subject;
+
+import org.forgerock.openam.utils.collections.TinyLfuCache;
+import org.forgerock.util.annotations.VisibleForTesting;
+
+import com.iplanet.am.util.SystemProperties;
+import com.iplanet.dpro.session.service.InternalSessionEvent;
+import com.iplanet.dpro.session.service.InternalSessionListener;
+import com.iplanet.sso.SSOException;
+import com.iplanet.sso.SSOToken;
+import com.sun.identity.entitlement.opensso.SubjectUtils;
+import com.sun.identity.shared.Constants;
+
+/**
+ * Optional cache of policy decisions, so that the same question asked again by an agent (same realm, policy set,
+ * resource, session and environment) does not re-evaluate every matching policy.
+ * <p>
+ * A decision is cached until the earliest time to live of the entitlements the evaluation produced, capped by a
+ * configured maximum which also bounds how long changes that are not signalled (such as group membership) can go
+ * unnoticed. All decisions are invalidated when policies change, and the decisions of a user are invalidated when
+ * one of their sessions ends or has a property changed.
+ * <p>
+ * Invalidation does not walk the cache: every decision records the invalidation sequence number current when its
+ * evaluation started, and is discarded on lookup if its user or the whole cache has been invalidated since.
+ */
+@Singleton
+public class DecisionCache implements InternalSessionListener {
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_MAX_TTL_SECONDS = 60;
+
+    private final boolean enabled;
+    private final long maxTimeToLive;
+    private final TinyLfuCache<Key, CachedDecision> decisions;
+    private final TinyLfuCache<String, Long> userInvalidations;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong allInvalidated = new AtomicLong();
+    // Raised to the sequence number of any user invalidation that is forgotten, so that it is never lost.
+    private final AtomicLong forgottenUserInvalidation = new AtomicLong();
+
+    /**
+     * Creates the decision cache from the server configuration.
+     */
+    @Inject
+    public DecisionCache() {
+        this(SystemProperties.getAsBoolean(Constants.DECISION_CACHE_ENABLED, false),
+                Math.max(SystemProperties.getAsInt(Constants.DECISION_CACHE_MAX_SIZE, DEFAULT_MAX_SIZE), 1),
+                TimeUnit.SECONDS.toMillis(SystemProperties.getAsLong(Constants.DECISION_CACHE_MAX_TTL,
+                        DEFAULT_MAX_TTL_SECONDS)));
+    }
+
+    @VisibleForTesting
+    DecisionCache(boolean enabled, int maxSize, long maxTimeToLive) {
+        this.enabled = enabled && maxTimeToLive > 0;
+        this.maxTimeToLive = maxTimeToLive;
+        this.decisions = new TinyLfuCache<>(maxSize);
+        this.userInvalidations = new TinyLfuCache<>(maxSize, new TinyLfuCache.RemovalListener<String, Long>() {
+            @Override
+            public void onRemoval(String user, Long invalidated) {
+                raise(forgottenUserInvalidation, invalidated);
+            }
+        });
+    }
+
+    /**
+     * Builds the cache key of an evaluation.
+     *
+     * @param realm The realm.
+     * @param applicationName The policy set name.
+     * @param normalisedResourceName The normalised resource name.
+     * @param requestedResourceName The resource name as requested.
+     * @param subject The subject under evaluation.
+     * @param environment The environment parameters.
+     * @param recursive Whether this is a sub tree evaluation.
+     * @return The key, or null if decisions are not cached or the evaluation cannot be cached as the subject is not
+     * backed by a session.
+     */
+    public Key createKey(String realm, String applicationName, String normalisedResourceName,
+            String requestedResourceName, Subject subject, Map<String, Set<String>> environment, boolean recursive) {
+        if (!enabled || subject == null) {
+            return null;
+        }
+        SSOToken token = SubjectUtils.getSSOToken(subject);
+        String user = SubjectUtils.getPrincipalId(subject);
+        if (token == null || user == null) {
+            return null;
+        }
+        Set<String> principals = new TreeSet<>();
+        for (Principal principal : subject.getPrincipals()) {
+            principals.add(principal.getName());
+        }
+        String fingerprint;
+        try {
+            fingerprint = principals + "|" + token.getTokenID().toString() + "|" + token.getAuthLevel();
+        } catch (SSOException e) {
+            return null;
+        }
+        Map<String, Set<String>> environmentCopy = new HashMap<>();
+        if (environment != null) {
+            for (Map.Entry<String, Set<String>> entry : environment.entrySet()) {
+                environmentCopy.put(entry.getKey(), entry.getValue() == null ? null : new HashSet<>(entry.getValue()));
+            }
+        }
+        return new Key(realm, applicationName, normalisedResourceName, requestedResourceName, user, fingerprint,
+                environmentCopy, recursive);
+    }
+
+    /**
+     * Returns the invalidation sequence number to pass to {@link #put(Key, List, long)}; it must be read before the
+     * evaluation starts so that invalidations made during the evaluation are not missed.
+     *
+     * @return The current invalidation sequence number.
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Returns a copy of the cached decision for the key.
+     *
+     * @param key Possibly null key.
+     * @return The cached entitlements, or null if there is no valid cached decision.
+     */
+    public List<Entitlement> get(Key key) {
+        if (key == null) {
+            return null;
+        }
+        CachedDecision decision = decisions.get(key);
+        if (decision == null) {
+            return null;
+        }
+        if (decision.expiry <= currentTimeMillis() || isInvalidated(key.user, decision.sequence)) {
+            decisions.remove(key);
+            return null;
+        }
+        return copy(decision.entitlements);
+    }
+
+    /**
+     * Caches a copy of the decision of an evaluation until the earliest time to live of its entitlements.
+     *
+     * @param key Possibly null key.
+     * @param entitlements The entitlements produced by the evaluation.
+     * @param sequence The value of {@link #getSequence()} before the evaluation started.
+     */
+    public void put(Key key, List<Entitlement> entitlements, long sequence) {
+        if (key == null || entitlements == null || isInvalidated(key.user, sequence)) {
+            return;
+        }
+        long now = currentTimeMillis();
+        long expiry = now + maxTimeToLive;
+        for (Entitlement entitlement : entitlements) {
+            expiry = Math.min(expiry, entitlement.getTTL());
+        }
+        if (expiry > now) {
+            decisions.put(key, new CachedDecision(copy(entitlements), expiry, sequence));
+        }
+    }
+
+    /**
+     * Invalidates every cached decision, for instance because policies have changed.
+     */
+    public void invalidateAll() {
+        if (enabled) {
+            raise(allInvalidated, sequence.incrementAndGet());
+            decisions.clear();
+        }
+    }
+
+    /**
+     * Invalidates the cached decisions of a user.
+     *
+     * @param user The universal identifier of the user.
+     */
+    public void invalidateUser(String user) {
+        if (enabled && user != null) {
+            userInvalidations.put(user, sequence.incrementAndGet());
+        }
+    }
+
+    @Override
+    public void onEvent(InternalSessionEvent event) {
+        switch (event.getType()) {
+            case IDLE_TIMEOUT:
+            case MAX_TIMEOUT:
+            case LOGOUT:
+            case DESTROY:
+            case PROPERTY_CHANGED:
+                invalidateUser(event.getInternalSession().getUUID());
+                break;
+            default:
+                // decisions are unaffected by other events
+        }
+    }
+
+    private boolean isInvalidated(String user, long sequence) {
+        if (sequence < allInvalidated.get() || sequence < forgottenUserInvalidation.get()) {
+            return true;
+        }
+        Long userInvalidated = userInvalidations.peek(user);
+        return userInvalidated != null && sequence < userInvalidated;
+    }
+
+    private static void raise(AtomicLong value, long candidate) {
+        long current = value.get();
+        while (candidate > current && !value.compareAndSet(current, candidate)) {
+            current = value.get();
+        }
+    }
+
+    private static List<Entitlement> copy(List<Entitlement> entitlements) {
+        List<Entitlement> copies = new ArrayList<>(entitlements.size());
+        for (Entitlement entitlement : entitlements) {
+            Map<String, Boolean> actionValues = entitlement.getActionValues();
+            Entitlement copy = new Entitlement(entitlement.getApplicationName(),
+                    copySet(entitlement.getResourceNames()),
+                    actionValues == null ? Collections.<String, Boolean>emptyMap() : actionValues);
+            copy.setName(entitlement.getName());
+            copy.setRequestedResourceNames(copySet(entitlement.getRequestedResourceNames()));
+            copy.setAdvices(copyMapOfSets(entitlement.getAdvices()));
+            copy.setAttributes(copyMapOfSets(entitlement.getAttributes()));
+            copy.setTTL(entitlement.getTTL());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static <T> Set<T> copySet(Set<T> set) {
+        return set == null ? null : new HashSet<>(set);
+    }
+
+    private static Map<String, Set<String>> copyMapOfSets(Map<String, Set<String>> map) {
+        if (map == null) {
+            return null;
+        }
+        Map<String, Set<String>> copy = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : map.entrySet()) {
+            copy.put(entry.getKey(), copySet(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * Identifies an evaluation request.
+     */
+    public static final class Key {
+        private final String realm;
+        private final String applicationName;
+        private final String normalisedResourceName;
+        private final String requestedResourceName;
+        private final String user;
+        private final String subjectFingerprint;
+        private final Map<String, Set<String>> environment;
+        private final boolean recursive;
+        private final int hashCode;
+
+        private Key(String realm, String applicationName, String normalisedResourceName, String requestedResourceName,
+                String user, String subjectFingerprint, Map<String, Set<String>> environment, boolean recursive) {
+            this.realm = realm;
+            this.applicationName = applicationName;
+            this.normalisedResourceName = normalisedResourceName;
+            this.requestedResourceName = requestedResourceName;
+            this.user = user;
+            this.subjectFingerprint = subjectFingerprint;
+            this.environment = Collections.unmodifiableMap(environment);
+            this.recursive = recursive;
+            this.hashCode = Objects.hash(realm, applicationName, normalisedResourceName, requestedResourceName,
+                    subjectFingerprint, environment, recursive);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hashCode == other.hashCode
+                    && recursive == other.recursive
+                    && Objects.equals(realm, other.realm)
+                    && Objects.equals(applicationName, other.applicationName)
+                    && Objects.equals(normalisedResourceName, other.normalisedResourceName)
+                    && Objects.equals(requestedResourceName, other.requestedResourceName)
+                    && Objects.equals(subjectFingerprint, other.subjectFingerprint)
+                    && Objects.equals(environment, other.environment);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class CachedDecision {
+        private final List<Entitlement> entitlements;
+        private final long expiry;
+        private final long sequence;
+
+        private CachedDecision(List<Entitlement> entitlements, long expiry, long sequence) {
+            this.entitlements = entitlements;
+            this.expiry = expiry;
+            this.sequence = sequence;
+        }
+    }
+}
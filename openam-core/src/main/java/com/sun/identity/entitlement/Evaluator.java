@@ -25,6 +25,7 @@
  * $Id: Evaluator.java,v 1.2 2009/09/10 16:35:38 veiming Exp $
  *
  * Portions copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package com.sun.identity.entitlement;
 
@@ -69,6 +70,7 @@ public class Evaluator {
     private final String applicationName;
     private final PolicyMonitor policyMonitor;
     private final EntitlementConfigurationWrapper configWrapper;
+    private final DecisionCache decisionCache;
 
     /**
      * Constructor to create an evaluator the default service type.
@@ -92,6 +94,7 @@ public class Evaluator {
         this.applicationName = applicationName;
         policyMonitor = getPolicyMonitor();
         configWrapper = new EntitlementConfigurationWrapper();
+        decisionCache = policyMonitor == null ? null : InjectorHolder.getInstance(DecisionCache.class);
     }
 
     private PolicyMonitor getPolicyMonitor() {
@@ -198,9 +201,19 @@ public class Evaluator {
         // Normalise the incoming resource URL.
         String normalisedResourceName = application.getResourceComparator().canonicalize(resourceName);
 
-        PrivilegeEvaluator evaluator = new PrivilegeEvaluator();
-        List<Entitlement> results = evaluator.evaluate(realm, adminSubject, subject,
-                applicationName, normalisedResourceName, resourceName, environment, recursive);
+        DecisionCache.Key cacheKey = decisionCache == null ? null : decisionCache.createKey(realm, applicationName,
+                normalisedResourceName, resourceName, subject, environment, recursive);
+        List<Entitlement> results = cacheKey == null ? null : decisionCache.get(cacheKey);
+
+        if (results == null) {
+            long cacheSequence = cacheKey == null ? 0 : decisionCache.getSequence();
+            PrivilegeEvaluator evaluator = new PrivilegeEvaluator();
+            results = evaluator.evaluate(realm, adminSubject, subject,
+                    applicationName, normalisedResourceName, resourceName, environment, recursive);
+            if (cacheKey != null) {
+                decisionCache.put(cacheKey, results, cacheSequence);
+            }
+        }
 
         if (configWrapper.isMonitoringRunning()) {
             policyMonitor.addEvaluation(currentTimeMillis() - startTime, realm, applicationName, resourceName,
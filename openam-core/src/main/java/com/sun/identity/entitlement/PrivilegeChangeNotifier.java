@@ -25,6 +25,7 @@
  * $Id: PrivilegeChangeNotifier.java,v 1.5 2010/01/07 00:19:11 veiming Exp $
  *
  * Portions Copyrighted 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package com.sun.identity.entitlement;
@@ -45,6 +46,7 @@ import java.util.Set;
 
 import javax.security.auth.Subject;
 
+import org.forgerock.guice.core.InjectorHolder;
 import org.forgerock.openam.entitlement.PolicyConstants;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -111,6 +113,7 @@ public class PrivilegeChangeNotifier {
         String applicationName,
         String privilegeName,
         Set<String> resources) {
+        InjectorHolder.getInstance(DecisionCache.class).invalidateAll();
         try {
             Set<EntitlementListener> listeners =
                 ListenerManager.getInstance().getListeners(adminSubject);
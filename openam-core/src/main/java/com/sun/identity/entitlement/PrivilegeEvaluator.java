@@ -25,6 +25,7 @@
  * $Id: PrivilegeEvaluator.java,v 1.2 2009/10/07 06:36:40 veiming Exp $
  *
  * Portions Copyrighted 2010-2017 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package com.sun.identity.entitlement;
 
@@ -33,15 +34,17 @@ import static org.forgerock.openam.entitlement.utils.EntitlementUtils.getApplica
 import static org.forgerock.openam.entitlement.utils.EntitlementUtils.getEntitlementConfiguration;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.security.auth.Subject;
 
@@ -49,8 +52,10 @@ import org.forgerock.openam.entitlement.PolicyConstants;
 import org.forgerock.openam.entitlement.PrivilegeEvaluatorContext;
 import org.forgerock.openam.session.util.AppTokenHandler;
 import org.forgerock.openam.utils.CollectionUtils;
+import org.forgerock.openam.utils.collections.TinyLfuCache;
+import org.forgerock.util.annotations.VisibleForTesting;
+import org.forgerock.util.thread.listener.ShutdownListener;
 
-import com.sun.identity.entitlement.interfaces.IThreadPool;
 import com.sun.identity.shared.debug.Debug;
 
 /**
@@ -66,41 +71,34 @@ class PrivilegeEvaluator {
     private String requestedResourceName;
     private Map<String, Set<String>> envParameters;
     private ResourceSearchIndexes indexes;
-    private List<List<Entitlement>> resultQ = new
-        LinkedList<List<Entitlement>>();
     private Application application;
     private Set<String> actionNames;
     private EntitlementCombiner entitlementCombiner;
     private boolean recursive;
-    private EntitlementException eException;
-    private final Lock lock = new ReentrantLock();
-    private final Condition hasResults = lock.newCondition();
 
-    // Static variables
-    // TODO determine number of tasks per thread
-    private static int evalThreadSize = Evaluator.DEFAULT_POLICY_EVAL_THREAD;
-    private static final int TASKS_PER_THREAD = 5;
-
-    private static final IThreadPool threadPool;
-    private static final boolean isMultiThreaded;
+    // Results are combined as soon as each privilege is evaluated; once the combiner is done or an evaluation has
+    // failed, evaluation tasks that have not started yet return without evaluating.
+    private volatile boolean evaluationDone;
+    private final AtomicReference<EntitlementException> evaluationException = new AtomicReference<>();
 
-    static {
-        EntitlementConfiguration ec = getEntitlementConfiguration(SUPER_ADMIN_SUBJECT, "/");
-        Set<String> setPolicyEvalThread = ec.getConfiguration(
-            EntitlementConfiguration.POLICY_EVAL_THREAD_SIZE);
+    // Static variables
+    // Up to this many matching privileges are evaluated on the calling thread.
+    private static final int SEQUENTIAL_THRESHOLD = 5;
+    // Estimated evaluation time above which a range of privileges is split between worker threads.
+    private static final long SPLIT_THRESHOLD_NANOS = 200_000L;
+    // Estimate for privileges which have not been evaluated yet, so that they are spread out.
+    private static final long UNKNOWN_COST_NANOS = SPLIT_THRESHOLD_NANOS / 2;
+    private static final int MAX_COST_ESTIMATES = 10_000;
+
+    // Moving average of the time taken to evaluate each privilege, keyed by realm and privilege name.
+    private static final TinyLfuCache<String, Long> evaluationCosts = new TinyLfuCache<>(MAX_COST_ESTIMATES);
+
+    PrivilegeEvaluator() {
+    }
 
-        if ((setPolicyEvalThread != null) && !setPolicyEvalThread.isEmpty()) {
-            try {
-                evalThreadSize = Integer.parseInt(setPolicyEvalThread.
-                    iterator().next());
-            } catch (NumberFormatException e) {
-                PolicyConstants.DEBUG.error(
-                    "PrivilegeEvaluator.<init>: get evaluation thread pool size",
-                    e);
-            }
-        }
-        isMultiThreaded = evalThreadSize > 1;
-        threadPool = isMultiThreaded ? new EntitlementThreadPool(evalThreadSize) : new SequentialThreadPool();
+    @VisibleForTesting
+    PrivilegeEvaluator(EntitlementCombiner entitlementCombiner) {
+        this.entitlementCombiner = entitlementCombiner;
     }
 
     /**
@@ -146,6 +144,8 @@ class PrivilegeEvaluator {
         entitlementCombiner.init(realm, applicationName, normalisedResourceName, requestedResourceName,
                 this.actionNames, recursive);
         this.recursive = recursive;
+        this.evaluationDone = false;
+        this.evaluationException.set(null);
 
         if (PolicyConstants.DEBUG.messageEnabled()) {
             Debug debug = PolicyConstants.DEBUG;
@@ -272,13 +272,9 @@ class PrivilegeEvaluator {
         final PrivilegeIndexStore indexStore = PrivilegeIndexStore.getInstance(adminSubject, realm);
         final Iterator<IPrivilege> policyIterator = indexStore.search(realm, indexes, subjectIndexes, recursive);
 
-        int totalCount = 0;
-        IPrivilege policy;
-
-        // First collect policies to be evaluated locally.
-        final Set<IPrivilege> localBatch = new HashSet<IPrivilege>(2 * TASKS_PER_THREAD);
-        while (totalCount < TASKS_PER_THREAD && policyIterator.hasNext()) {
-            policy = policyIterator.next();
+        final List<IPrivilege> policies = new ArrayList<IPrivilege>();
+        while (policyIterator.hasNext()) {
+            IPrivilege policy = policyIterator.next();
 
             if (policy instanceof ReferralPrivilege) {
                 // We want to ignore referrals - deprecated.
@@ -290,8 +286,7 @@ class PrivilegeEvaluator {
                 debug.message("[PolicyEval] search result: privilege=" + policy.getName());
             }
 
-            localBatch.add(policy);
-            totalCount++;
+            policies.add(policy);
         }
 
         // Define an evaluation context.
@@ -299,93 +294,62 @@ class PrivilegeEvaluator {
                 new PrivilegeEvaluatorContext(realm, normalisedResourceName, applicationName);
         final Object appToken = AppTokenHandler.getAndClear();
 
-        // Submit additional policies to be executed by worker threads.
-        final Set<IPrivilege> threadBatch = new HashSet<IPrivilege>(2 * TASKS_PER_THREAD);
-        boolean tasksSubmitted = false;
-
-        while (policyIterator.hasNext()) {
-            tasksSubmitted = true;
-            policy = policyIterator.next();
-
-            if (policy instanceof ReferralPrivilege) {
-                // We want to ignore referrals - deprecated.
-                continue;
-            }
-
-            if (debug.messageEnabled()) {
-                debug.message("[PolicyEval] PolicyEvaluator.evaluate");
-                debug.message("[PolicyEval] search result: privilege=" + policy.getName());
-            }
-
-            threadBatch.add(policy);
-            totalCount++;
-
-            if (threadBatch.size() == TASKS_PER_THREAD) {
-                final Set<IPrivilege> copiedBatch = new HashSet<IPrivilege>(threadBatch);
-                threadPool.submit(new PrivilegeTask(this, copiedBatch, isMultiThreaded, appToken, context));
-                threadBatch.clear();
-            }
-        }
-
-        if (!threadBatch.isEmpty()) {
-            // Submit any remaining policies.
-            threadPool.submit(new PrivilegeTask(this, threadBatch, isMultiThreaded, appToken, context));
-        }
+        return evaluate(policies, appToken, context, EvaluationPool.INSTANCE);
+    }
 
-        // Submit the local policies.
-        final Runnable localTask = new PrivilegeTask(this, localBatch, tasksSubmitted, appToken, context);
-        localTask.run();
-
-        // Wait for submitted threads to complete evaluation.
-        if (tasksSubmitted) {
-            if (isMultiThreaded) {
-                receiveEvalResults(totalCount);
-            } else {
-                boolean isDone = false;
-                while (!resultQ.isEmpty() && !isDone) {
-                    entitlementCombiner.add(resultQ.remove(0));
-                    isDone = entitlementCombiner.isDone();
-                }
-            }
-        } else if (eException == null) {
-            boolean isDone = false;
-            while (!resultQ.isEmpty() && !isDone) {
-                entitlementCombiner.add(resultQ.remove(0));
-                isDone = entitlementCombiner.isDone();
+    /**
+     * Evaluates the given privileges and combines their decisions. The privileges are shared out between the
+     * worker threads of the given pool if there are enough of them and they are expected to take long enough to
+     * be worth sharing, and otherwise evaluated on the calling thread. They are also evaluated on the calling thread
+     * if the pool rejects them.
+     *
+     * @param policies the privileges to evaluate.
+     * @param appToken the application token to evaluate them with.
+     * @param context the evaluation context.
+     * @param pool the worker pool, or {@code null} if evaluation is single threaded.
+     * @return the combined entitlements.
+     * @throws EntitlementException the first failure to evaluate a privilege.
+     */
+    @VisibleForTesting
+    List<Entitlement> evaluate(List<IPrivilege> policies, Object appToken, PrivilegeEvaluatorContext context,
+            ForkJoinPool pool) throws EntitlementException {
+        final PrivilegeTask task = new PrivilegeTask(policies, 0, policies.size(), appToken, context);
+        if (pool == null || pool.isShutdown() || policies.size() <= SEQUENTIAL_THRESHOLD
+                || task.estimatedCost() <= SPLIT_THRESHOLD_NANOS) {
+            // Few or cheap policies, or no worker threads: avoid handing off to the worker threads.
+            task.evaluateRange();
+        } else {
+            try {
+                pool.invoke(task);
+            } catch (RejectedExecutionException e) {
+                PolicyConstants.DEBUG.warning("PrivilegeEvaluator.evaluate: evaluating on the calling thread", e);
+                task.evaluateRange();
             }
         }
 
-        if (eException != null) {
+        EntitlementException exception = evaluationException.get();
+        if (exception != null) {
             // Throw caught exception.
-            throw eException;
+            throw exception;
         }
 
         return entitlementCombiner.getResults();
     }
 
-    private void receiveEvalResults(int totalCount) {
-        int counter = 0;
-        lock.lock();
-        boolean isDone = (eException != null);
-
-        try {
-            while (!isDone && (counter < totalCount)) {
-                if (resultQ.isEmpty()) {
-                    hasResults.await();
-                }
-                while (!resultQ.isEmpty() && !isDone) {
-                    entitlementCombiner.add(resultQ.remove(0));
-                    isDone = entitlementCombiner.isDone();
-                    counter++;
-                }
+    private void combine(List<Entitlement> entitlements) {
+        synchronized (entitlementCombiner) {
+            if (!evaluationDone) {
+                entitlementCombiner.add(entitlements);
+                evaluationDone = entitlementCombiner.isDone();
             }
-        } catch (InterruptedException ex) {
-            PolicyConstants.DEBUG.error("PrivilegeEvaluator.evaluate", ex);
-        } finally {
-            lock.unlock();
         }
     }
-    
+
+    private void fail(EntitlementException exception) {
+        evaluationException.compareAndSet(null, exception);
+        evaluationDone = true;
+    }
+
     private Application getApplication()
         throws EntitlementException {
         if (application == null) {
@@ -399,62 +363,151 @@ class PrivilegeEvaluator {
         return application;
     }
 
-    class PrivilegeTask implements Runnable {
-        final PrivilegeEvaluator parent;
-        private final Set<IPrivilege> privileges;
-        private final boolean isThreaded;
+    private static String costKey(String realm, IPrivilege privilege) {
+        return realm + "/" + privilege.getName();
+    }
+
+    private static long estimatedCost(String realm, IPrivilege privilege) {
+        Long cost = evaluationCosts.peek(costKey(realm, privilege));
+        return cost == null ? UNKNOWN_COST_NANOS : cost;
+    }
+
+    @VisibleForTesting
+    static void recordCost(String realm, IPrivilege privilege, long nanos) {
+        String key = costKey(realm, privilege);
+        Long previous = evaluationCosts.get(key);
+        evaluationCosts.put(key, previous == null ? nanos : previous + (nanos - previous) / 4);
+    }
+
+    /**
+     * Evaluates a range of the matching privileges, splitting it in two by estimated cost while the range is
+     * expected to take long enough to be worth sharing with another worker thread.
+     */
+    private class PrivilegeTask extends RecursiveAction {
+        private final List<IPrivilege> privileges;
+        private final int from;
+        private final int to;
         private final Object context;
         private final PrivilegeEvaluatorContext ctx;
 
-        PrivilegeTask(PrivilegeEvaluator parent, Set<IPrivilege> privileges,
-            boolean isThreaded, Object context, PrivilegeEvaluatorContext ctx) {
-            this.parent = parent;
+        PrivilegeTask(List<IPrivilege> privileges, int from, int to, Object context, PrivilegeEvaluatorContext ctx) {
             this.privileges = privileges;
-            this.isThreaded = isThreaded;
+            this.from = from;
+            this.to = to;
             this.context = context;
             this.ctx = ctx;
         }
 
-        public void run() {
+        @Override
+        protected void compute() {
+            if (evaluationDone) {
+                return;
+            }
+            if (to - from > 1) {
+                long[] cumulative = cumulativeCosts();
+                long total = cumulative[cumulative.length - 1];
+                if (total > SPLIT_THRESHOLD_NANOS) {
+                    int split = from + 1;
+                    while (split < to - 1 && cumulative[split - from - 1] < total / 2) {
+                        split++;
+                    }
+                    if (split > from + 1 && Math.abs(2 * cumulative[split - from - 2] - total)
+                            < Math.abs(2 * cumulative[split - from - 1] - total)) {
+                        // Splitting before the privilege which crosses the half way point is better balanced
+                        split--;
+                    }
+                    invokeAll(new PrivilegeTask(privileges, from, split, context, ctx),
+                            new PrivilegeTask(privileges, split, to, context, ctx));
+                    return;
+                }
+            }
+            evaluateRange();
+        }
+
+        long estimatedCost() {
+            long[] cumulative = cumulativeCosts();
+            return cumulative.length == 0 ? 0 : cumulative[cumulative.length - 1];
+        }
+
+        private long[] cumulativeCosts() {
+            long total = 0;
+            long[] cumulative = new long[to - from];
+            for (int i = from; i < to; i++) {
+                total += estimatedCost(realm, privileges.get(i));
+                cumulative[i - from] = total;
+            }
+            return cumulative;
+        }
+
+        void evaluateRange() {
             PrivilegeEvaluatorContext.setCurrent(ctx);
-            
+
             try {
-                for (final IPrivilege eval : privileges) {
-                    List<Entitlement> entitlements = eval.evaluate(
-                                            parent.adminSubject,
-                                            parent.realm, parent.subject,
-                                            parent.applicationName, parent.normalisedResourceName,
-                                            parent.requestedResourceName,
-                                            parent.actionNames, parent.envParameters,
-                                            parent.recursive, context);
+                for (int i = from; i < to && !evaluationDone; i++) {
+                    final IPrivilege eval = privileges.get(i);
+                    final long start = System.nanoTime();
+                    List<Entitlement> entitlements = eval.evaluate(adminSubject, realm, subject, applicationName,
+                            normalisedResourceName, requestedResourceName, actionNames, envParameters, recursive,
+                            context);
+                    recordCost(realm, eval, System.nanoTime() - start);
 
                     if (entitlements != null) {
-                        if (isThreaded) {
-                            try {
-                                parent.lock.lock();
-                                parent.resultQ.add(entitlements);
-                                parent.hasResults.signal();
-                            } finally {
-                                parent.lock.unlock();
-                            }
-                        } else {
-                            parent.resultQ.add(entitlements);
-                        }
+                        combine(entitlements);
                     }
                 }
             } catch (EntitlementException ex) {
-                if (isThreaded) {
-                    try {
-                        parent.lock.lock();
-                        parent.eException = ex;
-                        parent.hasResults.signal();
-                    } finally {
-                        parent.lock.unlock();
-                    }
-                } else {
-                    parent.eException = ex;
+                fail(ex);
+            }
+        }
+    }
+
+    /**
+     * Holds the worker pool, which is created on first use from the policy evaluation thread setting and shut down
+     * along with the server.
+     */
+    private static final class EvaluationPool {
+        private static final ForkJoinPool INSTANCE = create();
+
+        private static ForkJoinPool create() {
+            int evalThreadSize = Evaluator.DEFAULT_POLICY_EVAL_THREAD;
+            EntitlementConfiguration ec = getEntitlementConfiguration(SUPER_ADMIN_SUBJECT, "/");
+            Set<String> setPolicyEvalThread = ec.getConfiguration(
+                EntitlementConfiguration.POLICY_EVAL_THREAD_SIZE);
+
+            if ((setPolicyEvalThread != null) && !setPolicyEvalThread.isEmpty()) {
+                try {
+                    evalThreadSize = Integer.parseInt(setPolicyEvalThread.
+                        iterator().next());
+                } catch (NumberFormatException e) {
+                    PolicyConstants.DEBUG.error(
+                        "PrivilegeEvaluator.<init>: get evaluation thread pool size",
+                        e);
                 }
             }
+            if (evalThreadSize <= 1) {
+                return null;
+            }
+
+            final ForkJoinPool pool = new ForkJoinPool(evalThreadSize, new PolicyEvalThreadFactory(), null, false);
+            com.sun.identity.common.ShutdownManager.getInstance().addShutdownListener(new ShutdownListener() {
+                @Override
+                public void shutdown() {
+                    pool.shutdownNow();
+                }
+            });
+            return pool;
+        }
+    }
+
+    /**
+     * Names the policy evaluation worker threads.
+     */
+    private static class PolicyEvalThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("PolicyEvaluator-" + thread.getPoolIndex());
+            return thread;
         }
     }
 }
@@ -25,6 +25,7 @@
  * $Id: DataStore.java,v 1.13 2010/01/20 17:01:35 veiming Exp $
  *
  * Portions Copyrighted 2012-2017 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package com.sun.identity.entitlement.opensso;
 
@@ -908,6 +909,11 @@ public class DataStore {
         return findPolicies(realm, "(sunserviceID=indexes)");
     }
 
+    Set<ReferralPrivilege> findReferralsByRealm(String realm) throws EntitlementException {
+        SSOToken token = AccessController.doPrivileged(AdminTokenAction.getInstance());
+        return searchReferrals(token, realm, "(sunserviceID=indexes)");
+    }
+
     List<Privilege> findPoliciesByRealmAndApplication(String realm, String application) throws EntitlementException {
         return findPolicies(realm, String.format("(&(sunserviceID=indexes)(ou=application=%s))", application));
     }
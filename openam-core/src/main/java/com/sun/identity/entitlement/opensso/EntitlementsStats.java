@@ -27,11 +27,15 @@
 
 /*
  * Portions Copyrighted [2011] [ForgeRock AS]
+ * Portions Copyrighted 2026 Wren Security.
  */
 package com.sun.identity.entitlement.opensso;
 
 import java.util.Set;
 
+import org.forgerock.guice.core.InjectorHolder;
+import org.forgerock.openam.entitlement.monitoring.PolicyMonitor;
+
 import com.sun.identity.entitlement.util.NetworkMonitor;
 import com.sun.identity.shared.stats.StatsListener;
 import com.sun.identity.shared.stats.Stats;
@@ -67,6 +71,15 @@ public class EntitlementsStats implements StatsListener {
 		sb.append(DataStore.getNumberOfPolicies());
 		sb.append("\nTotal referrals: ");
 		sb.append(DataStore.getNumberOfReferrals());
+		if (PolicyPreloader.isEnabled()) {
+			PolicyMonitor monitor = InjectorHolder.getInstance(PolicyMonitor.class);
+			sb.append("\nPreloaded realms: ");
+			sb.append(monitor.getPreloadedRealmCount()).append('/').append(monitor.getPreloadRealmTotal());
+			sb.append("\nPreloaded policies: ");
+			sb.append(monitor.getPreloadedPolicyCount());
+			sb.append("\nPreload footprint(bytes): ");
+			sb.append(monitor.getPreloadFootprint());
+		}
 
         sb.append("\n-----------------------------\n");
 		stats.record(sb.toString());
@@ -25,18 +25,34 @@
  * $Id: IndexCache.java,v 1.3 2009/12/12 00:03:13 veiming Exp $
  *
  * Portions copyright 2013 ForgeRock, Inc.
+ * Portions copyright 2026 Wren Security.
  */
 package com.sun.identity.entitlement.opensso;
 
 import com.sun.identity.entitlement.ResourceSaveIndexes;
 import com.sun.identity.entitlement.ResourceSearchIndexes;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Caches the indexes which are stored in Directory Server.
+ * <p>
+ * Each index maps to a set of privilege DNs, its postings. Small sets are immutable and replaced as a whole whenever
+ * a privilege is cached or cleared. Once a set reaches {@link #LARGE_POSTINGS} DNs, copying it on every change would
+ * make loading many privileges under one index quadratic, so it is replaced by a concurrent set which is then
+ * updated in place. Once a concurrent set is empty it is removed from its index, and any DN added to it in the
+ * meantime is cached again. A thread which updates a concurrent set checks that it is still in place afterwards, and
+ * otherwise updates the current postings of the index instead. Lookups take no locks in either case. A privilege's
+ * postings across the different index types are not published atomically, which is safe as the privilege is only
+ * returned once it is also in the policy cache, which it is added to after and removed from before its indexes.
+ * <p>
+ * Rather than evicting postings when full, the cache stops accepting new indexes and reports itself as incomplete, so
+ * that searches fall back to the directory. It is complete again once every privilege which had an index refused has
+ * either been cleared or cached in full.
  */
 public class IndexCache {
     public static final String HOST_ID = "host";
@@ -44,25 +60,30 @@ public class IndexCache {
     public static final String PATH_ID = "path";
     public static final String PARENTPATH_ID = "parentpath";
 
-    private static final int CACHE_BUCKET_LIMIT = 25;
+    /**
+     * Number of DNs at which an index's postings are moved to a concurrent set.
+     */
+    static final int LARGE_POSTINGS = 16;
 
-    private int size = 1000000;
-    private int initCapacity;
-    private Cache subjectIndexCache;
-    private Cache hostIndexCache;
-    private Cache pathIndexCache;
-    private Cache parentPathIndexCache;
-    private ReadWriteLock rwlock = new ReentrantReadWriteLock();
+    private final int size;
+    private final ConcurrentMap<String, Set<String>> subjectIndexCache;
+    private final ConcurrentMap<String, Set<String>> hostIndexCache;
+    private final ConcurrentMap<String, Set<String>> pathIndexCache;
+    private final ConcurrentMap<String, Set<String>> parentPathIndexCache;
+    private final Set<String> refused = ConcurrentHashMap.newKeySet();
 
     /**
      * Constructs
      *
-     * @param size Size of cache.
+     * @param size Maximum number of indexes of each type.
      */
     public IndexCache(int size) {
         this.size = size;
-        initCapacity = (int) (size * 0.01d);
-        clearCaches();
+        int initCapacity = (int) (size * 0.01d);
+        subjectIndexCache = new ConcurrentHashMap<String, Set<String>>(initCapacity);
+        hostIndexCache = new ConcurrentHashMap<String, Set<String>>(initCapacity);
+        pathIndexCache = new ConcurrentHashMap<String, Set<String>>(initCapacity);
+        parentPathIndexCache = new ConcurrentHashMap<String, Set<String>>(initCapacity);
     }
 
     /**
@@ -76,40 +97,63 @@ public class IndexCache {
         ResourceSaveIndexes indexes,
         Set<String> subjectIndexes,
         String dn) {
-        if (subjectIndexes != null) {
-            cache(dn, subjectIndexes, subjectIndexCache);
+        boolean cached = subjectIndexes == null || cache(dn, subjectIndexes, subjectIndexCache);
+        cached &= cache(dn, indexes.getHostIndexes(), hostIndexCache);
+        cached &= cache(dn, indexes.getPathIndexes(), pathIndexCache);
+        cached &= cache(dn, indexes.getParentPathIndexes(), parentPathIndexCache);
+        if (cached) {
+            refused.remove(dn);
+        } else {
+            refused.add(dn);
         }
-        cache(dn, indexes.getHostIndexes(), hostIndexCache);
-        cache(dn, indexes.getPathIndexes(), pathIndexCache);
-        cache(dn, indexes.getParentPathIndexes(), parentPathIndexCache);
     }
 
-    private void cache(String dn, Set<String> indexes, Cache cache) {
-        rwlock.writeLock().lock();
+    /**
+     * @return <code>true</code> if every index was cached, or <code>false</code> if any was refused for lack of
+     * space.
+     */
+    private boolean cache(String dn, Set<String> indexes, ConcurrentMap<String, Set<String>> cache) {
+        boolean cached = true;
+        for (String s : indexes) {
+            String lc = s.toLowerCase();
+
+            while (true) {
+                Set<String> setDNs = cache.get(lc);
 
-        try {
-            for (String s : indexes) {
-                String lc = s.toLowerCase();
-                Set<String> setDNs = (Set<String>)cache.get(lc);
                 if (setDNs == null) {
-                    setDNs = new HashSet<String>();
-                    cache.put(lc, setDNs);
+                    if (cache.size() >= size) {
+                        // Full, searches must now consult the directory.
+                        cached = false;
+                        break;
+                    }
+                    if (cache.putIfAbsent(lc, Collections.singleton(dn)) == null) {
+                        break;
+                    }
+                } else if (setDNs.contains(dn)) {
+                    break;
+                } else if (isLarge(setDNs)) {
                     setDNs.add(dn);
+                    if (cache.get(lc) == setDNs) {
+                        break;
+                    }
                 } else {
-                    String cacheName = cache.getName();
-                    if (!CacheTaboo.isTaboo(cacheName, lc)) {
-                        if (setDNs.size() >= CACHE_BUCKET_LIMIT) {
-                            CacheTaboo.taboo(cacheName, lc);
-                            cache.remove(lc);
-                        } else {
-                            setDNs.add(dn);
-                        }
+                    Set<String> updated;
+                    if (setDNs.size() + 1 >= LARGE_POSTINGS) {
+                        updated = ConcurrentHashMap.newKeySet();
+                        updated.addAll(setDNs);
+                        updated.add(dn);
+                    } else {
+                        updated = new HashSet<String>(setDNs);
+                        updated.add(dn);
+                        updated = Collections.unmodifiableSet(updated);
+                    }
+                    if (cache.replace(lc, setDNs, updated)) {
+                        break;
                     }
                 }
             }
-        } finally {
-            rwlock.writeLock().unlock();
         }
+        return cached;
     }
 
     /**
@@ -124,34 +168,74 @@ public class IndexCache {
             clear(dn, indexes.getPathIndexes(), pathIndexCache);
             clear(dn, indexes.getParentPathIndexes(), parentPathIndexCache);
         }
+        refused.remove(dn);
     }
 
-    private void clear(String dn, Set<String> indexes, Cache cache) {
-        rwlock.writeLock().lock();
-        try {
-            for (String s : indexes) {
-                Set<String> setDNs = (Set<String>)cache.get(s);
-                if (setDNs != null) {
+    private void clear(String dn, Set<String> indexes, ConcurrentMap<String, Set<String>> cache) {
+        for (String s : indexes) {
+            String lc = s.toLowerCase();
+
+            while (true) {
+                Set<String> setDNs = cache.get(lc);
+
+                if (setDNs == null || !setDNs.contains(dn)) {
+                    break;
+                }
+
+                if (isLarge(setDNs)) {
                     setDNs.remove(dn);
+                    if (setDNs.isEmpty() && cache.remove(lc, setDNs)) {
+                        retire(lc, setDNs, cache);
+                        break;
+                    }
+                    if (cache.get(lc) == setDNs) {
+                        break;
+                    }
+                } else if (setDNs.size() == 1) {
+                    if (cache.remove(lc, setDNs)) {
+                        break;
+                    }
+                } else {
+                    Set<String> updated = new HashSet<String>(setDNs);
+                    updated.remove(dn);
+                    if (cache.replace(lc, setDNs, Collections.unmodifiableSet(updated))) {
+                        break;
+                    }
                 }
             }
-        } finally {
-            rwlock.writeLock().unlock();
         }
     }
 
-    private synchronized void clearCaches() {
-        rwlock.writeLock().lock();
-        try {
-            subjectIndexCache = new Cache(SUBJECT_ID, initCapacity, size);
-            hostIndexCache = new Cache(HOST_ID, initCapacity, size);
-            pathIndexCache = new Cache(PATH_ID, initCapacity, size);
-            parentPathIndexCache = new Cache(PARENTPATH_ID, initCapacity, size);
-        } finally {
-            rwlock.writeLock().unlock();
+    /**
+     * Caches again any DN added to postings which were removed from their index once empty. A DN cleared from the
+     * removed postings whilst it is being cached again is then cleared from the index too.
+     */
+    private void retire(String lc, Set<String> setDNs, ConcurrentMap<String, Set<String>> cache) {
+        Set<String> index = Collections.singleton(lc);
+        for (String dn : setDNs) {
+            if (!cache(dn, index, cache)) {
+                refused.add(dn);
+            }
+            if (!setDNs.contains(dn)) {
+                clear(dn, index, cache);
+            }
         }
     }
 
+    private static boolean isLarge(Set<String> setDNs) {
+        return setDNs instanceof ConcurrentHashMap.KeySetView;
+    }
+
+    /**
+     * Returns whether every index offered to this cache has been cached. When not, a search of the cache may miss
+     * privileges and the directory should be searched as well.
+     *
+     * @return <code>true</code> if no index of a privilege still cached has been refused for lack of space.
+     */
+    public boolean isComplete() {
+        return refused.isEmpty();
+    }
+
     /**
      * Returns a set of DN that matches the resource and subject indexes.
      *
@@ -165,66 +249,42 @@ public class IndexCache {
         Set<String> subjectIndexes,
         boolean bSubTree
     ) {
-        rwlock.readLock().lock();
-        try {
-            Set<String> results = new HashSet<String>();
-
-            boolean hasSubjectIndexes = (subjectIndexes != null) &&
-                !subjectIndexes.isEmpty();
-
-            if (hasSubjectIndexes) {
-                for (String i : subjectIndexes) {
-                    Set<String> r = (Set<String>)subjectIndexCache.get(i);
-                    if (r != null) {
-                        results.addAll(r);
-                    }
-                }
-                results.retainAll(getHostIndexes(indexes));
-            } else {
-                results.addAll(getHostIndexes(indexes));
-            }
+        Set<String> results = new HashSet<String>();
 
-            if (bSubTree) {
-                results.retainAll(getPathParentIndexes(indexes));
-            } else {
-                results.retainAll(getPathIndexes(indexes));
-            }
+        boolean hasSubjectIndexes = (subjectIndexes != null) &&
+            !subjectIndexes.isEmpty();
+
+        if (hasSubjectIndexes) {
+            results.addAll(getMatchingEntries(subjectIndexes, subjectIndexCache));
+            results.retainAll(getMatchingEntries(indexes.getHostIndexes(), hostIndexCache));
+        } else {
+            results.addAll(getMatchingEntries(indexes.getHostIndexes(), hostIndexCache));
+        }
 
+        if (results.isEmpty()) {
             return results;
-        } finally {
-            rwlock.readLock().unlock();
         }
-    }
 
-    private Set<String> getPathParentIndexes(ResourceSearchIndexes indexes) {
-        Set<String> parentPathIndexes = indexes.getParentPathIndexes();
-        Set<String> results = new HashSet<String>();
-        for (String i : parentPathIndexes) {
-            Set<String> r = (Set<String>) parentPathIndexCache.get(
-                i.toLowerCase());
-            if (r != null) {
-                results.addAll(r);
-            }
+        if (bSubTree) {
+            results.retainAll(getMatchingEntries(indexes.getParentPathIndexes(), parentPathIndexCache));
+        } else {
+            results.retainAll(getMatchingEntries(indexes.getPathIndexes(), pathIndexCache));
         }
+
         return results;
     }
 
-    private Set<String> getPathIndexes(ResourceSearchIndexes indexes) {
-        Set<String> pathIndexes = indexes.getPathIndexes();
+    private Set<String> getMatchingEntries(Set<String> indexes, Map<String, Set<String>> cache) {
         Set<String> results = new HashSet<String>();
-        for (String i : pathIndexes) {
-            Set<String> r = (Set<String>) pathIndexCache.get(i.toLowerCase());
-            if (r != null) {
-                results.addAll(r);
+        for (String i : indexes) {
+            Set<String> r = cache.get(i);
+            if (r == null) {
+                String lc = i.toLowerCase();
+                // toLowerCase returns the same instance when there is nothing to lower case.
+                if (lc != i) {
+                    r = cache.get(lc);
+                }
             }
-        }return results;
-    }
-
-    private Set<String> getHostIndexes(ResourceSearchIndexes indexes) {
-        Set<String> results = new HashSet<String>();
-        Set<String> hostIndexes = indexes.getHostIndexes();
-        for (String i : hostIndexes) {
-            Set<String> r = (Set<String>) hostIndexCache.get(i.toLowerCase());
             if (r != null) {
                 results.addAll(r);
             }
@@ -25,6 +25,7 @@
  * $Id: OpenSSOIndexStore.java,v 1.13 2010/01/25 23:48:15 veiming Exp $
  *
  * Portions copyright 2011-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package com.sun.identity.entitlement.opensso;
@@ -36,7 +37,6 @@ import static org.forgerock.openam.entitlement.utils.EntitlementUtils.getEntitle
 
 import com.iplanet.sso.SSOException;
 import com.iplanet.sso.SSOToken;
-import com.sun.identity.common.CaseInsensitiveHashMap;
 import com.sun.identity.entitlement.Application;
 import com.sun.identity.entitlement.ApplicationTypeManager;
 import com.sun.identity.entitlement.EntitlementConfiguration;
@@ -66,6 +66,7 @@ import com.sun.identity.sm.ServiceListener;
 import com.sun.identity.sm.ServiceManager;
 import com.sun.identity.sm.ServiceSchema;
 import com.sun.identity.sm.ServiceSchemaManager;
+import org.forgerock.guice.core.InjectorHolder;
 import org.forgerock.openam.entitlement.PolicyConstants;
 import org.forgerock.openam.ldap.LDAPUtils;
 import org.forgerock.util.Reject;
@@ -79,6 +80,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class OpenSSOIndexStore extends PrivilegeIndexStore {
     private static final int DEFAULT_CACHE_SIZE = 100000;
@@ -87,12 +90,13 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
     private static final PolicyCache policyCache;
     private static final PolicyCache referralCache;
     private static final int policyCacheSize;
-    private static final Map indexCaches;
-    private static final Map referralIndexCaches;
+    private static final ConcurrentMap<String, IndexCache> indexCaches;
+    private static final ConcurrentMap<String, IndexCache> referralIndexCaches;
     private static final int indexCacheSize;
     private static final DataStore dataStore = DataStore.getInstance();
     private static IThreadPool threadPool;
     private static boolean isMultiThreaded;
+    private static final boolean isPreloaded = PolicyPreloader.isEnabled();
     private Subject superAdminSubject;
 
     // Initialize the caches
@@ -114,8 +118,8 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
         indexCacheSize = getInteger(ec,
             EntitlementConfiguration.INDEX_CACHE_SIZE, DEFAULT_IDX_CACHE_SIZE);
         if (indexCacheSize > 0) {
-            indexCaches = new CaseInsensitiveHashMap();
-            referralIndexCaches = new CaseInsensitiveHashMap();
+            indexCaches = new ConcurrentHashMap<String, IndexCache>();
+            referralIndexCaches = new ConcurrentHashMap<String, IndexCache>();
         } else {
             indexCaches = null;
             referralIndexCaches = null;
@@ -156,6 +160,7 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
     private IndexCache indexCache;
     private IndexCache referralIndexCache;
     private EntitlementConfiguration entitlementConfig;
+    private PolicyPreloader preloader;
 
     /**
      * Constructor.
@@ -170,23 +175,28 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
 
         // Get Index caches based on realm
         if (indexCacheSize > 0) {
+            indexCache = getIndexCache(indexCaches, realmDN);
+            referralIndexCache = getIndexCache(referralIndexCaches, realmDN);
+        }
+        if (isPreloaded) {
+            preloader = InjectorHolder.getInstance(PolicyPreloader.class);
+        }
+    }
 
-            synchronized (indexCaches) {
-                indexCache = (IndexCache)indexCaches.get(realmDN);
-                if (indexCache == null) {
-                    indexCache = new IndexCache(indexCacheSize);
-                    indexCaches.put(realmDN, indexCache);
-                }
-            }
-            synchronized (referralIndexCaches) {
-                referralIndexCache = (IndexCache)referralIndexCaches.get(
-                    realmDN);
-                if (referralIndexCache == null) {
-                    referralIndexCache = new IndexCache(indexCacheSize);
-                    referralIndexCaches.put(realmDN, referralIndexCache);
-                }
+    /**
+     * Returns the index cache for the realm, creating it if this is the first use. Realm DNs are case insensitive.
+     */
+    private static IndexCache getIndexCache(ConcurrentMap<String, IndexCache> caches, String realmDN) {
+        String key = realmDN.toLowerCase();
+        IndexCache cache = caches.get(key);
+        if (cache == null) {
+            IndexCache created = new IndexCache(indexCacheSize);
+            cache = caches.putIfAbsent(key, created);
+            if (cache == null) {
+                cache = created;
             }
         }
+        return cache;
     }
 
     private static int getNumeric(String str, int defaultValue) {
@@ -215,6 +225,9 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
                 add((ReferralPrivilege)p);
             }
         }
+        if (isPreloaded) {
+            preloader.reload(realmDN);
+        }
     }
 
     private void add(Privilege privilege) throws EntitlementException {
@@ -311,6 +324,9 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
         if (policyCacheSize > 0) {
             policyCache.decache(dn, realmDN);
         }
+        if (isPreloaded) {
+            preloader.reload(realmDN);
+        }
         return dn;
     }
 
@@ -327,6 +343,9 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
         if (policyCacheSize > 0) {
             referralCache.decache(dn, realmDN);
         }
+        if (isPreloaded) {
+            preloader.reload(realmDN);
+        }
         return dn;
     }
 
@@ -418,7 +437,10 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
         }
 
         Set setDNs = new HashSet();
-        if (indexCacheSize > 0) {
+        if (isPreloaded) {
+            // Every privilege of the realm is in memory, so the data store is never searched.
+            preloader.getRealm(realmDN).search(indexes, subjectIndexes, bSubTree, iterator);
+        } else if (indexCacheSize > 0) {
             setDNs.addAll(searchPrivileges(indexes, subjectIndexes, bSubTree, iterator));
             setDNs.addAll(searchReferrals(indexes, bSubTree, iterator));
         }
@@ -434,7 +456,7 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
             }
         }
 
-        if (indexCacheSize == 0 || isDSSearchNecessary()) {
+        if (!isPreloaded && (indexCacheSize == 0 || isDSSearchNecessary())) {
             threadPool.submit(new SearchTask(iterator, indexes, subjectIndexes, bSubTree, setDNs));
         } else {
             iterator.isDone();
@@ -451,6 +473,16 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
      */
     public IPrivilege getPrivilege(String privilegeName) {
 
+        if (isPreloaded) {
+            try {
+                return preloader.getRealm(realmDN).getPrivilege(
+                        DataStore.getPrivilegeDistinguishedName(privilegeName, realmDN, null));
+            } catch (EntitlementException e) {
+                PolicyConstants.DEBUG.error("OpenSSOIndexStore.getPrivilege", e);
+                return null;
+            }
+        }
+
         //if we have anything in the cache try to retrieve this one from it before going to DS
         if (policyCacheSize > 0) {
             String dn = DataStore.getPrivilegeDistinguishedName(privilegeName, getRealm(), null);
@@ -558,7 +590,7 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
     }
 
     private boolean isPolicyCacheBehind(String realm) {
-        if (!CacheTaboo.isEmpty()) {
+        if ((indexCache != null) && !indexCache.isComplete()) {
             return true;
         }
 
@@ -572,7 +604,7 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
     }
 
     private boolean isReferralCacheBehind(String realm) {
-        if (!CacheTaboo.isEmpty()) {
+        if ((referralIndexCache != null) && !referralIndexCache.isComplete()) {
             return true;
         }
 
@@ -1002,8 +1034,11 @@ public class OpenSSOIndexStore extends PrivilegeIndexStore {
                 (serviceComponent.trim().length() == 0) ||
                 serviceComponent.equals("/"))) {
                 // Realm has been deleted, clear the indexCaches &
-                indexCaches.remove(orgName);
-                referralIndexCaches.remove(orgName);
+                indexCaches.remove(orgName.toLowerCase());
+                referralIndexCaches.remove(orgName.toLowerCase());
+                if (isPreloaded) {
+                    InjectorHolder.getInstance(PolicyPreloader.class).remove(orgName);
+                }
                 getApplicationService(SUPER_ADMIN_SUBJECT, orgName).clearCache();
             }
         }
@@ -25,29 +25,37 @@
  * $Id: PolicyCache.java,v 1.3 2009/12/12 00:03:13 veiming Exp $
  *
  * Portions copyright 2013-2016 ForgeRock, Inc.
+ * Portions copyright 2026 Wren Security.
  */
 
 package com.sun.identity.entitlement.opensso;
 
+import com.sun.identity.entitlement.IPrivilege;
 import com.sun.identity.entitlement.Privilege;
-import java.util.HashMap;
 import com.sun.identity.entitlement.ReferralPrivilege;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Policy Cache
+ * <p>
+ * Lookups take no locks. Once full, further privileges are not cached, leaving the cached count for their realm behind
+ * the number stored so that searches fall back to the directory.
  */
 class PolicyCache {
-    private Cache cache;
-    private HashMap<String, Integer> countByRealm;
-    private ReadWriteLock rwlock = new ReentrantReadWriteLock();
+    private final String name;
+    private final int size;
+    private final ConcurrentMap<String, IPrivilege> cache;
+    private final ConcurrentMap<String, AtomicInteger> countByRealm;
 
     PolicyCache(String name, int size) {
         int initCapacity = (int) (size * 0.01d);
-        cache = new Cache(name, initCapacity, size);
-        countByRealm = new HashMap<String, Integer>();
+        this.name = name;
+        this.size = size;
+        cache = new ConcurrentHashMap<String, IPrivilege>(initCapacity);
+        countByRealm = new ConcurrentHashMap<String, AtomicInteger>();
     }
 
     /**
@@ -57,17 +65,9 @@ class PolicyCache {
      * @param p Privilege.
      */
     public void cache(String dn, Privilege p, String realm) {
-        rwlock.writeLock().lock();
-        try {
-            Object e = cache.put(dn, p);
-            if (e == null) {
-                // Update count only if added, not if replaced
-                Integer i = countByRealm.get(realm);
-                int count = (i == null) ? 1 : i.intValue() + 1;
-                countByRealm.put(realm, count);
-            }
-        } finally {
-            rwlock.writeLock().unlock();
+        if (put(dn, p)) {
+            // Update count only if added, not if replaced
+            getCounter(realm).incrementAndGet();
         }
     }
 
@@ -78,72 +78,68 @@ class PolicyCache {
      * @param p Referral privilege.
      */
     public void cache(String dn, ReferralPrivilege p, String realm) {
-        rwlock.writeLock().lock();
-        try {
-            cache.put(dn, p);
-        } finally {
-            rwlock.writeLock().unlock();
+        if (put(dn, p)) {
+            getCounter(realm).incrementAndGet();
         }
     }
 
     public void cache(Map<String, Privilege> privileges, boolean force) {
-        rwlock.writeLock().lock();
-        try {
-            for (String dn : privileges.keySet()) {
-                if (force) {
-                    cache.put(dn, privileges.get(dn));
-                } else {
-                    Privilege p = (Privilege)privileges.get(dn);
-                    if (p == null) {
-                        cache.put(dn, privileges.get(dn));
-                    }
-                }
+        for (Map.Entry<String, Privilege> entry : privileges.entrySet()) {
+            if (force) {
+                put(entry.getKey(), entry.getValue());
+            } else if (!cache.containsKey(entry.getKey())) {
+                put(entry.getKey(), entry.getValue());
             }
-        } finally {
-            rwlock.writeLock().unlock();
         }
     }
 
+    /**
+     * @return <code>true</code> if the privilege was added rather than replaced or refused.
+     */
+    private boolean put(String dn, IPrivilege p) {
+        if (cache.size() >= size && !cache.containsKey(dn)) {
+            return false;
+        }
+
+        return cache.put(dn, p) == null;
+    }
+
+    private AtomicInteger getCounter(String realm) {
+        AtomicInteger counter = countByRealm.get(realm);
+        if (counter == null) {
+            AtomicInteger created = new AtomicInteger();
+            counter = countByRealm.putIfAbsent(realm, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
     public void decache(String dn, String realm) {
-        rwlock.writeLock().lock();
-        try {
-            Object p = cache.remove(dn);
-            if (p != null) {
-                // Update cache only if entry removed from cache
-                Integer i = countByRealm.get(realm);
-                if (i != null) {
-                    countByRealm.put(realm, i.intValue() - 1);
-                }
+        if (cache.remove(dn) != null) {
+            // Update cache only if entry removed from cache
+            AtomicInteger counter = countByRealm.get(realm);
+            if (counter != null) {
+                counter.decrementAndGet();
             }
-        } finally {
-            rwlock.writeLock().unlock();
         }
     }
 
     public Privilege getPolicy(String dn) {
-        rwlock.readLock().lock();
-        try {
-            return (Privilege)cache.get(dn);
-        } finally {
-            rwlock.readLock().unlock();
-        }
+        return (Privilege)cache.get(dn);
     }
-    
+
     /**
      * Returns the number of cached policies in the given realm
-     * 
+     *
      * @param realm
      *            realm name
      * @return cached policies for the realm
      */
     public int getCount(String realm) {
-        rwlock.readLock().lock();
-        try {
-            Integer integer = countByRealm.get(realm);
-            return (integer != null) ? integer : 0;
-        } finally {
-            rwlock.readLock().unlock();
-        }
+        AtomicInteger counter = countByRealm.get(realm);
+        return (counter != null) ? counter.get() : 0;
     }
 
     /**
@@ -151,24 +147,19 @@ class PolicyCache {
      * @return cached policies.
      */
     public int getCount() {
-        rwlock.readLock().lock();
-        try {
-            int total = 0;
-            for (Integer i : countByRealm.values()) {
-                total += i;
-            }
-            return total;
-        } finally {
-            rwlock.readLock().unlock();
+        int total = 0;
+        for (AtomicInteger i : countByRealm.values()) {
+            total += i.get();
         }
+        return total;
     }
 
     public ReferralPrivilege getReferral(String dn) {
-        rwlock.readLock().lock();
-        try {
-            return (ReferralPrivilege)cache.get(dn);
-        } finally {
-            rwlock.readLock().unlock();
-        }
+        return (ReferralPrivilege)cache.get(dn);
+    }
+
+    @Override
+    public String toString() {
+        return name;
     }
 }
@@ -0,0 +1,34 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.sun.identity.entitlement.opensso;
+
+import org.forgerock.guice.core.InjectorHolder;
+
+import com.sun.identity.setup.SetupListener;
+
+/**
+ * Starts loading every realm's policies into memory once the server has started, when policy preloading is enabled.
+ */
+public class PolicyPreloadSetupListener implements SetupListener {
+
+    @Override
+    public void setupComplete() {
+        if (PolicyPreloader.isEnabled()) {
+            InjectorHolder.getInstance(PolicyPreloader.class).preloadAll();
+        }
+    }
+}
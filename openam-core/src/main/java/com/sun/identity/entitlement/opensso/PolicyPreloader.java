@@ -0,0 +1,304 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.sun.identity.entitlement.opensso;
+
+import static org.forgerock.openam.entitlement.PolicyConstants.SUPER_ADMIN_SUBJECT;
+
+import java.security.AccessController;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.forgerock.openam.entitlement.PolicyConstants;
+import org.forgerock.openam.entitlement.monitoring.PolicyMonitor;
+import org.forgerock.openam.ldap.LDAPUtils;
+import org.forgerock.openam.utils.RealmUtils;
+import org.json.JSONException;
+
+import com.iplanet.am.util.SystemProperties;
+import com.iplanet.sso.SSOToken;
+import com.sun.identity.entitlement.DecisionCache;
+import com.sun.identity.entitlement.EntitlementException;
+import com.sun.identity.entitlement.Privilege;
+import com.sun.identity.entitlement.ReferralPrivilege;
+import com.sun.identity.entitlement.SubjectAttributesManager;
+import com.sun.identity.security.AdminTokenAction;
+import com.sun.identity.shared.Constants;
+import com.sun.identity.shared.debug.Debug;
+import com.sun.identity.sm.DNMapper;
+import com.sun.identity.sm.SMSException;
+
+/**
+ * Holds every realm's privileges in memory when policies are preloaded, so that {@link OpenSSOIndexStore} can
+ * evaluate without consulting the data store.
+ * <p>
+ * All realms are loaded in the background once the server has started, and any realm not yet loaded is loaded on
+ * first use. Policy change notifications, whether from this server or another, cause the affected realm to be reloaded
+ * in the background; evaluation continues against the previous copy until the new one is published, after which the
+ * {@link DecisionCache} is invalidated so that no decision made against the previous copy outlives it. A change
+ * notified whilst a realm is first being loaded causes it to be reloaded once published. A reload never brings back a
+ * realm which has been removed in the meantime. Progress and the estimated memory footprint are reported to the
+ * {@link PolicyMonitor}.
+ */
+@Singleton
+public class PolicyPreloader {
+
+    private static final Debug DEBUG = PolicyConstants.DEBUG;
+
+    private final PolicyMonitor policyMonitor;
+    private final DecisionCache decisionCache;
+    private final ConcurrentMap<String, PreloadedRealm> realms = new ConcurrentHashMap<String, PreloadedRealm>();
+    private final ConcurrentMap<String, RealmState> states = new ConcurrentHashMap<String, RealmState>();
+    private final Set<String> pendingReloads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "PolicyPreloader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param policyMonitor The monitor to which preload progress is reported.
+     * @param decisionCache The policy decision cache, invalidated whenever a realm is reloaded.
+     */
+    @Inject
+    public PolicyPreloader(PolicyMonitor policyMonitor, DecisionCache decisionCache) {
+        this.policyMonitor = policyMonitor;
+        this.decisionCache = decisionCache;
+    }
+
+    /**
+     * @return Whether policies are to be evaluated from memory.
+     */
+    public static boolean isEnabled() {
+        return SystemProperties.getAsBoolean(Constants.POLICY_PRELOAD_ENABLED, false);
+    }
+
+    /**
+     * Loads every realm in the background.
+     */
+    public void preloadAll() {
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                SSOToken adminToken = AccessController.doPrivileged(AdminTokenAction.getInstance());
+                Set<String> realmNames;
+
+                try {
+                    realmNames = RealmUtils.getRealmNames(adminToken);
+                } catch (SMSException e) {
+                    DEBUG.error("PolicyPreloader.preloadAll: unable to list realms", e);
+                    return;
+                }
+
+                policyMonitor.preloadStarted(realmNames.size());
+
+                for (String realm : realmNames) {
+                    try {
+                        load(realm, false);
+                    } catch (EntitlementException e) {
+                        DEBUG.error("PolicyPreloader.preloadAll: unable to load realm " + realm, e);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the privileges of the realm, loading them if this is the first use of the realm.
+     *
+     * @param realm Realm name or DN.
+     * @return The realm's privileges.
+     * @throws EntitlementException If the realm's privileges could not be read.
+     */
+    PreloadedRealm getRealm(String realm) throws EntitlementException {
+        PreloadedRealm loaded = realms.get(key(realm));
+        return loaded != null ? loaded : load(realm, false);
+    }
+
+    /**
+     * Reloads the realm in the background, if it has been loaded. Requests made whilst a reload of the realm is
+     * waiting to run are coalesced with it, and requests made whilst the realm is first being loaded are acted on
+     * once it has been.
+     *
+     * @param realm Realm name or DN.
+     */
+    public void reload(final String realm) {
+        final String key = key(realm);
+        state(key).generation.incrementAndGet();
+
+        if (!realms.containsKey(key) || !pendingReloads.add(key)) {
+            return;
+        }
+
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                pendingReloads.remove(key);
+                try {
+                    load(realm, true);
+                } catch (EntitlementException e) {
+                    DEBUG.error("PolicyPreloader.reload: unable to reload realm " + realm, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reloads every loaded realm in the background.
+     */
+    public void reloadAll() {
+        for (String key : realms.keySet()) {
+            reload(key);
+        }
+    }
+
+    /**
+     * Discards the realm, for instance once it has been deleted.
+     *
+     * @param realm Realm name or DN.
+     */
+    public void remove(String realm) {
+        states.remove(key(realm));
+        if (realms.remove(key(realm)) != null) {
+            policyMonitor.removePreloadedRealm(key(realm));
+        }
+    }
+
+    /**
+     * Reads the realm's privileges and publishes them. A first load holds the realm's lock, so that the realm is read
+     * once however many threads need it, and reloads the realm once published if it changed whilst being read. A
+     * reload only replaces a realm which is still held, so that it cannot bring back a realm removed whilst it was
+     * running, and once published invalidates the decisions that may have been made against the previous copy.
+     */
+    private PreloadedRealm load(String realm, boolean isReload) throws EntitlementException {
+        String realmDN = LDAPUtils.isDN(realm) ? realm : DNMapper.orgNameToDN(realm);
+        String key = key(realmDN);
+
+        if (isReload) {
+            PreloadedRealm loaded = read(realmDN);
+            if (realms.replace(key, loaded) == null) {
+                if (DEBUG.messageEnabled()) {
+                    DEBUG.message("PolicyPreloader.load: discarded reload of removed realm " + realmDN);
+                }
+                return loaded;
+            }
+            decisionCache.invalidateAll();
+            published(key, realmDN, loaded);
+            return loaded;
+        }
+
+        RealmState state = state(key);
+        synchronized (state) {
+            PreloadedRealm loaded = realms.get(key);
+            if (loaded != null) {
+                return loaded;
+            }
+            long generation = state.generation.get();
+            loaded = read(realmDN);
+            realms.put(key, loaded);
+            published(key, realmDN, loaded);
+            if (state.generation.get() != generation) {
+                reload(realmDN);
+            }
+            return loaded;
+        }
+    }
+
+    private PreloadedRealm read(String realmDN) throws EntitlementException {
+        String realmName = DNMapper.orgNameToRealmName(realmDN);
+        DataStore dataStore = DataStore.getInstance();
+        PreloadedRealm.Builder builder = new PreloadedRealm.Builder();
+
+        for (Privilege privilege : dataStore.findPoliciesByRealm(realmDN)) {
+            builder.add(DataStore.getPrivilegeDistinguishedName(privilege.getName(), realmDN, null), privilege,
+                    privilege.getResourceSaveIndexes(SUPER_ADMIN_SUBJECT, realmName),
+                    SubjectAttributesManager.getSubjectSearchIndexes(privilege), sizeOf(privilege));
+        }
+
+        for (ReferralPrivilege referral : dataStore.findReferralsByRealm(realmDN)) {
+            builder.addReferral(
+                    DataStore.getPrivilegeDistinguishedName(referral.getName(), realmDN, DataStore.REFERRAL_STORE),
+                    referral, referral.getResourceSaveIndexes(SUPER_ADMIN_SUBJECT, realmName),
+                    referral.toJSON().length());
+        }
+
+        return builder.build();
+    }
+
+    private void published(String key, String realmDN, PreloadedRealm loaded) {
+        policyMonitor.addPreloadedRealm(key, loaded.getPrivilegeCount() + loaded.getReferralCount(),
+                loaded.getFootprint());
+
+        if (DEBUG.messageEnabled()) {
+            DEBUG.message("PolicyPreloader.load: loaded " + loaded.getPrivilegeCount() + " privileges and "
+                    + loaded.getReferralCount() + " referrals for " + realmDN);
+        }
+    }
+
+    private RealmState state(String key) {
+        RealmState state = states.get(key);
+        if (state == null) {
+            RealmState created = new RealmState();
+            state = states.putIfAbsent(key, created);
+            if (state == null) {
+                state = created;
+            }
+        }
+        return state;
+    }
+
+    private static int sizeOf(Privilege privilege) {
+        try {
+            return privilege.toJSONObject().toString().length();
+        } catch (JSONException e) {
+            return 0;
+        }
+    }
+
+    private static String key(String realm) {
+        return (LDAPUtils.isDN(realm) ? realm : DNMapper.orgNameToDN(realm)).toLowerCase();
+    }
+
+    private void submit(Runnable task) {
+        try {
+            loader.submit(task);
+        } catch (RejectedExecutionException e) {
+            DEBUG.error("PolicyPreloader.submit: task rejected", e);
+        }
+    }
+
+    /**
+     * The lock under which a realm is first loaded, and the count of changes notified for the realm.
+     */
+    private static final class RealmState {
+        private final AtomicLong generation = new AtomicLong();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.sun.identity.entitlement.opensso;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.sun.identity.entitlement.IPrivilege;
+import com.sun.identity.entitlement.Privilege;
+import com.sun.identity.entitlement.ReferralPrivilege;
+import com.sun.identity.entitlement.ResourceSaveIndexes;
+import com.sun.identity.entitlement.ResourceSearchIndexes;
+import com.sun.identity.shared.BufferedIterator;
+
+/**
+ * An immutable, in-memory copy of every privilege and referral privilege of a realm, together with their indexes, so
+ * that policy evaluation against the realm never needs to consult the data store.
+ * <p>
+ * Strings repeated across privileges, such as host and parent path indexes, are shared rather than held once per
+ * privilege. The footprint reported is an estimate of the memory retained by the privileges and their postings.
+ */
+final class PreloadedRealm {
+
+    private static final int STRING_OVERHEAD = 40;
+    private static final int ENTRY_OVERHEAD = 32;
+
+    private final Map<String, Privilege> privileges;
+    private final Map<String, ReferralPrivilege> referrals;
+    private final IndexCache privilegeIndexes;
+    private final IndexCache referralIndexes;
+    private final long footprint;
+
+    private PreloadedRealm(Builder builder) {
+        privileges = Collections.unmodifiableMap(builder.privileges);
+        referrals = Collections.unmodifiableMap(builder.referrals);
+        privilegeIndexes = builder.privilegeIndexes;
+        referralIndexes = builder.referralIndexes;
+        footprint = builder.footprint;
+    }
+
+    /**
+     * Feeds all privileges and referral privileges that match the given indexes to the iterator.
+     *
+     * @param indexes Resource search indexes.
+     * @param subjectIndexes Subject search indexes.
+     * @param bSubTree <code>true</code> for sub tree search mode.
+     * @param iterator Buffered iterator to have the results fed to it.
+     */
+    void search(ResourceSearchIndexes indexes, Set<String> subjectIndexes, boolean bSubTree,
+            BufferedIterator<IPrivilege> iterator) {
+        if (!privileges.isEmpty()) {
+            for (String dn : privilegeIndexes.getMatchingEntries(indexes, subjectIndexes, bSubTree)) {
+                iterator.add(privileges.get(dn));
+            }
+        }
+        if (!referrals.isEmpty()) {
+            for (String dn : referralIndexes.getMatchingEntries(indexes, null, bSubTree)) {
+                iterator.add(referrals.get(dn));
+            }
+        }
+    }
+
+    /**
+     * @param dn Distinguished name of the privilege.
+     * @return The privilege, or <code>null</code> if the realm has no such privilege.
+     */
+    Privilege getPrivilege(String dn) {
+        return privileges.get(dn);
+    }
+
+    int getPrivilegeCount() {
+        return privileges.size();
+    }
+
+    int getReferralCount() {
+        return referrals.size();
+    }
+
+    /**
+     * @return Estimated number of bytes retained.
+     */
+    long getFootprint() {
+        return footprint;
+    }
+
+    /**
+     * Collects the privileges of a realm.
+     */
+    static final class Builder {
+
+        private final Map<String, Privilege> privileges = new HashMap<String, Privilege>();
+        private final Map<String, ReferralPrivilege> referrals = new HashMap<String, ReferralPrivilege>();
+        private final IndexCache privilegeIndexes = new IndexCache(Integer.MAX_VALUE);
+        private final IndexCache referralIndexes = new IndexCache(Integer.MAX_VALUE);
+        private final Map<String, String> strings = new HashMap<String, String>();
+        private long footprint;
+
+        /**
+         * Adds a privilege.
+         *
+         * @param dn Distinguished name of the privilege.
+         * @param privilege The privilege.
+         * @param indexes Resource save indexes of the privilege, may be <code>null</code>.
+         * @param subjectIndexes Subject search indexes of the privilege.
+         * @param size Size, in characters, of the privilege's serialised form.
+         * @return This builder.
+         */
+        Builder add(String dn, Privilege privilege, ResourceSaveIndexes indexes, Set<String> subjectIndexes,
+                int size) {
+            dn = share(dn);
+            if (privileges.put(dn, privilege) == null) {
+                if (indexes != null) {
+                    privilegeIndexes.cache(share(indexes), share(subjectIndexes), dn);
+                }
+                footprint += ENTRY_OVERHEAD + STRING_OVERHEAD + 2L * size;
+            }
+            return this;
+        }
+
+        /**
+         * Adds a referral privilege.
+         *
+         * @param dn Distinguished name of the referral privilege.
+         * @param referral The referral privilege.
+         * @param indexes Resource save indexes of the referral privilege, may be <code>null</code>.
+         * @param size Size, in characters, of the referral privilege's serialised form.
+         * @return This builder.
+         */
+        Builder addReferral(String dn, ReferralPrivilege referral, ResourceSaveIndexes indexes, int size) {
+            dn = share(dn);
+            if (referrals.put(dn, referral) == null) {
+                if (indexes != null) {
+                    referralIndexes.cache(share(indexes), null, dn);
+                }
+                footprint += ENTRY_OVERHEAD + STRING_OVERHEAD + 2L * size;
+            }
+            return this;
+        }
+
+        PreloadedRealm build() {
+            return new PreloadedRealm(this);
+        }
+
+        private ResourceSaveIndexes share(ResourceSaveIndexes indexes) {
+            return new ResourceSaveIndexes(share(indexes.getHostIndexes()), share(indexes.getPathIndexes()),
+                    share(indexes.getParentPathIndexes()));
+        }
+
+        private Set<String> share(Set<String> values) {
+            if (values == null) {
+                return null;
+            }
+            Set<String> shared = new HashSet<String>(values.size());
+            for (String value : values) {
+                // Index keys are held lower case, so share that form.
+                shared.add(share(value.toLowerCase()));
+                footprint += ENTRY_OVERHEAD;
+            }
+            return shared;
+        }
+
+        private String share(String value) {
+            String shared = strings.get(value);
+            if (shared == null) {
+                strings.put(value, value);
+                footprint += STRING_OVERHEAD + 2L * value.length();
+                shared = value;
+            }
+            return shared;
+        }
+    }
+}
@@ -12,21 +12,30 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.blacklist;
 
+import static org.forgerock.openam.utils.Time.currentTimeMillis;
+
 import javax.annotation.Nonnull;
 import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+import com.iplanet.am.util.SystemProperties;
+import com.sun.identity.shared.Constants;
 import com.sun.identity.shared.debug.Debug;
 import org.forgerock.bloomfilter.BloomFilter;
 import org.forgerock.bloomfilter.BloomFilters;
 import org.forgerock.bloomfilter.ConcurrencyStrategy;
-import org.forgerock.bloomfilter.ExpiryStrategy;
 import org.wrensecurity.guava.common.hash.Funnel;
 import org.wrensecurity.guava.common.hash.Funnels;
 import org.wrensecurity.guava.common.hash.PrimitiveSink;
+import org.forgerock.openam.monitoring.MBeanRegistration;
 import org.forgerock.openam.utils.StringUtils;
 import org.forgerock.util.Reject;
 import org.forgerock.util.annotations.VisibleForTesting;
@@ -35,34 +44,56 @@ import org.forgerock.util.annotations.VisibleForTesting;
  * A entry blacklist decorator implementation that uses a bloom filter to reduce the number of checks that need to
  * be performed against the underlying blacklist implementation. The advantage of a bloom filter is that it can store
  * very large blacklists (millions of entries) in memory, but with some possibility of false positives.
+ * <p/>
+ * Entries are held in a series of time buckets, each a separate bloom filter covering a fixed span of expiry times.
+ * A bucket is sized from the expected revocation rate, so a burst of revocations only degrades the bucket it lands
+ * in, and is dropped as a whole once every entry it may contain has expired. A check only consults the bucket
+ * covering the expiry time of the entry being checked.
  *
  * @param <T> The blacklist type.
  */
-public final class BloomFilterBlacklist<T extends Blacklistable> implements Blacklist<T> {
+public final class BloomFilterBlacklist<T extends Blacklistable> implements Blacklist<T>, BloomFilterBlacklistMXBean {
     private static final double FALSE_POSITIVE_PROBABILITY = 0.001d; // 0.1%
-    private static final int NUM_EXPECTED_BLACKLISTED_ENTRIES = 10000;
     private static final int CAPACITY_GROWTH_FACTOR = 2;
     private static final double FALSE_POSITIVE_PROBABILITY_SCALE_FACTOR = 0.6d;
+    private static final int DEFAULT_EXPECTED_REVOCATIONS_PER_MINUTE = 1000;
+    private static final int MIN_BUCKET_CAPACITY = 100;
+    private static final long MIN_BUCKET_DURATION_MS = TimeUnit.MINUTES.toMillis(1);
+    /**
+     * Allowance for expiry times that lose precision on their way through the CTS. An entry near a bucket boundary
+     * is looked for in both buckets, so each bucket is configured with half of the target false positive rate.
+     */
+    private static final long EXPIRY_TOLERANCE_MS = TimeUnit.SECONDS.toMillis(1);
 
     private static final Debug DEBUG = Debug.getInstance("blacklist");
 
     private final Blacklist<T> delegate;
     private final long purgeDelayMs;
-    private final BloomFilter<BlacklistEntry> bloomFilter;
+    private final long bucketDurationMs;
+    private final int bucketCapacity;
+    private final BucketFactory bucketFactory;
+    private final ConcurrentNavigableMap<Long, BloomFilter<BlacklistEntry>> buckets = new ConcurrentSkipListMap<>();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder fallThroughs = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
 
     @VisibleForTesting
-    BloomFilterBlacklist(Blacklist<T> delegate, long purgeDelayMs, final BloomFilter<BlacklistEntry> bloomFilter) {
-        Reject.ifNull(delegate, bloomFilter);
+    BloomFilterBlacklist(Blacklist<T> delegate, long purgeDelayMs, long bucketDurationMs, int bucketCapacity,
+            BucketFactory bucketFactory) {
+        Reject.ifNull(delegate, bucketFactory);
+        Reject.ifTrue(bucketDurationMs <= EXPIRY_TOLERANCE_MS, "Bucket duration must exceed the expiry tolerance");
 
         this.delegate = delegate;
         this.purgeDelayMs = purgeDelayMs;
-        this.bloomFilter = bloomFilter;
+        this.bucketDurationMs = bucketDurationMs;
+        this.bucketCapacity = bucketCapacity;
+        this.bucketFactory = bucketFactory;
 
         delegate.subscribe(new Listener() {
             @Override
             public void onBlacklisted(String id, long expiryTime) {
                 DEBUG.message("BloomFilterBlacklist: Blacklisting entry from event: {}", id);
-                bloomFilter.add(new BlacklistEntry(id, expiryTime));
+                add(new BlacklistEntry(id, expiryTime));
             }
         });
 
@@ -76,19 +107,37 @@ public final class BloomFilterBlacklist<T extends Blacklistable> implements Blac
      * <p/>
      * In order to ensure that the bloom filter is kept in-sync with the definitive blacklist (to avoid false
      * negatives), this implementation will subscribe to blacklist notifications from the delegate.
+     * <p/>
+     * Each time bucket spans the purge delay (or one minute if that is shorter), and is sized for the number of
+     * revocations expected in that span according to {@link Constants#BLACKLIST_EXPECTED_REVOCATIONS_PER_MINUTE}.
+     * The blacklist statistics are registered with the platform MBean server under the given name.
      *
      * @param delegate the definitive blacklist.
      * @param purgeDelayMs The purge delay in milli seconds.
+     * @param name The name under which to export the blacklist statistics, e.g. {@literal session}.
      */
-    public BloomFilterBlacklist(Blacklist<T> delegate, long purgeDelayMs) {
-        this(delegate, purgeDelayMs, BloomFilters.create(EntryFunnel.INSTANCE)
-                        .withFalsePositiveProbability(FALSE_POSITIVE_PROBABILITY)
-                        .withInitialCapacity(NUM_EXPECTED_BLACKLISTED_ENTRIES)
-                        .withExpiryStrategy(EntryExpirationStrategy.INSTANCE)
-                        .withCapacityGrowthFactor(CAPACITY_GROWTH_FACTOR)
-                        .withFalsePositiveProbabilityScaleFactor(FALSE_POSITIVE_PROBABILITY_SCALE_FACTOR)
-                        .withConcurrencyStrategy(ConcurrencyStrategy.ATOMIC)
-                        .build());
+    public BloomFilterBlacklist(Blacklist<T> delegate, long purgeDelayMs, String name) {
+        this(delegate, purgeDelayMs, Math.max(purgeDelayMs, MIN_BUCKET_DURATION_MS),
+                bucketCapacity(Math.max(purgeDelayMs, MIN_BUCKET_DURATION_MS)), new BucketFactory() {
+                    @Override
+                    public BloomFilter<BlacklistEntry> create(int capacity) {
+                        return BloomFilters.create(EntryFunnel.INSTANCE)
+                                .withFalsePositiveProbability(FALSE_POSITIVE_PROBABILITY / 2)
+                                .withInitialCapacity(capacity)
+                                .withCapacityGrowthFactor(CAPACITY_GROWTH_FACTOR)
+                                .withFalsePositiveProbabilityScaleFactor(FALSE_POSITIVE_PROBABILITY_SCALE_FACTOR)
+                                .withConcurrencyStrategy(ConcurrencyStrategy.ATOMIC)
+                                .build();
+                    }
+                });
+        MBeanRegistration.register(this, BloomFilterBlacklistMXBean.class, "BloomFilterBlacklist", name, DEBUG);
+    }
+
+    private static int bucketCapacity(long bucketDurationMs) {
+        long revocationsPerMinute = SystemProperties.getAsLong(Constants.BLACKLIST_EXPECTED_REVOCATIONS_PER_MINUTE,
+                DEFAULT_EXPECTED_REVOCATIONS_PER_MINUTE);
+        long expected = revocationsPerMinute * bucketDurationMs / TimeUnit.MINUTES.toMillis(1);
+        return (int) Math.min(Math.max(expected, MIN_BUCKET_CAPACITY), Integer.MAX_VALUE);
     }
 
     @Override
@@ -100,9 +149,14 @@ public final class BloomFilterBlacklist<T extends Blacklistable> implements Blac
     @Override
     public boolean isBlacklisted(T entry) throws BlacklistException {
         DEBUG.message("BloomFilterBlacklist: checking blacklist");
-        boolean blacklisted = false;
-        if (bloomFilter.mightContain(BlacklistEntry.from(entry, purgeDelayMs))) {
-            blacklisted = delegate.isBlacklisted(entry);
+        checks.increment();
+        if (!mightContain(BlacklistEntry.from(entry, purgeDelayMs))) {
+            return false;
+        }
+        fallThroughs.increment();
+        boolean blacklisted = delegate.isBlacklisted(entry);
+        if (!blacklisted) {
+            falsePositives.increment();
         }
         return blacklisted;
     }
@@ -112,6 +166,95 @@ public final class BloomFilterBlacklist<T extends Blacklistable> implements Blac
         delegate.subscribe(listener);
     }
 
+    private void add(BlacklistEntry entry) {
+        long now = currentTimeMillis();
+        dropExpiredBuckets(now);
+        if (entry.expiryTime < now) {
+            // Already eligible for purging, so will never be checked for
+            return;
+        }
+        long bucket = entry.expiryTime / bucketDurationMs;
+        BloomFilter<BlacklistEntry> bloomFilter = buckets.get(bucket);
+        if (bloomFilter == null) {
+            BloomFilter<BlacklistEntry> created = bucketFactory.create(bucketCapacity);
+            BloomFilter<BlacklistEntry> existing = buckets.putIfAbsent(bucket, created);
+            bloomFilter = existing == null ? created : existing;
+        }
+        bloomFilter.add(entry);
+    }
+
+    private boolean mightContain(BlacklistEntry entry) {
+        dropExpiredBuckets(currentTimeMillis());
+        long first = (entry.expiryTime - EXPIRY_TOLERANCE_MS) / bucketDurationMs;
+        long last = (entry.expiryTime + EXPIRY_TOLERANCE_MS) / bucketDurationMs;
+        for (long bucket = first; bucket <= last; bucket++) {
+            BloomFilter<BlacklistEntry> bloomFilter = buckets.get(bucket);
+            if (bloomFilter != null && bloomFilter.mightContain(entry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void dropExpiredBuckets(long now) {
+        long current = now / bucketDurationMs;
+        if (!buckets.isEmpty() && buckets.firstKey() < current) {
+            DEBUG.message("BloomFilterBlacklist: Dropping buckets expiring before {}", current * bucketDurationMs);
+            buckets.headMap(current).clear();
+        }
+    }
+
+    @Override
+    public long getCheckCount() {
+        return checks.sum();
+    }
+
+    @Override
+    public long getFallThroughCount() {
+        return fallThroughs.sum();
+    }
+
+    @Override
+    public long getFalsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    @Override
+    public double getFallThroughRate() {
+        long checkCount = checks.sum();
+        return checkCount == 0 ? 0 : (double) fallThroughs.sum() / checkCount;
+    }
+
+    @Override
+    public double getFalsePositiveRate() {
+        long falsePositiveCount = falsePositives.sum();
+        long negatives = checks.sum() - (fallThroughs.sum() - falsePositiveCount);
+        return negatives <= 0 ? 0 : (double) falsePositiveCount / negatives;
+    }
+
+    @Override
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    @Override
+    public long getBucketCapacity() {
+        return bucketCapacity;
+    }
+
+    @Override
+    public long getBucketDurationMillis() {
+        return bucketDurationMs;
+    }
+
+    /**
+     * Creates the bloom filter for a single time bucket.
+     */
+    @VisibleForTesting
+    interface BucketFactory {
+        BloomFilter<BlacklistEntry> create(int capacity);
+    }
+
     /**
      * Adapter to allow entries to be stored in Guava bloom filters. Uses the UTF-8 encoded bytes of the
      * stable id of the entry as the key.
@@ -127,18 +270,6 @@ public final class BloomFilterBlacklist<T extends Blacklistable> implements Blac
         }
     }
 
-    /**
-     * Strategy to determine when a entry has expired and no longer needs to be stored in the bloom filter.
-     */
-    private enum EntryExpirationStrategy implements ExpiryStrategy<BlacklistEntry> {
-        INSTANCE;
-
-        @Override
-        public long expiryTime(BlacklistEntry entry) {
-            return entry.expiryTime;
-        }
-    }
-
     /**
      * Minimal information about an entry required for blacklisting in the bloom filter.
      */
@@ -0,0 +1,81 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.blacklist;
+
+/**
+ * Exposes the effectiveness of a {@link BloomFilterBlacklist} to a JMX client such as VisualVM or JConsole, so that
+ * the expected revocation rate it is sized from can be tuned.
+ */
+public interface BloomFilterBlacklistMXBean {
+
+    /**
+     * Get the number of blacklist checks made since the blacklist was created.
+     *
+     * @return the number of checks.
+     */
+    long getCheckCount();
+
+    /**
+     * Get the number of checks that the bloom filter could not answer and so fell through to the delegate blacklist.
+     *
+     * @return the number of checks made against the delegate blacklist.
+     */
+    long getFallThroughCount();
+
+    /**
+     * Get the number of checks that fell through to the delegate blacklist for an entry that was not blacklisted.
+     *
+     * @return the number of false positives reported by the bloom filter.
+     */
+    long getFalsePositiveCount();
+
+    /**
+     * Get the proportion of checks that fell through to the delegate blacklist.
+     *
+     * @return the fall-through rate, between 0 and 1.
+     */
+    double getFallThroughRate();
+
+    /**
+     * Get the observed false positive rate of the bloom filter, i.e. the proportion of checks for entries that were
+     * not blacklisted which still fell through to the delegate blacklist.
+     *
+     * @return the false positive rate, between 0 and 1.
+     */
+    double getFalsePositiveRate();
+
+    /**
+     * Get the number of time buckets currently held, each of which is a separate bloom filter.
+     *
+     * @return the number of live buckets.
+     */
+    int getBucketCount();
+
+    /**
+     * Get the number of entries each time bucket is initially sized for.
+     *
+     * @return the initial capacity of each bucket.
+     */
+    long getBucketCapacity();
+
+    /**
+     * Get the span of expiry times covered by each time bucket.
+     *
+     * @return the bucket duration in milliseconds.
+     */
+    long getBucketDurationMillis();
+}
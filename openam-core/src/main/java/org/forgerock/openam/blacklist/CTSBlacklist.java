@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.blacklist;
@@ -25,6 +26,7 @@ import static org.forgerock.util.query.QueryFilter.*;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ScheduledExecutorService;
@@ -35,12 +37,18 @@ import org.forgerock.openam.cts.CTSPersistentStore;
 import org.forgerock.openam.cts.api.filter.TokenFilter;
 import org.forgerock.openam.cts.api.filter.TokenFilterBuilder;
 import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.continuous.ChangeType;
+import org.forgerock.openam.cts.continuous.ContinuousQueryListener;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.cts.monitoring.CTSOperationsMonitoringStore;
 import org.forgerock.openam.shared.concurrency.ThreadMonitor;
+import org.forgerock.openam.sm.datalayer.api.DataLayerException;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.openam.tokens.TokenType;
 import org.forgerock.openam.utils.TimeUtils;
+import org.forgerock.opendj.ldap.Attribute;
+import org.forgerock.opendj.ldap.GeneralizedTime;
 import org.forgerock.util.Reject;
 
 import com.iplanet.services.naming.ServerEntryNotFoundException;
@@ -68,6 +76,11 @@ import com.sun.identity.shared.debug.Debug;
  * subscribed blacklist {@link Listener}s for <em>all</em> blacklist entries, not just local ones. This feature is
  * essential for correct operation of the {@link BloomFilterBlacklist}, which would otherwise report false
  * negatives.
+ * <p/>
+ * When push is enabled, changes made on other servers are instead reported as they happen by a CTS continuous
+ * query, and the time they took to reach this server is recorded as the blacklist propagation lag. The CTS is
+ * then only polled to reconcile the changes which may have been missed while the continuous query was
+ * disconnected. Should the continuous query fail to register, the blacklist falls back to polling.
  *
  * @param <T> The blacklist type.
  * @since 13.0.0
@@ -87,18 +100,26 @@ public final class CTSBlacklist<T extends Blacklistable> implements Blacklist<T>
     private final CTSPersistentStore cts;
     private final TokenType tokenType;
     private final PollTask pollTask;
+    private final PushListener pushListener;
     private final ScheduledExecutorService scheduledExecutorService;
     private final String localServerId;
     private final long purgeDelayMs;
+    private final long pollIntervalMs;
+    private final CTSOperationsMonitoringStore monitoringStore;
 
     public CTSBlacklist(CTSPersistentStore cts, TokenType tokenType, ScheduledExecutorService scheduler,
-            ThreadMonitor threadMonitor, WebtopNamingQuery serverConfig, long purgeDelayMs, long pollIntervalMs) {
+            ThreadMonitor threadMonitor, WebtopNamingQuery serverConfig, long purgeDelayMs, long pollIntervalMs,
+            CTSOperationsMonitoringStore monitoringStore, boolean pushEnabled) {
         Reject.ifNull(cts, tokenType, scheduler, threadMonitor);
+        Reject.ifTrue(pushEnabled && monitoringStore == null, "Push requires a monitoring store");
         this.cts = cts;
         this.tokenType = tokenType;
         this.scheduledExecutorService = scheduler;
         this.pollTask = new PollTask(scheduler, threadMonitor, pollIntervalMs);
+        this.pushListener = pushEnabled ? new PushListener() : null;
         this.purgeDelayMs = purgeDelayMs;
+        this.pollIntervalMs = pollIntervalMs;
+        this.monitoringStore = monitoringStore;
         String localServerId;
         try {
             localServerId = serverConfig.getAMServerID();
@@ -139,7 +160,11 @@ public final class CTSBlacklist<T extends Blacklistable> implements Blacklist<T>
 
     @Override
     public void subscribe(final Listener listener) {
-        pollTask.start();
+        if (pushListener != null) {
+            pushListener.start();
+        } else {
+            pollTask.start();
+        }
         Reject.ifNull(listener);
         listeners.add(listener);
 
@@ -185,6 +210,7 @@ public final class CTSBlacklist<T extends Blacklistable> implements Blacklist<T>
                                 not(equalTo(SERVER_ID_FIELD, localServerId))))
                 .returnAttribute(CoreTokenField.TOKEN_ID)
                 .returnAttribute(CoreTokenField.EXPIRY_DATE)
+                .withLowPriority()
                 .build();
 
         try {
@@ -195,6 +221,20 @@ public final class CTSBlacklist<T extends Blacklistable> implements Blacklist<T>
         }
     }
 
+    /**
+     * Notifies the listeners of the entries blacklisted on other servers since the last poll.
+     */
+    private void poll() {
+        Collection<PartialToken> results = findEntriesBlacklistedSince(lastPollTime.getAndSet(currentTimeMillis()));
+        if (results != null) {
+            DEBUG.message("CTSBlacklist: Processing {} entry blacklist notifications", results.size());
+            for (PartialToken token : results) {
+                notifyListeners(token.<String>getValue(CoreTokenField.TOKEN_ID),
+                        token.<Calendar>getValue(CoreTokenField.EXPIRY_DATE).getTimeInMillis());
+            }
+        }
+    }
+
     /**
      * Periodic task that checks for newly black-listed entries.
      */
@@ -221,15 +261,103 @@ public final class CTSBlacklist<T extends Blacklistable> implements Blacklist<T>
         @Override
         public void run() {
             DEBUG.message("CTSBlacklist: polling for new blacklisted entries");
-            Collection<PartialToken> results =
-                    findEntriesBlacklistedSince(lastPollTime.getAndSet(currentTimeMillis()));
-            if (results != null) {
-                DEBUG.message("CTSBlacklist: Processing {} entry blacklist notifications", results.size());
-                for (PartialToken token : results) {
-                    notifyListeners(token.<String>getValue(CoreTokenField.TOKEN_ID),
-                            TimeUtils.toUnixTime(token.<Calendar>getValue(CoreTokenField.EXPIRY_DATE)));
+            poll();
+        }
+    }
+
+    /**
+     * Receives the entries blacklisted on other servers from a CTS continuous query.
+     */
+    private final class PushListener implements ContinuousQueryListener<Attribute>, Runnable {
+        private final AtomicBoolean running = new AtomicBoolean(false);
+        private final String tokenIdAttribute = CoreTokenField.TOKEN_ID.toString();
+        private final String expiryAttribute = CoreTokenField.EXPIRY_DATE.toString();
+        private final String blacklistTimeAttribute = BLACKLIST_TIME_FIELD.toString();
+        private final String serverIdAttribute = SERVER_ID_FIELD.toString();
+
+        void start() {
+            if (running.compareAndSet(false, true)) {
+                DEBUG.message("CTSBlacklist: registering continuous query for blacklisted entries");
+                // Earlier entries are replayed to each listener as it subscribes.
+                lastPollTime.set(currentTimeMillis());
+                final TokenFilter filter = new TokenFilterBuilder()
+                        .withQuery(equalTo(CoreTokenField.TOKEN_TYPE, tokenType))
+                        .returnAttribute(CoreTokenField.TOKEN_ID)
+                        .returnAttribute(CoreTokenField.EXPIRY_DATE)
+                        .returnAttribute(BLACKLIST_TIME_FIELD)
+                        .returnAttribute(SERVER_ID_FIELD)
+                        .build();
+                try {
+                    cts.addContinuousQueryListener(this, filter);
+                } catch (CoreTokenException e) {
+                    DEBUG.error("CTSBlacklist: unable to register continuous query, falling back to polling", e);
+                    pollTask.start();
+                }
+            }
+        }
+
+        @Override
+        public void objectChanged(String tokenId, Map<String, Attribute> changeSet, ChangeType changeType) {
+            if (changeType != ChangeType.ADD || localServerId.equals(firstValue(changeSet, serverIdAttribute))) {
+                return;
+            }
+            String id = firstValue(changeSet, tokenIdAttribute);
+            String expiry = firstValue(changeSet, expiryAttribute);
+            if (id == null || expiry == null) {
+                DEBUG.warning("CTSBlacklist: incomplete blacklist entry {}, reconciling", tokenId);
+                scheduleReconciliation();
+                return;
+            }
+            try {
+                notifyListeners(id, GeneralizedTime.valueOf(expiry).getTimeInMillis());
+                String blacklistTime = firstValue(changeSet, blacklistTimeAttribute);
+                if (blacklistTime != null) {
+                    long blacklistedAt = GeneralizedTime.valueOf(blacklistTime).getTimeInMillis();
+                    monitoringStore.addBlacklistPropagationLag(Math.max(0, currentTimeMillis() - blacklistedAt));
                 }
+            } catch (IllegalArgumentException e) {
+                DEBUG.warning("CTSBlacklist: invalid blacklist entry {}, reconciling", tokenId, e);
+                scheduleReconciliation();
+            }
+        }
+
+        @Override
+        public void objectsChanged(Set<String> tokenIds) {
+            // Changes are always reported with their attributes, see objectChanged.
+        }
+
+        @Override
+        public void connectionLost() {
+            DEBUG.message("CTSBlacklist: continuous query (re)started, reconciling");
+            scheduleReconciliation();
+        }
+
+        @Override
+        public void processError(DataLayerException error) {
+            DEBUG.error("CTSBlacklist: continuous query failed, reconciling", error);
+            scheduleReconciliation();
+        }
+
+        /**
+         * Polls once the continuous query has had time to come back, so that nothing blacklisted between the
+         * poll and the continuous query resuming is missed.
+         */
+        private void scheduleReconciliation() {
+            scheduledExecutorService.schedule(this, pollIntervalMs, MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            DEBUG.message("CTSBlacklist: reconciling blacklisted entries");
+            poll();
+        }
+
+        private String firstValue(Map<String, Attribute> changeSet, String name) {
+            Attribute attribute = changeSet.get(name);
+            if (attribute == null || attribute.isEmpty()) {
+                return null;
             }
+            return attribute.firstValueAsString();
         }
     }
 }
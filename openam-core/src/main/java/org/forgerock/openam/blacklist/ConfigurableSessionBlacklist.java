@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.blacklist;
@@ -90,7 +91,7 @@ public class ConfigurableSessionBlacklist implements Blacklist<Session> {
         }
 
         if (pollIntervalMs > 0) {
-            blacklist = new BloomFilterBlacklist<>(blacklist, purgeDelayMs);
+            blacklist = new BloomFilterBlacklist<>(blacklist, purgeDelayMs, "session");
         }
 
         this.delegate = blacklist;
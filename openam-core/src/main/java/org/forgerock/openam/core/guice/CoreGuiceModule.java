@@ -13,6 +13,7 @@
  *
  * Copyright 2013-2016 ForgeRock AS.
  * Portions Copyrighted 2015 Nomura Research Institute, Ltd.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.core.guice;
@@ -48,6 +49,7 @@ import org.forgerock.openam.cts.adapters.SAMLAdapter;
 import org.forgerock.openam.cts.adapters.TokenAdapter;
 import org.forgerock.openam.cts.api.CoreTokenConstants;
 import org.forgerock.openam.cts.api.tokens.SAMLToken;
+import org.forgerock.openam.cts.monitoring.CTSOperationsMonitoringStore;
 import org.forgerock.openam.cts.worker.process.CTSWorkerProcessGuiceModule;
 import org.forgerock.openam.entitlement.monitoring.PolicyMonitor;
 import org.forgerock.openam.entitlement.monitoring.PolicyMonitorImpl;
@@ -80,6 +82,7 @@ import com.google.inject.assistedinject.FactoryModuleBuilder;
 import com.google.inject.multibindings.Multibinder;
 import com.google.inject.name.Names;
 import com.iplanet.am.util.SecureRandomManager;
+import com.iplanet.am.util.SystemProperties;
 import com.iplanet.dpro.session.Session;
 import com.iplanet.dpro.session.monitoring.SessionMonitoringStore;
 import com.iplanet.dpro.session.service.SessionServiceConfig;
@@ -97,6 +100,7 @@ import com.sun.identity.idm.AMIdentityRepository;
 import com.sun.identity.idm.IdRepoCreationListener;
 import com.sun.identity.security.AdminTokenAction;
 import com.sun.identity.setup.ServicesDefaultValues;
+import com.sun.identity.shared.Constants;
 import com.sun.identity.shared.configuration.SystemPropertiesManager;
 import com.sun.identity.shared.debug.Debug;
 import com.sun.identity.shared.validation.URLValidator;
@@ -330,12 +334,14 @@ public class CoreGuiceModule extends AbstractModule {
 
     @Provides @Singleton @Inject
     public CTSBlacklist<Session> getCtsSessionBlacklist(CTSPersistentStore cts, AMExecutorServiceFactory esf,
-            ThreadMonitor threadMonitor, WebtopNamingQuery serverConfig, SessionServiceConfig serviceConfig) {
+            ThreadMonitor threadMonitor, WebtopNamingQuery serverConfig, SessionServiceConfig serviceConfig,
+            CTSOperationsMonitoringStore monitoringStore) {
         ScheduledExecutorService scheduledExecutorService = esf.createScheduledService(1, "SessionBlacklistingThread");
         long purgeDelayMs = serviceConfig.getSessionBlacklistPurgeDelay(TimeUnit.MILLISECONDS);
         long pollIntervalMs = serviceConfig.getSessionBlacklistPollInterval(TimeUnit.MILLISECONDS);
         return new CTSBlacklist<>(cts, TokenType.SESSION_BLACKLIST, scheduledExecutorService, threadMonitor,
-                serverConfig, purgeDelayMs, pollIntervalMs);
+                serverConfig, purgeDelayMs, pollIntervalMs, monitoringStore,
+                SystemProperties.getAsBoolean(Constants.BLACKLIST_PUSH_ENABLED, false));
     }
 
     @Provides @Singleton @Inject
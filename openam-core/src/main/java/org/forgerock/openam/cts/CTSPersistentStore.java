@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2012-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts;
 
@@ -25,6 +26,7 @@ import org.forgerock.openam.cts.continuous.ContinuousQuery;
 import org.forgerock.openam.cts.continuous.ContinuousQueryListener;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
 import org.forgerock.openam.cts.utils.blob.TokenBlobStrategy;
+import org.forgerock.openam.sm.datalayer.api.query.PagedQuery;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.util.Options;
@@ -173,6 +175,42 @@ public interface CTSPersistentStore {
      */
     void updateAsync(Token token, Options options) throws CoreTokenException;
 
+    /**
+     * Updates only the attributes of an existing Token which differ from the state in which it was read,
+     * synchronously. No read of the stored Token is made, instead the update asserts the ETag of the previous
+     * Token so that it fails if the Token has been changed elsewhere in the meantime. A binary blob which is
+     * unchanged is not re-encoded or rewritten.
+     *
+     * Not all fields of the Token can be updated, see the Token class for more details.
+     *
+     * @see Token#isFieldReadOnly(org.forgerock.openam.tokens.CoreTokenField)
+     *
+     * @param previous Token as it was last read from or written to the store, including its ETag. It must be a
+     *                 different instance to {@code updated}. If null, or if it has no ETag, {@code updated} is
+     *                 written whole as by {@link #update(Token, Options)}.
+     * @param updated Non null Token to update with.
+     * @param options Non null Options for the operation.
+     * @return The Token as written, with its new ETag, to be passed as {@code previous} to the next update.
+     * @throws CoreTokenException If there was an error while performing the different
+     * {@link org.forgerock.openam.cts.utils.blob.TokenBlobStrategy}s on the provided Token, or if the operation itself
+     * has failed.
+     */
+    Token updateAttributes(Token previous, Token updated, Options options) throws CoreTokenException;
+
+    /**
+     * Updates only the attributes of an existing Token which differ from the state in which it was read,
+     * asynchronously.
+     *
+     * @see #updateAttributes(Token, Token, Options)
+     *
+     * @param previous Token as it was last read from or written to the store, including its ETag, or null.
+     * @param updated Non null Token to update with.
+     * @param options Non null Options for the operation.
+     * @throws CoreTokenException If there was an error while performing the different
+     * {@link org.forgerock.openam.cts.utils.blob.TokenBlobStrategy}s on the provided Token.
+     */
+    void updateAttributesAsync(Token previous, Token updated, Options options) throws CoreTokenException;
+
     /**
      * Delete the Token from the store synchronously.
      *
@@ -314,6 +352,32 @@ public interface CTSPersistentStore {
      */
     Collection<PartialToken> attributeQuery(TokenFilter tokenFilter) throws CoreTokenException;
 
+    /**
+     * Performs a query against the persistent store using the provided TokenFilter, returning the results as a
+     * sequence of pages which are only fetched from the store as they are requested. This allows very large result
+     * sets to be processed with bounded memory.
+     *
+     * The caller must close the returned query once it has finished with it, whether or not all the results were
+     * consumed.
+     *
+     * @see TokenFilterBuilder
+     * @param filter Non null TokenFilter.
+     * @return Non null paged query.
+     */
+    PagedQuery<Token> pagedQuery(TokenFilter filter);
+
+    /**
+     * Performs a partial Token query against the persistent store, returning the results as a sequence of pages
+     * which are only fetched from the store as they are requested.
+     *
+     * @see #pagedQuery(TokenFilter)
+     * @see #attributeQuery(TokenFilter)
+     * @param tokenFilter Non null TokenFilter, with the return attributes defined.
+     * @return Non null paged query.
+     * @throws IllegalArgumentException If the filter did not define any return attributes.
+     */
+    PagedQuery<PartialToken> pagedAttributeQuery(TokenFilter tokenFilter);
+
     /**
      * Performs an asynchronous query against the persistent store using the provided TokenFilter and then deletes the
      * matching tokens from the store.
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2012-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts;
 
@@ -32,8 +33,10 @@ import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.continuous.ContinuousQueryListener;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
 import org.forgerock.openam.cts.exceptions.DeleteFailedException;
+import org.forgerock.openam.cts.impl.CTSNearCache;
 import org.forgerock.openam.cts.impl.CoreTokenAdapter;
 import org.forgerock.openam.sm.datalayer.api.ResultHandler;
+import org.forgerock.openam.sm.datalayer.api.query.PagedQuery;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.util.Options;
@@ -45,6 +48,9 @@ import org.forgerock.util.Options;
  * related tasks.
  * This is detailed in the {@link CoreTokenAdapter} in more detail.
  *
+ * Reads of the token types configured for the {@link CTSNearCache} are served locally where possible, with the
+ * cache kept coherent with the other servers by a continuous query.
+ *
  * @see Token
  * @see CoreTokenAdapter
  */
@@ -52,17 +58,21 @@ import org.forgerock.util.Options;
 public class CTSPersistentStoreImpl implements CTSPersistentStore {
 
     private final CoreTokenAdapter adapter;
+    private final CTSNearCache nearCache;
     private final Debug debug;
 
     /**
      * Creates a default implementation of the CTSPersistentStoreImpl.
      *
      * @param adapter Required for CTS operations.
+     * @param nearCache Required for serving reads locally.
      * @param debug Required for debugging.
      */
     @Inject
-    public CTSPersistentStoreImpl(CoreTokenAdapter adapter, @Named(CoreTokenConstants.CTS_DEBUG) Debug debug) {
+    public CTSPersistentStoreImpl(CoreTokenAdapter adapter, CTSNearCache nearCache,
+            @Named(CoreTokenConstants.CTS_DEBUG) Debug debug) {
         this.adapter = adapter;
+        this.nearCache = nearCache;
         this.debug = debug;
     }
 
@@ -86,8 +96,11 @@ public class CTSPersistentStoreImpl implements CTSPersistentStore {
      */
     @Override
     public void create(Token token, Options options) throws CoreTokenException {
+        nearCache.write(token.getTokenId());
+        long stamp = nearCache.stamp();
+        byte[] blob = token.getBlob();
         final ResultHandler<Token, CoreTokenException> createHandler = adapter.create(token, options);
-        createHandler.getResults();
+        cache(createHandler.getResults(), blob, stamp);
         debug("Token {0} created", token.getTokenId());
     }
 
@@ -98,15 +111,33 @@ public class CTSPersistentStoreImpl implements CTSPersistentStore {
 
     @Override
     public void createAsync(Token token, Options options) throws CoreTokenException {
+        nearCache.write(token.getTokenId());
         adapter.create(token, options);
         debug("Token {0} queued for creation", token.getTokenId());
     }
 
     @Override
     public Token read(String tokenId) throws CoreTokenException {
-        return read(tokenId, Options.defaultOptions());
+        if (isNearCacheAvailable()) {
+            Token cached = nearCache.get(tokenId);
+            if (cached != null) {
+                debug("Token {0} read from near cache", tokenId);
+                return cached;
+            }
+        }
+
+        long stamp = nearCache.stamp();
+        Token token = read(tokenId, Options.defaultOptions());
+        if (token != null) {
+            nearCache.fill(token, stamp);
+        }
+        return token;
     }
 
+    /**
+     * Reads the token from the store, bypassing the near cache, as the options supplied may change how the token
+     * is read.
+     */
     @Override
     public Token read(String tokenId, Options options) throws CoreTokenException {
         Token token = adapter.read(tokenId, options);
@@ -126,9 +157,12 @@ public class CTSPersistentStoreImpl implements CTSPersistentStore {
 
     @Override
     public void update(Token token, Options options) throws CoreTokenException {
+        nearCache.write(token.getTokenId());
+        long stamp = nearCache.stamp();
+        byte[] blob = token.getBlob();
         final ResultHandler<Token, CoreTokenException> updateHandler = adapter.updateOrCreate(token, options);
-        //block until we get the results, and ignore non-exception results
-        updateHandler.getResults();
+        //block until we get the results, and cache the token as written
+        cache(updateHandler.getResults(), blob, stamp);
         debug("Token {0} updated", token.getTokenId());
     }
 
@@ -139,10 +173,32 @@ public class CTSPersistentStoreImpl implements CTSPersistentStore {
 
     @Override
     public void updateAsync(Token token, Options options) throws CoreTokenException {
+        nearCache.write(token.getTokenId());
         adapter.updateOrCreate(token, options);
         debug("Token {0} queued for update", token.getTokenId());
     }
 
+    @Override
+    public Token updateAttributes(Token previous, Token updated, Options options) throws CoreTokenException {
+        nearCache.write(updated.getTokenId());
+        long stamp = nearCache.stamp();
+        final ResultHandler<Token, CoreTokenException> updateHandler =
+                adapter.updateAttributes(previous, updated, options);
+        //block until we get the results, and cache the token as written
+        Token written = new Token(updateHandler.getResults());
+        written.setBlob(updated.getBlob());
+        cache(written, updated.getBlob(), stamp);
+        debug("Token {0} attributes updated", updated.getTokenId());
+        return written;
+    }
+
+    @Override
+    public void updateAttributesAsync(Token previous, Token updated, Options options) throws CoreTokenException {
+        nearCache.write(updated.getTokenId());
+        adapter.updateAttributes(previous, updated, options);
+        debug("Token {0} queued for attribute update", updated.getTokenId());
+    }
+
     @Override
     public void delete(Token token) throws CoreTokenException {
         delete(token.getTokenId());
@@ -160,6 +216,7 @@ public class CTSPersistentStoreImpl implements CTSPersistentStore {
 
     @Override
     public void delete(String tokenId, Options options) throws CoreTokenException {
+        nearCache.write(tokenId);
         final ResultHandler<PartialToken, CoreTokenException> deleteHandler = adapter.delete(tokenId, options);
         //block until we get the results, and ignore non-exception results
         deleteHandler.getResults();
@@ -173,6 +230,7 @@ public class CTSPersistentStoreImpl implements CTSPersistentStore {
 
     @Override
     public void deleteAsync(String tokenId, Options options) throws CoreTokenException {
+        nearCache.write(tokenId);
         adapter.delete(tokenId, options);
         debug("Token {0} queued for deletion", tokenId);
     }
@@ -247,12 +305,68 @@ public class CTSPersistentStoreImpl implements CTSPersistentStore {
         return adapter.attributeQuery(tokenFilter);
     }
 
+    @Override
+    public PagedQuery<Token> pagedQuery(TokenFilter filter) {
+        debug("PagedQuery: {0}", filter.toString());
+        return adapter.pagedQuery(filter);
+    }
+
+    @Override
+    public PagedQuery<PartialToken> pagedAttributeQuery(TokenFilter tokenFilter) {
+        debug("PagedAttributeQuery: {0}", tokenFilter.toString());
+        return adapter.pagedAttributeQuery(tokenFilter);
+    }
+
     @Override
     public void deleteOnQueryAsync(TokenFilter tokenFilter) throws CoreTokenException {
         debug("DeleteOnQuery: with query {0}", tokenFilter.toString());
         adapter.deleteOnQuery(tokenFilter);
     }
 
+    /**
+     * Caches the token as written. The result of a write carries the blob as stored, after the blob strategy
+     * was applied, whereas reads serve the blob as the caller provided it; so the written blob is restored.
+     *
+     * @param token The token as written, possibly null.
+     * @param blob The blob of the token before the blob strategy was applied.
+     * @param stamp The stamp taken before the write.
+     */
+    private void cache(Token token, byte[] blob, long stamp) {
+        if (token != null && isNearCacheAvailable()) {
+            Token written = new Token(token);
+            written.setBlob(blob);
+            nearCache.put(written, stamp);
+        }
+    }
+
+    /**
+     * The near cache may only serve tokens once it is listening for changes made by other servers, so the
+     * continuous query is registered on first use rather than at startup when the CTS may not yet be available.
+     *
+     * @return {@code true} if the near cache is enabled and listening.
+     */
+    private boolean isNearCacheAvailable() {
+        if (!nearCache.isEnabled()) {
+            return false;
+        }
+        if (!nearCache.isListening()) {
+            synchronized (nearCache) {
+                if (!nearCache.isListening()) {
+                    try {
+                        addContinuousQueryListener(nearCache, nearCache.getTokenFilter());
+                        nearCache.setListening();
+                    } catch (CoreTokenException e) {
+                        if (debug.warningEnabled()) {
+                            debug.warning(CoreTokenConstants.DEBUG_HEADER + "Unable to start near cache", e);
+                        }
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
     private void debug(String format, String... args) {
         if (debug.messageEnabled()) {
             debug.message(MessageFormat.format(CoreTokenConstants.DEBUG_HEADER + format, args));
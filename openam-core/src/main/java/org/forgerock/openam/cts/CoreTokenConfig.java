@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts;
 
@@ -19,6 +20,7 @@ import static org.forgerock.openam.cts.api.CoreTokenConstants.*;
 
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
 
 import org.forgerock.openam.cts.api.CoreTokenConstants;
 import org.forgerock.openam.utils.ConfigListener;
@@ -51,6 +53,17 @@ public class CoreTokenConfig {
     private volatile boolean tokensEncrypted;
     private volatile boolean tokensCompressed;
     private volatile boolean attributeNamesCompressed;
+    private volatile boolean legacyCompression;
+    private volatile int compressionLevel;
+    private volatile int compressionThreshold;
+    private volatile boolean sessionsBinarySerialised;
+
+    // Partitioned reaper
+    private volatile int reaperPartitionSlices;
+    private volatile int reaperPartitionWindow;
+    private volatile int reaperPartitionConcurrency;
+    // Paged queries
+    private volatile int pagedQueryPageSize;
 
     /**
      * Create a new default instance of the CoreTokenConfig.
@@ -68,6 +81,14 @@ public class CoreTokenConfig {
                 Constants.SESSION_REPOSITORY_ATTRIBUTE_NAME_COMPRESSION,
                 Constants.SESSION_REPOSITORY_ATTRIBUTE_NAME_COMPRESSION,
                 Constants.CORE_TOKEN_RESOURCE_ENABLED,
+                CTS_COMPRESSION_CODEC,
+                CTS_COMPRESSION_LEVEL,
+                CTS_COMPRESSION_THRESHOLD,
+                CTS_SESSION_SERIALISATION,
+                CTS_REAPER_PARTITION_SLICES,
+                CTS_REAPER_PARTITION_WINDOW,
+                CTS_REAPER_PARTITION_CONCURRENCY,
+                CTS_PAGED_QUERY_PAGE_SIZE,
                 CLEANUP_PERIOD,
                 HEALTH_CHECK_PERIOD
         };
@@ -111,12 +132,29 @@ public class CoreTokenConfig {
         // Control Token Compression.
         tokensCompressed = SystemProperties.getAsBoolean(Constants.SESSION_REPOSITORY_COMPRESSION);
 
+        // Control the Token Compression codec, level and the size below which it is not worthwhile.
+        legacyCompression = !"deflate".equalsIgnoreCase(SystemProperties.get(CTS_COMPRESSION_CODEC));
+        compressionLevel = SystemProperties.getAsInt(CTS_COMPRESSION_LEVEL, Deflater.BEST_SPEED);
+        if (compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION) {
+            compressionLevel = Deflater.BEST_SPEED;
+        }
+        compressionThreshold = Math.max(0, SystemProperties.getAsInt(CTS_COMPRESSION_THRESHOLD, 256));
+
+        // Control whether sessions are written in the compact binary format rather than JSON.
+        sessionsBinarySerialised = "binary".equalsIgnoreCase(SystemProperties.get(CTS_SESSION_SERIALISATION));
+
         // Control Attribute Name Compression.
         attributeNamesCompressed = SystemProperties.getAsBoolean(Constants.SESSION_REPOSITORY_ATTRIBUTE_NAME_COMPRESSION);
 
         // Controls the size of pages requested for CTS Reaper
         cleanupPageSize = 1000;
 
+        // Controls splitting the CTS Reaper queries into time slices which are reaped concurrently.
+        reaperPartitionSlices = Math.max(1, SystemProperties.getAsInt(CTS_REAPER_PARTITION_SLICES, 1));
+        reaperPartitionWindow = Math.max(1, SystemProperties.getAsInt(CTS_REAPER_PARTITION_WINDOW, 24 * 60 * 60));
+        reaperPartitionConcurrency = Math.max(1, SystemProperties.getAsInt(CTS_REAPER_PARTITION_CONCURRENCY, 4));
+        pagedQueryPageSize = Math.max(1, SystemProperties.getAsInt(CTS_PAGED_QUERY_PAGE_SIZE, 500));
+
         // Whether or not use of the CoreTokenResource is enabled.
         coreTokenResourceEnabled = SystemProperties.getAsBoolean(Constants.CORE_TOKEN_RESOURCE_ENABLED);
     }
@@ -219,6 +257,35 @@ public class CoreTokenConfig {
         return tokensCompressed;
     }
 
+    /**
+     * @return True if compressed tokens should be written as plain GZip, readable by servers which predate
+     * the compression codec header. True unless the deflate codec is configured.
+     */
+    public boolean isLegacyTokenCompression() {
+        return legacyCompression;
+    }
+
+    /**
+     * @return The Deflate level used to compress tokens, from 1 (fastest, the default) to 9 (smallest).
+     */
+    public int getTokenCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @return The size in bytes below which tokens are stored uncompressed. 256 by default.
+     */
+    public int getTokenCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * @return True if sessions should be written in the compact binary format rather than JSON. False by default.
+     */
+    public boolean isSessionBinarySerialised() {
+        return sessionsBinarySerialised;
+    }
+
     /**
      * @return True if The Token Attribute Names should be compressed as well. False by default.
      */
@@ -233,6 +300,36 @@ public class CoreTokenConfig {
         return cleanupPageSize;
     }
 
+    /**
+     * @return The number of time slices the CTS Reaper splits its expiry window into. One, the default, disables
+     * partitioning.
+     */
+    public int getReaperPartitionSlices() {
+        return reaperPartitionSlices;
+    }
+
+    /**
+     * @return The duration of the expiry window which the partitioned CTS Reaper splits into slices,
+     * in the given time units. One day by default.
+     */
+    public long getReaperPartitionWindow(TimeUnit timeUnit) {
+        return timeUnit.convert(reaperPartitionWindow, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return The maximum number of slices each partitioned CTS Reaper task processes concurrently. 4 by default.
+     */
+    public int getReaperPartitionConcurrency() {
+        return reaperPartitionConcurrency;
+    }
+
+    /**
+     * @return The number of results fetched in each page of a paged CTS query. 500 by default.
+     */
+    public int getPagedQueryPageSize() {
+        return pagedQueryPageSize;
+    }
+
     /**
      * Register a listener to be notified when {@link CoreTokenConfig} changes.
      *
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts;
 
@@ -177,6 +178,18 @@ public class CoreTokenServiceGuiceModule extends PrivateModule {
         }
     }
 
+    /**
+     * The CTS Reaper Pool runs the slices of the partitioned CTS reaper. The number of slices running at once is
+     * limited by the reaper itself, so the pool does not need to be bounded.
+     *
+     * @param esf Factory for generating an appropriate ExecutorService.
+     * @return A configured ExecutorService, appropriate for the partitioned CTS reaper.
+     */
+    @Provides @Inject @Singleton @Named(CoreTokenConstants.CTS_REAPER_POOL)
+    ExecutorService getCTSReaperExecutorService(AMExecutorServiceFactory esf) {
+        return esf.createCachedThreadPool(CoreTokenConstants.CTS_REAPER_POOL);
+    }
+
     @Provides @Inject @Named(CTSMonitoringStoreImpl.EXECUTOR_BINDING_NAME)
     ExecutorService getCTSMonitoringExecutorService(AMExecutorServiceFactory esf) {
         return esf.createFixedThreadPool(5, "CTSMonitoring");
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.adapters;
 
@@ -29,6 +30,7 @@ import org.forgerock.openam.cts.CoreTokenConfig;
 import org.forgerock.openam.cts.api.fields.SessionTokenField;
 import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.api.tokens.TokenIdFactory;
+import org.forgerock.openam.cts.utils.BinarySerialisation;
 import org.forgerock.openam.cts.utils.JSONSerialisation;
 import org.forgerock.openam.cts.utils.blob.TokenBlobUtils;
 import org.forgerock.openam.cts.utils.blob.strategies.AttributeCompressionStrategy;
@@ -45,6 +47,10 @@ import com.iplanet.dpro.session.service.InternalSession;
 /**
  * SessionAdapter is responsible for providing conversions to and from InternalSession
  * and managing the details around data conversion for this class.
+ *
+ * Sessions are written as JSON, or in the compact binary format when configured by
+ * {@link CoreTokenConfig#isSessionBinarySerialised()}. Both formats are always read, so servers configured
+ * differently can share sessions.
  */
 public class SessionAdapter implements TokenAdapter<InternalSession> {
 
@@ -52,6 +58,7 @@ public class SessionAdapter implements TokenAdapter<InternalSession> {
     private final TokenIdFactory tokenIdFactory;
     private final CoreTokenConfig config;
     private final JSONSerialisation serialisation;
+    private final BinarySerialisation binarySerialisation;
     private final TokenBlobUtils blobUtils;
     private final DNWrapper dnWrapper;
 
@@ -59,6 +66,8 @@ public class SessionAdapter implements TokenAdapter<InternalSession> {
      * The field name Pattern is required for internal Session JSON fudging.
      */
     private static final Pattern LATEST_ACCESSED_TIME = getLatestAccessedTimeRegexp();
+    private static final String LATEST_ACCESS_TIME_PROPERTY =
+            SessionTokenField.LATEST_ACCESS_TIME.getInternalSessionFieldName();
 
     /**
      * Creates a default instance with dependencies defined.
@@ -66,14 +75,16 @@ public class SessionAdapter implements TokenAdapter<InternalSession> {
      * @param tokenIdFactory Non null.
      * @param config Non null.
      * @param serialisation Non null.
+     * @param binarySerialisation Non null.
      * @param blobUtils A collection of Binary Object utilities.
      */
     @Inject
     public SessionAdapter(TokenIdFactory tokenIdFactory, CoreTokenConfig config, JSONSerialisation serialisation,
-            TokenBlobUtils blobUtils, DNWrapper dnWrapper) {
+            BinarySerialisation binarySerialisation, TokenBlobUtils blobUtils, DNWrapper dnWrapper) {
         this.tokenIdFactory = tokenIdFactory;
         this.config = config;
         this.serialisation = serialisation;
+        this.binarySerialisation = binarySerialisation;
         this.blobUtils = blobUtils;
         this.dnWrapper = dnWrapper;
     }
@@ -128,12 +139,20 @@ public class SessionAdapter implements TokenAdapter<InternalSession> {
         token.setAttribute(SessionTokenField.SESSION_ID.getField(), session.getID().toString());
 
         // Binary data
-        String jsonBlob = serialisation.serialise(session);
-        blobUtils.setBlobFromString(token, jsonBlob);
-
-        String latestAccessTime = filterLatestAccessTime(token);
-        if (latestAccessTime != null) {
-            token.setAttribute(SessionTokenField.LATEST_ACCESS_TIME.getField(), latestAccessTime);
+        if (config.isSessionBinarySerialised()) {
+            // The latest access time is held only in its attribute, so that the binary data is unchanged when only
+            // the access time is flushed
+            token.setBlob(binarySerialisation.serialise(session, LATEST_ACCESS_TIME_PROPERTY));
+            long latestAccessTime = session.getLatestAccessTime(SECONDS);
+            token.setAttribute(SessionTokenField.LATEST_ACCESS_TIME.getField(), Long.toString(latestAccessTime));
+        } else {
+            String jsonBlob = serialisation.serialise(session);
+            blobUtils.setBlobFromString(token, jsonBlob);
+
+            String latestAccessTime = filterLatestAccessTime(token);
+            if (latestAccessTime != null) {
+                token.setAttribute(SessionTokenField.LATEST_ACCESS_TIME.getField(), latestAccessTime);
+            }
         }
 
         // Restricted Tokens
@@ -161,12 +180,34 @@ public class SessionAdapter implements TokenAdapter<InternalSession> {
     /**
      * Convert from a Token to an Internal Session.
      *
-     * Simply deserialise the InternalSession from the JSON blob.
+     * Simply deserialise the InternalSession from the binary or JSON blob, depending on which was written,
+     * restoring the latest access time from its attribute.
      *
      * @param token Token to be converted back to its original format.
      * @return Non null InternalSession.
      */
     public InternalSession fromToken(Token token) {
+        InternalSession session;
+        if (BinarySerialisation.isBinary(token.getBlob())) {
+            String latestAccessTime = token.getAttribute(SessionTokenField.LATEST_ACCESS_TIME.getField());
+            if (latestAccessTime == null) {
+                session = binarySerialisation.deserialise(token.getBlob(), InternalSession.class);
+            } else {
+                session = binarySerialisation.deserialise(token.getBlob(), InternalSession.class,
+                        LATEST_ACCESS_TIME_PROPERTY, Long.parseLong(latestAccessTime));
+            }
+        } else {
+            session = fromJson(token);
+        }
+        if (session.getSessionHandle() == null) {
+            //Originally the sessionHandle was stored in the serialize token, so if after the deserialization the
+            //sessionHandle field is not set, then we should attempt to retrieve the value directly from the token.
+            session.setSessionHandle(token.<String>getAttribute(SessionTokenField.SESSION_HANDLE.getField()));
+        }
+        return session;
+    }
+
+    private InternalSession fromJson(Token token) {
         String jsonBlob = blobUtils.getBlobAsString(token);
         int index = findIndexOfValidField(jsonBlob);
 
@@ -185,13 +226,7 @@ public class SessionAdapter implements TokenAdapter<InternalSession> {
             jsonBlob = jsonBlob.substring(0, index) + addition + jsonBlob.substring(index, jsonBlob.length());
         }
 
-        InternalSession session = serialisation.deserialise(jsonBlob, InternalSession.class);
-        if (session.getSessionHandle() == null) {
-            //Originally the sessionHandle was stored in the serialize token, so if after the deserialization the
-            //sessionHandle field is not set, then we should attempt to retrieve the value directly from the token.
-            session.setSessionHandle(token.<String>getAttribute(SessionTokenField.SESSION_HANDLE.getField()));
-        }
-        return session;
+        return serialisation.deserialise(jsonBlob, InternalSession.class);
     }
 
     /**
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.api;
@@ -62,4 +63,14 @@ public final class CTSOptions {
      * @see org.forgerock.openam.cts.impl.DeletePreReadOptionFunction
      */
     public static final Option<CoreTokenField[]> PRE_DELETE_READ_OPTION = Option.of(CoreTokenField[].class, null);
+
+    /**
+     * Signals the CTS that the operation is background work, such as the removal of expired tokens, which
+     * may be rejected rather than delayed when the CTS is overloaded.
+     *
+     * <p>Applicable for use only with the delete CTS operation.</p>
+     *
+     * @see org.forgerock.openam.cts.impl.queue.AdmissionController
+     */
+    public static final Option<Boolean> LOW_PRIORITY_OPTION = Option.withDefault(false);
 }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.api;
 
@@ -69,6 +70,11 @@ public final class CoreTokenConstants {
      * The name of the general purpose worker pool for the CTS.
      */
     public static final String CTS_WORKER_POOL = "CTSWorkerPool";
+
+    /**
+     * The name of the worker pool on which slices of the partitioned CTS reaper run.
+     */
+    public static final String CTS_REAPER_POOL = "CTSReaperPool";
     public static final String CTS_SMS_CONFIGURATION = "CTSServerConfiguration";
 
     /**
@@ -126,6 +132,110 @@ public final class CoreTokenConstants {
      */
     public static final String CTS_ASYNC_QUEUE_SIZE = "org.forgerock.services.cts.async.queue.size";
 
+    /**
+     * The maximum number of tasks each asynchronous task processor takes from its queue at once.
+     */
+    public static final String CTS_ASYNC_QUEUE_BATCH_SIZE = "org.forgerock.services.cts.async.queue.batch.size";
+
+    /**
+     * The maximum number of batched tasks each asynchronous task processor has outstanding on its connection.
+     */
+    public static final String CTS_ASYNC_PIPELINE_DEPTH = "org.forgerock.services.cts.async.pipeline.depth";
+
+    /**
+     * The number of asynchronous task processors dedicated to queries, which are not associated with a token.
+     */
+    public static final String CTS_ASYNC_QUERY_PROCESSORS = "org.forgerock.services.cts.async.query.processors";
+
+    /**
+     * Enable/disable replacing queued updates of a token with newer updates of the same token.
+     */
+    public static final String CTS_ASYNC_UPDATE_COALESCING_ENABLED =
+            "org.forgerock.services.cts.async.update.coalescing.enabled";
+
+    /**
+     * Enable/disable adapting the number of asynchronous tasks admitted at once to the observed task latency.
+     */
+    public static final String CTS_ASYNC_ADAPTIVE_ENABLED = "org.forgerock.services.cts.async.adaptive.enabled";
+
+    /**
+     * The task latency in milliseconds above which the asynchronous admission limit is reduced.
+     */
+    public static final String CTS_ASYNC_ADAPTIVE_LATENCY_THRESHOLD =
+            "org.forgerock.services.cts.async.adaptive.latency.threshold";
+
+    /**
+     * The lowest number of asynchronous tasks the admission limit may be reduced to.
+     */
+    public static final String CTS_ASYNC_ADAPTIVE_MIN_LIMIT = "org.forgerock.services.cts.async.adaptive.min.limit";
+
+    /**
+     * The highest number of asynchronous tasks the admission limit may be raised to.
+     */
+    public static final String CTS_ASYNC_ADAPTIVE_MAX_LIMIT = "org.forgerock.services.cts.async.adaptive.max.limit";
+
+    /**
+     * Comma separated list of the token types which are held in the CTS near cache. Empty disables the cache.
+     */
+    public static final String CTS_NEAR_CACHE_TOKEN_TYPES = "org.forgerock.services.cts.nearcache.token.types";
+
+    /**
+     * The maximum number of tokens held in the CTS near cache.
+     */
+    public static final String CTS_NEAR_CACHE_SIZE = "org.forgerock.services.cts.nearcache.size";
+
+    /**
+     * The maximum duration in seconds a token is held in the CTS near cache.
+     */
+    public static final String CTS_NEAR_CACHE_TTL = "org.forgerock.services.cts.nearcache.ttl";
+
+    /**
+     * The codec used to compress Token binary objects, when compression is enabled: {@code gzip}, the default,
+     * writes the format understood by servers which predate the codec header; {@code deflate} writes the codec
+     * header, and should only be configured once every server in the cluster can read it.
+     */
+    public static final String CTS_COMPRESSION_CODEC = "org.forgerock.services.cts.compression.codec";
+
+    /**
+     * The Deflate level used to compress Token binary objects, from 1 (fastest) to 9 (smallest).
+     */
+    public static final String CTS_COMPRESSION_LEVEL = "org.forgerock.services.cts.compression.level";
+
+    /**
+     * The size in bytes below which Token binary objects are stored uncompressed.
+     */
+    public static final String CTS_COMPRESSION_THRESHOLD = "org.forgerock.services.cts.compression.threshold";
+
+    /**
+     * The format sessions are serialised to in the CTS: {@code json}, or {@code binary} for a compact binary
+     * form. Either format is read regardless of this setting.
+     */
+    public static final String CTS_SESSION_SERIALISATION = "org.forgerock.services.cts.session.serialisation";
+
+    /**
+     * The number of time slices the CTS reaper splits its expiry window into. Values below two disable
+     * partitioning, and expired tokens are reaped with a single paged query.
+     */
+    public static final String CTS_REAPER_PARTITION_SLICES = "org.forgerock.services.cts.reaper.partition.slices";
+
+    /**
+     * The duration in seconds of the expiry window which the partitioned CTS reaper splits into slices. Tokens which
+     * expired before the window are reaped as further, progressively wider, backlog slices.
+     */
+    public static final String CTS_REAPER_PARTITION_WINDOW = "org.forgerock.services.cts.reaper.partition.window";
+
+    /**
+     * The maximum number of slices each partitioned CTS reaper task processes concurrently. Each CTS reaper task
+     * is given as many connections.
+     */
+    public static final String CTS_REAPER_PARTITION_CONCURRENCY =
+            "org.forgerock.services.cts.reaper.partition.concurrency";
+
+    /**
+     * The number of results fetched from the store in each page of a paged CTS query.
+     */
+    public static final String CTS_PAGED_QUERY_PAGE_SIZE = "org.forgerock.services.cts.paged.query.page.size";
+
     /**
      * Binding constant for the CTS Jackson Object Mapper.
      */
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.api.filter;
 
@@ -42,6 +43,7 @@ public class TokenFilter {
     private QueryFilter<CoreTokenField> query;
     private int sizeLimit = 0;
     private Duration timeLimit = duration(0, TimeUnit.SECONDS);
+    private boolean lowPriority;
 
     /**
      * Package private field to indicate that the {@link TokenFilterBuilder} is the recommended
@@ -84,6 +86,20 @@ public class TokenFilter {
         this.timeLimit = timeLimit;
     }
 
+    /**
+     * Low priority queries, such as background polls, may be rejected when the CTS is overloaded so that they give
+     * way to the reads and writes of Tokens. The priority does not take part in equality.
+     *
+     * @return True if the query is low priority. False by default.
+     */
+    public boolean isLowPriority() {
+        return lowPriority;
+    }
+
+    public void setLowPriority(boolean lowPriority) {
+        this.lowPriority = lowPriority;
+    }
+
     /**
      * The current set of return fields. If this collection is empty, this
      * indicates that all fields are to be returned.
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.api.filter;
 
@@ -117,6 +118,18 @@ public class TokenFilterBuilder {
         return this;
     }
 
+    /**
+     * Marks the query as low priority, so that it may be rejected when the CTS is overloaded. Intended for queries
+     * made periodically in the background, which will be made again.
+     *
+     * @return This builder.
+     * @see TokenFilter#isLowPriority()
+     */
+    public TokenFilterBuilder withLowPriority() {
+        tokenFilter.setLowPriority(true);
+        return this;
+    }
+
     /**
      * If you only require the returned CTS Tokens to contains a subset of the standard
      * {@link CoreTokenField#values()} then this method allows the caller to specify the
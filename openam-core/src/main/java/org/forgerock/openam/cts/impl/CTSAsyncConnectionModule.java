@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.impl;
@@ -23,9 +24,11 @@ import javax.inject.Inject;
 import org.forgerock.openam.cts.api.CoreTokenConstants;
 import org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration;
 import org.forgerock.openam.cts.monitoring.CTSConnectionMonitoringStore;
+import org.forgerock.openam.cts.monitoring.CTSOperationsMonitoringStore;
 import org.forgerock.openam.cts.monitoring.impl.connections.MonitoredCTSConnectionFactory;
 import org.forgerock.openam.sm.datalayer.api.ConnectionFactory;
 import org.forgerock.openam.sm.datalayer.api.QueueConfiguration;
+import org.forgerock.openam.sm.datalayer.api.TaskQueueMonitor;
 import org.forgerock.openam.sm.datalayer.impl.SeriesTaskExecutor;
 import org.forgerock.openam.sm.datalayer.impl.SeriesTaskExecutorThreadFactory;
 import org.forgerock.openam.sm.datalayer.providers.DataLayerConnectionFactoryCache;
@@ -46,6 +49,7 @@ public class CTSAsyncConnectionModule extends CTSConnectionModule {
         binder().bind(ExecutorService.class).toProvider(
                 binder().getProvider(Key.get(ExecutorService.class, Names.named(CoreTokenConstants.CTS_WORKER_POOL))));
         binder().bind(QueueConfiguration.class).to(CTSQueueConfiguration.class);
+        binder().bind(TaskQueueMonitor.class).to(CTSOperationsMonitoringStore.class);
         binder().bind(SeriesTaskExecutorThreadFactory.class);
         super.configureTaskExecutor(binder);
     }
@@ -0,0 +1,404 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.impl;
+
+import static org.forgerock.util.query.QueryFilter.*;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.forgerock.openam.cts.api.CoreTokenConstants;
+import org.forgerock.openam.cts.api.filter.TokenFilter;
+import org.forgerock.openam.cts.api.filter.TokenFilterBuilder;
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.continuous.ChangeType;
+import org.forgerock.openam.cts.continuous.ContinuousQueryListener;
+import org.forgerock.openam.cts.monitoring.CTSOperationsMonitoringStore;
+import org.forgerock.openam.sm.datalayer.api.DataLayerException;
+import org.forgerock.openam.tokens.CoreTokenField;
+import org.forgerock.openam.tokens.TokenType;
+import org.forgerock.openam.utils.StringUtils;
+import org.forgerock.opendj.ldap.Attribute;
+import org.forgerock.util.annotations.VisibleForTesting;
+import org.forgerock.util.query.QueryFilter;
+import org.wrensecurity.guava.common.cache.Cache;
+import org.wrensecurity.guava.common.cache.CacheBuilder;
+import org.wrensecurity.guava.common.cache.RemovalCause;
+import org.wrensecurity.guava.common.cache.RemovalListener;
+import org.wrensecurity.guava.common.cache.RemovalNotification;
+
+import com.iplanet.am.util.SystemProperties;
+import com.sun.identity.shared.debug.Debug;
+
+/**
+ * A bounded, local cache of the tokens read and written by this server, for the token types configured by
+ * {@link CoreTokenConstants#CTS_NEAR_CACHE_TOKEN_TYPES}.
+ * <p>
+ * Coherence with the other servers of the cluster is maintained by registering this cache as a
+ * {@link ContinuousQueryListener} on the configured token types: any token reported as changed is dropped from
+ * the cache, unless the reported ETag shows the change is the one already cached (i.e. the echo of a write made by
+ * this server). Until the continuous query has been registered the cache serves nothing, and when the continuous
+ * query reconnects the cache is cleared, as changes may have been missed in the meantime.
+ * <p>
+ * A token is held for at most {@link CoreTokenConstants#CTS_NEAR_CACHE_TTL} seconds, and is never served once its
+ * expiry timestamp has passed.
+ * <p>
+ * Each invalidation of a token is numbered, and the number recorded against that token, so a read or write which
+ * overlapped the invalidation of its token is not cached, whilst reads and writes of other tokens are unaffected.
+ * The record of invalidations is bounded; once a record is evicted, any read or write begun before it is not cached.
+ * <p>
+ * Tokens are copied on the way in and out of the cache, so callers remain free to modify the tokens they are given.
+ */
+@Singleton
+public class CTSNearCache implements ContinuousQueryListener<Attribute> {
+
+    public static final int DEFAULT_SIZE = 10000;
+    public static final int DEFAULT_TTL = 30;
+
+    private static final int STRIPES = 64;
+    private static final String TOKEN_ID = CoreTokenField.TOKEN_ID.toString();
+    private static final String ETAG = CoreTokenField.ETAG.toString();
+
+    private final Set<TokenType> tokenTypes;
+    private final long ttlMillis;
+    private final Cache<String, Entry> cache;
+    private final Cache<String, Long> pendingWrites;
+    private final Cache<String, Long> invalidations;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong floor = new AtomicLong();
+    private final Object[] locks = new Object[STRIPES];
+    private final CTSOperationsMonitoringStore monitoringStore;
+    private final Debug debug;
+    private volatile boolean listening;
+
+    /**
+     * Creates a near cache configured from the system properties.
+     *
+     * @param monitoringStore Required for recording the cache metrics.
+     * @param debug Required for debugging.
+     */
+    @Inject
+    public CTSNearCache(CTSOperationsMonitoringStore monitoringStore,
+            @Named(CoreTokenConstants.CTS_DEBUG) Debug debug) {
+        this(parseTokenTypes(SystemProperties.get(CoreTokenConstants.CTS_NEAR_CACHE_TOKEN_TYPES), debug),
+                positive(SystemProperties.getAsInt(CoreTokenConstants.CTS_NEAR_CACHE_SIZE, DEFAULT_SIZE),
+                        DEFAULT_SIZE),
+                TimeUnit.SECONDS.toMillis(
+                        positive(SystemProperties.getAsInt(CoreTokenConstants.CTS_NEAR_CACHE_TTL, DEFAULT_TTL),
+                                DEFAULT_TTL)),
+                monitoringStore, debug);
+    }
+
+    @VisibleForTesting
+    CTSNearCache(Set<TokenType> tokenTypes, int maxSize, long ttlMillis,
+            final CTSOperationsMonitoringStore monitoringStore, Debug debug) {
+        this.tokenTypes = tokenTypes.isEmpty()
+                ? Collections.<TokenType>emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(tokenTypes));
+        this.ttlMillis = ttlMillis;
+        this.monitoringStore = monitoringStore;
+        this.debug = debug;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .removalListener(new RemovalListener<String, Entry>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, Entry> notification) {
+                        if (notification.getCause() == RemovalCause.SIZE) {
+                            monitoringStore.addNearCacheEviction();
+                        }
+                    }
+                })
+                .build();
+        this.pendingWrites = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .<String, Long>build();
+        this.invalidations = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .removalListener(new RemovalListener<String, Long>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, Long> notification) {
+                        if (notification.wasEvicted()) {
+                            raiseFloor(notification.getValue());
+                        }
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * @return {@code true} if any token type is configured to be held in the cache.
+     */
+    public boolean isEnabled() {
+        return !tokenTypes.isEmpty();
+    }
+
+    /**
+     * @return {@code true} once this cache has been registered against the continuous query, after which it may
+     * serve tokens.
+     */
+    public boolean isListening() {
+        return listening;
+    }
+
+    /**
+     * Marks this cache as registered against the continuous query described by {@link #getTokenFilter()}.
+     */
+    public void setListening() {
+        listening = true;
+    }
+
+    /**
+     * @return The filter for the continuous query which keeps this cache coherent.
+     */
+    public TokenFilter getTokenFilter() {
+        List<QueryFilter<CoreTokenField>> types = new ArrayList<>();
+        for (TokenType type : tokenTypes) {
+            types.add(equalTo(CoreTokenField.TOKEN_TYPE, type));
+        }
+        return new TokenFilterBuilder()
+                .returnAttribute(CoreTokenField.TOKEN_ID)
+                .returnAttribute(CoreTokenField.ETAG)
+                .withQuery(or(types))
+                .build();
+    }
+
+    /**
+     * Returns a copy of the cached token, if it is present and has not expired.
+     *
+     * @param tokenId The id of the token.
+     * @return The token, or {@code null} if it is not held in the cache.
+     */
+    public Token get(String tokenId) {
+        if (!listening) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(tokenId);
+        if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+            cache.asMap().remove(tokenId, entry);
+            entry = null;
+        }
+        monitoringStore.addNearCacheRead(entry != null);
+        return entry == null ? null : new Token(entry.token);
+    }
+
+    /**
+     * Takes a stamp to be passed to {@link #put(Token, long)} or {@link #fill(Token, long)} once the token has
+     * been written or read. Taking the stamp before going to the store prevents the result being cached if the
+     * token is invalidated in the meantime. The stamp covers every token, as invalidations are numbered from a
+     * single sequence.
+     *
+     * @return The stamp.
+     */
+    public long stamp() {
+        return sequence.get();
+    }
+
+    /**
+     * Caches a copy of the token as written by this server, replacing any cached state of the token, if its type
+     * is held in the cache and it has not been invalidated since the stamp was taken.
+     *
+     * @param token The token written to the store.
+     * @param stamp The stamp taken before the write.
+     */
+    public void put(Token token, long stamp) {
+        cache(token, stamp, true);
+    }
+
+    /**
+     * Caches a copy of the token as read from the store, if its type is held in the cache, it has not been
+     * invalidated since the stamp was taken and no state of the token has been cached in the meantime. A read
+     * racing with a write may return the state from before the write, so it must not replace the written state.
+     *
+     * @param token The token read from the store.
+     * @param stamp The stamp taken before the read.
+     */
+    public void fill(Token token, long stamp) {
+        cache(token, stamp, false);
+    }
+
+    private void cache(Token token, long stamp, boolean replace) {
+        if (!listening || !tokenTypes.contains(token.getType())) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        if (token.getExpiryTimestamp() != null) {
+            expiresAt = Math.min(expiresAt, token.getExpiryTimestamp().getTimeInMillis());
+        }
+        String tokenId = token.getTokenId();
+        Entry entry = new Entry(new Token(token), token.<String>getAttribute(CoreTokenField.ETAG), expiresAt);
+        synchronized (locks[stripe(tokenId)]) {
+            Long invalidated = invalidations.getIfPresent(tokenId);
+            if (stamp < floor.get() || (invalidated != null && invalidated > stamp)) {
+                return;
+            }
+            if (replace) {
+                cache.put(tokenId, entry);
+            } else {
+                cache.asMap().putIfAbsent(tokenId, entry);
+            }
+        }
+    }
+
+    /**
+     * Drops the token from the cache ahead of this server writing or deleting it, and notes the time of the write
+     * so the lag before the continuous query reports it can be measured.
+     *
+     * @param tokenId The id of the token.
+     */
+    public void write(String tokenId) {
+        if (!isEnabled()) {
+            return;
+        }
+        invalidate(tokenId);
+        pendingWrites.put(tokenId, System.nanoTime());
+    }
+
+    @Override
+    public void objectChanged(String tokenId, Map<String, Attribute> changeSet, ChangeType changeType) {
+        String id = firstValue(changeSet, TOKEN_ID);
+        if (id == null) {
+            debug("Change to {0} did not include the token id, clearing cache", tokenId);
+            clear();
+            return;
+        }
+
+        Long writtenAt = pendingWrites.asMap().remove(id);
+        if (writtenAt != null) {
+            monitoringStore.addNearCacheInvalidationLag(
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - writtenAt));
+        }
+
+        Entry entry = cache.getIfPresent(id);
+        String etag = firstValue(changeSet, ETAG);
+        if (entry != null && changeType != ChangeType.DELETE && etag != null && etag.equals(entry.etag)) {
+            return;
+        }
+        // Invalidate even when nothing is cached, so a read or write in flight cannot cache an older state.
+        invalidate(id);
+        if (entry != null) {
+            monitoringStore.addNearCacheInvalidation();
+        }
+    }
+
+    @Override
+    public void objectsChanged(Set<String> tokenIds) {
+        for (String tokenId : tokenIds) {
+            invalidate(tokenId);
+        }
+    }
+
+    @Override
+    public void connectionLost() {
+        debug("Continuous query (re)started, clearing cache");
+        clear();
+    }
+
+    @Override
+    public void processError(DataLayerException error) {
+        debug.error(CoreTokenConstants.DEBUG_HEADER + "Near cache continuous query failed", error);
+        clear();
+    }
+
+    private void invalidate(String tokenId) {
+        synchronized (locks[stripe(tokenId)]) {
+            invalidations.put(tokenId, sequence.incrementAndGet());
+            cache.invalidate(tokenId);
+        }
+    }
+
+    private void clear() {
+        raiseFloor(sequence.incrementAndGet());
+        cache.invalidateAll();
+        pendingWrites.invalidateAll();
+    }
+
+    private void raiseFloor(long invalidated) {
+        long current = floor.get();
+        while (current < invalidated && !floor.compareAndSet(current, invalidated)) {
+            current = floor.get();
+        }
+    }
+
+    private static int stripe(String tokenId) {
+        int hash = tokenId.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private static String firstValue(Map<String, Attribute> changeSet, String name) {
+        Attribute attribute = changeSet.get(name);
+        if (attribute == null || attribute.isEmpty()) {
+            return null;
+        }
+        return attribute.firstValueAsString();
+    }
+
+    private static Set<TokenType> parseTokenTypes(String value, Debug debug) {
+        Set<TokenType> types = EnumSet.noneOf(TokenType.class);
+        if (StringUtils.isBlank(value)) {
+            return types;
+        }
+        for (String name : value.split(",")) {
+            try {
+                types.add(TokenType.valueOf(name.trim()));
+            } catch (IllegalArgumentException e) {
+                debug.warning(CoreTokenConstants.DEBUG_HEADER + "Ignoring unknown near cache token type " + name);
+            }
+        }
+        return types;
+    }
+
+    private static int positive(int value, int defaultValue) {
+        return value > 0 ? value : defaultValue;
+    }
+
+    private void debug(String format, String... args) {
+        if (debug.messageEnabled()) {
+            debug.message(MessageFormat.format(CoreTokenConstants.DEBUG_HEADER + format, args));
+        }
+    }
+
+    /**
+     * A cached token, along with its ETag and the time after which it must no longer be served.
+     */
+    private static final class Entry {
+
+        private final Token token;
+        private final String etag;
+        private final long expiresAt;
+
+        private Entry(Token token, String etag, long expiresAt) {
+            this.token = token;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
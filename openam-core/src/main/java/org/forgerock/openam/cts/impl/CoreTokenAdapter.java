@@ -12,13 +12,17 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.impl;
 
+import static org.forgerock.openam.cts.api.CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 
 import com.sun.identity.shared.debug.Debug;
@@ -31,12 +35,14 @@ import org.forgerock.openam.cts.exceptions.CreateFailedException;
 import org.forgerock.openam.cts.exceptions.QueryFailedException;
 import org.forgerock.openam.cts.exceptions.ReadFailedException;
 import org.forgerock.openam.cts.exceptions.SetFailedException;
+import org.forgerock.openam.cts.impl.query.CTSPagedQueryFactory;
 import org.forgerock.openam.cts.impl.queue.ResultHandlerFactory;
 import org.forgerock.openam.cts.impl.queue.TaskDispatcher;
 import org.forgerock.openam.cts.utils.blob.TokenBlobStrategy;
 import org.forgerock.openam.cts.utils.blob.TokenStrategyFailedException;
 import org.forgerock.openam.cts.worker.CTSWorkerManager;
 import org.forgerock.openam.sm.datalayer.api.ResultHandler;
+import org.forgerock.openam.sm.datalayer.api.query.PagedQuery;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.util.Options;
@@ -56,6 +62,7 @@ public class CoreTokenAdapter {
     private final TokenBlobStrategy strategy;
     private final TaskDispatcher dispatcher;
     private final ResultHandlerFactory handlerFactory;
+    private final CTSPagedQueryFactory pagedQueryFactory;
     private final Debug debug;
 
     /**
@@ -63,14 +70,17 @@ public class CoreTokenAdapter {
      * @param strategy Required for binary object transformations.
      * @param dispatcher Non null TaskDispatcher to use for CTS operations.
      * @param handlerFactory Factory used to generate ResultHandlers for CTS operations.
+     * @param pagedQueryFactory Factory used to generate paged queries.
      * @param ctsWorkerManager Required for starting the CTS worker tasks.
      * @param debug Required for debug logging.
      */
     @Inject
     public CoreTokenAdapter(TokenBlobStrategy strategy, TaskDispatcher dispatcher, ResultHandlerFactory handlerFactory,
-                            CTSWorkerManager ctsWorkerManager, @Named(CoreTokenConstants.CTS_DEBUG) Debug debug) {
+                            CTSPagedQueryFactory pagedQueryFactory, CTSWorkerManager ctsWorkerManager,
+                            @Named(CoreTokenConstants.CTS_DEBUG) Debug debug) {
         this.strategy = strategy;
         this.handlerFactory = handlerFactory;
+        this.pagedQueryFactory = pagedQueryFactory;
         this.dispatcher = dispatcher;
         this.debug = debug;
 
@@ -148,6 +158,53 @@ public class CoreTokenAdapter {
         return updateHandler;
     }
 
+    /**
+     * Update only the attributes of a Token which have changed since it was read by the caller.
+     *
+     * Unlike {@link #updateOrCreate(Token, Options)}, no read of the stored Token is made: the
+     * {@literal previous} Token is trusted and the update asserts its ETag, unless the options already
+     * carry an assertion, so that a concurrent change causes the update to fail rather than be lost.
+     * When the binary blob is unchanged it is left out of the modification altogether, which saves
+     * re-encoding it for updates such as an expiry refresh.
+     *
+     * If {@literal previous} is null or carries no ETag, this falls back to {@link #updateOrCreate(Token, Options)}.
+     *
+     * Neither Token is modified by this call.
+     *
+     * @param previous Token as last read or written by the caller, or null if not known.
+     * @param updated Non null Token to update with.
+     * @param options The Options for the operation.
+     * @return The ResultHandler for the asynchronous operation.
+     * @throws CoreTokenException If there was a problem applying the blob strategy or queuing the update.
+     */
+    public ResultHandler<Token, CoreTokenException> updateAttributes(Token previous, Token updated, Options options)
+            throws CoreTokenException {
+        Reject.ifNull(updated, options);
+        String etag = previous == null ? null : previous.<String>getAttribute(CoreTokenField.ETAG);
+        if (etag == null) {
+            return updateOrCreate(new Token(updated), options);
+        }
+
+        Token before = new Token(previous);
+        Token after = new Token(updated);
+        before.clearAttribute(CoreTokenField.BLOB);
+        if (Arrays.equals(previous.getBlob(), updated.getBlob())) {
+            after.clearAttribute(CoreTokenField.BLOB);
+        } else {
+            applyBlobStrategy(after);
+        }
+
+        Options updateOptions = options;
+        if (options.get(OPTIMISTIC_CONCURRENCY_CHECK_OPTION) == null) {
+            updateOptions = Options.copyOf(options).set(OPTIMISTIC_CONCURRENCY_CHECK_OPTION, etag);
+        }
+
+        debug("UpdateAttributes: queued {0} Token {1}\n{2}", after.getType(), after.getTokenId(), after);
+        final ResultHandler<Token, CoreTokenException> updateHandler = handlerFactory.getUpdateHandler();
+        dispatcher.updateAttributes(before, after, updateOptions, updateHandler);
+        return updateHandler;
+    }
+
     /**
      * Deletes a token from the store based on its token id.
      * @param tokenId Non null token id.
@@ -227,6 +284,55 @@ public class CoreTokenAdapter {
         }
     }
 
+    /**
+     * Queries the persistence layer using the given TokenFilter, fetching the matching Tokens one page at a
+     * time as they are requested. Unlike {@link #query(TokenFilter)}, the query is not performed by the task
+     * queue; it holds a connection of its own until it is exhausted or closed.
+     *
+     * @param tokenFilter A non null TokenFilter.
+     * @return A non null paged query, which must be closed by the caller.
+     */
+    public PagedQuery<Token> pagedQuery(final TokenFilter tokenFilter) {
+        debug("PagedQuery: created with Filter: {0}", tokenFilter);
+        return new BlobReversingPagedQuery<Token>(pagedQueryFactory.query(tokenFilter)) {
+            @Override
+            protected Token reverse(Token token) throws CoreTokenException {
+                reverseBlobStrategy(token);
+                return token;
+            }
+        };
+    }
+
+    /**
+     * Queries the persistence layer using the given TokenFilter which must have the required
+     * 'return attributes' defined within it, fetching the matching PartialTokens one page at a time
+     * as they are requested.
+     *
+     * @see #pagedQuery(TokenFilter)
+     *
+     * @param filter Non null TokenFilter with return attributes defined.
+     * @return A non null paged query, which must be closed by the caller.
+     * @throws IllegalArgumentException If the filter did not define any Return Fields.
+     */
+    public PagedQuery<PartialToken> pagedAttributeQuery(final TokenFilter filter) throws IllegalArgumentException {
+        debug("PagedAttributeQuery: created with Filter: {0}", filter);
+        PagedQuery<PartialToken> query = pagedQueryFactory.attributeQuery(filter);
+        if (!filter.getReturnFields().contains(CoreTokenField.BLOB)) {
+            return query;
+        }
+        return new BlobReversingPagedQuery<PartialToken>(query) {
+            @Override
+            protected PartialToken reverse(PartialToken partialToken) throws CoreTokenException {
+                try {
+                    byte[] value = partialToken.getValue(CoreTokenField.BLOB);
+                    return new PartialToken(partialToken, CoreTokenField.BLOB, strategy.reverse(value));
+                } catch (TokenStrategyFailedException e) {
+                    throw new CoreTokenException("Failed to reverse Blob strategy", e);
+                }
+            }
+        };
+    }
+
     /**
      * Queries the persistence layer using the given TokenFilter which must have the required
      * 'return attributes' defined within it. The results of this query then will be deleted from the store.
@@ -310,4 +416,48 @@ public class CoreTokenAdapter {
             throw new CoreTokenException("Failed to reverse Token Blob strategy.", e);
         }
     }
+
+    /**
+     * Reverses the blob strategy on each page of results as it is fetched.
+     *
+     * @param <T> The type of the results.
+     */
+    private abstract static class BlobReversingPagedQuery<T> implements PagedQuery<T> {
+
+        private final PagedQuery<T> query;
+
+        BlobReversingPagedQuery(PagedQuery<T> query) {
+            this.query = query;
+        }
+
+        @Override
+        public Collection<T> nextPage() throws CoreTokenException {
+            Collection<T> page = query.nextPage();
+            if (page == null) {
+                return null;
+            }
+            Collection<T> results = new ArrayList<>(page.size());
+            try {
+                for (T result : page) {
+                    results.add(reverse(result));
+                }
+            } catch (CoreTokenException e) {
+                close();
+                throw e;
+            }
+            return results;
+        }
+
+        @Override
+        public void close() {
+            query.close();
+        }
+
+        /**
+         * @param result A result as stored.
+         * @return The result with the blob strategy reversed.
+         * @throws CoreTokenException If the blob strategy could not be reversed.
+         */
+        protected abstract T reverse(T result) throws CoreTokenException;
+    }
 }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.impl;
@@ -63,8 +64,11 @@ import org.forgerock.opendj.ldap.requests.Request;
 import org.forgerock.opendj.ldap.requests.SearchRequest;
 import org.forgerock.opendj.ldap.responses.Result;
 import org.forgerock.opendj.ldap.responses.SearchResultEntry;
+import org.forgerock.util.Function;
 import org.forgerock.util.Option;
 import org.forgerock.util.Options;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.Promises;
 
 import com.forgerock.opendj.ldap.controls.TransactionIdControl;
 
@@ -78,6 +82,9 @@ import com.forgerock.opendj.ldap.controls.TransactionIdControl;
  */
 public class LdapAdapter implements TokenStorageAdapter {
 
+    private static final Entries.DiffOptions UPDATE_DIFF = Entries.diffOptions().replaceSingleValuedAttributes();
+    private static final Entries.DiffOptions UPDATE_ATTRIBUTES_DIFF = Entries.diffOptions().alwaysReplaceAttributes();
+
     private final LdapTokenAttributeConversion conversion;
     private final LdapQueryFilterVisitor queryConverter;
     private final LdapQueryFactory queryFactory;
@@ -172,37 +179,43 @@ public class LdapAdapter implements TokenStorageAdapter {
      * present on the {@literal previous} token.
      */
     public Token update(Token previous, Token updated, Options options) throws DataLayerException {
-        Entry currentEntry = conversion.getEntry(updated);
-        LdapTokenAttributeConversion.stripObjectClass(currentEntry);
-
-        Entry previousEntry = conversion.getEntry(previous);
-        LdapTokenAttributeConversion.stripObjectClass(previousEntry);
+        ModifyRequest request = createModifyRequest(previous, updated, options, UPDATE_DIFF);
+        return modify(previous, updated, options, request);
+    }
 
-        //etag should not be modified and should not be part of the modification request
-        //it is the up to the underlying ldap layer to generate etag
-        previousEntry.removeAttribute(ETAG.toString());
-        currentEntry.removeAttribute(ETAG.toString());
-        ModifyRequest request = Entries.diffEntries(previousEntry, currentEntry,
-            Entries.diffOptions().replaceSingleValuedAttributes());
+    /**
+     * Update only the attributes which differ between the two Tokens.
+     *
+     * <p>Unlike {@link #update(Token, Token, Options)}, the {@literal previous} {@code Token} is the
+     * state last known to the caller rather than one just read from the store, so every changed
+     * attribute is written as a replace of its whole value set. This keeps the modification
+     * independent of the stored values, which should be guarded with an ETag assertion in the
+     * {@literal options}.</p>
+     *
+     * @param previous The non null Token as last known to the caller.
+     * @param updated The non null Token to update with.
+     * @param options The non null Options for the operation.
+     * @throws OptimisticConcurrencyCheckFailedException If the operation failed due to an
+     * assertion on the tokens ETag.
+     */
+    @Override
+    public Token updateAttributes(Token previous, Token updated, Options options) throws DataLayerException {
+        ModifyRequest request = createModifyRequest(previous, updated, options, UPDATE_ATTRIBUTES_DIFF);
+        return modify(previous, updated, options, request);
+    }
 
-        if (request.getModifications().isEmpty()) {
+    private Token modify(Token previous, Token updated, Options options, ModifyRequest request)
+            throws DataLayerException {
+        if (request == null) {
             return previous;
         }
 
-        request.addControl(TransactionIdControl.newControl(AuditRequestContext.createSubTransactionIdValue()))
-                .addControl(PostReadRequestControl.newControl(true, ETAG.toString()));
-
-        request = applyOptions(request, options);
-
         try {
             getConnection();
             Result result = connection.modify(request);
             return tokenWithNewEtag(updated, result);
-        } catch (AssertionFailureException e) {
-            throw new OptimisticConcurrencyCheckFailedException(updated.getTokenId(),
-                    options.get(OPTIMISTIC_CONCURRENCY_CHECK_OPTION), e);
         } catch (LdapException e) {
-            throw new LdapOperationFailedException(e.getResult());
+            throw modifyFailure(updated.getTokenId(), options, e);
         }
     }
 
@@ -247,6 +260,184 @@ public class LdapAdapter implements TokenStorageAdapter {
         }
     }
 
+    /**
+     * Create the Token in LDAP without waiting for the result.
+     *
+     * @param token Non null Token to create.
+     * @param options Non null Options for the operations.
+     * @return A promise of a copy of the created {@code Token} with the ETag set.
+     */
+    @Override
+    public Promise<Token, DataLayerException> createAsync(final Token token, Options options) {
+        Entry entry = conversion.getEntry(token);
+        AddRequest request = LDAPRequests.newAddRequest(entry)
+                .addControl(PostReadRequestControl.newControl(true, ETAG.toString()));
+        request = applyOptions(request, options);
+        try {
+            getConnection();
+        } catch (DataLayerException e) {
+            return Promises.newExceptionPromise(e);
+        }
+        return connection.addAsync(request).then(
+                new Function<Result, Token, DataLayerException>() {
+                    @Override
+                    public Token apply(Result result) throws DataLayerException {
+                        return tokenWithNewEtag(token, result);
+                    }
+                },
+                new Function<LdapException, Token, DataLayerException>() {
+                    @Override
+                    public Token apply(LdapException e) throws DataLayerException {
+                        throw new LdapOperationFailedException(e.getResult());
+                    }
+                });
+    }
+
+    /**
+     * Reads the Token from LDAP without waiting for the result.
+     *
+     * @param tokenId The id of the Token to read.
+     * @param options Non null Options for the operations.
+     * @return A promise of the Token if found, otherwise of null.
+     */
+    @Override
+    public Promise<Token, DataLayerException> readAsync(String tokenId, Options options) {
+        DN dn = conversion.generateTokenDN(tokenId);
+        SearchRequest request = LDAPRequests.newSingleEntrySearchRequest(dn, "*", ETAG.toString());
+        request = applyOptions(request, options);
+        try {
+            getConnection();
+        } catch (DataLayerException e) {
+            return Promises.newExceptionPromise(e);
+        }
+        return connection.searchSingleEntryAsync(request).then(
+                new Function<SearchResultEntry, Token, DataLayerException>() {
+                    @Override
+                    public Token apply(SearchResultEntry entry) {
+                        return conversion.tokenFromEntry(entry);
+                    }
+                },
+                new Function<LdapException, Token, DataLayerException>() {
+                    @Override
+                    public Token apply(LdapException e) throws DataLayerException {
+                        Result result = e.getResult();
+                        if (result != null && ResultCode.NO_SUCH_OBJECT.equals(result.getResultCode())) {
+                            return null;
+                        }
+                        throw new LdapOperationFailedException(result);
+                    }
+                });
+    }
+
+    /**
+     * Update the Token without waiting for the result.
+     *
+     * @param previous The non null previous Token to check against.
+     * @param updated The non null Token to update with.
+     * @param options The non null Options for the operation.
+     * @return A promise of a copy of the updated token.
+     * @see #update(Token, Token, Options)
+     */
+    @Override
+    public Promise<Token, DataLayerException> updateAsync(Token previous, Token updated, Options options) {
+        return modifyAsync(previous, updated, options,
+                createModifyRequest(previous, updated, options, UPDATE_DIFF));
+    }
+
+    /**
+     * Update only the attributes which differ between the two Tokens without waiting for the result.
+     *
+     * @param previous The non null Token as last known to the caller.
+     * @param updated The non null Token to update with.
+     * @param options The non null Options for the operation.
+     * @return A promise of a copy of the updated token.
+     * @see #updateAttributes(Token, Token, Options)
+     */
+    @Override
+    public Promise<Token, DataLayerException> updateAttributesAsync(Token previous, Token updated,
+            Options options) {
+        return modifyAsync(previous, updated, options,
+                createModifyRequest(previous, updated, options, UPDATE_ATTRIBUTES_DIFF));
+    }
+
+    private Promise<Token, DataLayerException> modifyAsync(Token previous, final Token updated,
+            final Options options, ModifyRequest request) {
+        if (request == null) {
+            return Promises.newResultPromise(previous);
+        }
+        try {
+            getConnection();
+        } catch (DataLayerException e) {
+            return Promises.newExceptionPromise(e);
+        }
+        return connection.modifyAsync(request).then(
+                new Function<Result, Token, DataLayerException>() {
+                    @Override
+                    public Token apply(Result result) throws DataLayerException {
+                        return tokenWithNewEtag(updated, result);
+                    }
+                },
+                new Function<LdapException, Token, DataLayerException>() {
+                    @Override
+                    public Token apply(LdapException e) throws DataLayerException {
+                        throw modifyFailure(updated.getTokenId(), options, e);
+                    }
+                });
+    }
+
+    /**
+     * Deletes the Token ID without waiting for the result.
+     *
+     * @param tokenId The non null Token ID to delete.
+     * @param options The non null Options for the operation.
+     * @return A promise of a {@link PartialToken} containing at least the {@link CoreTokenField#TOKEN_ID}.
+     * @see #delete(String, Options)
+     */
+    @Override
+    public Promise<PartialToken, DataLayerException> deleteAsync(final String tokenId, final Options options) {
+        String dn = String.valueOf(conversion.generateTokenDN(tokenId));
+        DeleteRequest request = LDAPRequests.newDeleteRequest(dn);
+        request = applyOptions(request, options);
+        try {
+            getConnection();
+        } catch (DataLayerException e) {
+            return Promises.newExceptionPromise(e);
+        }
+        return connection.deleteAsync(request).then(
+                new Function<Result, PartialToken, DataLayerException>() {
+                    @Override
+                    public PartialToken apply(Result result) throws DataLayerException {
+                        verifySuccess(result);
+                        try {
+                            PreReadResponseControl control =
+                                    result.getControl(PreReadResponseControl.DECODER, new DecodeOptions());
+                            if (control != null) {
+                                return conversion.tokenFromEntry(control.getEntry()).toPartialToken();
+                            }
+                            return new PartialToken(Collections.<CoreTokenField, Object>singletonMap(
+                                    CoreTokenField.TOKEN_ID, tokenId));
+                        } catch (DecodeException e) {
+                            throw new LdapOperationFailedException(e.getMessage());
+                        }
+                    }
+                },
+                new Function<LdapException, PartialToken, DataLayerException>() {
+                    @Override
+                    public PartialToken apply(LdapException e) throws DataLayerException {
+                        if (e instanceof AssertionFailureException) {
+                            throw new OptimisticConcurrencyCheckFailedException(tokenId,
+                                    options.get(OPTIMISTIC_CONCURRENCY_CHECK_OPTION), e);
+                        }
+                        Result result = e.getResult();
+                        if (result != null && ResultCode.NO_SUCH_OBJECT.equals(result.getResultCode())) {
+                            return new PartialToken(Collections.<CoreTokenField, Object>singletonMap(
+                                    CoreTokenField.TOKEN_ID, tokenId));
+                        }
+                        throw new LdapOperationFailedException(result);
+                    }
+                });
+    }
+
     @Override
     public Collection<Token> query(TokenFilter query) throws DataLayerException {
         try {
@@ -285,6 +476,43 @@ public class LdapAdapter implements TokenStorageAdapter {
             .executeContinuousQuery(listener);
     }
 
+    /**
+     * Generates the modify request for the difference between the two tokens.
+     *
+     * @return The modify request, or null if there were no modifications to make.
+     */
+    private ModifyRequest createModifyRequest(Token previous, Token updated, Options options,
+            Entries.DiffOptions diffOptions) {
+        Entry currentEntry = conversion.getEntry(updated);
+        LdapTokenAttributeConversion.stripObjectClass(currentEntry);
+
+        Entry previousEntry = conversion.getEntry(previous);
+        LdapTokenAttributeConversion.stripObjectClass(previousEntry);
+
+        //etag should not be modified and should not be part of the modification request
+        //it is the up to the underlying ldap layer to generate etag
+        previousEntry.removeAttribute(ETAG.toString());
+        currentEntry.removeAttribute(ETAG.toString());
+        ModifyRequest request = Entries.diffEntries(previousEntry, currentEntry, diffOptions);
+
+        if (request.getModifications().isEmpty()) {
+            return null;
+        }
+
+        request.addControl(TransactionIdControl.newControl(AuditRequestContext.createSubTransactionIdValue()))
+                .addControl(PostReadRequestControl.newControl(true, ETAG.toString()));
+
+        return applyOptions(request, options);
+    }
+
+    private DataLayerException modifyFailure(String tokenId, Options options, LdapException e) {
+        if (e instanceof AssertionFailureException) {
+            return new OptimisticConcurrencyCheckFailedException(tokenId,
+                    options.get(OPTIMISTIC_CONCURRENCY_CHECK_OPTION), e);
+        }
+        return new LdapOperationFailedException(e.getResult());
+    }
+
     /**
      * Verify if the result was successful.
      *
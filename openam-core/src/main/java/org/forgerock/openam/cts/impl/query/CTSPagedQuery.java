@@ -0,0 +1,125 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.impl.query;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.forgerock.openam.cts.api.filter.TokenFilter;
+import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.cts.exceptions.LdapInitializationFailedException;
+import org.forgerock.openam.cts.exceptions.QueryFailedException;
+import org.forgerock.openam.sm.datalayer.api.ConnectionFactory;
+import org.forgerock.openam.sm.datalayer.api.DataLayerException;
+import org.forgerock.openam.sm.datalayer.api.DataLayerRuntimeException;
+import org.forgerock.openam.sm.datalayer.api.query.PagedQuery;
+import org.forgerock.openam.sm.datalayer.api.query.QueryBuilder;
+import org.forgerock.openam.utils.IOUtils;
+
+/**
+ * A {@link PagedQuery} which performs a paged search over a connection of its own, held from the first page until
+ * the results are exhausted or the query is closed.
+ * <p>
+ * The paging cookie returned with each page ties the next page to the same connection, so the connection cannot
+ * be returned to the pool between pages. The number of concurrent paged queries is therefore bounded by the
+ * size of the pool from which the connections are taken.
+ *
+ * @param <C> The type of connection the query is made over.
+ * @param <T> The type of the results.
+ */
+public class CTSPagedQuery<C extends Closeable, T> implements PagedQuery<T> {
+
+    private final ConnectionFactory<C> factory;
+    private final QueryBuilder<C, ?> query;
+    private final Class<T> type;
+    private final TokenFilter filter;
+    private volatile boolean closed;
+    private C connection;
+    private Iterator<Collection<T>> results;
+
+    /**
+     * @param factory Non null factory of the connection to query over.
+     * @param query Non null query, which must page its results.
+     * @param type The type of the results.
+     * @param filter The filter the query was built from, for reporting errors.
+     */
+    public CTSPagedQuery(ConnectionFactory<C> factory, QueryBuilder<C, ?> query, Class<T> type, TokenFilter filter) {
+        this.factory = factory;
+        this.query = query;
+        this.type = type;
+        this.filter = filter;
+    }
+
+    @Override
+    public Collection<T> nextPage() throws CoreTokenException {
+        if (closed || Thread.currentThread().isInterrupted()) {
+            close();
+            return null;
+        }
+
+        if (results == null) {
+            C created;
+            try {
+                created = factory.create();
+            } catch (DataLayerException e) {
+                close();
+                throw new LdapInitializationFailedException(e);
+            }
+            synchronized (this) {
+                if (closed) {
+                    IOUtils.closeIfNotNull(created);
+                    return null;
+                }
+                connection = created;
+            }
+            results = query.executeRawResults(created, type);
+        }
+
+        if (!results.hasNext()) {
+            close();
+            return null;
+        }
+
+        try {
+            Collection<T> page = results.next();
+            return closed ? null : page;
+        } catch (DataLayerRuntimeException e) {
+            if (closed) {
+                // The connection was closed from under the search to cancel it
+                return null;
+            }
+            close();
+            throw new QueryFailedException(filter, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        C toClose;
+        synchronized (this) {
+            toClose = connection;
+            connection = null;
+        }
+        IOUtils.closeIfNotNull(toClose);
+    }
+
+    @Override
+    public String toString() {
+        return "Paged " + query;
+    }
+}
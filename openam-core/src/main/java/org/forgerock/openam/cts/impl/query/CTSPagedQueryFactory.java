@@ -0,0 +1,98 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.impl.query;
+
+import static org.forgerock.openam.sm.datalayer.api.ConnectionType.CTS_PAGED_QUERY;
+
+import java.io.Closeable;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.forgerock.openam.cts.CoreTokenConfig;
+import org.forgerock.openam.cts.api.filter.TokenFilter;
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.sm.datalayer.api.ConnectionFactory;
+import org.forgerock.openam.sm.datalayer.api.DataLayer;
+import org.forgerock.openam.sm.datalayer.api.query.PagedQuery;
+import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
+import org.forgerock.openam.sm.datalayer.api.query.QueryBuilder;
+import org.forgerock.openam.sm.datalayer.api.query.QueryFactory;
+import org.forgerock.opendj.ldap.Filter;
+import org.forgerock.util.Reject;
+
+/**
+ * Creates {@link PagedQuery} instances for {@link TokenFilter}s. Each query takes its own connection from the
+ * {@link org.forgerock.openam.sm.datalayer.api.ConnectionType#CTS_PAGED_QUERY} pool, and fetches pages of the size
+ * configured by {@link CoreTokenConfig#getPagedQueryPageSize()}.
+ */
+@Singleton
+public class CTSPagedQueryFactory {
+
+    private final ConnectionFactory<Closeable> connectionFactory;
+    private final QueryFactory<Closeable, Filter> queryFactory;
+    private final CoreTokenConfig config;
+
+    /**
+     * Guice initialised constructor.
+     *
+     * @param connectionFactory Required for the connection each query is made over.
+     * @param queryFactory Required for building the queries.
+     * @param config Required for the page size.
+     */
+    @Inject
+    @SuppressWarnings("unchecked")
+    public CTSPagedQueryFactory(@DataLayer(CTS_PAGED_QUERY) ConnectionFactory connectionFactory,
+            @DataLayer(CTS_PAGED_QUERY) QueryFactory queryFactory, CoreTokenConfig config) {
+        this.connectionFactory = connectionFactory;
+        this.queryFactory = queryFactory;
+        this.config = config;
+    }
+
+    /**
+     * Creates a paged query for whole Tokens. The query does not start until its first page is requested.
+     *
+     * @param filter Non null filter, whose size and time limits apply to the query as a whole.
+     * @return Non null paged query.
+     */
+    public PagedQuery<Token> query(TokenFilter filter) {
+        Reject.ifNull(filter);
+        return new CTSPagedQuery<>(connectionFactory, createQuery(filter), Token.class, filter);
+    }
+
+    /**
+     * Creates a paged query for the return attributes of the filter. The query does not start until its first page
+     * is requested.
+     *
+     * @param filter Non null filter with return attributes defined.
+     * @return Non null paged query.
+     * @throws IllegalArgumentException If the filter did not define any return attributes.
+     */
+    public PagedQuery<PartialToken> attributeQuery(TokenFilter filter) {
+        Reject.ifNull(filter);
+        Reject.ifTrue(filter.getReturnFields().isEmpty(), "Must define return fields for attribute query.");
+        QueryBuilder<Closeable, Filter> query = createQuery(filter).returnTheseAttributes(filter.getReturnFields());
+        return new CTSPagedQuery<>(connectionFactory, query, PartialToken.class, filter);
+    }
+
+    private QueryBuilder<Closeable, Filter> createQuery(TokenFilter filter) {
+        return queryFactory.createInstance()
+                .limitResultsTo(filter.getSizeLimit())
+                .within(filter.getTimeLimit())
+                .withFilter(filter.getQuery().accept(queryFactory.createFilterConverter(), null))
+                .pageResultsBy(config.getPagedQueryPageSize());
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.impl.query.worker;
+
+import java.util.Calendar;
+
+/**
+ * A {@link CTSWorkerQuery} whose results are ordered in time, so that the range of expiry times it covers can be
+ * split into slices which are processed independently, possibly concurrently or by different servers.
+ */
+public interface CTSWorkerSliceableQuery extends CTSWorkerQuery {
+
+    /**
+     * Creates a new query which selects only those results of this query whose expiry time is within
+     * the given range.
+     *
+     * @param from The inclusive lower bound of the slice, or null if the slice has no lower bound.
+     * @param to The exclusive upper bound of the slice. Non null.
+     * @return A new, unstarted query over the slice.
+     */
+    CTSWorkerQuery slice(Calendar from, Calendar to);
+
+}
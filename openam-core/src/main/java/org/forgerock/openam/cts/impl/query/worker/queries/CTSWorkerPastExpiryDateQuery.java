@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 package org.forgerock.openam.cts.impl.query.worker.queries;
 
@@ -25,6 +25,8 @@ import java.util.Calendar;
 import javax.inject.Inject;
 
 import org.forgerock.openam.cts.CoreTokenConfig;
+import org.forgerock.openam.cts.impl.query.worker.CTSWorkerQuery;
+import org.forgerock.openam.cts.impl.query.worker.CTSWorkerSliceableQuery;
 import org.forgerock.openam.sm.datalayer.api.ConnectionFactory;
 import org.forgerock.openam.sm.datalayer.api.DataLayer;
 import org.forgerock.openam.sm.datalayer.api.query.QueryBuilder;
@@ -36,14 +38,18 @@ import org.forgerock.util.query.QueryFilter;
 
 /**
  * A query that selects all CTS tokens whose expiry date field is prior to the current timestamp (e.g. who have
- * exceeded their maximum expiry time).
+ * exceeded their maximum expiry time). The query can be sliced by expiry date.
  *
  * @param <C> The type of connection queries are made for.
  */
-public class CTSWorkerPastExpiryDateQuery<C extends Closeable> extends CTSWorkerBaseQuery<C> {
+public class CTSWorkerPastExpiryDateQuery<C extends Closeable> extends CTSWorkerBaseQuery<C>
+        implements CTSWorkerSliceableQuery {
 
+    private final ConnectionFactory<C> factory;
     private final QueryFactory<C, Filter> queryFactory;
     private final int pageSize;
+    private final Calendar from;
+    private final Calendar to;
 
     @Inject
     public CTSWorkerPastExpiryDateQuery(
@@ -53,15 +59,37 @@ public class CTSWorkerPastExpiryDateQuery<C extends Closeable> extends CTSWorker
         super(factory);
         Reject.ifTrue(config.getCleanupPageSize() <= 0);
 
+        this.factory = factory;
         this.queryFactory = queryFactory;
         this.pageSize = config.getCleanupPageSize();
+        this.from = null;
+        this.to = null;
+    }
+
+    private CTSWorkerPastExpiryDateQuery(ConnectionFactory<C> factory, QueryFactory<C, Filter> queryFactory,
+            int pageSize, Calendar from, Calendar to) {
+        super(factory);
+        this.factory = factory;
+        this.queryFactory = queryFactory;
+        this.pageSize = pageSize;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public CTSWorkerQuery slice(Calendar from, Calendar to) {
+        Reject.ifNull(to);
+        return new CTSWorkerPastExpiryDateQuery<>(factory, queryFactory, pageSize, from, to);
     }
 
     @Override
     public QueryBuilder<C, Filter> getQuery() {
-        Calendar now = getCalendarInstance();
+        Calendar now = to == null ? getCalendarInstance() : to;
 
         QueryFilter<CoreTokenField> filter = QueryFilter.lessThan(CoreTokenField.EXPIRY_DATE, now);
+        if (from != null) {
+            filter = QueryFilter.and(QueryFilter.greaterThanOrEqualTo(CoreTokenField.EXPIRY_DATE, from), filter);
+        }
 
         return queryFactory.createInstance()
                 .withFilter(filter.accept(queryFactory.createFilterConverter(), null))
@@ -12,22 +12,28 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 package org.forgerock.openam.cts.impl.query.worker.queries;
 
 import static org.forgerock.openam.sm.datalayer.api.ConnectionType.CTS_MAX_SESSION_TIMEOUT_WORKER;
 import static org.forgerock.openam.utils.Time.getCalendarInstance;
 import static org.forgerock.util.query.QueryFilter.equalTo;
+import static org.forgerock.util.query.QueryFilter.greaterThanOrEqualTo;
+import static org.forgerock.util.query.QueryFilter.lessThan;
 import static org.forgerock.util.query.QueryFilter.lessThanOrEqualTo;
 
 import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 
 import javax.inject.Inject;
 
 import org.forgerock.openam.cts.CoreTokenConfig;
 import org.forgerock.openam.cts.api.fields.SessionTokenField;
+import org.forgerock.openam.cts.impl.query.worker.CTSWorkerQuery;
+import org.forgerock.openam.cts.impl.query.worker.CTSWorkerSliceableQuery;
 import org.forgerock.openam.sm.datalayer.api.ConnectionFactory;
 import org.forgerock.openam.sm.datalayer.api.DataLayer;
 import org.forgerock.openam.sm.datalayer.api.query.QueryBuilder;
@@ -41,14 +47,19 @@ import org.forgerock.util.query.QueryFilter;
 import com.iplanet.dpro.session.service.SessionState;
 
 /**
- * A query that selects all CTS session tokens whose max session time has expired.
+ * A query that selects all CTS session tokens whose max session time has expired. The query can be sliced by
+ * max session expiration time.
  *
  * @param <C> The type of connection queries are made for.
  */
-public class MaxSessionTimeExpiredQuery<C extends Closeable> extends CTSWorkerBaseQuery<C> {
+public class MaxSessionTimeExpiredQuery<C extends Closeable> extends CTSWorkerBaseQuery<C>
+        implements CTSWorkerSliceableQuery {
 
+    private final ConnectionFactory<C> factory;
     private final QueryFactory<C, Filter> queryFactory;
     private final int pageSize;
+    private final Calendar from;
+    private final Calendar to;
 
     @Inject
     public MaxSessionTimeExpiredQuery(
@@ -57,19 +68,45 @@ public class MaxSessionTimeExpiredQuery<C extends Closeable> extends CTSWorkerBa
             CoreTokenConfig config) {
         super(factory);
         Reject.ifTrue(config.getCleanupPageSize() <= 0);
+        this.factory = factory;
         this.queryFactory = queryFactory;
         this.pageSize = config.getCleanupPageSize();
+        this.from = null;
+        this.to = null;
+    }
+
+    private MaxSessionTimeExpiredQuery(ConnectionFactory<C> factory, QueryFactory<C, Filter> queryFactory,
+            int pageSize, Calendar from, Calendar to) {
+        super(factory);
+        this.factory = factory;
+        this.queryFactory = queryFactory;
+        this.pageSize = pageSize;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public CTSWorkerQuery slice(Calendar from, Calendar to) {
+        Reject.ifNull(to);
+        return new MaxSessionTimeExpiredQuery<>(factory, queryFactory, pageSize, from, to);
     }
 
     @Override
     public QueryBuilder<C, Filter> getQuery() {
-        Calendar now = getCalendarInstance();
+        CoreTokenField expirationTime = SessionTokenField.MAX_SESSION_EXPIRATION_TIME.getField();
+        List<QueryFilter<CoreTokenField>> filters = new ArrayList<>();
+        if (to == null) {
+            filters.add(lessThanOrEqualTo(expirationTime, getCalendarInstance()));
+        } else {
+            filters.add(lessThan(expirationTime, to));
+        }
+        if (from != null) {
+            filters.add(greaterThanOrEqualTo(expirationTime, from));
+        }
+        filters.add(equalTo(SessionTokenField.SESSION_STATE.getField(), SessionState.VALID.toString()));
+        filters.add(equalTo(CoreTokenField.TOKEN_TYPE, TokenType.SESSION));
 
-        QueryFilter<CoreTokenField> filter =
-                QueryFilter.and(
-                        lessThanOrEqualTo(SessionTokenField.MAX_SESSION_EXPIRATION_TIME.getField(), now),
-                        equalTo(SessionTokenField.SESSION_STATE.getField(), SessionState.VALID.toString()),
-                        equalTo(CoreTokenField.TOKEN_TYPE, TokenType.SESSION));
+        QueryFilter<CoreTokenField> filter = QueryFilter.and(filters);
 
         return queryFactory.createInstance()
                 .withFilter(filter.accept(queryFactory.createFilterConverter(), null))
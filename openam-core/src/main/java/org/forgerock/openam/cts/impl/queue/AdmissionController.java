@@ -0,0 +1,202 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.impl.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.forgerock.openam.cts.api.CoreTokenConstants;
+import org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration;
+import org.forgerock.openam.cts.monitoring.CTSConnectionMonitoringStore;
+import org.forgerock.openam.sm.datalayer.api.ResultHandler;
+import org.forgerock.openam.sm.datalayer.api.TaskRejectedException;
+
+import com.sun.identity.shared.debug.Debug;
+
+/**
+ * Limits the number of asynchronous tasks in progress at once, adapting the limit to the latency of the tasks
+ * using an additive increase, multiplicative decrease algorithm.
+ *
+ * A task is in progress from the moment it is admitted until its {@link ResultHandler} is notified, so the
+ * latency includes the time spent waiting on the queues. Whilst tasks complete within the latency threshold and
+ * at least half of the limit is in use, the limit grows by one for each limit's worth of completed tasks. A task
+ * which exceeds the threshold reduces the limit by a tenth, at most once per threshold interval, down to the
+ * configured minimum.
+ *
+ * Low priority tasks, such as background polling queries and the deletes of the CTS reaper, are rejected once
+ * the limit has been reached, so that they give way to reads and writes of Tokens. Other tasks are always admitted
+ * and remain subject only to the queue timeout.
+ *
+ * @see CTSQueueConfiguration#isAdaptiveAdmissionEnabled()
+ */
+@Singleton
+public class AdmissionController {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final CTSQueueConfiguration configuration;
+    private final CTSConnectionMonitoringStore monitoringStore;
+    private final Debug debug;
+    private final AtomicInteger inProgress = new AtomicInteger();
+    private volatile double limit = -1;
+    private boolean backedOff;
+    private long lastBackoff;
+
+    /**
+     * @param configuration Required to determine if admission control is enabled and its bounds.
+     * @param monitoringStore Required to record the limit and rejected tasks.
+     * @param debug Required for debugging.
+     */
+    @Inject
+    public AdmissionController(CTSQueueConfiguration configuration, CTSConnectionMonitoringStore monitoringStore,
+            @Named(CoreTokenConstants.CTS_ASYNC_DEBUG) Debug debug) {
+        this.configuration = configuration;
+        this.monitoringStore = monitoringStore;
+        this.debug = debug;
+    }
+
+    /**
+     * Admits a task, returning the handler it should notify so that its completion is observed.
+     *
+     * @param handler Non null handler of the task.
+     * @param lowPriority True if the task may be rejected when the limit has been reached.
+     * @param <T> The type of result of the task.
+     * @param <E> The type of error of the task.
+     * @return The handler to pass to the task, which is the given handler if admission control is disabled.
+     * @throws TaskRejectedException If the task was low priority and the limit had been reached.
+     */
+    public <T, E extends Exception> ResultHandler<T, E> admit(ResultHandler<T, E> handler, boolean lowPriority)
+            throws TaskRejectedException {
+        if (!configuration.isAdaptiveAdmissionEnabled()) {
+            return handler;
+        }
+        int currentLimit = getLimit();
+        if (lowPriority && inProgress.get() >= currentLimit) {
+            monitoringStore.addRejectedTask();
+            debug("Rejected low priority task at limit {}", currentLimit);
+            throw new TaskRejectedException(currentLimit);
+        }
+        inProgress.incrementAndGet();
+        return new AdmittedResultHandler<>(handler);
+    }
+
+    /**
+     * Releases a task which was admitted but could not be queued, without observing its latency.
+     *
+     * @param handler The handler returned when the task was admitted.
+     */
+    public void cancel(ResultHandler<?, ?> handler) {
+        if (handler instanceof AdmittedResultHandler) {
+            ((AdmittedResultHandler<?, ?>) handler).release();
+        }
+    }
+
+    /**
+     * @return The number of admitted tasks which have not yet completed.
+     */
+    int getInProgress() {
+        return inProgress.get();
+    }
+
+    /**
+     * @return The current limit, initially the configured maximum.
+     */
+    int getLimit() {
+        if (limit < 0) {
+            synchronized (this) {
+                if (limit < 0) {
+                    limit = configuration.getMaximumAdmissionLimit();
+                    monitoringStore.setAdmissionLimit((int) limit);
+                }
+            }
+        }
+        return (int) limit;
+    }
+
+    private synchronized void adjust(long latency) {
+        int previous = (int) limit;
+        long threshold = TimeUnit.MILLISECONDS.toNanos(configuration.getAdmissionLatencyThreshold());
+        long now = System.nanoTime();
+        if (latency > threshold) {
+            if (!backedOff || now - lastBackoff >= threshold) {
+                backedOff = true;
+                lastBackoff = now;
+                limit = Math.max(configuration.getMinimumAdmissionLimit(), limit * BACKOFF_RATIO);
+            }
+        } else if (inProgress.get() * 2 >= limit) {
+            limit = Math.min(configuration.getMaximumAdmissionLimit(), limit + 1 / limit);
+        }
+        if ((int) limit != previous) {
+            monitoringStore.setAdmissionLimit((int) limit);
+            debug("Admission limit changed from {} to {}", previous, (int) limit);
+        }
+    }
+
+    private void debug(String format, Object... args) {
+        if (debug.messageEnabled()) {
+            debug.message(CoreTokenConstants.DEBUG_ASYNC_HEADER + format, args);
+        }
+    }
+
+    /**
+     * Observes the completion of an admitted task before notifying the handler of the task.
+     */
+    private final class AdmittedResultHandler<T, E extends Exception> implements ResultHandler<T, E> {
+
+        private final ResultHandler<T, E> delegate;
+        private final long admitted = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private AdmittedResultHandler(ResultHandler<T, E> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public T getResults() throws E {
+            return delegate.getResults();
+        }
+
+        @Override
+        public void processResults(T result) {
+            complete();
+            delegate.processResults(result);
+        }
+
+        @Override
+        public void processError(Exception error) {
+            complete();
+            delegate.processError(error);
+        }
+
+        private void complete() {
+            if (released.compareAndSet(false, true)) {
+                inProgress.decrementAndGet();
+                adjust(System.nanoTime() - admitted);
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                inProgress.decrementAndGet();
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.impl.queue;
 
@@ -26,8 +27,11 @@ import org.forgerock.util.Reject;
  * we can avoid concurrent modification exceptions due to operations being performed on
  * the same Token by different threads.
  *
- * This algorithm is prone to modulus bias towards zero for numbers that are not a power of
- * two. Therefore this algorithm should only be used if this is the case.
+ * The hash code of the Token ID is passed through a mixing function before it is reduced
+ * to a queue, so that Token ID formats whose hash codes only vary in a few bits are still
+ * spread evenly across the queues. This algorithm is prone to modulus bias towards zero for
+ * numbers that are not a power of two. Therefore this algorithm should only be used if this
+ * is the case.
  */
 public final class QueueSelector {
     /**
@@ -35,11 +39,32 @@ public final class QueueSelector {
      */
     private QueueSelector() {}
 
+    /**
+     * Selects the queue for the given Token ID.
+     *
+     * @param tokenId Non null Token ID.
+     * @param queues The positive number of queues.
+     * @return The index of the queue, between zero inclusive and {@code queues} exclusive.
+     */
     public static int select(String tokenId, int queues) {
         Reject.ifTrue(tokenId == null, "Token ID cannot be null");
         Reject.ifTrue(queues <= 0, "queues must be positive");
 
-        int value = Math.abs(tokenId.hashCode());
+        int value = mix(tokenId.hashCode()) & Integer.MAX_VALUE;
         return value % queues;
     }
+
+    /**
+     * The finalisation step of the MurmurHash3 32-bit hash, which causes every bit of the input to
+     * affect every bit of the output.
+     */
+    private static int mix(int hash) {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
 }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.impl.queue;
 
@@ -21,6 +22,8 @@ import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import static org.forgerock.openam.cts.api.CTSOptions.LOW_PRIORITY_OPTION;
+
 import org.forgerock.openam.cts.api.filter.TokenFilter;
 import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.continuous.ContinuousQuery;
@@ -34,6 +37,7 @@ import org.forgerock.openam.sm.datalayer.api.Task;
 import org.forgerock.openam.sm.datalayer.api.TaskExecutor;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.sm.datalayer.impl.SeriesTaskExecutorThread;
+import org.forgerock.openam.sm.datalayer.impl.tasks.CoalescingUpdateTask;
 import org.forgerock.openam.sm.datalayer.impl.tasks.ContinuousQueryTask;
 import org.forgerock.openam.sm.datalayer.impl.tasks.PartialQueryTask;
 import org.forgerock.openam.sm.datalayer.impl.tasks.QueryTask;
@@ -54,6 +58,10 @@ import org.forgerock.util.promise.Promise;
  * The TaskDispatcher is unaware of the {@link TaskExecutor} implementation that will be used to dispatch tasks to
  * perform.
  *
+ * Every task other than a continuous query is first admitted by the {@link AdmissionController}, which may reject
+ * deletes carrying the {@link org.forgerock.openam.cts.api.CTSOptions#LOW_PRIORITY_OPTION}, and queries whose
+ * {@link TokenFilter#isLowPriority() filter is low priority}, when the CTS is overloaded.
+ *
  * @see TaskExecutor
  * @see Task
  */
@@ -62,6 +70,8 @@ public class TaskDispatcher {
 
     private final TaskFactory taskFactory;
     private final TaskExecutor taskExecutor;
+    private final UpdateCoalescer updateCoalescer;
+    private final AdmissionController admissionController;
 
     /**
      * The usage of Promise here allows access to the result of the Task as it is executed.
@@ -73,12 +83,17 @@ public class TaskDispatcher {
      *
      * @param taskFactory Required to create Task instances.
      * @param taskExecutor Required for execution of the tasks.
+     * @param updateCoalescer Required for replacing queued updates with newer updates.
+     * @param admissionController Required for limiting the number of tasks in progress.
      */
     @Inject
     public TaskDispatcher(@DataLayer(ConnectionType.CTS_ASYNC) TaskFactory taskFactory,
-            @DataLayer(ConnectionType.CTS_ASYNC) TaskExecutor taskExecutor) {
+            @DataLayer(ConnectionType.CTS_ASYNC) TaskExecutor taskExecutor, UpdateCoalescer updateCoalescer,
+            AdmissionController admissionController) {
         this.taskFactory = taskFactory;
         this.taskExecutor = taskExecutor;
+        this.updateCoalescer = updateCoalescer;
+        this.admissionController = admissionController;
         this.continuousQueries = new ConcurrentHashMap<>();
     }
 
@@ -107,7 +122,9 @@ public class TaskDispatcher {
     public void create(Token token, Options options, ResultHandler<Token, ?> handler) throws CoreTokenException {
         Reject.ifNull(token, options, handler);
         try {
-            taskExecutor.execute(token.getTokenId(), taskFactory.create(token, options, handler));
+            ResultHandler<Token, ?> admitted = admissionController.admit(handler, false);
+            updateCoalescer.invalidate(token.getTokenId());
+            execute(token.getTokenId(), taskFactory.create(token, options, admitted), admitted);
         } catch (DataLayerException e) {
             throw new CoreTokenException("Error in data layer", e);
         }
@@ -132,7 +149,9 @@ public class TaskDispatcher {
     public void read(String tokenId, Options options, ResultHandler<Token, ?> handler) throws CoreTokenException {
         Reject.ifNull(tokenId, options, handler);
         try {
-            taskExecutor.execute(tokenId, taskFactory.read(tokenId, options, handler));
+            ResultHandler<Token, ?> admitted = admissionController.admit(handler, false);
+            updateCoalescer.invalidate(tokenId);
+            execute(tokenId, taskFactory.read(tokenId, options, admitted), admitted);
         } catch (DataLayerException e) {
             throw new CoreTokenException("Error in data layer", e);
         }
@@ -141,6 +160,10 @@ public class TaskDispatcher {
     /**
      * The CTS Token to update in the persistent store.
      *
+     * If update coalescing is enabled and an update of the same Token is still waiting to be processed,
+     * the waiting update will write this Token instead, and the handler will be notified of its result.
+     *
+     * @see UpdateCoalescer
      * @see TaskDispatcher
      * @see org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration#getQueueTimeout()
      *
@@ -153,7 +176,52 @@ public class TaskDispatcher {
     public void update(Token token, Options options, ResultHandler<Token, ?> handler) throws CoreTokenException {
         Reject.ifNull(token, options, handler);
         try {
-            taskExecutor.execute(token.getTokenId(), taskFactory.update(token, options, handler));
+            if (updateCoalescer.isCoalescable(options)) {
+                if (updateCoalescer.coalesce(token, handler)) {
+                    return;
+                }
+                ResultHandler<Token, ?> admitted = admissionController.admit(handler, false);
+                CoalescingUpdateTask task = taskFactory.coalescingUpdate(token, options, admitted);
+                updateCoalescer.register(task);
+                try {
+                    execute(token.getTokenId(), task, admitted);
+                } catch (DataLayerException | RuntimeException e) {
+                    updateCoalescer.deregister(task);
+                    throw e;
+                }
+            } else {
+                ResultHandler<Token, ?> admitted = admissionController.admit(handler, false);
+                updateCoalescer.invalidate(token.getTokenId());
+                execute(token.getTokenId(), taskFactory.update(token, options, admitted), admitted);
+            }
+        } catch (DataLayerException e) {
+            throw new CoreTokenException("Error in data layer", e);
+        }
+    }
+
+    /**
+     * Update only the changed attributes of a CTS Token in the persistent store, without a read of its
+     * stored state. Any coalescable update of the same Token still waiting to be written is discarded, as
+     * it would otherwise overwrite this one.
+     *
+     * @see TaskDispatcher
+     * @see org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration#getQueueTimeout()
+     *
+     * @param previous Non null Token as last known to the caller.
+     * @param updated Non null Token to update with.
+     * @param options Non null Options for the operation.
+     * @param handler Non null ResultHandler to notify.
+     *
+     * @throws CoreTokenException If there was a problem adding the task to the queue.
+     */
+    public void updateAttributes(Token previous, Token updated, Options options, ResultHandler<Token, ?> handler)
+            throws CoreTokenException {
+        Reject.ifNull(previous, updated, options, handler);
+        try {
+            ResultHandler<Token, ?> admitted = admissionController.admit(handler, false);
+            updateCoalescer.invalidate(updated.getTokenId());
+            execute(updated.getTokenId(), taskFactory.updateAttributes(previous, updated, options, admitted),
+                    admitted);
         } catch (DataLayerException e) {
             throw new CoreTokenException("Error in data layer", e);
         }
@@ -191,7 +259,10 @@ public class TaskDispatcher {
     public void delete(String tokenId, Options options, ResultHandler<PartialToken, ?> handler) throws CoreTokenException {
         Reject.ifNull(tokenId, options, handler);
         try {
-            taskExecutor.execute(tokenId, taskFactory.delete(tokenId, options, handler));
+            ResultHandler<PartialToken, ?> admitted = admissionController.admit(handler,
+                    options.get(LOW_PRIORITY_OPTION));
+            updateCoalescer.invalidate(tokenId);
+            execute(tokenId, taskFactory.delete(tokenId, options, admitted), admitted);
         } catch (DataLayerException e) {
             throw new CoreTokenException("Error in data layer", e);
         }
@@ -200,9 +271,12 @@ public class TaskDispatcher {
     /**
      * Perform a query against the persistent store and signal the results to the provided ResultHandler.
      *
-     * Note: Because a query has no associated Token ID, this function will select a random queue to place the
-     * {@link QueryTask} on. There is no guarantee that multiple query operations will be performed by the same
-     * {@link SeriesTaskExecutorThread}.
+     * Note: Because a query has no associated Token ID, this function will place the {@link QueryTask} on the
+     * query queue, or the least loaded queue if there are no query processors. There is no guarantee that
+     * multiple query operations will be performed by the same {@link SeriesTaskExecutorThread}.
+     *
+     * Queries whose filter is low priority, such as background polls, may be rejected by the
+     * {@link AdmissionController} when the CTS is overloaded.
      *
      * @see ResultHandler
      * @see TaskDispatcher
@@ -216,7 +290,9 @@ public class TaskDispatcher {
     public void query(TokenFilter tokenFilter, ResultHandler<Collection<Token>, ?> handler) throws CoreTokenException {
         Reject.ifNull(tokenFilter, handler);
         try {
-            taskExecutor.execute(null, taskFactory.query(tokenFilter, handler));
+            ResultHandler<Collection<Token>, ?> admitted =
+                    admissionController.admit(handler, tokenFilter.isLowPriority());
+            execute(null, taskFactory.query(tokenFilter, admitted), admitted);
         } catch (DataLayerException e) {
             throw new CoreTokenException("Error in data layer", e);
         }
@@ -225,9 +301,12 @@ public class TaskDispatcher {
     /**
      * Perform a query against the persistent store and signal the results to the provided ResultHandler.
      *
-     * Note: Because a query has no associated Token ID, this function will select a random queue to place the
-     * {@link PartialQueryTask} on. There is no guarantee that multiple query operations will be performed by the same
-     * {@link SeriesTaskExecutorThread}.
+     * Note: Because a query has no associated Token ID, this function will place the {@link PartialQueryTask} on
+     * the query queue, or the least loaded queue if there are no query processors. There is no guarantee that
+     * multiple query operations will be performed by the same {@link SeriesTaskExecutorThread}.
+     *
+     * Queries whose filter is low priority, such as background polls, may be rejected by the
+     * {@link AdmissionController} when the CTS is overloaded.
      *
      * @see ResultHandler
      * @see TaskDispatcher
@@ -242,7 +321,9 @@ public class TaskDispatcher {
             throws CoreTokenException {
         Reject.ifNull(tokenFilter, handler);
         try {
-            taskExecutor.execute(null, taskFactory.partialQuery(tokenFilter, handler));
+            ResultHandler<Collection<PartialToken>, ?> admitted =
+                    admissionController.admit(handler, tokenFilter.isLowPriority());
+            execute(null, taskFactory.partialQuery(tokenFilter, admitted), admitted);
         } catch (DataLayerException e) {
             throw new CoreTokenException("Error in data layer", e);
         }
@@ -255,9 +336,10 @@ public class TaskDispatcher {
      * If a {@link ContinuousQuery} already exists for the provided {@link TokenFilter} this method will simply add
      * the listener to that query.
      *
-     * Note: Because a continuous query has no associated Token ID, this function will select a random queue to place
-     * the {@link QueryTask} on. There is no guarantee that multiple continuous query operations will be performed by
-     * the same {@link SeriesTaskExecutorThread}.
+     * Note: Because a continuous query has no associated Token ID, this function will place the
+     * {@link QueryTask} on the query queue, or the least loaded queue if there are no query processors. There
+     * is no guarantee that multiple continuous query operations will be performed by the same
+     * {@link SeriesTaskExecutorThread}.
      *
      * @see ContinuousQueryListener
      * @see TaskDispatcher
@@ -353,4 +435,16 @@ public class TaskDispatcher {
         }
     }
 
+    /**
+     * Queues an admitted task, releasing its admission if it could not be queued.
+     */
+    private void execute(String tokenId, Task task, ResultHandler<?, ?> admitted) throws DataLayerException {
+        try {
+            taskExecutor.execute(tokenId, task);
+        } catch (DataLayerException | RuntimeException e) {
+            admissionController.cancel(admitted);
+            throw e;
+        }
+    }
+
 }
@@ -0,0 +1,112 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.impl.queue;
+
+import static org.forgerock.openam.cts.api.CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration;
+import org.forgerock.openam.cts.monitoring.CTSOperationsMonitoringStore;
+import org.forgerock.openam.sm.datalayer.api.ResultHandler;
+import org.forgerock.openam.sm.datalayer.impl.tasks.CoalescingUpdateTask;
+import org.forgerock.util.Options;
+
+/**
+ * Tracks the updates which are waiting on the asynchronous task queues, so that a newer update of the
+ * same Token can replace a waiting update rather than being queued behind it.
+ *
+ * Updates which carry an {@link org.forgerock.openam.cts.api.CTSOptions#OPTIMISTIC_CONCURRENCY_CHECK_OPTION}
+ * assert the revision they apply to, and so are never coalesced. Any other operation on a Token prevents
+ * later updates from being merged into an update queued before it, which preserves the per-Token ordering
+ * of the queues.
+ *
+ * @see CTSQueueConfiguration#isUpdateCoalescingEnabled()
+ */
+@Singleton
+public class UpdateCoalescer {
+
+    private final ConcurrentMap<String, CoalescingUpdateTask> pendingUpdates = new ConcurrentHashMap<>();
+    private final CTSQueueConfiguration configuration;
+    private final CTSOperationsMonitoringStore monitoringStore;
+
+    /**
+     * @param configuration Required to determine if coalescing is enabled.
+     * @param monitoringStore Required to record coalesced updates.
+     */
+    @Inject
+    public UpdateCoalescer(CTSQueueConfiguration configuration, CTSOperationsMonitoringStore monitoringStore) {
+        this.configuration = configuration;
+        this.monitoringStore = monitoringStore;
+    }
+
+    /**
+     * @param options Non null Options for the update.
+     * @return True if coalescing is enabled and the update may be coalesced with others.
+     */
+    public boolean isCoalescable(Options options) {
+        return configuration.isUpdateCoalescingEnabled() && options.get(OPTIMISTIC_CONCURRENCY_CHECK_OPTION) == null;
+    }
+
+    /**
+     * Merges the update into an update of the same Token which is still waiting to be processed.
+     *
+     * @param token Non null Token to update.
+     * @param handler Non null handler to notify of the result.
+     * @return True if the update was merged, false if it needs to be queued.
+     */
+    public boolean coalesce(Token token, ResultHandler<Token, ?> handler) {
+        CoalescingUpdateTask pending = pendingUpdates.get(token.getTokenId());
+        if (pending != null && pending.supersede(token, handler)) {
+            monitoringStore.addCoalescedUpdate();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Makes an update available to be superseded by later updates. The update must be registered before it
+     * is queued, so that it replaces any earlier update of the Token before it can be overtaken by it.
+     *
+     * @param task Non null task which is about to be queued.
+     */
+    public void register(CoalescingUpdateTask task) {
+        task.register(pendingUpdates);
+    }
+
+    /**
+     * Withdraws an update which could not be queued, unless a later update has already replaced it.
+     *
+     * @param task Non null task which was registered.
+     */
+    public void deregister(CoalescingUpdateTask task) {
+        pendingUpdates.remove(task.getTokenId(), task);
+    }
+
+    /**
+     * Prevents any later update from being merged into an update of the Token which is already queued.
+     *
+     * @param tokenId Non null Token ID about to have another operation queued against it.
+     */
+    public void invalidate(String tokenId) {
+        pendingUpdates.remove(tokenId);
+    }
+}
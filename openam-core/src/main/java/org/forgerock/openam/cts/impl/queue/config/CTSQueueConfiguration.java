@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.impl.queue.config;
 
@@ -41,6 +42,12 @@ import org.forgerock.openam.sm.exceptions.InvalidConfigurationException;
 public class CTSQueueConfiguration implements QueueConfiguration {
     public static final int DEFAULT_TIMEOUT = 120;
     public static final int DEFAULT_QUEUE_SIZE = 5000;
+    public static final int DEFAULT_BATCH_SIZE = 1;
+    public static final int DEFAULT_PIPELINE_DEPTH = 32;
+    public static final int DEFAULT_QUERY_PROCESSORS = 1;
+    public static final int DEFAULT_ADMISSION_LATENCY_THRESHOLD = 250;
+    public static final int DEFAULT_MIN_ADMISSION_LIMIT = 8;
+    public static final int DEFAULT_MAX_ADMISSION_LIMIT = 1024;
 
     private final ConnectionConfigFactory dataLayerConfig;
     private final Debug debug;
@@ -84,11 +91,102 @@ public class CTSQueueConfiguration implements QueueConfiguration {
         return queueSize;
     }
 
+    /**
+     * @return {@inheritDoc} Default is {@link #DEFAULT_BATCH_SIZE}, which disables batching.
+     */
+    @Override
+    public int getBatchSize() {
+        int batchSize = SystemProperties.getAsInt(CoreTokenConstants.CTS_ASYNC_QUEUE_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        if (batchSize <= 0) {
+            debug("Batch size {0} was invalid, using default {1}", batchSize, DEFAULT_BATCH_SIZE);
+            return DEFAULT_BATCH_SIZE;
+        }
+        return batchSize;
+    }
+
+    /**
+     * @return {@inheritDoc} Default is {@link #DEFAULT_PIPELINE_DEPTH}.
+     */
+    @Override
+    public int getPipelineDepth() {
+        int depth = SystemProperties.getAsInt(CoreTokenConstants.CTS_ASYNC_PIPELINE_DEPTH, DEFAULT_PIPELINE_DEPTH);
+        if (depth <= 0) {
+            debug("Pipeline depth {0} was invalid, using default {1}", depth, DEFAULT_PIPELINE_DEPTH);
+            return DEFAULT_PIPELINE_DEPTH;
+        }
+        return depth;
+    }
+
+    /**
+     * Whether an update which is waiting on a queue may be replaced by a newer update of the same Token.
+     *
+     * @return True if update coalescing is enabled. Default is false.
+     */
+    public boolean isUpdateCoalescingEnabled() {
+        return SystemProperties.getAsBoolean(CoreTokenConstants.CTS_ASYNC_UPDATE_COALESCING_ENABLED, false);
+    }
+
+    /**
+     * Whether the number of tasks admitted to the queues at once is adapted to the observed task latency.
+     *
+     * @return True if adaptive admission control is enabled. Default is false.
+     */
+    public boolean isAdaptiveAdmissionEnabled() {
+        return SystemProperties.getAsBoolean(CoreTokenConstants.CTS_ASYNC_ADAPTIVE_ENABLED, false);
+    }
+
+    /**
+     * @return The task latency in milliseconds above which the admission limit is reduced.
+     *         Default is {@link #DEFAULT_ADMISSION_LATENCY_THRESHOLD}.
+     */
+    public int getAdmissionLatencyThreshold() {
+        int threshold = SystemProperties.getAsInt(CoreTokenConstants.CTS_ASYNC_ADAPTIVE_LATENCY_THRESHOLD,
+                DEFAULT_ADMISSION_LATENCY_THRESHOLD);
+        if (threshold <= 0) {
+            debug("Latency threshold {0} was invalid, using default {1}", threshold,
+                    DEFAULT_ADMISSION_LATENCY_THRESHOLD);
+            return DEFAULT_ADMISSION_LATENCY_THRESHOLD;
+        }
+        return threshold;
+    }
+
+    /**
+     * @return The lowest admission limit. Default is {@link #DEFAULT_MIN_ADMISSION_LIMIT}.
+     */
+    public int getMinimumAdmissionLimit() {
+        int limit = SystemProperties.getAsInt(CoreTokenConstants.CTS_ASYNC_ADAPTIVE_MIN_LIMIT,
+                DEFAULT_MIN_ADMISSION_LIMIT);
+        if (limit <= 0) {
+            debug("Minimum admission limit {0} was invalid, using default {1}", limit, DEFAULT_MIN_ADMISSION_LIMIT);
+            return DEFAULT_MIN_ADMISSION_LIMIT;
+        }
+        return limit;
+    }
+
+    /**
+     * @return The highest admission limit, which is never less than the lowest.
+     *         Default is {@link #DEFAULT_MAX_ADMISSION_LIMIT}.
+     */
+    public int getMaximumAdmissionLimit() {
+        int limit = SystemProperties.getAsInt(CoreTokenConstants.CTS_ASYNC_ADAPTIVE_MAX_LIMIT,
+                DEFAULT_MAX_ADMISSION_LIMIT);
+        if (limit <= 0) {
+            debug("Maximum admission limit {0} was invalid, using default {1}", limit, DEFAULT_MAX_ADMISSION_LIMIT);
+            limit = DEFAULT_MAX_ADMISSION_LIMIT;
+        }
+        return Math.max(limit, getMinimumAdmissionLimit());
+    }
+
+    /**
+     * The connections reserved for the query processors are not available to the token processors.
+     *
+     * @return {@inheritDoc}
+     */
     @Override
     public int getProcessors() throws DataLayerException {
         try {
             int max = dataLayerConfig.getConfig(ConnectionType.CTS_ASYNC).getMaxConnections();
-            return findPowerOfTwo(max - 1);
+            return findPowerOfTwo(max - 1 - getQueryProcessorConnections());
         } catch (IllegalArgumentException e) {
             throw new DataLayerException("Number of connections too low", e);
         } catch (InvalidConfigurationException e) {
@@ -96,6 +194,33 @@ public class CTSQueueConfiguration implements QueueConfiguration {
         }
     }
 
+    /**
+     * Each query processor has a connection of its own, which {@link ConnectionConfigFactory} adds to the
+     * connections of the CTS asynchronous pool, so that enabling them never reduces the number of token processors
+     * or takes the connection which is kept in reserve.
+     *
+     * @return {@inheritDoc} Default is {@link #DEFAULT_QUERY_PROCESSORS}.
+     */
+    @Override
+    public int getQueryProcessors() {
+        int requested = SystemProperties.getAsInt(CoreTokenConstants.CTS_ASYNC_QUERY_PROCESSORS,
+                DEFAULT_QUERY_PROCESSORS);
+        if (requested < 0) {
+            debug("Query processors {0} was invalid, using default {1}", requested, DEFAULT_QUERY_PROCESSORS);
+        }
+        return getQueryProcessorConnections();
+    }
+
+    /**
+     * @return The number of connections reserved for the query processors, on top of those used by the token
+     * processors and the connection kept in reserve.
+     */
+    public static int getQueryProcessorConnections() {
+        int requested = SystemProperties.getAsInt(CoreTokenConstants.CTS_ASYNC_QUERY_PROCESSORS,
+                DEFAULT_QUERY_PROCESSORS);
+        return requested < 0 ? DEFAULT_QUERY_PROCESSORS : requested;
+    }
+
     /**
      * Not every even number is a power of two.
      * @see <a href="http://en.wikipedia.org/wiki/Power_of_two#Fast_algorithm_to_check_if_a_positive_number_is_a_power_of_two">Wikipedia</a>
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.monitoring;
@@ -71,4 +72,30 @@ public interface CTSConnectionMonitoringStore {
      * @return The total count of connections in a given period.
      */
     double getConnectionsCumulativeCount(boolean success);
+
+    /**
+     * Records the number of asynchronous tasks which may currently be in progress at once.
+     *
+     * @param limit The admission limit, which adapts to the observed task latency.
+     */
+    void setAdmissionLimit(int limit);
+
+    /**
+     * Gets the number of asynchronous tasks which may currently be in progress at once.
+     *
+     * @return The admission limit, or zero if adaptive admission control has not been used.
+     */
+    int getAdmissionLimit();
+
+    /**
+     * Adds a low priority task which was rejected because the admission limit had been reached.
+     */
+    void addRejectedTask();
+
+    /**
+     * Gets the total count of low priority tasks which were rejected because the admission limit had been reached.
+     *
+     * @return The total count of rejected tasks since server startup.
+     */
+    long getRejectedTasksCumulativeCount();
 }
@@ -12,13 +12,17 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.monitoring;
 
+import java.util.Set;
+
 import org.forgerock.openam.cts.CTSOperation;
 import org.forgerock.openam.tokens.TokenType;
 import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.sm.datalayer.api.TaskQueueMonitor;
 
 /**
  * A data structure for storing monitoring information about CTS operations.
@@ -29,7 +33,7 @@ import org.forgerock.openam.cts.api.tokens.Token;
  *
  * @since 12.0.0
  */
-public interface CTSOperationsMonitoringStore {
+public interface CTSOperationsMonitoringStore extends TaskQueueMonitor {
 
     /**
      * Adds a Token operation into the monitoring store.
@@ -141,4 +145,173 @@ public interface CTSOperationsMonitoringStore {
      * @return the maximum observed failure rate of the given operation in the current monitoring period.
      */
     long getMaximumOperationFailuresPerPeriod(CTSOperation operation);
+
+    /**
+     * Records an update which was merged into an update of the same token that was still waiting to be
+     * processed, and so did not result in a write of its own.
+     */
+    void addCoalescedUpdate();
+
+    /**
+     * Gets the cumulative count of updates which were coalesced since server startup.
+     *
+     * @return The total number of coalesced updates.
+     */
+    long getCoalescedUpdatesCumulativeCount();
+
+    /**
+     * Gets the names of the asynchronous task queues which have been observed.
+     *
+     * @return The non null set of queue names.
+     */
+    Set<String> getQueueNames();
+
+    /**
+     * Gets the histogram of the depth of the given queue since server startup.
+     * <br/>
+     * Bucket zero counts a depth of zero, and bucket {@code i} counts depths from {@code 2^(i-1)} inclusive to
+     * {@code 2^i} exclusive.
+     *
+     * @param queue The name of the queue.
+     * @return The non null histogram.
+     */
+    long[] getQueueDepthHistogram(String queue);
+
+    /**
+     * Gets the histogram of the time in milliseconds tasks waited on the given queue since server startup.
+     * <br/>
+     * Bucket zero counts a wait of zero, and bucket {@code i} counts waits from {@code 2^(i-1)} inclusive to
+     * {@code 2^i} exclusive.
+     *
+     * @param queue The name of the queue.
+     * @return The non null histogram.
+     */
+    long[] getQueueWaitTimeHistogram(String queue);
+
+    /**
+     * Gets the average depth of the asynchronous task queues observed when a batch was taken.
+     *
+     * @return The average queue depth since server start up.
+     */
+    double getAverageQueueDepth();
+
+    /**
+     * Gets the maximum depth of the asynchronous task queues observed when a batch was taken.
+     *
+     * @return The maximum queue depth since server start up.
+     */
+    long getMaximumQueueDepth();
+
+    /**
+     * Gets the average number of tasks taken from an asynchronous task queue at once.
+     *
+     * @return The average batch size since server start up.
+     */
+    double getAverageBatchSize();
+
+    /**
+     * Gets the maximum number of tasks taken from an asynchronous task queue at once.
+     *
+     * @return The maximum batch size since server start up.
+     */
+    long getMaximumBatchSize();
+
+    /**
+     * Gets the average of the maximum number of tasks in flight on a connection for each batch.
+     *
+     * @return The average pipeline depth since server start up.
+     */
+    double getAveragePipelineDepth();
+
+    /**
+     * Gets the maximum number of tasks in flight on a connection at once.
+     *
+     * @return The maximum pipeline depth since server start up.
+     */
+    long getMaximumPipelineDepth();
+
+    /**
+     * Records a token read which was looked up in the CTS near cache.
+     *
+     * @param hit Whether the token was served from the near cache.
+     */
+    void addNearCacheRead(boolean hit);
+
+    /**
+     * Records a token being evicted from the CTS near cache to keep it within its size bound.
+     */
+    void addNearCacheEviction();
+
+    /**
+     * Records a token being invalidated in the CTS near cache by a change from another server, or a change the
+     * cache could not otherwise account for.
+     */
+    void addNearCacheInvalidation();
+
+    /**
+     * Records the time between this server writing a token and the continuous query reporting the write back,
+     * which bounds how long other servers may serve the previous state of the token from their near caches.
+     *
+     * @param lagMillis The lag in milliseconds.
+     */
+    void addNearCacheInvalidationLag(long lagMillis);
+
+    /**
+     * Gets the ratio of reads served from the CTS near cache to all reads looked up in it.
+     *
+     * @return The hit ratio since server start up, between 0 and 1.
+     */
+    double getNearCacheHitRatio();
+
+    /**
+     * Gets the cumulative count of tokens evicted from the CTS near cache.
+     *
+     * @return The number of evictions since server start up.
+     */
+    long getNearCacheEvictionsCumulativeCount();
+
+    /**
+     * Gets the cumulative count of tokens invalidated in the CTS near cache.
+     *
+     * @return The number of invalidations since server start up.
+     */
+    long getNearCacheInvalidationsCumulativeCount();
+
+    /**
+     * Gets the average time in milliseconds between a token being written and the continuous query reporting it.
+     *
+     * @return The average invalidation lag since server start up.
+     */
+    double getAverageNearCacheInvalidationLag();
+
+    /**
+     * Gets the maximum time in milliseconds between a token being written and the continuous query reporting it.
+     *
+     * @return The maximum invalidation lag since server start up.
+     */
+    long getMaximumNearCacheInvalidationLag();
+
+    /**
+     * Records the time between a blacklist entry being made on another server and the continuous query reporting
+     * it to this server, during which the blacklisted session or token may still be accepted by this server.
+     *
+     * @param lagMillis The lag in milliseconds.
+     */
+    void addBlacklistPropagationLag(long lagMillis);
+
+    /**
+     * Gets the average time in milliseconds between a blacklist entry being made on another server and this server
+     * being told of it.
+     *
+     * @return The average propagation lag since server start up.
+     */
+    double getAverageBlacklistPropagationLag();
+
+    /**
+     * Gets the maximum time in milliseconds between a blacklist entry being made on another server and this server
+     * being told of it.
+     *
+     * @return The maximum propagation lag since server start up.
+     */
+    long getMaximumBlacklistPropagationLag();
 }
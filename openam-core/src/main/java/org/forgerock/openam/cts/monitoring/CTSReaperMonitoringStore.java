@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.monitoring;
@@ -41,4 +42,76 @@ public interface CTSReaperMonitoringStore {
      * @return The rate of session deletion by the CTS Reaper.
      */
     double getRateOfDeletedSessions();
+
+    /**
+     * Records that a time slice of the expiry window has been scheduled for reaping by the partitioned reaper.
+     *
+     * @param sliceStart The start of the slice, in milliseconds since the epoch.
+     */
+    void addReaperSliceScheduled(long sliceStart);
+
+    /**
+     * Records that a scheduled time slice has been reaped by this server.
+     *
+     * @param sliceStart The start of the slice, in milliseconds since the epoch.
+     * @param numberOfReapedTokens The number of expired tokens reaped from the slice.
+     */
+    void addReaperSliceCompleted(long sliceStart, long numberOfReapedTokens);
+
+    /**
+     * Records that a scheduled time slice was not reaped by this server, because another server holds its lease
+     * or because the lease was lost while reaping it.
+     *
+     * @param sliceStart The start of the slice, in milliseconds since the epoch.
+     */
+    void addReaperSliceSkipped(long sliceStart);
+
+    /**
+     * Records that reaping a scheduled time slice failed.
+     *
+     * @param sliceStart The start of the slice, in milliseconds since the epoch.
+     */
+    void addReaperSliceFailed(long sliceStart);
+
+    /**
+     * Gets the number of time slices which have been scheduled but are yet to be reaped.
+     *
+     * @return The number of pending slices.
+     */
+    long getReaperPendingSlices();
+
+    /**
+     * Gets the time since the start of the oldest time slice which is yet to be reaped.
+     *
+     * @return The age of the reaper backlog in milliseconds, or zero if there is no backlog.
+     */
+    long getReaperBacklogAge();
+
+    /**
+     * Gets the number of time slices this server has reaped since start up.
+     *
+     * @return The cumulative count of reaped slices.
+     */
+    long getReaperSlicesCompletedCumulativeCount();
+
+    /**
+     * Gets the number of time slices this server has skipped since start up.
+     *
+     * @return The cumulative count of skipped slices.
+     */
+    long getReaperSlicesSkippedCumulativeCount();
+
+    /**
+     * Gets the number of time slices this server has failed to reap since start up.
+     *
+     * @return The cumulative count of failed slices.
+     */
+    long getReaperSlicesFailedCumulativeCount();
+
+    /**
+     * Gets the number of expired tokens this server has reaped from time slices since start up.
+     *
+     * @return The cumulative count of reaped tokens.
+     */
+    long getReaperTokensReapedCumulativeCount();
 }
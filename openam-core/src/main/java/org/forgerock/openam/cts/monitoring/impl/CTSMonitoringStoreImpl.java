@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.monitoring.impl;
@@ -25,15 +26,21 @@ import org.forgerock.openam.cts.monitoring.CTSConnectionMonitoringStore;
 import org.forgerock.openam.cts.monitoring.CTSOperationsMonitoringStore;
 import org.forgerock.openam.cts.monitoring.CTSReaperMonitoringStore;
 import org.forgerock.openam.cts.monitoring.impl.connections.ConnectionStore;
+import org.forgerock.openam.cts.monitoring.impl.operations.LagMonitor;
+import org.forgerock.openam.cts.monitoring.impl.operations.NearCacheMonitor;
 import org.forgerock.openam.cts.monitoring.impl.operations.TokenOperationsStore;
+import org.forgerock.openam.cts.monitoring.impl.queue.QueueMonitor;
+import org.forgerock.openam.cts.monitoring.impl.queue.TaskBatchMonitor;
 import org.forgerock.openam.cts.monitoring.impl.reaper.ReaperMonitor;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * An implementation of the CTSOperationsMonitoringStore that stores the CTS monitoring information
@@ -56,6 +63,13 @@ public class CTSMonitoringStoreImpl implements CTSOperationsMonitoringStore, CTS
     private final ExecutorService executorService;
     private final ReaperMonitor reaperMonitor;
     private final ConnectionStore connectionStore;
+    private final TaskBatchMonitor taskBatchMonitor;
+    private final QueueMonitor queueMonitor;
+    private final NearCacheMonitor nearCacheMonitor;
+    private final LagMonitor blacklistPropagationLag = new LagMonitor();
+    private final AtomicLong coalescedUpdates = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private volatile int admissionLimit;
 
     /**
      * Constructs an instance of the CTSMonitoringStoreImpl.
@@ -64,18 +78,28 @@ public class CTSMonitoringStoreImpl implements CTSOperationsMonitoringStore, CTS
      * @param executorService An instance of an ExecutorService.
      * @param tokenOperationsStore An instance of the TokenOperationsStore.
      * @param reaperMonitor An instance of the ReaperMonitor.
+     * @param connectionStore An instance of the ConnectionStore.
+     * @param taskBatchMonitor An instance of the TaskBatchMonitor.
+     * @param queueMonitor An instance of the QueueMonitor.
+     * @param nearCacheMonitor An instance of the NearCacheMonitor.
      */
     @Inject
     public CTSMonitoringStoreImpl(@Named(EXECUTOR_BINDING_NAME) final ExecutorService executorService,
                                   final TokenOperationsStore tokenOperationsStore,
                                   final ReaperMonitor reaperMonitor,
                                   final ConnectionStore connectionStore,
+                                  final TaskBatchMonitor taskBatchMonitor,
+                                  final QueueMonitor queueMonitor,
+                                  final NearCacheMonitor nearCacheMonitor,
                                   @Named(CoreTokenConstants.CTS_DEBUG) final Debug debug) {
         this.debug = debug;
         this.executorService = executorService;
         this.tokenOperationsStore = tokenOperationsStore;
         this.reaperMonitor = reaperMonitor;
         this.connectionStore = connectionStore;
+        this.taskBatchMonitor = taskBatchMonitor;
+        this.queueMonitor = queueMonitor;
+        this.nearCacheMonitor = nearCacheMonitor;
     }
 
     /**
@@ -206,6 +230,56 @@ public class CTSMonitoringStoreImpl implements CTSOperationsMonitoringStore, CTS
         return reaperMonitor.getRateOfDeletion();
     }
 
+    @Override
+    public void addReaperSliceScheduled(long sliceStart) {
+        reaperMonitor.addSliceScheduled(sliceStart);
+    }
+
+    @Override
+    public void addReaperSliceCompleted(long sliceStart, long numberOfReapedTokens) {
+        reaperMonitor.addSliceCompleted(sliceStart, numberOfReapedTokens);
+    }
+
+    @Override
+    public void addReaperSliceSkipped(long sliceStart) {
+        reaperMonitor.addSliceSkipped(sliceStart);
+    }
+
+    @Override
+    public void addReaperSliceFailed(long sliceStart) {
+        reaperMonitor.addSliceFailed(sliceStart);
+    }
+
+    @Override
+    public long getReaperPendingSlices() {
+        return reaperMonitor.getPendingSlices();
+    }
+
+    @Override
+    public long getReaperBacklogAge() {
+        return reaperMonitor.getBacklogAge();
+    }
+
+    @Override
+    public long getReaperSlicesCompletedCumulativeCount() {
+        return reaperMonitor.getCompletedSlices();
+    }
+
+    @Override
+    public long getReaperSlicesSkippedCumulativeCount() {
+        return reaperMonitor.getSkippedSlices();
+    }
+
+    @Override
+    public long getReaperSlicesFailedCumulativeCount() {
+        return reaperMonitor.getFailedSlices();
+    }
+
+    @Override
+    public long getReaperTokensReapedCumulativeCount() {
+        return reaperMonitor.getReapedTokens();
+    }
+
     @Override
     public void addConnection(boolean success) {
         connectionStore.addConnection(success);
@@ -230,4 +304,149 @@ public class CTSMonitoringStoreImpl implements CTSOperationsMonitoringStore, CTS
     public double getConnectionsCumulativeCount(boolean success) {
         return connectionStore.getConnectionsCumulativeCount(success);
     }
+
+    @Override
+    public void setAdmissionLimit(int limit) {
+        admissionLimit = limit;
+    }
+
+    @Override
+    public int getAdmissionLimit() {
+        return admissionLimit;
+    }
+
+    @Override
+    public void addRejectedTask() {
+        rejectedTasks.incrementAndGet();
+    }
+
+    @Override
+    public long getRejectedTasksCumulativeCount() {
+        return rejectedTasks.get();
+    }
+
+    @Override
+    public void addCoalescedUpdate() {
+        coalescedUpdates.incrementAndGet();
+    }
+
+    @Override
+    public long getCoalescedUpdatesCumulativeCount() {
+        return coalescedUpdates.get();
+    }
+
+    @Override
+    public void addQueuedTask(String queue, int queueDepth, long waitTimeMillis) {
+        queueMonitor.add(queue, queueDepth, waitTimeMillis);
+    }
+
+    @Override
+    public Set<String> getQueueNames() {
+        return queueMonitor.getQueueNames();
+    }
+
+    @Override
+    public long[] getQueueDepthHistogram(String queue) {
+        return queueMonitor.getDepthHistogram(queue);
+    }
+
+    @Override
+    public long[] getQueueWaitTimeHistogram(String queue) {
+        return queueMonitor.getWaitTimeHistogram(queue);
+    }
+
+    @Override
+    public void addTaskBatch(int queueDepth, int batchSize, int pipelineDepth) {
+        taskBatchMonitor.add(queueDepth, batchSize, pipelineDepth);
+    }
+
+    @Override
+    public double getAverageQueueDepth() {
+        return taskBatchMonitor.getAverageQueueDepth();
+    }
+
+    @Override
+    public long getMaximumQueueDepth() {
+        return taskBatchMonitor.getMaximumQueueDepth();
+    }
+
+    @Override
+    public double getAverageBatchSize() {
+        return taskBatchMonitor.getAverageBatchSize();
+    }
+
+    @Override
+    public long getMaximumBatchSize() {
+        return taskBatchMonitor.getMaximumBatchSize();
+    }
+
+    @Override
+    public double getAveragePipelineDepth() {
+        return taskBatchMonitor.getAveragePipelineDepth();
+    }
+
+    @Override
+    public long getMaximumPipelineDepth() {
+        return taskBatchMonitor.getMaximumPipelineDepth();
+    }
+
+    @Override
+    public void addNearCacheRead(boolean hit) {
+        nearCacheMonitor.addRead(hit);
+    }
+
+    @Override
+    public void addNearCacheEviction() {
+        nearCacheMonitor.addEviction();
+    }
+
+    @Override
+    public void addNearCacheInvalidation() {
+        nearCacheMonitor.addInvalidation();
+    }
+
+    @Override
+    public void addNearCacheInvalidationLag(long lagMillis) {
+        nearCacheMonitor.addInvalidationLag(lagMillis);
+    }
+
+    @Override
+    public double getNearCacheHitRatio() {
+        return nearCacheMonitor.getHitRatio();
+    }
+
+    @Override
+    public long getNearCacheEvictionsCumulativeCount() {
+        return nearCacheMonitor.getEvictionsCumulativeCount();
+    }
+
+    @Override
+    public long getNearCacheInvalidationsCumulativeCount() {
+        return nearCacheMonitor.getInvalidationsCumulativeCount();
+    }
+
+    @Override
+    public double getAverageNearCacheInvalidationLag() {
+        return nearCacheMonitor.getAverageInvalidationLag();
+    }
+
+    @Override
+    public long getMaximumNearCacheInvalidationLag() {
+        return nearCacheMonitor.getMaximumInvalidationLag();
+    }
+
+    @Override
+    public void addBlacklistPropagationLag(long lagMillis) {
+        blacklistPropagationLag.addLag(lagMillis);
+    }
+
+    @Override
+    public double getAverageBlacklistPropagationLag() {
+        return blacklistPropagationLag.getAverageLag();
+    }
+
+    @Override
+    public long getMaximumBlacklistPropagationLag() {
+        return blacklistPropagationLag.getMaximumLag();
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.monitoring.impl.operations;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maintains the average and maximum of a lag, such as the time taken for a change to be reported by a continuous
+ * query.
+ */
+public class LagMonitor {
+
+    private final AtomicLong lagCount = new AtomicLong();
+    private final AtomicLong lagTotal = new AtomicLong();
+    private final AtomicLong lagMaximum = new AtomicLong();
+
+    /**
+     * Records a lag.
+     *
+     * @param lagMillis The lag in milliseconds.
+     */
+    public void addLag(long lagMillis) {
+        lagCount.incrementAndGet();
+        lagTotal.addAndGet(lagMillis);
+        long current = lagMaximum.get();
+        while (lagMillis > current && !lagMaximum.compareAndSet(current, lagMillis)) {
+            current = lagMaximum.get();
+        }
+    }
+
+    /**
+     * @return The average lag in milliseconds since server start up.
+     */
+    public double getAverageLag() {
+        long samples = lagCount.get();
+        if (samples == 0) {
+            return 0D;
+        }
+        return (double) lagTotal.get() / samples;
+    }
+
+    /**
+     * @return The maximum lag in milliseconds since server start up.
+     */
+    public long getMaximumLag() {
+        return lagMaximum.get();
+    }
+}
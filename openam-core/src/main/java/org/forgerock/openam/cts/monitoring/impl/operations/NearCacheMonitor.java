@@ -0,0 +1,110 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.monitoring.impl.operations;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Singleton;
+
+/**
+ * This class maintains the hit, eviction and invalidation counts of the CTS near cache, along with the lag
+ * between a token being written and the continuous query reporting the change.
+ */
+@Singleton
+public class NearCacheMonitor {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LagMonitor lag = new LagMonitor();
+
+    /**
+     * Records a read which was looked up in the near cache.
+     *
+     * @param hit Whether the token was served from the near cache.
+     */
+    public void addRead(boolean hit) {
+        if (hit) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records a token being evicted from the near cache to keep it within its bounds.
+     */
+    public void addEviction() {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * Records a token being invalidated in the near cache by a change reported by the continuous query.
+     */
+    public void addInvalidation() {
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Records the time between a token being written and the continuous query reporting the change.
+     *
+     * @param lagMillis The lag in milliseconds.
+     */
+    public void addInvalidationLag(long lagMillis) {
+        lag.addLag(lagMillis);
+    }
+
+    /**
+     * @return The ratio of reads served from the near cache to all reads looked up in it since server start up.
+     */
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        if (total == 0) {
+            return 0D;
+        }
+        return (double) hitCount / total;
+    }
+
+    /**
+     * @return The number of tokens evicted from the near cache since server start up.
+     */
+    public long getEvictionsCumulativeCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The number of tokens invalidated in the near cache since server start up.
+     */
+    public long getInvalidationsCumulativeCount() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return The average invalidation lag in milliseconds since server start up.
+     */
+    public double getAverageInvalidationLag() {
+        return lag.getAverageLag();
+    }
+
+    /**
+     * @return The maximum invalidation lag in milliseconds since server start up.
+     */
+    public long getMaximumInvalidationLag() {
+        return lag.getMaximumLag();
+    }
+}
@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2015 ForgeRock AS.
- * Portions Copyright 2023 Wren Security
+ * Portions Copyright 2023-2026 Wren Security
  */
 package org.forgerock.openam.cts.monitoring.impl.persistence;
 
@@ -53,6 +53,7 @@ public class CtsPersistenceOperationsDelegate {
         //create the filter to restrict by token type
         final TokenFilter tokenFilter = new TokenFilterBuilder()
                 .returnAttribute(CoreTokenField.TOKEN_ID)
+                .withLowPriority()
                 .and()
                 .withAttribute(CoreTokenField.TOKEN_TYPE, tokenType)
                 .build();
@@ -66,7 +67,10 @@ public class CtsPersistenceOperationsDelegate {
      * @throws CoreTokenException if there are issues talking with the CTS
      */
     public int countAllTokens() throws CoreTokenException {
-        TokenFilter filter = new TokenFilterBuilder().returnAttribute(CoreTokenField.TOKEN_ID).build();
+        TokenFilter filter = new TokenFilterBuilder()
+                .returnAttribute(CoreTokenField.TOKEN_ID)
+                .withLowPriority()
+                .build();
         return store.attributeQuery(filter).size();
     }
 
@@ -84,6 +88,7 @@ public class CtsPersistenceOperationsDelegate {
 
         final TokenFilter filter = new TokenFilterBuilder()
                 .returnAttribute(CoreTokenField.CREATE_TIMESTAMP)
+                .withLowPriority()
                 .and()
                 .withAttribute(CoreTokenField.TOKEN_TYPE, tokenType)
                 .build();
@@ -0,0 +1,109 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.monitoring.impl.queue;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.inject.Singleton;
+
+/**
+ * This class maintains histograms of the depth of each CTS asynchronous task queue, and of the time
+ * tasks spend waiting on it, as observed each time a task is taken from the queue.
+ *
+ * Both histograms use power of two buckets: bucket zero counts values of zero, and bucket {@code i}
+ * counts values from {@code 2^(i-1)} inclusive to {@code 2^i} exclusive. The last bucket also counts
+ * all larger values.
+ */
+@Singleton
+public class QueueMonitor {
+
+    /**
+     * The number of buckets in each histogram.
+     */
+    public static final int BUCKETS = 24;
+
+    private final ConcurrentMap<String, QueueHistograms> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Records a task being taken from a queue.
+     *
+     * @param queue The name of the queue.
+     * @param queueDepth The number of tasks on the queue when the task was taken.
+     * @param waitTimeMillis The time the task spent waiting on the queue.
+     */
+    public void add(String queue, int queueDepth, long waitTimeMillis) {
+        QueueHistograms histograms = queues.get(queue);
+        if (histograms == null) {
+            QueueHistograms created = new QueueHistograms();
+            histograms = queues.putIfAbsent(queue, created);
+            if (histograms == null) {
+                histograms = created;
+            }
+        }
+        histograms.depth.incrementAndGet(bucket(queueDepth));
+        histograms.waitTime.incrementAndGet(bucket(waitTimeMillis));
+    }
+
+    /**
+     * @return The names of the queues which have been observed.
+     */
+    public Set<String> getQueueNames() {
+        return Collections.unmodifiableSet(queues.keySet());
+    }
+
+    /**
+     * @param queue The name of the queue.
+     * @return A copy of the queue depth histogram, or an empty histogram if the queue has not been observed.
+     */
+    public long[] getDepthHistogram(String queue) {
+        QueueHistograms histograms = queues.get(queue);
+        return histograms == null ? new long[BUCKETS] : copy(histograms.depth);
+    }
+
+    /**
+     * @param queue The name of the queue.
+     * @return A copy of the wait time histogram in milliseconds, or an empty histogram if the queue has not
+     * been observed.
+     */
+    public long[] getWaitTimeHistogram(String queue) {
+        QueueHistograms histograms = queues.get(queue);
+        return histograms == null ? new long[BUCKETS] : copy(histograms.waitTime);
+    }
+
+    static int bucket(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    private static long[] copy(AtomicLongArray histogram) {
+        long[] copy = new long[histogram.length()];
+        for (int ii = 0; ii < copy.length; ii++) {
+            copy[ii] = histogram.get(ii);
+        }
+        return copy;
+    }
+
+    private static final class QueueHistograms {
+        private final AtomicLongArray depth = new AtomicLongArray(BUCKETS);
+        private final AtomicLongArray waitTime = new AtomicLongArray(BUCKETS);
+    }
+}
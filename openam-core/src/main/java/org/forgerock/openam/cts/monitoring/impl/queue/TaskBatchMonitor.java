@@ -0,0 +1,118 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.monitoring.impl.queue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Singleton;
+
+/**
+ * This class maintains the queue depth, batch size and pipeline depth observed by the CTS asynchronous
+ * task processors each time they take a batch of tasks from their queue.
+ */
+@Singleton
+public class TaskBatchMonitor {
+
+    private final Sample queueDepth = new Sample();
+    private final Sample batchSize = new Sample();
+    private final Sample pipelineDepth = new Sample();
+
+    /**
+     * Records a batch of tasks taken from a queue.
+     *
+     * @param queueDepth The number of tasks waiting on the queue when the batch was taken.
+     * @param batchSize The number of tasks in the batch.
+     * @param pipelineDepth The maximum number of tasks in flight whilst processing the batch.
+     */
+    public void add(int queueDepth, int batchSize, int pipelineDepth) {
+        this.queueDepth.add(queueDepth);
+        this.batchSize.add(batchSize);
+        this.pipelineDepth.add(pipelineDepth);
+    }
+
+    /**
+     * @return The average queue depth since server start up.
+     */
+    public double getAverageQueueDepth() {
+        return queueDepth.getAverage();
+    }
+
+    /**
+     * @return The maximum queue depth since server start up.
+     */
+    public long getMaximumQueueDepth() {
+        return queueDepth.getMaximum();
+    }
+
+    /**
+     * @return The average batch size since server start up.
+     */
+    public double getAverageBatchSize() {
+        return batchSize.getAverage();
+    }
+
+    /**
+     * @return The maximum batch size since server start up.
+     */
+    public long getMaximumBatchSize() {
+        return batchSize.getMaximum();
+    }
+
+    /**
+     * @return The average pipeline depth since server start up.
+     */
+    public double getAveragePipelineDepth() {
+        return pipelineDepth.getAverage();
+    }
+
+    /**
+     * @return The maximum pipeline depth since server start up.
+     */
+    public long getMaximumPipelineDepth() {
+        return pipelineDepth.getMaximum();
+    }
+
+    /**
+     * A cumulative count, total and maximum of an observed value.
+     */
+    private static final class Sample {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong maximum = new AtomicLong();
+
+        private void add(long value) {
+            count.incrementAndGet();
+            total.addAndGet(value);
+            long current = maximum.get();
+            while (value > current && !maximum.compareAndSet(current, value)) {
+                current = maximum.get();
+            }
+        }
+
+        private double getAverage() {
+            long samples = count.get();
+            if (samples == 0) {
+                return 0D;
+            }
+            return (double) total.get() / samples;
+        }
+
+        private long getMaximum() {
+            return maximum.get();
+        }
+    }
+}
@@ -12,21 +12,36 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.monitoring.impl.reaper;
 
+import static org.forgerock.openam.utils.Time.currentTimeMillis;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class maintains a store of information about each CTS Reaper run since server start up.
+ * <p>
+ * When the reaper is partitioned it also tracks the time slices of the expiry window which have been scheduled but
+ * not yet reaped, from which the backlog of the reaper is derived.
  *
  * @since 12.0.0
  */
 public class ReaperMonitor {
 
     private final List<ReaperRun> reaperRuns = new ArrayList<ReaperRun>();
+    private final ConcurrentNavigableMap<Long, AtomicLong> pendingSlices = new ConcurrentSkipListMap<>();
+    private final AtomicLong slicesCompleted = new AtomicLong();
+    private final AtomicLong slicesSkipped = new AtomicLong();
+    private final AtomicLong slicesFailed = new AtomicLong();
+    private final AtomicLong tokensReaped = new AtomicLong();
 
     /**
      * {@inheritDoc}
@@ -51,6 +66,121 @@ public class ReaperMonitor {
         return numDeletedSessions / reaperRuns.size();
     }
 
+    /**
+     * Records that a slice of the expiry window has been scheduled for reaping.
+     *
+     * @param sliceStart The start of the slice, in milliseconds since the epoch.
+     */
+    public void addSliceScheduled(final long sliceStart) {
+        AtomicLong count = pendingSlices.get(sliceStart);
+        if (count == null) {
+            AtomicLong existing = pendingSlices.putIfAbsent(sliceStart, count = new AtomicLong());
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Records that a scheduled slice of the expiry window has been reaped.
+     *
+     * @param sliceStart The start of the slice, in milliseconds since the epoch.
+     * @param numberOfReapedTokens The number of expired tokens reaped from the slice.
+     */
+    public void addSliceCompleted(final long sliceStart, final long numberOfReapedTokens) {
+        removePendingSlice(sliceStart);
+        slicesCompleted.incrementAndGet();
+        tokensReaped.addAndGet(numberOfReapedTokens);
+    }
+
+    /**
+     * Records that a scheduled slice of the expiry window was not reaped by this server, either because
+     * another server holds its lease or because the lease was lost while reaping it.
+     *
+     * @param sliceStart The start of the slice, in milliseconds since the epoch.
+     */
+    public void addSliceSkipped(final long sliceStart) {
+        removePendingSlice(sliceStart);
+        slicesSkipped.incrementAndGet();
+    }
+
+    /**
+     * Records that reaping a scheduled slice of the expiry window failed.
+     *
+     * @param sliceStart The start of the slice, in milliseconds since the epoch.
+     */
+    public void addSliceFailed(final long sliceStart) {
+        removePendingSlice(sliceStart);
+        slicesFailed.incrementAndGet();
+    }
+
+    private void removePendingSlice(final long sliceStart) {
+        AtomicLong count = pendingSlices.get(sliceStart);
+        if (count != null && count.decrementAndGet() <= 0) {
+            pendingSlices.remove(sliceStart, count);
+        }
+    }
+
+    /**
+     * Gets the number of slices which have been scheduled but not yet reaped.
+     *
+     * @return The number of pending slices.
+     */
+    public long getPendingSlices() {
+        long pending = 0;
+        for (AtomicLong count : pendingSlices.values()) {
+            pending += Math.max(0, count.get());
+        }
+        return pending;
+    }
+
+    /**
+     * Gets the age of the reaper backlog: the time since the start of the oldest slice which is yet to be reaped.
+     *
+     * @return The backlog age in milliseconds, or zero if no slices are pending.
+     */
+    public long getBacklogAge() {
+        Map.Entry<Long, AtomicLong> oldest = pendingSlices.firstEntry();
+        return oldest == null ? 0 : Math.max(0, currentTimeMillis() - oldest.getKey());
+    }
+
+    /**
+     * Gets the number of slices reaped since server start up.
+     *
+     * @return The cumulative count of reaped slices.
+     */
+    public long getCompletedSlices() {
+        return slicesCompleted.get();
+    }
+
+    /**
+     * Gets the number of slices skipped since server start up.
+     *
+     * @return The cumulative count of skipped slices.
+     */
+    public long getSkippedSlices() {
+        return slicesSkipped.get();
+    }
+
+    /**
+     * Gets the number of slices which failed to be reaped since server start up.
+     *
+     * @return The cumulative count of failed slices.
+     */
+    public long getFailedSlices() {
+        return slicesFailed.get();
+    }
+
+    /**
+     * Gets the number of expired tokens reaped from slices since server start up.
+     *
+     * @return The cumulative count of tokens reaped by the partitioned reaper.
+     */
+    public long getReapedTokens() {
+        return tokensReaped.get();
+    }
+
     /**
      * Models a run by the CTS Reaper and holds information about when the run started and stopped and the number of
      * sessions the run deleted.
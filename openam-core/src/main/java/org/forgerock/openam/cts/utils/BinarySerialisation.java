@@ -0,0 +1,164 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.utils;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.forgerock.openam.cts.api.CoreTokenConstants;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Responsible for serialising and deserialising objects to and from a compact binary form of JSON.
+ *
+ * The binary form is <a href="https://github.com/FasterXML/smile-format-specification">Smile</a>, written with the
+ * same Jackson configuration as {@link JSONSerialisation}, so any object which serialises to JSON will serialise
+ * to binary with the same structure. Compared with JSON text, property names are written once and then referred
+ * back to, string values which repeat are likewise shared, and numbers such as timestamps are written as
+ * variable length integers rather than text. Encoding and decoding also avoid building and parsing text.
+ *
+ * Serialised data always begins with the Smile header, which {@link #isBinary(byte[])} uses to tell it apart from
+ * JSON text.
+ */
+@Singleton
+public class BinarySerialisation {
+    private final ObjectMapper mapper;
+
+    /**
+     * New default instance of the BinarySerialisation.
+     *
+     * @param mapper The CTS JSON object mapper, whose configuration is reused for the binary form.
+     */
+    @Inject
+    public BinarySerialisation(@Named(CoreTokenConstants.OBJECT_MAPPER) ObjectMapper mapper) {
+        SmileFactory factory = new SmileFactory()
+                .enable(SmileGenerator.Feature.WRITE_HEADER)
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        this.mapper = mapper.copyWith(factory);
+    }
+
+    /**
+     * Serialise an object to binary.
+     *
+     * @param <T> The generic type of the passed in object.
+     * @param object Non null object to serialise.
+     * @return Non null binary data.
+     */
+    public <T> byte[] serialise(T object) {
+        try {
+            return mapper.writeValueAsBytes(object);
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    MessageFormat.format(
+                            "Failed to serialise {0}:{1}",
+                            object.getClass().getSimpleName(),
+                            object),
+                    e);
+        }
+    }
+
+    /**
+     * Serialise an object to binary, leaving out one of its properties. Used for properties which change often and
+     * are stored elsewhere, so that the binary data stays the same while they change.
+     *
+     * @param <T> The generic type of the passed in object.
+     * @param object Non null object to serialise.
+     * @param excludedProperty The name of the JSON property to leave out.
+     * @return Non null binary data.
+     */
+    public <T> byte[] serialise(T object, String excludedProperty) {
+        try {
+            ObjectNode tree = mapper.valueToTree(object);
+            tree.remove(excludedProperty);
+            return mapper.writeValueAsBytes(tree);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException(
+                    MessageFormat.format(
+                            "Failed to serialise {0}:{1}",
+                            object.getClass().getSimpleName(),
+                            object),
+                    e);
+        }
+    }
+
+    /**
+     * Deserialise binary data to an object of type T, restoring a property which was left out of the data by
+     * {@link #serialise(Object, String)}.
+     *
+     * @param data Non null binary data to deserialise.
+     * @param clazz Class which contains the type of the value stored, required for deserialisation.
+     * @param property The name of the JSON property to restore.
+     * @param value The value of the property.
+     * @param <T> Type to cast the created object to when deserialising.
+     * @return Non null object of type T.
+     */
+    public <T> T deserialise(byte[] data, Class<T> clazz, String property, long value) {
+        try {
+            ObjectNode tree = (ObjectNode) mapper.readTree(data);
+            tree.put(property, value);
+            return mapper.treeToValue(tree, clazz);
+        } catch (IOException | ClassCastException e) {
+            throw new IllegalStateException(
+                    MessageFormat.format(
+                            "Failed to deserialise {0}",
+                            clazz.getSimpleName()),
+                    e);
+        }
+    }
+
+    /**
+     * Deserialise binary data to an object of type T.
+     *
+     * @param data Non null binary data to deserialise.
+     * @param clazz Class which contains the type of the value stored, required for deserialisation.
+     * @param <T> Type to cast the created object to when deserialising.
+     * @return Non null object of type T.
+     */
+    public <T> T deserialise(byte[] data, Class<T> clazz) {
+        try {
+            return mapper.readValue(data, clazz);
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    MessageFormat.format(
+                            "Failed to deserialise {0}",
+                            clazz.getSimpleName()),
+                    e);
+        }
+    }
+
+    /**
+     * Determine whether the data was written by this class, rather than being JSON text.
+     *
+     * @param data Possibly null data to examine.
+     * @return True if the data begins with the binary header.
+     */
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= 3
+                && data[0] == SmileConstants.HEADER_BYTE_1
+                && data[1] == SmileConstants.HEADER_BYTE_2
+                && data[2] == SmileConstants.HEADER_BYTE_3;
+    }
+}
@@ -12,6 +12,7 @@
  * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
  * Header, with the fields enclosed by brackets [] replaced by your own identifying
  * information: "Portions copyright [year] [name of copyright owner]".
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.utils.blob;
 
@@ -21,6 +22,10 @@ package org.forgerock.openam.cts.utils.blob;
  * @author robert.wapshott@forgerock.com
  */
 public class TokenStrategyFailedException extends Exception {
+    public TokenStrategyFailedException(String error) {
+        super(error);
+    }
+
     public TokenStrategyFailedException(Throwable e) {
         super(e);
     }
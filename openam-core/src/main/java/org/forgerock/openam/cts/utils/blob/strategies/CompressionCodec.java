@@ -0,0 +1,55 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.utils.blob.strategies;
+
+import org.forgerock.openam.cts.utils.blob.TokenStrategyFailedException;
+
+/**
+ * A compression algorithm which the {@link CompressionStrategy} can use for the binary object of Tokens.
+ *
+ * Each codec is identified by a marker byte which the {@link CompressionStrategy} writes ahead of the
+ * compressed data, along with the uncompressed length, so that the codec used for any stored Token can be
+ * determined and its output buffer allocated exactly when it is read back.
+ */
+public interface CompressionCodec {
+
+    /**
+     * @return The marker byte identifying data compressed by this codec. Must not be {@code 0x00}, which marks
+     * uncompressed data, or {@code 0x1f}, the first byte of legacy GZip data.
+     */
+    byte getMarker();
+
+    /**
+     * Compress the data, leaving room for a header at the start of the returned array.
+     *
+     * @param blob Non null data to compress.
+     * @param headerLength The number of bytes to leave unused at the start of the returned array.
+     * @return An array of exactly {@code headerLength} plus the compressed length, or {@code null} if the
+     * compressed data would be no smaller than the original.
+     * @throws TokenStrategyFailedException If an error occurred whilst compressing.
+     */
+    byte[] compress(byte[] blob, int headerLength) throws TokenStrategyFailedException;
+
+    /**
+     * Decompress the data into the provided buffer, which is exactly the size of the uncompressed data.
+     *
+     * @param blob Non null data, containing the compressed data from {@code offset} to the end of the array.
+     * @param offset The position of the compressed data.
+     * @param output The buffer to fill with the uncompressed data.
+     * @throws TokenStrategyFailedException If the data was corrupt, or did not fill the buffer exactly.
+     */
+    void decompress(byte[] blob, int offset, byte[] output) throws TokenStrategyFailedException;
+}
@@ -12,10 +12,13 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2014 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.utils.blob.strategies;
 
-import org.apache.commons.io.IOUtils;
+import javax.inject.Inject;
+
+import org.forgerock.openam.cts.CoreTokenConfig;
 import org.forgerock.openam.cts.utils.blob.BlobStrategy;
 import org.forgerock.openam.cts.utils.blob.TokenStrategyFailedException;
 import org.forgerock.util.Reject;
@@ -23,14 +26,51 @@ import org.forgerock.util.Reject;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 /**
- * Responsible for compressing the binary object of Tokens using a GZip compression.
+ * Responsible for compressing the binary object of Tokens using a {@link CompressionCodec}.
+ *
+ * Compressed data is prefixed with the marker byte of the codec and the uncompressed length as a four byte big
+ * endian integer, so the output buffer can be allocated exactly on decompression. Data smaller than the configured
+ * threshold, or which does not compress, is stored with the {@link #UNCOMPRESSED} marker alone.
+ *
+ * Data in the legacy format, a plain GZip stream, is recognised by the GZip magic number and remains readable.
+ * The legacy format is written unless the deflate codec is configured, so that servers which predate the codec
+ * header can read tokens during a rolling upgrade.
  */
 public class CompressionStrategy implements BlobStrategy {
 
+    /**
+     * The marker byte for data stored without compression.
+     */
+    public static final byte UNCOMPRESSED = 0x00;
+
+    private static final int HEADER_LENGTH = 5;
+    private static final int GZIP_TRAILER_LENGTH = 8;
+    /**
+     * Deflate cannot compress data by more than 1032:1, so a recorded length beyond this multiple of the
+     * compressed length can only come from corrupt data, and must not be allocated.
+     */
+    private static final long MAX_COMPRESSION_RATIO = 1032;
+    private static final byte GZIP_MAGIC_FIRST = (byte) (GZIPInputStream.GZIP_MAGIC & 0xff);
+    private static final byte GZIP_MAGIC_SECOND = (byte) (GZIPInputStream.GZIP_MAGIC >> 8);
+
+    private final CoreTokenConfig config;
+    private volatile DeflateCompressionCodec deflate;
+
+    /**
+     * @param config Required for the codec, level and threshold to compress with.
+     */
+    @Inject
+    public CompressionStrategy(CoreTokenConfig config) {
+        this.config = config;
+        this.deflate = new DeflateCompressionCodec(config.getTokenCompressionLevel());
+    }
+
     /**
      * Compress the Tokens binary object.
      *
@@ -41,16 +81,24 @@ public class CompressionStrategy implements BlobStrategy {
     @Override
     public byte[] perform(byte[] blob) throws TokenStrategyFailedException {
         Reject.ifNull(blob);
-        final ByteArrayOutputStream bout = new ByteArrayOutputStream(blob.length);
-        try {
-            final GZIPOutputStream out = new GZIPOutputStream(bout);
-            out.write(blob);
-            out.flush();
-            out.close();
-        } catch (IOException e) {
-            throw new TokenStrategyFailedException(e);
+        if (config.isLegacyTokenCompression()) {
+            return gzip(blob);
         }
-        return bout.toByteArray();
+        if (blob.length < config.getTokenCompressionThreshold()) {
+            return store(blob);
+        }
+
+        CompressionCodec codec = getDeflateCodec();
+        byte[] compressed = codec.compress(blob, HEADER_LENGTH);
+        if (compressed == null) {
+            return store(blob);
+        }
+        compressed[0] = codec.getMarker();
+        compressed[1] = (byte) (blob.length >>> 24);
+        compressed[2] = (byte) (blob.length >>> 16);
+        compressed[3] = (byte) (blob.length >>> 8);
+        compressed[4] = (byte) blob.length;
+        return compressed;
     }
 
     /**
@@ -63,15 +111,103 @@ public class CompressionStrategy implements BlobStrategy {
     @Override
     public byte[] reverse(byte[] blob) throws TokenStrategyFailedException {
         Reject.ifNull(blob);
-        final int lengthGuess = blob.length * 2;
-        final ByteArrayOutputStream bout = new ByteArrayOutputStream(lengthGuess);
+        if (isGzip(blob)) {
+            return gunzip(blob);
+        }
+        if (blob.length == 0) {
+            throw new TokenStrategyFailedException("Compressed Token was empty");
+        }
+
+        switch (blob[0]) {
+            case UNCOMPRESSED:
+                return Arrays.copyOfRange(blob, 1, blob.length);
+            case DeflateCompressionCodec.MARKER:
+                byte[] output = new byte[readLength(blob)];
+                getDeflateCodec().decompress(blob, HEADER_LENGTH, output);
+                return output;
+            default:
+                throw new TokenStrategyFailedException("Unknown compression codec marker " + blob[0]);
+        }
+    }
+
+    private DeflateCompressionCodec getDeflateCodec() {
+        DeflateCompressionCodec codec = deflate;
+        int level = config.getTokenCompressionLevel();
+        if (codec.getLevel() != level) {
+            codec = new DeflateCompressionCodec(level);
+            deflate = codec;
+        }
+        return codec;
+    }
+
+    private static byte[] store(byte[] blob) {
+        byte[] stored = new byte[blob.length + 1];
+        stored[0] = UNCOMPRESSED;
+        System.arraycopy(blob, 0, stored, 1, blob.length);
+        return stored;
+    }
+
+    private static int readLength(byte[] blob) throws TokenStrategyFailedException {
+        if (blob.length < HEADER_LENGTH) {
+            throw new TokenStrategyFailedException("Compressed Token header was truncated");
+        }
+        int length = (blob[1] & 0xff) << 24 | (blob[2] & 0xff) << 16 | (blob[3] & 0xff) << 8 | (blob[4] & 0xff);
+        return checkLength(length, blob.length - HEADER_LENGTH);
+    }
+
+    private static int checkLength(int length, int compressedLength) throws TokenStrategyFailedException {
+        if (length < 0 || length > compressedLength * MAX_COMPRESSION_RATIO) {
+            throw new TokenStrategyFailedException("Compressed Token of " + compressedLength
+                    + " bytes had invalid length " + length);
+        }
+        return length;
+    }
+
+    private static boolean isGzip(byte[] blob) {
+        return blob.length >= 2 && blob[0] == GZIP_MAGIC_FIRST && blob[1] == GZIP_MAGIC_SECOND;
+    }
+
+    private static byte[] gzip(byte[] blob) throws TokenStrategyFailedException {
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream(blob.length);
         try {
-            GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(blob));
-            IOUtils.copy(inputStream, bout);
-            inputStream.close();
+            final GZIPOutputStream out = new GZIPOutputStream(bout);
+            out.write(blob);
+            out.flush();
+            out.close();
         } catch (IOException e) {
             throw new TokenStrategyFailedException(e);
         }
         return bout.toByteArray();
     }
+
+    /**
+     * The GZip trailer records the uncompressed length modulo 2^32, which is exact for any Token, so the output
+     * buffer can be allocated exactly for legacy data too.
+     */
+    private static byte[] gunzip(byte[] blob) throws TokenStrategyFailedException {
+        if (blob.length < GZIP_TRAILER_LENGTH) {
+            throw new TokenStrategyFailedException("Compressed Token was truncated");
+        }
+        int end = blob.length;
+        int length = (blob[end - 1] & 0xff) << 24 | (blob[end - 2] & 0xff) << 16
+                | (blob[end - 3] & 0xff) << 8 | (blob[end - 4] & 0xff);
+        checkLength(length, blob.length);
+        byte[] output = new byte[length];
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(blob))) {
+            int read = 0;
+            while (read < length) {
+                int count = inputStream.read(output, read, length - read);
+                if (count < 0) {
+                    break;
+                }
+                read += count;
+            }
+            if (read != length || inputStream.read() != -1) {
+                throw new TokenStrategyFailedException("Decompressed Token did not match its recorded length");
+            }
+        } catch (IOException e) {
+            throw new TokenStrategyFailedException(e);
+        }
+        return output;
+    }
 }
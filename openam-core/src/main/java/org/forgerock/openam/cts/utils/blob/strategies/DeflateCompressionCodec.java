@@ -0,0 +1,135 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.utils.blob.strategies;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.forgerock.openam.cts.utils.blob.TokenStrategyFailedException;
+
+/**
+ * Compresses using raw Deflate (no GZip or zlib framing, as the {@link CompressionStrategy} header records what
+ * is needed) at a configurable level.
+ *
+ * {@link Deflater} and {@link Inflater} instances hold native memory and are expensive to create, so a bounded
+ * number of them are pooled and reset between uses rather than created for every Token.
+ */
+public class DeflateCompressionCodec implements CompressionCodec {
+
+    /**
+     * The marker byte for Deflate compressed data.
+     */
+    public static final byte MARKER = 0x01;
+
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final int level;
+    private final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * @param level The Deflate compression level, from {@link Deflater#NO_COMPRESSION} to
+     * {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public DeflateCompressionCodec(int level) {
+        if (level != Deflater.DEFAULT_COMPRESSION
+                && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid Deflate compression level " + level);
+        }
+        this.level = level;
+    }
+
+    /**
+     * @return The Deflate compression level of this codec.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public byte getMarker() {
+        return MARKER;
+    }
+
+    @Override
+    public byte[] compress(byte[] blob, int headerLength) throws TokenStrategyFailedException {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        }
+        try {
+            deflater.setInput(blob);
+            deflater.finish();
+            // Output no smaller than the input is not worth keeping, so the buffer never needs to grow.
+            byte[] output = new byte[headerLength + blob.length];
+            int length = headerLength;
+            while (!deflater.finished() && length < output.length) {
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            return Arrays.copyOf(output, length);
+        } finally {
+            release(deflater, deflaters);
+        }
+    }
+
+    @Override
+    public void decompress(byte[] blob, int offset, byte[] output) throws TokenStrategyFailedException {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater(true);
+        }
+        try {
+            inflater.setInput(blob, offset, blob.length - offset);
+            int length = 0;
+            while (length < output.length && !inflater.finished()) {
+                int inflated = inflater.inflate(output, length, output.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != output.length) {
+                throw new TokenStrategyFailedException(
+                        "Expected " + output.length + " decompressed bytes, but inflated " + length);
+            }
+        } catch (DataFormatException e) {
+            throw new TokenStrategyFailedException("Failed to decompress Token", e);
+        } finally {
+            release(inflater, inflaters);
+        }
+    }
+
+    private static void release(Deflater deflater, BlockingQueue<Deflater> pool) {
+        deflater.reset();
+        if (!pool.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private static void release(Inflater inflater, BlockingQueue<Inflater> pool) {
+        inflater.reset();
+        if (!pool.offer(inflater)) {
+            inflater.end();
+        }
+    }
+}
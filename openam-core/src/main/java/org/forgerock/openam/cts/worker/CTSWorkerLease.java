@@ -0,0 +1,179 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.worker;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.forgerock.openam.utils.Time.currentTimeMillis;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.forgerock.openam.cts.CTSPersistentStore;
+import org.forgerock.openam.cts.api.CTSOptions;
+import org.forgerock.openam.cts.api.CoreTokenConstants;
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.tokens.CoreTokenField;
+import org.forgerock.openam.tokens.TokenType;
+import org.forgerock.openam.utils.TimeUtils;
+import org.forgerock.util.Options;
+
+import com.iplanet.services.naming.ServerEntryNotFoundException;
+import com.iplanet.services.naming.WebtopNamingQuery;
+import com.sun.identity.shared.debug.Debug;
+
+/**
+ * Cluster wide, time limited leases which allow CTS worker tasks running on different servers to divide work
+ * between themselves.
+ * <p>
+ * A lease is a {@link TokenType#GENERIC} token in the CTS whose expiry date is the end of the lease. Creating the
+ * token acquires the lease, and the CTS rejects the creation of a token whose ID is already in use. A lease which
+ * has lapsed is taken over by deleting it, asserting the ETag that was read, and creating it again; of several
+ * servers racing to take over the same lease only one delete can succeed.
+ * <p>
+ * A server still working under a lease {@link #renew renews} it before it lapses, and {@link #release releases}
+ * it once the work is done, so that the next run of any server may pick the work up again. A server which already
+ * holds a lease acquires it again. Lapsed lease tokens are removed by the CTS Reaper like any other expired token.
+ */
+@Singleton
+public class CTSWorkerLease {
+
+    private static final CoreTokenField OWNER_FIELD = CoreTokenField.STRING_ONE;
+
+    private final CTSPersistentStore store;
+    private final String localServerId;
+    private final Debug debug;
+
+    /**
+     * Creates a new lease manager.
+     *
+     * @param store The CTS in which leases are held.
+     * @param serverConfig Used to record the server holding each lease.
+     * @param debug Debug output.
+     */
+    @Inject
+    public CTSWorkerLease(CTSPersistentStore store, WebtopNamingQuery serverConfig,
+            @Named(CoreTokenConstants.CTS_REAPER_DEBUG) Debug debug) {
+        this.store = store;
+        this.debug = debug;
+        String localServerId;
+        try {
+            localServerId = serverConfig.getAMServerID();
+        } catch (ServerEntryNotFoundException ignored) {
+            //This can never happen as we are looking up the local server ID.
+            localServerId = "";
+        }
+        this.localServerId = localServerId;
+    }
+
+    /**
+     * Attempts to acquire the lease with the given ID.
+     *
+     * @param leaseId The ID of the lease, shared by all servers which contend for the same piece of work.
+     * @param durationMillis The time in milliseconds for which the lease is held once acquired.
+     * @return True if this server now holds the lease, including if it already held it. False if another server
+     * holds it, or if the CTS could not be reached.
+     */
+    public boolean acquire(String leaseId, long durationMillis) {
+        long now = currentTimeMillis();
+        if (create(leaseId, now + durationMillis)) {
+            return true;
+        }
+        try {
+            Token current = store.read(leaseId);
+            if (current != null) {
+                if (current.getExpiryTimestamp().getTimeInMillis() > now) {
+                    return isHeldLocally(current) && renew(leaseId, durationMillis);
+                }
+                String etag = current.getAttribute(CoreTokenField.ETAG);
+                Options options = Options.defaultOptions().set(CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION, etag);
+                store.delete(leaseId, options);
+            }
+        } catch (CoreTokenException e) {
+            debug.message("Unable to take over lapsed lease {}", leaseId, e);
+            return false;
+        }
+        return create(leaseId, now + durationMillis);
+    }
+
+    /**
+     * Extends a lease held by this server, so that no other server takes it over while the work it covers is
+     * still in progress.
+     *
+     * @param leaseId The ID of the lease, which this server must have acquired.
+     * @param durationMillis The time in milliseconds from now for which the lease is held.
+     * @return True if this server still holds the lease. False if the lease lapsed and was taken over by another
+     * server, or if the CTS could not be reached.
+     */
+    public boolean renew(String leaseId, long durationMillis) {
+        try {
+            Token current = store.read(leaseId);
+            if (current == null || !isHeldLocally(current)) {
+                debug.message("Lease {} is no longer held by this server", leaseId);
+                return false;
+            }
+            String etag = current.getAttribute(CoreTokenField.ETAG);
+            current.setExpiryTimestamp(TimeUtils.fromUnixTime(currentTimeMillis() + durationMillis, MILLISECONDS));
+            store.update(current, Options.defaultOptions().set(CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION, etag));
+            debug.message("Renewed lease {}", leaseId);
+            return true;
+        } catch (CoreTokenException e) {
+            debug.message("Unable to renew lease {}", leaseId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Releases a lease held by this server once the work it covers is done, by ending it now, so that any server
+     * may acquire it straight away. A lease which has since been taken over by another server is left alone.
+     *
+     * @param leaseId The ID of the lease, which this server must have acquired.
+     */
+    public void release(String leaseId) {
+        try {
+            Token current = store.read(leaseId);
+            if (current == null || !isHeldLocally(current)) {
+                return;
+            }
+            String etag = current.getAttribute(CoreTokenField.ETAG);
+            current.setExpiryTimestamp(TimeUtils.fromUnixTime(currentTimeMillis(), MILLISECONDS));
+            store.update(current, Options.defaultOptions().set(CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION, etag));
+            debug.message("Released lease {}", leaseId);
+        } catch (CoreTokenException e) {
+            debug.message("Unable to release lease {}", leaseId, e);
+        }
+    }
+
+    private boolean isHeldLocally(Token lease) {
+        return localServerId.equals(lease.getAttribute(OWNER_FIELD));
+    }
+
+    private boolean create(String leaseId, long expiryTime) {
+        Token lease = new Token(leaseId, TokenType.GENERIC);
+        lease.setExpiryTimestamp(TimeUtils.fromUnixTime(expiryTime, MILLISECONDS));
+        lease.setAttribute(OWNER_FIELD, localServerId);
+        try {
+            store.create(lease);
+            debug.message("Acquired lease {}", leaseId);
+            return true;
+        } catch (CoreTokenException e) {
+            debug.message("Lease {} not acquired: {}", leaseId, e.getMessage());
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,312 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.worker;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.forgerock.openam.utils.Time.currentTimeMillis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.forgerock.openam.cts.CoreTokenConfig;
+import org.forgerock.openam.cts.api.CoreTokenConstants;
+import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.cts.impl.query.worker.CTSWorkerQuery;
+import org.forgerock.openam.cts.impl.query.worker.CTSWorkerSliceableQuery;
+import org.forgerock.openam.cts.monitoring.CTSReaperMonitoringStore;
+import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
+import org.forgerock.openam.utils.TimeUtils;
+
+import com.sun.identity.shared.debug.Debug;
+
+/**
+ * Splits the expiry window of a {@link CTSWorkerSliceableQuery} into time slices which are processed concurrently.
+ * <p>
+ * The window ends now and begins {@link CoreTokenConfig#getReaperPartitionWindow} ago; it is divided into
+ * {@link CoreTokenConfig#getReaperPartitionSlices} slices. Everything which expired before the window is divided
+ * into as many backlog slices again, each twice as wide as the one after it, the oldest having no lower bound, so
+ * that a large backlog is also reaped concurrently. Slice boundaries are aligned to multiples of the slice width,
+ * so all servers in the cluster agree on the slices, and each slice is only processed by the server which holds its
+ * {@link CTSWorkerLease}. The lease is renewed while the slice is being paged through, and released once the slice
+ * has been processed so that the slice is available again on the next run. Slices are scheduled oldest
+ * first, and at most {@link CoreTokenConfig#getReaperPartitionConcurrency} slices of each query are processed at
+ * once; as each slice processes one page of results at a time, this bounds the number of operations in flight.
+ * <p>
+ * Progress and backlog are recorded in the {@link CTSReaperMonitoringStore}. A slice which fails is recorded as
+ * failed, rather than skipped, and the failure is reported once all other slices have been processed.
+ */
+@Singleton
+public class CTSWorkerPartitioner {
+
+    private static final String LEASE_PREFIX = "CTSReaperLease-";
+
+    private final CoreTokenConfig config;
+    private final CTSWorkerLease lease;
+    private final ExecutorService executorService;
+    private final CTSReaperMonitoringStore monitoringStore;
+    private final Debug debug;
+
+    /**
+     * Creates a new partitioner.
+     *
+     * @param config Provides the partitioning configuration.
+     * @param lease Cluster wide leases, ensuring each slice is processed by one server.
+     * @param executorService The pool on which slices are processed.
+     * @param monitoringStore Records progress and backlog.
+     * @param debug Debug output.
+     */
+    @Inject
+    public CTSWorkerPartitioner(CoreTokenConfig config, CTSWorkerLease lease,
+            @Named(CoreTokenConstants.CTS_REAPER_POOL) ExecutorService executorService,
+            CTSReaperMonitoringStore monitoringStore,
+            @Named(CoreTokenConstants.CTS_REAPER_DEBUG) Debug debug) {
+        this.config = config;
+        this.lease = lease;
+        this.executorService = executorService;
+        this.monitoringStore = monitoringStore;
+        this.debug = debug;
+    }
+
+    /**
+     * @return True if worker queries should be partitioned into time slices.
+     */
+    public boolean isEnabled() {
+        return config.getReaperPartitionSlices() > 1;
+    }
+
+    /**
+     * Processes each slice of the query for which this server acquires the lease, and waits for them all to complete.
+     *
+     * @param query The query to partition.
+     * @param processor Processes the results of a single slice.
+     * @return The total number of results processed across all slices.
+     * @throws CoreTokenException If any slice could not be processed. The other slices are processed regardless.
+     * @throws InterruptedException If the calling thread is interrupted. Slices in progress are cancelled.
+     */
+    public long process(CTSWorkerSliceableQuery query, SliceProcessor processor)
+            throws CoreTokenException, InterruptedException {
+        long now = currentTimeMillis();
+        long window = config.getReaperPartitionWindow(MILLISECONDS);
+        long width = Math.max(1, window / config.getReaperPartitionSlices());
+        long windowStart = ((now - window) / width) * width;
+        String name = LEASE_PREFIX + query.getClass().getSimpleName() + "-";
+
+        // Backlog slices double in width going back from the window. The oldest, unbounded, slice is reported to
+        // monitoring as starting at its upper bound
+        List<Long> backlogBounds = new ArrayList<>();
+        for (long bound = windowStart, backlogWidth = width;
+                backlogBounds.size() < config.getReaperPartitionSlices() - 1 && bound - backlogWidth > 0;
+                bound -= backlogWidth, backlogWidth *= 2) {
+            backlogBounds.add(0, bound - backlogWidth);
+        }
+        List<SliceTask> slices = new ArrayList<>();
+        long tailEnd = backlogBounds.isEmpty() ? windowStart : backlogBounds.get(0);
+        slices.add(new SliceTask(query, processor, name + "tail", tailEnd, null, tailEnd));
+        for (int i = 0; i < backlogBounds.size(); i++) {
+            long start = backlogBounds.get(i);
+            long end = i + 1 < backlogBounds.size() ? backlogBounds.get(i + 1) : windowStart;
+            slices.add(new SliceTask(query, processor, name + start, start, start, end));
+        }
+        for (long start = windowStart; start < now; start += width) {
+            slices.add(new SliceTask(query, processor, name + start, start, start, Math.min(start + width, now)));
+        }
+        for (SliceTask slice : slices) {
+            monitoringStore.addReaperSliceScheduled(slice.start);
+        }
+
+        Semaphore permits = new Semaphore(config.getReaperPartitionConcurrency());
+        List<Future<Long>> futures = new ArrayList<>(slices.size());
+        long total = 0;
+        try {
+            for (SliceTask slice : slices) {
+                permits.acquire();
+                slice.permits = permits;
+                futures.add(executorService.submit(slice));
+            }
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+        } catch (InterruptedException e) {
+            for (int i = 0; i < slices.size(); i++) {
+                if (i < futures.size()) {
+                    futures.get(i).cancel(true);
+                }
+                slices.get(i).abandon();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            // SliceTask handles its own failures
+            debug.error("Unexpected failure processing slice of {}", query, e);
+        }
+        CoreTokenException failure = null;
+        for (SliceTask slice : slices) {
+            if (slice.failure != null) {
+                if (failure == null) {
+                    failure = slice.failure;
+                } else {
+                    failure.addSuppressed(slice.failure);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return total;
+    }
+
+    /**
+     * Processes the results of a single slice of a partitioned query.
+     */
+    public interface SliceProcessor {
+
+        /**
+         * Processes all results of the slice, returning once they have all been processed.
+         *
+         * @param slice The query selecting the slice.
+         * @return The number of results processed.
+         * @throws CoreTokenException If the slice could not be processed.
+         * @throws InterruptedException If the thread is interrupted.
+         */
+        long process(CTSWorkerQuery slice) throws CoreTokenException, InterruptedException;
+    }
+
+    private final class SliceTask implements Callable<Long> {
+
+        private final CTSWorkerSliceableQuery query;
+        private final SliceProcessor processor;
+        private final String leaseId;
+        private final long start;
+        private final Long from;
+        private final long to;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private Semaphore permits;
+        private volatile CoreTokenException failure;
+
+        private SliceTask(CTSWorkerSliceableQuery query, SliceProcessor processor, String leaseId, long start,
+                Long from, long to) {
+            this.query = query;
+            this.processor = processor;
+            this.leaseId = leaseId;
+            this.start = start;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Long call() {
+            if (started.getAndSet(true)) {
+                return 0L;
+            }
+            boolean recorded = false;
+            LeasedQuery slice = null;
+            try {
+                if (!lease.acquire(leaseId, config.getRunPeriod())) {
+                    debug.message("Slice {} is leased by another server", leaseId);
+                    return 0L;
+                }
+                slice = new LeasedQuery(leaseId, query.slice(
+                        from == null ? null : TimeUtils.fromUnixTime(from, MILLISECONDS),
+                        TimeUtils.fromUnixTime(to, MILLISECONDS)));
+                long processed = processor.process(slice);
+                if (slice.leaseLost) {
+                    debug.warning("Lease of slice {} lapsed after {} results were processed", leaseId, processed);
+                    return processed;
+                }
+                monitoringStore.addReaperSliceCompleted(start, processed);
+                recorded = true;
+                return processed;
+            } catch (CoreTokenException e) {
+                debug.error("Failed to process slice {}", leaseId, e);
+                failure = e;
+                monitoringStore.addReaperSliceFailed(start);
+                recorded = true;
+                return 0L;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0L;
+            } finally {
+                if (!recorded) {
+                    monitoringStore.addReaperSliceSkipped(start);
+                }
+                if (slice != null && !slice.leaseLost) {
+                    lease.release(leaseId);
+                }
+                permits.release();
+            }
+        }
+
+        /**
+         * Records the slice as skipped if it never started running.
+         */
+        private void abandon() {
+            if (!started.getAndSet(true)) {
+                monitoringStore.addReaperSliceSkipped(start);
+            }
+        }
+    }
+
+    /**
+     * Renews the lease of a slice, before it lapses, each time a further page of the slice is fetched. If the lease
+     * could not be renewed the slice is ended early, as another server may take it over.
+     */
+    private final class LeasedQuery implements CTSWorkerQuery {
+
+        private final String leaseId;
+        private final CTSWorkerQuery delegate;
+        private long renewAt;
+        private boolean leaseLost;
+
+        private LeasedQuery(String leaseId, CTSWorkerQuery delegate) {
+            this.leaseId = leaseId;
+            this.delegate = delegate;
+            this.renewAt = nextRenewal();
+        }
+
+        @Override
+        public Collection<PartialToken> nextPage() throws CoreTokenException {
+            if (currentTimeMillis() >= renewAt) {
+                if (!lease.renew(leaseId, config.getRunPeriod())) {
+                    leaseLost = true;
+                    delegate.close();
+                    return null;
+                }
+                renewAt = nextRenewal();
+            }
+            return delegate.nextPage();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+
+        private long nextRenewal() {
+            return currentTimeMillis() + config.getRunPeriod() / 2;
+        }
+    }
+
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.worker.process;
 
@@ -21,27 +22,107 @@ import java.util.concurrent.CountDownLatch;
 import org.apache.commons.lang.time.StopWatch;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
 import org.forgerock.openam.cts.impl.query.worker.CTSWorkerQuery;
+import org.forgerock.openam.cts.impl.query.worker.CTSWorkerSliceableQuery;
 import org.forgerock.openam.cts.worker.CTSWorkerFilter;
+import org.forgerock.openam.cts.worker.CTSWorkerPartitioner;
 import org.forgerock.openam.cts.worker.CTSWorkerProcess;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 
 /**
  * {@link CTSWorkerProcess} base class handling repeated steps such as paging through query results,
  * thread interruption and waiting for each page of results to be processed.
+ * <p>
+ * When constructed with a {@link CTSWorkerPartitioner} which is enabled, queries which can be sliced by time are
+ * split into slices which are paged through concurrently.
  */
 public abstract class CTSWorkerBaseProcess implements CTSWorkerProcess {
 
+    private final CTSWorkerPartitioner partitioner;
+
+    /**
+     * Creates a process which pages through each query in turn.
+     */
+    protected CTSWorkerBaseProcess() {
+        this(null);
+    }
+
+    /**
+     * Creates a process which partitions sliceable queries when the partitioner is enabled.
+     *
+     * @param partitioner The partitioner, or null to always page through each query in turn.
+     */
+    protected CTSWorkerBaseProcess(CTSWorkerPartitioner partitioner) {
+        this.partitioner = partitioner;
+    }
+
     @Override
     public final void handle(CTSWorkerQuery workerQuery, CTSWorkerFilter filter) {
+        if (partitioner != null && partitioner.isEnabled() && workerQuery instanceof CTSWorkerSliceableQuery) {
+            handlePartitioned((CTSWorkerSliceableQuery) workerQuery, filter);
+            return;
+        }
+
         // Timers for debugging
         StopWatch queryStopWatch = new StopWatch();
         StopWatch waitingStopWatch = new StopWatch();
 
-        long total = 0;
         waitingStopWatch.start();
         waitingStopWatch.suspend();
         queryStopWatch.start();
 
+        try {
+            long total = processPages(workerQuery, filter, queryStopWatch, waitingStopWatch);
+            queryStopWatch.stop();
+            waitingStopWatch.stop();
+
+            handleSucceeded(queryStopWatch, waitingStopWatch, total);
+        } catch (CoreTokenException e) {
+            handleFailed(e);
+        } catch (InterruptedException e) {
+            handleFailed(e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Processes the slices of the query concurrently. As slices overlap in time only the elapsed time of the
+     * whole run is reported, as query time.
+     */
+    private void handlePartitioned(CTSWorkerSliceableQuery workerQuery, final CTSWorkerFilter filter) {
+        StopWatch queryStopWatch = new StopWatch();
+        StopWatch waitingStopWatch = new StopWatch();
+        queryStopWatch.start();
+
+        try {
+            long total = partitioner.process(workerQuery, new CTSWorkerPartitioner.SliceProcessor() {
+                @Override
+                public long process(CTSWorkerQuery slice) throws CoreTokenException, InterruptedException {
+                    StopWatch sliceQueryStopWatch = new StopWatch();
+                    StopWatch sliceWaitingStopWatch = new StopWatch();
+                    sliceWaitingStopWatch.start();
+                    sliceWaitingStopWatch.suspend();
+                    sliceQueryStopWatch.start();
+                    return processPages(slice, filter, sliceQueryStopWatch, sliceWaitingStopWatch);
+                }
+            });
+            queryStopWatch.stop();
+
+            handleSucceeded(queryStopWatch, waitingStopWatch, total);
+        } catch (CoreTokenException e) {
+            handleFailed(e);
+        } catch (InterruptedException e) {
+            handleFailed(e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pages through the query, handling each filtered page and waiting for it to complete before fetching the next.
+     * The query stop watch must be running and the waiting stop watch suspended.
+     */
+    private long processPages(CTSWorkerQuery workerQuery, CTSWorkerFilter filter, StopWatch queryStopWatch,
+            StopWatch waitingStopWatch) throws CoreTokenException, InterruptedException {
+        long total = 0;
         try (CTSWorkerQuery query = workerQuery) {
             for (Collection<PartialToken> tokens = query.nextPage(); tokens != null; tokens = query.nextPage()) {
 
@@ -64,16 +145,8 @@ public abstract class CTSWorkerBaseProcess implements CTSWorkerProcess {
 
                 queryStopWatch.resume();
             }
-            queryStopWatch.stop();
-            waitingStopWatch.stop();
-
-            handleSucceeded(queryStopWatch, waitingStopWatch, total);
-        } catch (CoreTokenException e) {
-            handleFailed(e);
-        } catch (InterruptedException e) {
-            handleFailed(e);
-            Thread.currentThread().interrupt();
         }
+        return total;
     }
 
     /**
@@ -91,7 +164,8 @@ public abstract class CTSWorkerBaseProcess implements CTSWorkerProcess {
      * This method can be overridden by subclasses for monitoring or debug logging.
      *
      * @param queryStopWatch timing of the query and task spawning step.
-     * @param waitingStopWatch timing of the task completion wait time.
+     * @param waitingStopWatch timing of the task completion wait time. Not started when the query was partitioned,
+     * as the waiting time is then included in the query time.
      * @param total number of query results which matched the filter and were processed.
      */
     protected abstract void handleSucceeded(StopWatch queryStopWatch, StopWatch waitingStopWatch, long total);
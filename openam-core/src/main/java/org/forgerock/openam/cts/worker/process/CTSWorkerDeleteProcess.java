@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.worker.process;
 
@@ -22,17 +23,20 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.apache.commons.lang.time.StopWatch;
+import org.forgerock.openam.cts.api.CTSOptions;
 import org.forgerock.openam.cts.api.CoreTokenConstants;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
 import org.forgerock.openam.cts.impl.query.worker.CTSWorkerQuery;
 import org.forgerock.openam.cts.impl.queue.TaskDispatcher;
 import org.forgerock.openam.cts.monitoring.CTSReaperMonitoringStore;
 import org.forgerock.openam.cts.worker.CTSWorkerFilter;
+import org.forgerock.openam.cts.worker.CTSWorkerPartitioner;
 import org.forgerock.openam.cts.worker.CTSWorkerTask;
 import org.forgerock.openam.sm.datalayer.api.ResultHandler;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.sm.datalayer.impl.CountDownHandler;
 import org.forgerock.openam.tokens.CoreTokenField;
+import org.forgerock.util.Options;
 
 import com.sun.identity.shared.debug.Debug;
 
@@ -53,12 +57,15 @@ public class CTSWorkerDeleteProcess extends CTSWorkerBaseProcess {
      *
      * @param tokenDeletion Batch deletion of tokens utility.
      * @param monitoringStore Utility to record monitoring information.
+     * @param partitioner Splits sliceable queries into time slices, when enabled.
      * @param debug Debug output.
      */
     @Inject
     public CTSWorkerDeleteProcess(TokenDeletion tokenDeletion,
                                   CTSReaperMonitoringStore monitoringStore,
+                                  CTSWorkerPartitioner partitioner,
                                   @Named(CoreTokenConstants.CTS_DEBUG) Debug debug) {
+        super(partitioner);
         this.tokenDeletion = tokenDeletion;
         this.monitoringStore = monitoringStore;
         this.debug = debug;
@@ -100,6 +107,8 @@ public class CTSWorkerDeleteProcess extends CTSWorkerBaseProcess {
          * Performs a delete against a batch of Token IDs in the search results.
          *
          * This function will defer to the {@link TaskDispatcher} for deletion requests.
+         * The deletes are low priority, so the batch may be rejected when the CTS is overloaded, in which
+         * case the remaining tokens are left for a later run.
          *
          * @param tokens PartialToken objects containing the IDs of the tokens to delete.
          *
@@ -111,9 +120,10 @@ public class CTSWorkerDeleteProcess extends CTSWorkerBaseProcess {
         public CountDownLatch deleteBatch(Collection<PartialToken> tokens) throws CoreTokenException {
             CountDownLatch latch = new CountDownLatch(tokens.size());
             ResultHandler<PartialToken, CoreTokenException> handler = new CountDownHandler<>(latch);
+            Options options = Options.defaultOptions().set(CTSOptions.LOW_PRIORITY_OPTION, true);
             for (PartialToken token : tokens) {
                 String tokenId = token.getValue(CoreTokenField.TOKEN_ID);
-                queue.delete(tokenId, handler);
+                queue.delete(tokenId, options, handler);
             }
             return latch;
         }
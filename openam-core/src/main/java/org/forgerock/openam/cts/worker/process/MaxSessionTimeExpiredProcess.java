@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.worker.process;
 
@@ -27,6 +28,7 @@ import org.forgerock.openam.cts.exceptions.CoreTokenException;
 import org.forgerock.openam.cts.impl.query.worker.CTSWorkerConstants;
 import org.forgerock.openam.cts.impl.query.worker.CTSWorkerQuery;
 import org.forgerock.openam.cts.worker.CTSWorkerFilter;
+import org.forgerock.openam.cts.worker.CTSWorkerPartitioner;
 import org.forgerock.openam.cts.worker.CTSWorkerTask;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 
@@ -47,7 +49,9 @@ public class MaxSessionTimeExpiredProcess extends CTSWorkerBaseProcess {
     @Inject
     public MaxSessionTimeExpiredProcess(
             @Named(CTSWorkerConstants.MAX_SESSION_TIME_EXPIRED) SessionExpiryBatchHandler timeoutHandler,
+            CTSWorkerPartitioner partitioner,
             @Named(CoreTokenConstants.CTS_DEBUG) final Debug debug) {
+        super(partitioner);
         this.debug = debug;
         this.timeoutHandler = timeoutHandler;
     }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.worker.process;
 
@@ -91,7 +92,8 @@ class SessionExpiryBatchHandler {
         for (PartialToken partialToken : tokenIds) {
             // Ensure session only gets timed out once by first attempting to delete the CTS token
             String tokenId = partialToken.getValue(CoreTokenField.TOKEN_ID);
-            Options options = Options.defaultOptions().set(CTSOptions.PRE_DELETE_READ_OPTION, CoreTokenField.values());
+            Options options = Options.defaultOptions().set(CTSOptions.PRE_DELETE_READ_OPTION, CoreTokenField.values())
+                    .set(CTSOptions.LOW_PRIORITY_OPTION, true);
             if (sessionEventType == IDLE_TIMEOUT) {
                 // Allow idle timeout to be aborted if another process updates the token
                 String etag = partialToken.getValue(CoreTokenField.ETAG);
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.entitlement.monitoring;
@@ -108,4 +109,55 @@ public interface PolicyMonitor {
      */
     String getSlowestInternalEvaluation();
 
+    /**
+     * Records that preloading of policies into memory has begun.
+     *
+     * @param realmCount Number of realms to be preloaded
+     */
+    void preloadStarted(int realmCount);
+
+    /**
+     * Records that a realm's policies have been loaded, or reloaded, into memory.
+     *
+     * @param realm Realm whose policies were loaded
+     * @param policyCount Number of policies and referrals loaded
+     * @param footprint Estimated memory footprint of the loaded policies, in bytes
+     */
+    void addPreloadedRealm(String realm, int policyCount, long footprint);
+
+    /**
+     * Records that a realm's policies are no longer held in memory.
+     *
+     * @param realm Realm whose policies were discarded
+     */
+    void removePreloadedRealm(String realm);
+
+    /**
+     * Number of realms which were to be preloaded when preloading began.
+     *
+     * @return The number of realms to be preloaded
+     */
+    int getPreloadRealmTotal();
+
+    /**
+     * Number of realms whose policies are held in memory.
+     *
+     * @return The number of preloaded realms
+     */
+    int getPreloadedRealmCount();
+
+    /**
+     * Number of policies and referrals held in memory across all realms.
+     *
+     * @return The number of preloaded policies
+     */
+    long getPreloadedPolicyCount();
+
+    /**
+     * Estimated memory footprint of the policies held in memory across all realms.
+     *
+     * @return The estimated footprint in bytes
+     */
+    long getPreloadFootprint();
+
 }
\ No newline at end of file
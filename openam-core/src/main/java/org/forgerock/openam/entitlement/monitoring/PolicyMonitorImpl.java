@@ -12,11 +12,14 @@
 * information: "Portions copyright [year] [name of copyright owner]".
 *
 * Copyright 2014 ForgeRock AS.
+* Portions copyright 2026 Wren Security.
 */
 package org.forgerock.openam.entitlement.monitoring;
 
 import com.sun.identity.shared.debug.Debug;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import javax.inject.Inject;
@@ -54,6 +57,10 @@ public class PolicyMonitorImpl implements PolicyMonitor {
     private final ExecutorService executorService;
     public static final String EXECUTOR_BINDING_NAME = "POLICY_MONITORING_EXECUTOR";
 
+    //preloaded realm figures, each an array of policy count and footprint
+    private final ConcurrentMap<String, long[]> preloadedRealms = new ConcurrentHashMap<String, long[]>();
+    private volatile int preloadRealmTotal;
+
     /**
      * Guice-powered constructor.
      *
@@ -216,6 +223,70 @@ public class PolicyMonitorImpl implements PolicyMonitor {
         return internalEvaluationTimingStore.getSlowestEvaluation();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void preloadStarted(int realmCount) {
+        preloadRealmTotal = realmCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addPreloadedRealm(String realm, int policyCount, long footprint) {
+        preloadedRealms.put(realm, new long[] {policyCount, footprint});
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removePreloadedRealm(String realm) {
+        preloadedRealms.remove(realm);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPreloadRealmTotal() {
+        return preloadRealmTotal;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPreloadedRealmCount() {
+        return preloadedRealms.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPreloadedPolicyCount() {
+        long total = 0;
+        for (long[] figures : preloadedRealms.values()) {
+            total += figures[0];
+        }
+        return total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPreloadFootprint() {
+        long total = 0;
+        for (long[] figures : preloadedRealms.values()) {
+            total += figures[1];
+        }
+        return total;
+    }
+
     /**
      * Exposed for ease-of-testing.
      *
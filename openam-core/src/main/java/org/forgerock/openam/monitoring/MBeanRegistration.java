@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.monitoring;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import com.sun.identity.shared.debug.Debug;
+
+/**
+ * Registers the MXBeans through which components expose their statistics on the platform MBean server, under the
+ * {@code OpenAM} domain.
+ * <p>
+ * Any MBean already registered under the same name is replaced, as the component which registered it may have been
+ * rebuilt since. Failure to register is logged rather than thrown, as the component works without its MBean.
+ */
+public final class MBeanRegistration {
+
+    private static final String DOMAIN = "OpenAM";
+
+    private MBeanRegistration() {
+    }
+
+    /**
+     * Registers the MXBean as {@code OpenAM:type=<type>}.
+     *
+     * @param mxbean The implementation of the MXBean.
+     * @param mxbeanInterface The MXBean interface to expose.
+     * @param type The type of the MXBean.
+     * @param debug The debug instance to log a failure to.
+     * @param <T> The MXBean interface.
+     */
+    public static <T> void register(T mxbean, Class<T> mxbeanInterface, String type, Debug debug) {
+        register(mxbean, mxbeanInterface, DOMAIN + ":type=" + type, type, debug);
+    }
+
+    /**
+     * Registers the MXBean as {@code OpenAM:type=<type>,name=<name>}, for components of which there is more than
+     * one instance.
+     *
+     * @param mxbean The implementation of the MXBean.
+     * @param mxbeanInterface The MXBean interface to expose.
+     * @param type The type of the MXBean.
+     * @param name The name of the instance, which is quoted.
+     * @param debug The debug instance to log a failure to.
+     * @param <T> The MXBean interface.
+     */
+    public static <T> void register(T mxbean, Class<T> mxbeanInterface, String type, String name, Debug debug) {
+        register(mxbean, mxbeanInterface, DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name), type, debug);
+    }
+
+    private static <T> void register(T mxbean, Class<T> mxbeanInterface, String objectName, String type,
+            Debug debug) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new StandardMBean(mxbean, mxbeanInterface, true), name);
+        } catch (Exception e) {
+            debug.warning("{}: Unable to register MBean {}", type, objectName, e);
+        }
+    }
+}
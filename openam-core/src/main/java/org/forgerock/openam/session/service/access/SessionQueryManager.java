@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions Copyright 2023 Wren Security
+ * Portions Copyright 2023-2026 Wren Security
  */
 
 package org.forgerock.openam.session.service.access;
@@ -102,6 +102,20 @@ public class SessionQueryManager {
         return sessionPersistenceStore.getAllSessionsByUUID(uuid);
     }
 
+    /**
+     * Returns the number of sessions belonging to a user (uuid).
+     *
+     * @param uuid
+     *            User's universal unique ID.
+     * @return the number of sessions of the user.
+     * @exception SessionException
+     *             if there is any problem with accessing the session
+     *             repository.
+     */
+    public int getSessionCountByUUID(String uuid) throws SessionException {
+        return sessionPersistenceStore.getSessionCountByUUID(uuid);
+    }
+
     /**
      * Gets all valid Internal Sessions, depending on the value of the user's
      * preferences.
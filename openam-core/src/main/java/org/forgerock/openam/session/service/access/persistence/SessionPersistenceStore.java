@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions copyright 2022-2023 Wren Security
+ * Portions copyright 2022-2026 Wren Security
  */
 
 package org.forgerock.openam.session.service.access.persistence;
@@ -20,6 +20,8 @@ package org.forgerock.openam.session.service.access.persistence;
 import static org.forgerock.openam.session.SessionConstants.*;
 import static org.forgerock.util.time.Duration.duration;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -33,6 +35,8 @@ import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.wrensecurity.guava.common.cache.Cache;
+import org.wrensecurity.guava.common.cache.CacheBuilder;
 import org.wrensecurity.guava.common.collect.ImmutableMap;
 import org.forgerock.guice.core.InjectorHolder;
 import org.forgerock.json.JsonPointer;
@@ -49,12 +53,14 @@ import org.forgerock.openam.dpro.session.PartialSession;
 import org.forgerock.openam.dpro.session.PartialSessionFactory;
 import org.forgerock.openam.identity.idm.IdentityUtils;
 import org.forgerock.openam.session.SessionConstants;
+import org.forgerock.openam.sm.datalayer.api.OptimisticConcurrencyCheckFailedException;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.openam.utils.CollectionUtils;
 import org.forgerock.openam.utils.CrestQuery;
 import org.forgerock.openam.utils.StringUtils;
 import org.forgerock.openam.utils.TimeUtils;
+import org.forgerock.util.Options;
 import org.forgerock.util.Reject;
 import org.forgerock.util.query.QueryFilter;
 
@@ -94,6 +100,18 @@ public class SessionPersistenceStore {
     private final SessionServiceConfig sessionServiceConfig;
     private final PartialSessionFactory partialSessionFactory;
     private final IdentityUtils identityUtils;
+    private final UserSessionIndex userSessionIndex;
+    /**
+     * The token of each session as this server last read or wrote it, so that saving a session only writes the
+     * attributes which have changed, asserting the token's ETag rather than reading it first.
+     */
+    private final Cache<String, PersistedToken> persistedTokens;
+    private final UserSessionIndex.SessionLoader sessionLoader = new UserSessionIndex.SessionLoader() {
+        @Override
+        public Map<String, Long> load(String uuid) throws CoreTokenException {
+            return getSessionsFromRepository(uuid);
+        }
+    };
 
     @Inject
     public SessionPersistenceStore(@Named(SessionConstants.SESSION_DEBUG) final Debug debug,
@@ -102,7 +120,8 @@ public class SessionPersistenceStore {
                                    final TokenIdFactory tokenIdFactory,
                                    final SessionServiceConfig sessionServiceConfig,
                                    final PartialSessionFactory partialSessionFactory,
-                                   final IdentityUtils identityUtils) {
+                                   final IdentityUtils identityUtils,
+                                   final UserSessionIndex userSessionIndex) {
         this.debug = debug;
         this.coreTokenService = coreTokenService;
         this.tokenAdapter = tokenAdapter;
@@ -110,15 +129,39 @@ public class SessionPersistenceStore {
         this.sessionServiceConfig = sessionServiceConfig;
         this.partialSessionFactory = partialSessionFactory;
         this.identityUtils = identityUtils;
+        this.userSessionIndex = userSessionIndex;
+        this.persistedTokens = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(0, sessionServiceConfig.getMaxSessionCacheSize()))
+                .build();
     }
 
     /**
      * Persist the provided session to the CTS, or update it if it is already there.
+     * <p>
+     * If the session was last read or written by this server, only the attributes which have changed are written,
+     * so that refreshing the idle time of a session does not rewrite its blob. Should the token have been changed
+     * elsewhere in the meantime, it is written whole.
+     *
      * @param session The session to persist.
      * @throws CoreTokenException If the operation fails.
      */
     public void save(InternalSession session) throws CoreTokenException {
-        coreTokenService.update(tokenAdapter.toToken(session));
+        Token token = tokenAdapter.toToken(session);
+        String tokenId = tokenIdFactory.toSessionTokenId(session.getID());
+        PersistedToken persisted = persistedTokens.getIfPresent(tokenId);
+        Token previous = persisted == null ? null : persisted.previousOf(token);
+        Token written;
+        try {
+            written = coreTokenService.updateAttributes(previous, token, Options.defaultOptions());
+        } catch (CoreTokenException e) {
+            persistedTokens.invalidate(tokenId);
+            if (previous == null || !(e.getCause() instanceof OptimisticConcurrencyCheckFailedException)) {
+                throw e;
+            }
+            debug.message("Session token {} was changed elsewhere, updating it whole", tokenId);
+            written = coreTokenService.updateAttributes(null, token, Options.defaultOptions());
+        }
+        remember(tokenId, written);
     }
 
     /**
@@ -128,6 +171,7 @@ public class SessionPersistenceStore {
      */
     public void delete(SessionID sessionID) throws CoreTokenException {
         String tokenId = tokenIdFactory.toSessionTokenId(sessionID);
+        persistedTokens.invalidate(tokenId);
         coreTokenService.delete(tokenId);
     }
 
@@ -150,9 +194,18 @@ public class SessionPersistenceStore {
             return null;
         }
 
+        remember(tokenId, token);
         return getInternalSessionFromToken(token);
     }
 
+    private void remember(String tokenId, Token token) {
+        if (token != null && token.getAttribute(CoreTokenField.ETAG) != null) {
+            persistedTokens.put(tokenId, new PersistedToken(token));
+        } else {
+            persistedTokens.invalidate(tokenId);
+        }
+    }
+
     /**
      * This will recover the specified session from the repository based on the provided session handle.
      * Returns null if no session was recovered.
@@ -283,6 +336,8 @@ public class SessionPersistenceStore {
     /**
      * Returns the expiration information of all sessions belonging to a user
      * (uuid). The returned value will be a Map (sid-&gt;expiration_time).
+     * <p>
+     * Served from the {@link UserSessionIndex} once the user is indexed.
      *
      * @param uuid
      *            User's universal unique ID.
@@ -298,7 +353,7 @@ public class SessionPersistenceStore {
 
         Map<String, Long> sessions;
         try {
-            sessions = getSessionsFromRepository(uuid);
+            sessions = userSessionIndex.getSessions(uuid, sessionLoader);
         } catch (CoreTokenException e) {
             throw new SessionException(e);
         }
@@ -312,6 +367,28 @@ public class SessionPersistenceStore {
         return sessions;
     }
 
+    /**
+     * Returns the number of sessions belonging to a user (uuid).
+     *
+     * @param uuid
+     *            User's universal unique ID.
+     * @return the number of sessions of the user.
+     * @exception SessionException
+     *             if there is any problem with accessing the session
+     *             repository.
+     */
+    public int getSessionCountByUUID(String uuid) throws SessionException {
+        if (!caseSensitiveUUID) {
+            uuid = uuid.toLowerCase();
+        }
+
+        try {
+            return userSessionIndex.getSessionCount(uuid, sessionLoader);
+        } catch (CoreTokenException e) {
+            throw new SessionException(e);
+        }
+    }
+
     private Map<String, Long> getSessionsFromRepository(String uuid) throws CoreTokenException {
 
         try {
@@ -380,4 +457,44 @@ public class SessionPersistenceStore {
         }
         return results;
     }
+
+    /**
+     * The attributes of a token as last read or written, without its blob, which is only kept as a digest so that
+     * caching it does not double the memory held by each session.
+     */
+    private static final class PersistedToken {
+
+        private final Token attributes;
+        private final byte[] blobDigest;
+
+        private PersistedToken(Token token) {
+            this.attributes = new Token(token);
+            this.attributes.clearAttribute(CoreTokenField.BLOB);
+            this.blobDigest = digest(token.getBlob());
+        }
+
+        /**
+         * Rebuilds the token as last persisted, for comparison with the updated token. Its blob is that of the
+         * updated token if that has not changed, and is absent otherwise.
+         */
+        private Token previousOf(Token updated) {
+            Token previous = new Token(attributes);
+            byte[] blob = updated.getBlob();
+            if (blob != null && MessageDigest.isEqual(blobDigest, digest(blob))) {
+                previous.setBlob(blob);
+            }
+            return previous;
+        }
+
+        private static byte[] digest(byte[] blob) {
+            if (blob == null) {
+                return null;
+            }
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(blob);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
 }
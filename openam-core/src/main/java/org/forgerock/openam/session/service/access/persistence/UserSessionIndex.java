@@ -0,0 +1,338 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.session.service.access.persistence;
+
+import static org.forgerock.util.query.QueryFilter.*;
+
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.forgerock.openam.cts.CTSPersistentStore;
+import org.forgerock.openam.cts.api.fields.SessionTokenField;
+import org.forgerock.openam.cts.api.filter.TokenFilter;
+import org.forgerock.openam.cts.api.filter.TokenFilterBuilder;
+import org.forgerock.openam.cts.continuous.ChangeType;
+import org.forgerock.openam.cts.continuous.ContinuousQueryListener;
+import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.session.SessionConstants;
+import org.forgerock.openam.sm.datalayer.api.DataLayerException;
+import org.forgerock.openam.tokens.CoreTokenField;
+import org.forgerock.openam.tokens.TokenType;
+import org.forgerock.openam.utils.TimeUtils;
+import org.forgerock.opendj.ldap.Attribute;
+import org.forgerock.opendj.ldap.GeneralizedTime;
+
+import com.sun.identity.shared.debug.Debug;
+
+/**
+ * A per-user index of the sessions held in the CTS, used to answer session quota checks without querying the CTS
+ * on every login.
+ * <p>
+ * A user is indexed the first time their sessions are looked up: the sessions are loaded from the CTS once, and
+ * from then on kept up to date from a continuous query on the session tokens. Changes reported while a user is
+ * being loaded are recorded and win over the loaded state, so a session deleted during the load is not resurrected.
+ * A user is dropped from the index once their last session is deleted, and the whole index is dropped whenever the
+ * continuous query (re)connects, as changes may have been missed in the meantime. Until the continuous query has
+ * been registered every lookup goes to the CTS.
+ */
+@Singleton
+public class UserSessionIndex implements ContinuousQueryListener<Attribute> {
+
+    private static final String USER_ID = CoreTokenField.USER_ID.toString();
+    private static final String EXPIRY_DATE = CoreTokenField.EXPIRY_DATE.toString();
+    private static final String SESSION_ID = SessionTokenField.SESSION_ID.getField().toString();
+
+    private final ConcurrentMap<String, UserSessions> users = new ConcurrentHashMap<>();
+    private final Debug debug;
+    private volatile boolean listening;
+
+    /**
+     * Loads the sessions of a user from the CTS.
+     */
+    public interface SessionLoader {
+
+        /**
+         * Loads the sessions of the given user.
+         *
+         * @param uuid The normalised universal id of the user.
+         * @return The expiration time of each session of the user, in seconds since the epoch, keyed by session id.
+         * @throws CoreTokenException If the CTS could not be queried.
+         */
+        Map<String, Long> load(String uuid) throws CoreTokenException;
+    }
+
+    /**
+     * Creates an empty index.
+     *
+     * @param debug Required for debugging.
+     */
+    @Inject
+    public UserSessionIndex(@Named(SessionConstants.SESSION_DEBUG) Debug debug) {
+        this.debug = debug;
+    }
+
+    /**
+     * Registers the index against the CTS continuous query; the index answers nothing before this is done.
+     *
+     * @param store The CTS to listen to.
+     * @throws CoreTokenException If the continuous query could not be registered.
+     */
+    public void setupContinuousQuery(CTSPersistentStore store) throws CoreTokenException {
+        store.addContinuousQueryListener(this, getTokenFilter());
+        listening = true;
+    }
+
+    /**
+     * Returns the expiration time of each session of the user, in seconds since the epoch, keyed by session id.
+     *
+     * @param uuid The normalised universal id of the user.
+     * @param loader Used to load the sessions of the user if they are not indexed yet.
+     * @return A copy of the indexed sessions of the user.
+     * @throws CoreTokenException If the sessions had to be loaded and the CTS could not be queried.
+     */
+    public Map<String, Long> getSessions(String uuid, SessionLoader loader) throws CoreTokenException {
+        return sessionsOf(uuid, loader).copy();
+    }
+
+    /**
+     * Returns the number of sessions of the user.
+     *
+     * @param uuid The normalised universal id of the user.
+     * @param loader Used to load the sessions of the user if they are not indexed yet.
+     * @return The number of sessions of the user.
+     * @throws CoreTokenException If the sessions had to be loaded and the CTS could not be queried.
+     */
+    public int getSessionCount(String uuid, SessionLoader loader) throws CoreTokenException {
+        return sessionsOf(uuid, loader).size();
+    }
+
+    /**
+     * Returns the session of the user which will expire first.
+     *
+     * @param uuid The normalised universal id of the user.
+     * @param loader Used to load the sessions of the user if they are not indexed yet.
+     * @return The session id and expiration time of the next session to expire, or {@code null} if the user has no
+     * sessions.
+     * @throws CoreTokenException If the sessions had to be loaded and the CTS could not be queried.
+     */
+    public Map.Entry<String, Long> getNextExpiringSession(String uuid, SessionLoader loader)
+            throws CoreTokenException {
+        return sessionsOf(uuid, loader).first();
+    }
+
+    private UserSessions sessionsOf(String uuid, SessionLoader loader) throws CoreTokenException {
+        if (!listening) {
+            UserSessions sessions = new UserSessions();
+            sessions.load(loader.load(uuid));
+            return sessions;
+        }
+        while (true) {
+            UserSessions sessions = users.get(uuid);
+            if (sessions == null) {
+                UserSessions created = new UserSessions();
+                sessions = users.putIfAbsent(uuid, created);
+                if (sessions == null) {
+                    sessions = created;
+                }
+            }
+            if (sessions.isRetired()) {
+                // Dropped after its last session was deleted.
+                users.remove(uuid, sessions);
+                continue;
+            }
+            if (!sessions.isLoaded()) {
+                try {
+                    sessions.load(loader.load(uuid));
+                } catch (CoreTokenException e) {
+                    users.remove(uuid, sessions);
+                    throw e;
+                }
+            }
+            return sessions;
+        }
+    }
+
+    @Override
+    public void objectChanged(String tokenId, Map<String, Attribute> changeSet, ChangeType changeType) {
+        String uuid = firstValue(changeSet, USER_ID);
+        String sessionId = firstValue(changeSet, SESSION_ID);
+        String expiry = firstValue(changeSet, EXPIRY_DATE);
+        if (uuid == null || sessionId == null || (changeType != ChangeType.DELETE && expiry == null)) {
+            if (debug.messageEnabled()) {
+                debug.message("UserSessionIndex: incomplete change to " + tokenId + ", clearing index");
+            }
+            users.clear();
+            return;
+        }
+
+        UserSessions sessions = users.get(uuid);
+        if (sessions == null) {
+            // Users are only indexed once looked up, the CTS holds the current state of any other user.
+            return;
+        }
+        if (changeType == ChangeType.DELETE) {
+            if (sessions.remove(sessionId)) {
+                users.remove(uuid, sessions);
+            }
+        } else {
+            try {
+                sessions.put(sessionId, TimeUtils.toUnixTime(GeneralizedTime.valueOf(expiry).toCalendar()));
+            } catch (IllegalArgumentException e) {
+                debug.warning("UserSessionIndex: invalid expiry date for " + tokenId + ", dropping user", e);
+                users.remove(uuid, sessions);
+            }
+        }
+    }
+
+    @Override
+    public void objectsChanged(Set<String> tokenIds) {
+        // Changes are always reported with their attributes, see objectChanged.
+    }
+
+    @Override
+    public void connectionLost() {
+        if (debug.messageEnabled()) {
+            debug.message("UserSessionIndex: continuous query (re)started, clearing index");
+        }
+        users.clear();
+    }
+
+    @Override
+    public void processError(DataLayerException error) {
+        debug.error("UserSessionIndex: continuous query failed, clearing index", error);
+        users.clear();
+    }
+
+    private static String firstValue(Map<String, Attribute> changeSet, String name) {
+        Attribute attribute = changeSet.get(name);
+        if (attribute == null || attribute.isEmpty()) {
+            return null;
+        }
+        return attribute.firstValueAsString();
+    }
+
+    private static TokenFilter getTokenFilter() {
+        return new TokenFilterBuilder()
+                .returnAttribute(SessionTokenField.SESSION_ID.getField())
+                .returnAttribute(CoreTokenField.USER_ID)
+                .returnAttribute(CoreTokenField.EXPIRY_DATE)
+                .withQuery(equalTo(CoreTokenField.TOKEN_TYPE, TokenType.SESSION))
+                .build();
+    }
+
+    /**
+     * The sessions of one user, by id and by expiration time.
+     */
+    private static final class UserSessions {
+
+        private static final Comparator<Map.Entry<String, Long>> BY_EXPIRY =
+                new Comparator<Map.Entry<String, Long>>() {
+                    @Override
+                    public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+                        int result = o1.getValue().compareTo(o2.getValue());
+                        return result != 0 ? result : o1.getKey().compareTo(o2.getKey());
+                    }
+                };
+
+        private final Map<String, Long> expiries = new HashMap<>();
+        private final NavigableSet<Map.Entry<String, Long>> byExpiry = new TreeSet<>(BY_EXPIRY);
+        /** Sessions deleted while loading, {@code null} once loaded. */
+        private Set<String> deleted = new HashSet<>();
+        private boolean retired;
+
+        synchronized boolean isLoaded() {
+            return deleted == null;
+        }
+
+        synchronized boolean isRetired() {
+            return retired;
+        }
+
+        synchronized void load(Map<String, Long> sessions) {
+            if (deleted == null) {
+                return;
+            }
+            for (Map.Entry<String, Long> session : sessions.entrySet()) {
+                if (!deleted.contains(session.getKey()) && !expiries.containsKey(session.getKey())) {
+                    add(session.getKey(), session.getValue());
+                }
+            }
+            deleted = null;
+        }
+
+        synchronized void put(String sessionId, long expiry) {
+            if (retired) {
+                return;
+            }
+            Long previous = expiries.remove(sessionId);
+            if (previous != null) {
+                byExpiry.remove(new AbstractMap.SimpleImmutableEntry<>(sessionId, previous));
+            }
+            add(sessionId, expiry);
+            if (deleted != null) {
+                deleted.remove(sessionId);
+            }
+        }
+
+        /**
+         * Removes the session, and retires these sessions if it was the last.
+         *
+         * @return {@code true} if these sessions were retired and should be dropped from the index.
+         */
+        synchronized boolean remove(String sessionId) {
+            Long previous = expiries.remove(sessionId);
+            if (previous != null) {
+                byExpiry.remove(new AbstractMap.SimpleImmutableEntry<>(sessionId, previous));
+            }
+            if (deleted != null) {
+                deleted.add(sessionId);
+                return false;
+            }
+            retired = expiries.isEmpty();
+            return retired;
+        }
+
+        synchronized int size() {
+            return expiries.size();
+        }
+
+        synchronized Map.Entry<String, Long> first() {
+            return byExpiry.isEmpty() ? null : byExpiry.first();
+        }
+
+        synchronized Map<String, Long> copy() {
+            return new HashMap<>(expiries);
+        }
+
+        private void add(String sessionId, long expiry) {
+            expiries.put(sessionId, expiry);
+            byExpiry.add(new AbstractMap.SimpleImmutableEntry<>(sessionId, expiry));
+        }
+    }
+}
@@ -12,39 +12,31 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions copyright 2022 Wren Security
+ * Portions copyright 2022-2026 Wren Security
  */
 
 package org.forgerock.openam.session.service.access.persistence.caching;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import static org.forgerock.openam.session.service.access.persistence.caching.InternalSessionCache.LookupType.*;
+
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicStampedReference;
+import java.util.concurrent.FutureTask;
 
-import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.wrensecurity.guava.common.base.Throwables;
-import org.wrensecurity.guava.common.cache.Cache;
-import org.wrensecurity.guava.common.cache.CacheBuilder;
-import org.wrensecurity.guava.common.cache.CacheStats;
-import org.wrensecurity.guava.common.cache.Weigher;
-import org.wrensecurity.guava.common.collect.ImmutableMap;
+import org.forgerock.openam.monitoring.MBeanRegistration;
 import org.forgerock.openam.session.SessionConstants;
 import org.forgerock.openam.session.service.access.persistence.InternalSessionStore;
 import org.forgerock.openam.session.service.access.persistence.InternalSessionStoreStep;
 import org.forgerock.openam.session.service.access.persistence.SessionPersistenceException;
+import org.forgerock.openam.session.service.access.persistence.caching.InternalSessionCache.LookupType;
 import org.forgerock.openam.session.service.access.persistence.watchers.SessionModificationListener;
 import org.forgerock.openam.session.service.access.persistence.watchers.SessionModificationWatcher;
-import org.forgerock.openam.utils.StringUtils;
 import org.forgerock.util.annotations.VisibleForTesting;
 
 import com.iplanet.dpro.session.SessionID;
@@ -54,14 +46,15 @@ import com.sun.identity.shared.debug.Debug;
 
 /**
  * Session cache implemented using a simple in-memory cache data structure.
+ * <p>
+ * Sessions are held once each in an {@link InternalSessionCache}, indexed by session handle and restricted token,
+ * and the cache is resized in place when the configured maximum session cache size changes. Concurrent lookups of
+ * the same uncached key share a single load from the lower layers.
  */
 public class InMemoryInternalSessionCacheStep implements InternalSessionStoreStep {
 
-    /**
-     * Atomic stamped reference to the cache. The stamp is the maximum size of the cache. Permits atomic updates of
-     * the cache.
-     */
-    private final AtomicStampedReference<Cache<String, InternalSession>> cache;
+    private final InternalSessionCache cache;
+    private final ConcurrentMap<String, FutureTask<InternalSession>> loads = new ConcurrentHashMap<>();
     private final SessionServiceConfig sessionConfig;
     private final Debug debug;
 
@@ -70,23 +63,23 @@ public class InMemoryInternalSessionCacheStep implements InternalSessionStoreSte
     InMemoryInternalSessionCacheStep(SessionServiceConfig sessionConfig,
                                      @Named(SessionConstants.SESSION_DEBUG) Debug sessionDebug,
                                      SessionModificationWatcher watcher) {
-        final int maxCacheSize = sessionConfig.getMaxSessionCacheSize();
         this.sessionConfig = sessionConfig;
-        this.cache = new AtomicStampedReference<>(buildCache(maxCacheSize), maxCacheSize);
+        this.cache = new InternalSessionCache(sessionConfig.getMaxSessionCacheSize());
         this.debug = sessionDebug;
 
         watcher.addListener(new SessionModificationListener() {
             @Override
             public void sessionChanged(SessionID sessionID) {
-                invalidateCache(sessionID);
+                getCache().invalidate(sessionID.toString());
             }
         });
+        MBeanRegistration.register(cache, InternalSessionCacheMXBean.class, "InternalSessionCache", debug);
     }
 
     @Override
     public InternalSession getBySessionID(final SessionID sessionID, final InternalSessionStore next)
             throws SessionPersistenceException {
-        return getFromCacheOrFind(sessionID.toString(), new Callable<InternalSession>() {
+        return getFromCacheOrFind(SESSION_ID, sessionID.toString(), new Callable<InternalSession>() {
             @Override
             public InternalSession call() throws SessionPersistenceException {
                 return next.getBySessionID(sessionID);
@@ -97,7 +90,7 @@ public class InMemoryInternalSessionCacheStep implements InternalSessionStoreSte
     @Override
     public InternalSession getByHandle(final String sessionHandle, final InternalSessionStore next)
             throws SessionPersistenceException {
-        return getFromCacheOrFind(sessionHandle, new Callable<InternalSession>() {
+        return getFromCacheOrFind(HANDLE, sessionHandle, new Callable<InternalSession>() {
             @Override
             public InternalSession call() throws SessionPersistenceException {
                 return next.getByHandle(sessionHandle);
@@ -108,7 +101,7 @@ public class InMemoryInternalSessionCacheStep implements InternalSessionStoreSte
     @Override
     public InternalSession getByRestrictedID(final SessionID sessionID, final InternalSessionStore next)
             throws SessionPersistenceException {
-        return getFromCacheOrFind(sessionID.toString(), new Callable<InternalSession>() {
+        return getFromCacheOrFind(RESTRICTED_ID, sessionID.toString(), new Callable<InternalSession>() {
             @Override
             public InternalSession call() throws SessionPersistenceException {
                 return next.getByRestrictedID(sessionID);
@@ -124,245 +117,96 @@ public class InMemoryInternalSessionCacheStep implements InternalSessionStoreSte
         // cache the session.
         next.store(session);
 
-        // Collect all references to the session into a map
-        final Map<String, InternalSession> toAdd = new TreeMap<>();
-        toAdd.put(session.getID().toString(), session);
-
-        final String sessionHandle = session.getSessionHandle();
-        if (sessionHandle != null) {
-            toAdd.put(sessionHandle, session);
-        }
-
-        for (SessionID restrictedToken : session.getRestrictedTokens()) {
-            toAdd.put(restrictedToken.toString(), session);
-        }
-
-        // Add all references in a single go. While this is not atomic in the current Guava implementation (as far as
-        // I can tell), it provides the opportunity for more sophisticated implementations to optimise the insert.
-        getCache().putAll(toAdd);
+        // The cache indexes the session by its handle and restricted tokens as well as its ID
+        getCache().put(session);
     }
 
     @Override
     public void remove(final InternalSession session, final InternalSessionStore next) throws SessionPersistenceException {
-        invalidateCache(session.getID());
+        getCache().invalidate(session.getID().toString());
 
         // Always ask the lower layers to remove the session even if we did not have it cached
         next.remove(session);
     }
 
-    private void invalidateCache(final SessionID sessionID) {
-        InternalSession session = getCache().getIfPresent(sessionID.toString());
-        if (session != null) {
-            // Remove all references to this session
-            List<String> references = new ArrayList<>();
-            references.add(session.getID().toString());
-
-            if (session.getSessionHandle() != null) {
-                references.add(session.getSessionHandle());
-            }
-
-            for (SessionID restrictedToken : session.getRestrictedTokens()) {
-                references.add(restrictedToken.toString());
-            }
-
-            getCache().invalidateAll(references);
-        }
+    @VisibleForTesting
+    long size() {
+        return getCache().getSize();
     }
 
     @VisibleForTesting
-    long size() {
-        return getCache().size();
+    InternalSessionCacheMXBean getStatistics() {
+        return cache;
     }
 
     /**
-     * The Guava {@link Cache#get(Object, Callable)} API is unnecessarily complicated, and so we try to hide the
-     * details here. Firstly, the interface does not allow the callable task to return null, and so we have to check
-     * for null from the lower layers and turn that into a {@link NullResultException} that we then turn back into a
-     * null in the outer catch block. Secondly, Guava insists on turning all exceptions into
-     * {@link ExecutionException}s, which is just a really awkward design decision. Here we unwrap that into
-     * something more sensible.
+     * Looks the session up in the cache, and otherwise finds it using the given task and caches it. Only one task
+     * runs at a time for any given key; other threads looking up the same key wait for its result.
      *
+     * @param type the type of key being looked up.
      * @param key the id/restricted id/handle of the session to lookup.
      * @param sessionFinder a task to find the session if it is not already present in the cache.
      * @return the matching internal session object, or {@code null} if not present.
      * @throws SessionPersistenceException if an error occurs.
      */
-    private InternalSession getFromCacheOrFind(final String key, final Callable<InternalSession> sessionFinder)
-            throws SessionPersistenceException {
-        try {
-            return getCache().get(key, new Callable<InternalSession>() {
-                @Override
-                public InternalSession call() throws Exception {
-                    InternalSession result = sessionFinder.call();
-                    if (result == null) {
-                        throw NullResultException.INSTANCE;
-                    }
-                    return result;
-                }
-            });
-        } catch (ExecutionException e) {
-            if (e.getCause() instanceof NullResultException) {
-                // There was no result - return back into a null here
-                return null;
-            }
-            // Rethrow any Error/RuntimeException/SessionPersistenceException
-            Throwables.propagateIfPossible(e.getCause(), SessionPersistenceException.class);
-            // Wrap anything else as a new SessionPersistenceException
-            throw new SessionPersistenceException(e.getMessage(), e.getCause());
+    private InternalSession getFromCacheOrFind(final LookupType type, final String key,
+            final Callable<InternalSession> sessionFinder) throws SessionPersistenceException {
+        final InternalSessionCache cache = getCache();
+        InternalSession session = cache.get(type, key);
+        if (session != null) {
+            return session;
         }
-    }
 
-    private Cache<String, InternalSession> getCache() {
-        // Check to see if the cache needs to be hot-swapped
-        final int[] stampHolder = new int[1];
-        Cache<String, InternalSession> currentCache = cache.get(stampHolder);
-        final int oldCacheSize = stampHolder[0];
-        final int newCacheSize = sessionConfig.getMaxSessionCacheSize();
-
-        // Use an atomic CAS instruction so that only one thread "wins" and actually updates the cache
-        if (oldCacheSize != newCacheSize) {
-            debug.message("InMemoryInternalSessionCacheStep: Detected change in cache size configuration (old: {}, " +
-                    "new: {}). Rebuilding cache", oldCacheSize, newCacheSize);
-            final Cache<String, InternalSession> newCache = buildCache(newCacheSize);
-            if (this.cache.compareAndSet(currentCache, newCache, oldCacheSize, newCacheSize)) {
-                newCache.putAll(currentCache.asMap());
-                currentCache.invalidateAll();
-                currentCache.cleanUp();
-                currentCache = newCache;
-                debug.message("InMemoryInternalSessionCacheStep: Finished replacing cache (new size: {})", newCacheSize);
-                if (newCacheSize <= 0) {
-                    debug.warning("InMemoryInternalSessionCacheStep: Session caching has been completely disabled!");
-                }
-            }
+        FutureTask<InternalSession> load = new FutureTask<>(sessionFinder);
+        FutureTask<InternalSession> existingLoad = loads.putIfAbsent(key, load);
+        if (existingLoad != null) {
+            return await(existingLoad);
         }
 
-        return currentCache;
-    }
-
-    private static Cache<String, InternalSession> buildCache(final int maxCacheSize) {
-        if (maxCacheSize <= 0) {
-            return EmptyCache.INSTANCE;
+        final long invalidationStamp = cache.getInvalidationStamp();
+        try {
+            load.run();
+        } finally {
+            loads.remove(key, load);
         }
-        return CacheBuilder.newBuilder()
-                    .concurrencyLevel(16)
-                    .maximumWeight(maxCacheSize)
-                    .weigher(new SessionIDWeigher())
-                    .softValues()
-                    .build();
-    }
-
-    /**
-     * A custom {@link Weigher} for the cache that only counts the master session ID as having weight, and the
-     * session handle and restricted tokens as being "free". This ensures that we only count each session object once
-     * and that the cache is sized by the maximum number of session objects rather than references to those sessions.
-     */
-    private static class SessionIDWeigher implements Weigher<String, InternalSession> {
-        @Override
-        public int weigh(final @Nonnull String cacheKey, final @Nonnull InternalSession session) {
-            // cacheKey could be the master session id, restricted token or session handle: only count the master id
-            return StringUtils.isEqualTo(cacheKey, session.getID().toString()) ? 1 : 0;
+        session = await(load);
+        if (session != null) {
+            cache.putLoaded(session, invalidationStamp);
         }
+        return session;
     }
 
     /**
-     * Local marker exception for transporting null values through Guava's null-hostile Cache API. While it is "bad"
-     * to use exceptions for flow-control rather than genuine exceptional cases, the API in this case provides no
-     * other mechanism to indicate "no value exists for this key at all" vs "no value currently exists in the cache
-     * for this key".
+     * Waits for the result of a session lookup, unwrapping any failure into something more sensible.
      */
-    private static class NullResultException extends Exception {
-        private static final NullResultException INSTANCE = new NullResultException();
-
-        private NullResultException() {
-            // Private constructor
-        }
-
-        /**
-         * Does not fill in the stack trace. This is a common performance optimisation for exceptions that are not
-         * indicating errors (i.e., only used for flow control) and should never be seen in any log file.
-         *
-         * @return the same instance of the exception.
-         * @see <a href="http://blogs.atlassian
-         * .com/2011/05/if_you_use_exceptions_for_path_control_dont_fill_in_the_stac/">Article about avoiding stack
-         * trace when using exceptions for flow control</a>
-         */
-        @Override
-        public Throwable fillInStackTrace() {
-            return this;
+    private static InternalSession await(FutureTask<InternalSession> load) throws SessionPersistenceException {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SessionPersistenceException("Interrupted waiting for session lookup", e);
+        } catch (ExecutionException e) {
+            // Rethrow any Error/RuntimeException/SessionPersistenceException
+            Throwables.propagateIfPossible(e.getCause(), SessionPersistenceException.class);
+            // Wrap anything else as a new SessionPersistenceException
+            throw new SessionPersistenceException(e.getMessage(), e.getCause());
         }
     }
 
-    /**
-     * Null-object pattern for when caching has been completely disabled. Immediately returns null or empty values or
-     * delegates directly to the supplied Callable.
-     */
-    private enum EmptyCache implements Cache<String, InternalSession> {
-        INSTANCE;
-
-        @Nullable
-        @Override
-        public InternalSession getIfPresent(final Object o) {
-            return null;
-        }
+    private InternalSessionCache getCache() {
+        // Check to see if the cache needs to be resized
+        final int oldCacheSize = cache.getMaximumSize();
+        final int newCacheSize = sessionConfig.getMaxSessionCacheSize();
 
-        @Override
-        public InternalSession get(final @Nonnull String key,
-                final @Nonnull Callable<? extends InternalSession> callable) throws ExecutionException {
-            try {
-                return callable.call();
-            } catch (Exception e) {
-                throw new ExecutionException(e);
+        if (oldCacheSize != newCacheSize) {
+            debug.message("InMemoryInternalSessionCacheStep: Detected change in cache size configuration (old: {}, " +
+                    "new: {}). Resizing cache", oldCacheSize, newCacheSize);
+            cache.setMaximumSize(newCacheSize);
+            if (newCacheSize <= 0) {
+                debug.warning("InMemoryInternalSessionCacheStep: Session caching has been completely disabled!");
             }
         }
 
-        @Override
-        public ImmutableMap<String, InternalSession> getAllPresent(final @Nonnull Iterable<?> iterable) {
-            return ImmutableMap.of();
-        }
-
-        @Override
-        public void put(final @Nonnull String key, final @Nonnull InternalSession session) {
-            // Ignore
-        }
-
-        @Override
-        public void putAll(final @Nonnull Map<? extends String, ? extends InternalSession> map) {
-            // Ignore
-        }
-
-        @Override
-        public void invalidate(final @Nonnull Object key) {
-            // Ignore
-        }
-
-        @Override
-        public void invalidateAll(final @Nonnull Iterable<?> iterable) {
-            // Ignore
-        }
-
-        @Override
-        public void invalidateAll() {
-            // Ignore
-        }
-
-        @Override
-        public long size() {
-            return 0;
-        }
-
-        @Override
-        public CacheStats stats() {
-            return null;
-        }
-
-        @Override
-        public ConcurrentMap<String, InternalSession> asMap() {
-            return new ConcurrentHashMap<>();
-        }
-
-        @Override
-        public void cleanUp() {
-            // Ignore
-        }
+        return cache;
     }
 }
@@ -0,0 +1,384 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.session.service.access.persistence.caching;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.forgerock.openam.utils.StringUtils;
+import org.wrensecurity.guava.common.cache.Cache;
+import org.wrensecurity.guava.common.cache.CacheBuilder;
+import org.wrensecurity.guava.common.cache.RemovalListener;
+import org.wrensecurity.guava.common.cache.RemovalNotification;
+
+import com.iplanet.dpro.session.SessionID;
+import com.iplanet.dpro.session.service.InternalSession;
+
+/**
+ * Sharded, size-bounded cache of {@link InternalSession}s.
+ * <p>
+ * Each session is held exactly once, in the shard selected by its session ID, so the maximum size is a count of
+ * sessions rather than of keys. Session handles and restricted tokens are held in separate indexes which map to the
+ * session ID; the keys indexed for a session are recorded with it, so that index entries can be removed precisely
+ * and stale ones detected on lookup. Each shard evicts its least recently used session when the cache is full.
+ * <p>
+ * The maximum size can be changed at any time: growing takes effect immediately, and shrinking evicts only as many
+ * sessions as necessary.
+ * <p>
+ * Each invalidation of a session is numbered, and the number recorded against that session ID, so a load which
+ * overlapped the invalidation of its session is not cached, whilst loads of other sessions are unaffected. The record
+ * of invalidations is bounded; once a record is evicted, any load begun before it is not cached.
+ */
+final class InternalSessionCache implements InternalSessionCacheMXBean {
+
+    /**
+     * The ways in which a session can be looked up.
+     */
+    enum LookupType {
+        SESSION_ID, HANDLE, RESTRICTED_ID
+    }
+
+    private static final int SHARD_COUNT = 16;
+    private static final int MAX_INVALIDATIONS = 10000;
+    private static final long INVALIDATION_TTL_MINUTES = 1;
+
+    private final Shard[] shards = new Shard[SHARD_COUNT];
+    private final ConcurrentMap<String, String> handleIndex = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> restrictedIdIndex = new ConcurrentHashMap<>();
+    private final Map<LookupType, LongAdder> hits = new EnumMap<>(LookupType.class);
+    private final Map<LookupType, LongAdder> misses = new EnumMap<>(LookupType.class);
+    private final AtomicInteger size = new AtomicInteger();
+    private final Cache<String, Long> invalidations;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong floor = new AtomicLong();
+    private final LongAdder evictions = new LongAdder();
+    private volatile int maximumSize;
+
+    InternalSessionCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new Shard();
+        }
+        for (LookupType type : LookupType.values()) {
+            hits.put(type, new LongAdder());
+            misses.put(type, new LongAdder());
+        }
+        this.invalidations = CacheBuilder.newBuilder()
+                .maximumSize(MAX_INVALIDATIONS)
+                .expireAfterWrite(INVALIDATION_TTL_MINUTES, TimeUnit.MINUTES)
+                .removalListener(new RemovalListener<String, Long>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, Long> notification) {
+                        if (notification.wasEvicted()) {
+                            raiseFloor(notification.getValue());
+                        }
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Looks up a cached session.
+     *
+     * @param type the type of key being looked up.
+     * @param key the session ID, session handle or restricted token.
+     * @return the cached session, or {@code null} if it is not cached.
+     */
+    InternalSession get(LookupType type, String key) {
+        if (maximumSize <= 0) {
+            return null;
+        }
+        String sessionId = type == LookupType.SESSION_ID ? key : indexFor(type).get(key);
+        CachedSession cached = null;
+        if (sessionId != null) {
+            cached = shardFor(sessionId).get(sessionId);
+            if (type != LookupType.SESSION_ID && (cached == null || !cached.isIndexedBy(type, key))) {
+                // The session has since been removed or re-stored without this key
+                indexFor(type).remove(key, sessionId);
+                cached = null;
+            }
+        }
+        (cached == null ? misses : hits).get(type).increment();
+        return cached == null ? null : cached.session;
+    }
+
+    /**
+     * Caches the given session under its session ID, session handle and restricted tokens, replacing any previous
+     * copy of the session.
+     *
+     * @param session the session to cache.
+     */
+    void put(InternalSession session) {
+        if (maximumSize <= 0) {
+            return;
+        }
+        String sessionId = session.getID().toString();
+        int shard = shardIndex(sessionId);
+        CachedSession cached = new CachedSession(session);
+        cache(sessionId, shard, cached, shards[shard].put(sessionId, cached));
+    }
+
+    /**
+     * Caches a session loaded from the lower layers, unless that session has been invalidated since the load began,
+     * in which case the loaded copy may already be out of date.
+     *
+     * @param session the loaded session.
+     * @param invalidationStamp the value of {@link #getInvalidationStamp()} before the load began.
+     */
+    void putLoaded(InternalSession session, long invalidationStamp) {
+        if (maximumSize <= 0) {
+            return;
+        }
+        String sessionId = session.getID().toString();
+        int shard = shardIndex(sessionId);
+        CachedSession cached = new CachedSession(session);
+        CachedSession previous;
+        // Holding the shard lock orders this check and put against the removal made by any invalidation
+        synchronized (shards[shard]) {
+            Long invalidated = invalidations.getIfPresent(sessionId);
+            if (invalidationStamp < floor.get() || (invalidated != null && invalidated > invalidationStamp)) {
+                return;
+            }
+            previous = shards[shard].put(sessionId, cached);
+        }
+        cache(sessionId, shard, cached, previous);
+    }
+
+    private void cache(String sessionId, int shard, CachedSession cached, CachedSession previous) {
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        if (cached.handle != null) {
+            handleIndex.put(cached.handle, sessionId);
+        }
+        for (String restrictedId : cached.restrictedIds) {
+            restrictedIdIndex.put(restrictedId, sessionId);
+        }
+        if (previous != null) {
+            unindex(sessionId, previous, cached);
+        }
+        evictIfNecessary(shard, sessionId);
+    }
+
+    /**
+     * Removes the session with the given ID, and all references to it, from the cache.
+     *
+     * @param sessionId the session ID.
+     */
+    void invalidate(String sessionId) {
+        invalidations.put(sessionId, sequence.incrementAndGet());
+        CachedSession removed = shardFor(sessionId).remove(sessionId);
+        if (removed != null) {
+            size.decrementAndGet();
+            unindex(sessionId, removed, null);
+        }
+    }
+
+    /**
+     * Gets a stamp to take before loading a session, against which later invalidations of that session are
+     * detected.
+     *
+     * @return the current invalidation stamp.
+     */
+    long getInvalidationStamp() {
+        return sequence.get();
+    }
+
+    /**
+     * Changes the maximum number of sessions cached, evicting sessions if the cache is now too large. A maximum of
+     * zero or less disables caching and empties the cache.
+     *
+     * @param maximumSize the new maximum size.
+     */
+    void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+        if (maximumSize <= 0) {
+            raiseFloor(sequence.incrementAndGet());
+            for (Shard shard : shards) {
+                size.addAndGet(-shard.clear());
+            }
+            handleIndex.clear();
+            restrictedIdIndex.clear();
+        } else {
+            evictIfNecessary(0, null);
+        }
+    }
+
+    /**
+     * Evicts least recently used sessions until the cache is within its maximum size, starting with the given shard
+     * and moving on to the next whenever a shard has nothing left to evict.
+     */
+    private void evictIfNecessary(int startShard, String retainedSessionId) {
+        int emptyShards = 0;
+        for (int i = startShard; size.get() > maximumSize && emptyShards < SHARD_COUNT; i = (i + 1) % SHARD_COUNT) {
+            Map.Entry<String, CachedSession> eldest = shards[i].removeEldest(retainedSessionId);
+            if (eldest == null) {
+                emptyShards++;
+                continue;
+            }
+            emptyShards = 0;
+            size.decrementAndGet();
+            evictions.increment();
+            unindex(eldest.getKey(), eldest.getValue(), null);
+        }
+    }
+
+    private void raiseFloor(long invalidated) {
+        long current = floor.get();
+        while (current < invalidated && !floor.compareAndSet(current, invalidated)) {
+            current = floor.get();
+        }
+    }
+
+    private void unindex(String sessionId, CachedSession removed, CachedSession replacement) {
+        if (removed.handle != null
+                && (replacement == null || !StringUtils.isEqualTo(removed.handle, replacement.handle))) {
+            handleIndex.remove(removed.handle, sessionId);
+        }
+        for (String restrictedId : removed.restrictedIds) {
+            if (replacement == null || !replacement.restrictedIds.contains(restrictedId)) {
+                restrictedIdIndex.remove(restrictedId, sessionId);
+            }
+        }
+    }
+
+    private ConcurrentMap<String, String> indexFor(LookupType type) {
+        return type == LookupType.HANDLE ? handleIndex : restrictedIdIndex;
+    }
+
+    private Shard shardFor(String sessionId) {
+        return shards[shardIndex(sessionId)];
+    }
+
+    private static int shardIndex(String sessionId) {
+        int hash = sessionId.hashCode();
+        return (hash ^ (hash >>> 16)) & (SHARD_COUNT - 1);
+    }
+
+    @Override
+    public int getSize() {
+        return size.get();
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public double getSessionIdHitRate() {
+        return getHitRate(LookupType.SESSION_ID);
+    }
+
+    @Override
+    public double getHandleHitRate() {
+        return getHitRate(LookupType.HANDLE);
+    }
+
+    @Override
+    public double getRestrictedIdHitRate() {
+        return getHitRate(LookupType.RESTRICTED_ID);
+    }
+
+    private double getHitRate(LookupType type) {
+        long hitCount = hits.get(type).sum();
+        long lookups = hitCount + misses.get(type).sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * A cached session, along with the keys it was indexed under when it was cached.
+     */
+    private static final class CachedSession {
+        private final InternalSession session;
+        private final String handle;
+        private final Set<String> restrictedIds;
+
+        private CachedSession(InternalSession session) {
+            this.session = session;
+            this.handle = session.getSessionHandle();
+            Set<String> ids = new HashSet<>();
+            for (SessionID restrictedToken : session.getRestrictedTokens()) {
+                ids.add(restrictedToken.toString());
+            }
+            this.restrictedIds = ids.isEmpty() ? Collections.<String>emptySet() : ids;
+        }
+
+        private boolean isIndexedBy(LookupType type, String key) {
+            return type == LookupType.HANDLE ? StringUtils.isEqualTo(handle, key) : restrictedIds.contains(key);
+        }
+    }
+
+    /**
+     * A lock-guarded portion of the cache, holding its sessions in least recently used order.
+     */
+    private static final class Shard {
+        private final LinkedHashMap<String, CachedSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+        synchronized CachedSession get(String sessionId) {
+            return sessions.get(sessionId);
+        }
+
+        synchronized CachedSession put(String sessionId, CachedSession session) {
+            return sessions.put(sessionId, session);
+        }
+
+        synchronized CachedSession remove(String sessionId) {
+            return sessions.remove(sessionId);
+        }
+
+        /**
+         * Removes the least recently used session, unless it is the one given, which has just been cached.
+         */
+        synchronized Map.Entry<String, CachedSession> removeEldest(String retainedSessionId) {
+            Iterator<Map.Entry<String, CachedSession>> iterator = sessions.entrySet().iterator();
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, CachedSession> eldest = iterator.next();
+            if (eldest.getKey().equals(retainedSessionId)) {
+                return null;
+            }
+            Map.Entry<String, CachedSession> removed = new AbstractMap.SimpleImmutableEntry<>(eldest);
+            iterator.remove();
+            return removed;
+        }
+
+        synchronized int clear() {
+            int cleared = sessions.size();
+            sessions.clear();
+            return cleared;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.session.service.access.persistence.caching;
+
+/**
+ * Exposes the state of the in-memory internal session cache to a JMX client such as VisualVM or JConsole.
+ */
+public interface InternalSessionCacheMXBean {
+
+    /**
+     * Get the number of sessions currently cached.
+     *
+     * @return the number of cached sessions.
+     */
+    int getSize();
+
+    /**
+     * Get the maximum number of sessions that may be cached.
+     *
+     * @return the maximum number of cached sessions, or zero or less if caching is disabled.
+     */
+    int getMaximumSize();
+
+    /**
+     * Get the number of sessions evicted to keep the cache within its maximum size.
+     *
+     * @return the number of evicted sessions.
+     */
+    long getEvictionCount();
+
+    /**
+     * Get the proportion of lookups by session ID that were answered from the cache.
+     *
+     * @return the hit rate, between 0 and 1.
+     */
+    double getSessionIdHitRate();
+
+    /**
+     * Get the proportion of lookups by session handle that were answered from the cache.
+     *
+     * @return the hit rate, between 0 and 1.
+     */
+    double getHandleHitRate();
+
+    /**
+     * Get the proportion of lookups by restricted token that were answered from the cache.
+     *
+     * @return the hit rate, between 0 and 1.
+     */
+    double getRestrictedIdHitRate();
+}
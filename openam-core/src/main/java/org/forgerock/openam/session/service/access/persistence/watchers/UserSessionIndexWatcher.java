@@ -0,0 +1,40 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.session.service.access.persistence.watchers;
+
+import org.forgerock.guice.core.InjectorHolder;
+import org.forgerock.openam.cts.CTSPersistentStore;
+import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.session.service.access.persistence.UserSessionIndex;
+
+import com.sun.identity.setup.SetupListener;
+
+/**
+ * Registers the {@link UserSessionIndex} against the CTS once the server is set up.
+ */
+public class UserSessionIndexWatcher implements SetupListener {
+
+    @Override
+    public void setupComplete() {
+        try {
+            InjectorHolder.getInstance(UserSessionIndex.class)
+                    .setupContinuousQuery(InjectorHolder.getInstance(CTSPersistentStore.class));
+        } catch (CoreTokenException ctE) {
+            throw new RuntimeException("Unable to register continuous query for the user session index", ctE);
+        }
+    }
+}
@@ -12,17 +12,26 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.session.stateless.cache;
 
-import java.util.Collections;
-import java.util.Map;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.forgerock.openam.utils.Time.currentTimeMillis;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.forgerock.openam.session.stateless.StatelessConfig;
-import org.forgerock.openam.utils.collections.LeastRecentlyUsed;
+import org.forgerock.openam.utils.collections.TinyLfuCache;
 import org.forgerock.util.Reject;
 import org.forgerock.util.annotations.VisibleForTesting;
 
@@ -36,21 +45,40 @@ import com.iplanet.services.naming.ServiceListeners;
  * This cache acts as a performance enhancement which will reduce the number of times JWT
  * tokens need to be decrypted and decoded.
  *
- * This cache is intentionally unable to perform the reverse lookup of SessionInfo to
- * JWT, as we expect the JWT to change each time the SessionInfo changes.
+ * The cache is bounded by a W-TinyLFU policy, so that JWTs seen once do not push out the
+ * JWTs of active sessions. A reverse index from SessionInfo to JWT answers
+ * {@link #contains(SessionInfo)} without scanning the cache; as we expect the JWT to change
+ * each time the SessionInfo changes, a cached SessionInfo must not be modified.
  *
  * Assumption: There is only one representation of a JWT to the SessionInfo it contains.
  *
- * Thread Safety: This class uses a synchronized data structure and so is thread safe.
+ * JWTs which failed to be verified or decoded are remembered separately, keyed by a digest of the
+ * JWT so that arbitrarily large invalid input only costs a fixed amount of memory, and so that
+ * they cannot push out the JWTs of valid sessions. A cached SessionInfo is no longer served once
+ * the expiry time of the session has passed.
+ *
+ * Both caches are cleared on configuration changes, which include the rotation of signing and
+ * encryption keys.
+ *
+ * Thread Safety: This class uses concurrent, segmented data structures and so is thread safe
+ * without serialising callers on a single lock.
  */
 @Singleton
 public class StatelessJWTCache {
-    private final Map<String, SessionInfo> sessionInfoCache;
+    private final TinyLfuCache<String, CachedSessionInfo> sessionInfoCache;
+    private final ConcurrentMap<CachedSessionInfo, String> jwtIndex = new ConcurrentHashMap<>();
+    private final TinyLfuCache<String, Boolean> rejectedJwts;
 
     @Inject
     public StatelessJWTCache(StatelessConfig config, ServiceListeners listeners) {
-        sessionInfoCache = Collections.synchronizedMap(
-                new LeastRecentlyUsed<String, SessionInfo>(config.getJWTCacheSize()));
+        sessionInfoCache = new TinyLfuCache<>(Math.max(0, config.getJWTCacheSize()),
+                new TinyLfuCache.RemovalListener<String, CachedSessionInfo>() {
+                    @Override
+                    public void onRemoval(String jwt, CachedSessionInfo cached) {
+                        jwtIndex.remove(cached, jwt);
+                    }
+                });
+        rejectedJwts = new TinyLfuCache<>(Math.max(0, config.getJWTCacheSize()));
 
         // Responds to configuration changes, preventing possibly invalid keys from remaining in the cache
         final ServiceListeners.Action action = new ServiceListeners.Action() {
@@ -70,7 +98,10 @@ public class StatelessJWTCache {
      */
     public void cache(SessionInfo info, String jwtToken) {
         Reject.ifNull(info, jwtToken, "Arguments cannot be null.");
-        sessionInfoCache.put(jwtToken, info);
+        // Indexed first, so that the entry being evicted straight away also removes it from the index.
+        CachedSessionInfo cached = new CachedSessionInfo(info);
+        jwtIndex.put(cached, jwtToken);
+        sessionInfoCache.put(jwtToken, cached);
     }
 
     /**
@@ -78,7 +109,34 @@ public class StatelessJWTCache {
      * @return Possibly null. Cached SessionInfo that corresponds to the given JWT token.
      */
     public SessionInfo getSessionInfo(String jwt) {
-        return sessionInfoCache.get(jwt);
+        CachedSessionInfo cached = sessionInfoCache.get(jwt);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.isExpired()) {
+            sessionInfoCache.remove(jwt);
+            return null;
+        }
+        return cached.info;
+    }
+
+    /**
+     * Remembers that the given JWT could not be verified or decoded, so that it can be rejected without repeating
+     * the cryptographic operations.
+     *
+     * @param jwt Non null JWT which was rejected.
+     */
+    public void reject(String jwt) {
+        Reject.ifNull(jwt, "JWT cannot be null.");
+        rejectedJwts.put(digest(jwt), Boolean.TRUE);
+    }
+
+    /**
+     * @param jwt Possibly null JWT token.
+     * @return True if this JWT has been rejected previously.
+     */
+    public boolean isRejected(String jwt) {
+        return jwt != null && rejectedJwts.get(digest(jwt)) != null;
     }
 
     /**
@@ -86,7 +144,21 @@ public class StatelessJWTCache {
      * @return True if there is a JWT representation for this SessionInfo.
      */
     public boolean contains(SessionInfo info) {
-        return sessionInfoCache.containsValue(info);
+        if (info == null) {
+            return false;
+        }
+        CachedSessionInfo key = new CachedSessionInfo(info);
+        String jwt = jwtIndex.get(key);
+        if (jwt == null) {
+            return false;
+        }
+        CachedSessionInfo cached = sessionInfoCache.peek(jwt);
+        if (cached != null && info.equals(cached.info)) {
+            return true;
+        }
+        // Left behind by a concurrent clear
+        jwtIndex.remove(key, jwt);
+        return false;
     }
 
     /**
@@ -106,6 +178,27 @@ public class StatelessJWTCache {
         sessionInfoCache.remove(jwt);
     }
 
+    /**
+     * @return The number of lookups which found a cached SessionInfo.
+     */
+    public long getHitCount() {
+        return sessionInfoCache.getHitCount();
+    }
+
+    /**
+     * @return The number of lookups which found no cached SessionInfo.
+     */
+    public long getMissCount() {
+        return sessionInfoCache.getMissCount();
+    }
+
+    /**
+     * @return The number of JWTs evicted to keep the cache within its configured size.
+     */
+    public long getEvictionCount() {
+        return sessionInfoCache.getEvictionCount();
+    }
+
     /**
      * Clearing the cache will remove all cached mappings between JWT and SessionID.
      *
@@ -115,5 +208,55 @@ public class StatelessJWTCache {
     @VisibleForTesting
     void clear() {
         sessionInfoCache.clear();
+        rejectedJwts.clear();
+    }
+
+    private static String digest(String jwt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(jwt.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * A cached SessionInfo, keyed in the reverse index by its hash code at the time it was cached, so the index
+     * entry can still be removed with the cache entry should the SessionInfo be modified in the meantime.
+     */
+    private static final class CachedSessionInfo {
+        private final SessionInfo info;
+        private final int hash;
+        private final long expiryTimeSeconds;
+
+        private CachedSessionInfo(SessionInfo info) {
+            this.info = info;
+            this.hash = info.hashCode();
+            this.expiryTimeSeconds = info.getExpiryTime(SECONDS);
+        }
+
+        /**
+         * An expiry time of zero is left unset by SessionInfo, and so is not taken as expired.
+         */
+        private boolean isExpired() {
+            return expiryTimeSeconds > 0 && MILLISECONDS.toSeconds(currentTimeMillis()) >= expiryTimeSeconds;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CachedSessionInfo)) {
+                return false;
+            }
+            CachedSessionInfo that = (CachedSessionInfo) o;
+            return hash == that.hash && info.equals(that.info);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
-}
\ No newline at end of file
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm;
 
@@ -20,6 +21,9 @@ import javax.inject.Named;
 
 import java.util.Set;
 
+import com.iplanet.am.util.SystemProperties;
+import org.forgerock.openam.cts.CoreTokenConfig;
+import org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration;
 import org.forgerock.openam.ldap.LDAPURL;
 import org.forgerock.openam.sm.datalayer.api.ConnectionType;
 import org.forgerock.openam.sm.datalayer.api.DataLayerConstants;
@@ -37,10 +41,13 @@ import org.forgerock.openam.sm.utils.ConfigurationValidator;
  * - Which mode the CTS is in.
  */
 public class ConnectionConfigFactory {
+    private static final int DEFAULT_PAGED_QUERY_CONNECTIONS = 2;
+
     private final ConnectionConfig externalTokenConfig;
     private final ConnectionConfig smsConfiguration;
     private final ConfigurationValidator validator;
     private final LdapDataLayerConfiguration dataLayerConfiguration;
+    private final CoreTokenConfig coreTokenConfig;
 
     /**
      * Guice initialised constructor.
@@ -48,16 +55,18 @@ public class ConnectionConfigFactory {
      * @param datalayerConfig Non null default configuration.
      * @param externalTokenConfig Non null External CTS configuration.
      * @param validator Required for validation.
+     * @param coreTokenConfig Non null CTS configuration, which determines the connections CTS workers need.
      */
     @Inject
     public ConnectionConfigFactory(@Named(DataLayerConstants.SERVICE_MANAGER_CONFIG) ConnectionConfig datalayerConfig,
             @Named(DataLayerConstants.EXTERNAL_CONFIG) ConnectionConfig externalTokenConfig,
             LdapDataLayerConfiguration dataLayerConfiguration,
-            ConfigurationValidator validator) {
+            ConfigurationValidator validator, CoreTokenConfig coreTokenConfig) {
         this.smsConfiguration = datalayerConfig;
         this.externalTokenConfig = externalTokenConfig;
         this.validator = validator;
         this.dataLayerConfiguration = dataLayerConfiguration;
+        this.coreTokenConfig = coreTokenConfig;
     }
 
     /**
@@ -84,8 +93,14 @@ public class ConnectionConfigFactory {
             default:
                 throw new IllegalStateException();
         }
-        if (isCtsWorkerConnectionType(connectionType)) {
-            configuration = wrapCtsReaperConfiguration(configuration);
+        if (ConnectionType.CTS_ASYNC.equals(connectionType)) {
+            configuration = withExtraConnections(configuration, CTSQueueConfiguration.getQueryProcessorConnections());
+        } else if (isCtsWorkerConnectionType(connectionType)) {
+            configuration = wrapCtsConfiguration(configuration, getCtsWorkerConnections());
+        } else if (ConnectionType.CTS_PAGED_QUERY.equals(connectionType)) {
+            configuration = wrapCtsConfiguration(configuration,
+                    SystemProperties.getAsInt(DataLayerConstants.CORE_TOKEN_PAGED_QUERY_CONNECTIONS,
+                            DEFAULT_PAGED_QUERY_CONNECTIONS));
         }
         validator.validate(configuration);
         return configuration;
@@ -97,6 +112,17 @@ public class ConnectionConfigFactory {
                 || ConnectionType.CTS_SESSION_IDLE_TIMEOUT_WORKER.equals(connectionType);
     }
 
+    /**
+     * Each CTS worker query holds a connection until it completes. A partitioned reaper runs up to the partition
+     * concurrency of slice queries at once, so needs as many connections; otherwise one connection is enough.
+     */
+    private int getCtsWorkerConnections() {
+        if (coreTokenConfig.getReaperPartitionSlices() < 2) {
+            return 1;
+        }
+        return coreTokenConfig.getReaperPartitionConcurrency();
+    }
+
     private ConnectionConfig getDefaultConfiguration() {
         return new DelegatingConnectionConfig(smsConfiguration) {
             @Override
@@ -110,11 +136,24 @@ public class ConnectionConfigFactory {
         };
     }
 
-    private ConnectionConfig wrapCtsReaperConfiguration(ConnectionConfig configuration) {
+    /**
+     * The CTS asynchronous queues reserve a connection for each query processor on top of the configured
+     * connections, which are shared by the token processors.
+     */
+    private ConnectionConfig withExtraConnections(final ConnectionConfig configuration, final int extraConnections) {
+        return new DelegatingConnectionConfig(configuration) {
+            @Override
+            public int getMaxConnections() {
+                return configuration.getMaxConnections() + extraConnections;
+            }
+        };
+    }
+
+    private ConnectionConfig wrapCtsConfiguration(ConnectionConfig configuration, final int maxConnections) {
         return new DelegatingConnectionConfig(configuration) {
             @Override
             public int getMaxConnections() {
-                return 1;
+                return maxConnections;
             }
 
             @Override
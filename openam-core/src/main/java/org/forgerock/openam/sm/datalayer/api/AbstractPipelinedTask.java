@@ -0,0 +1,76 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.sm.datalayer.api;
+
+import org.forgerock.util.Function;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.Promises;
+
+/**
+ * Abstract task which can be processed both synchronously and as part of a pipelined batch.
+ *
+ * @param <T> The result type of the task.
+ */
+public abstract class AbstractPipelinedTask<T> extends AbstractTask<T> implements PipelinedTask {
+
+    private final String tokenId;
+
+    /**
+     * @param tokenId Non null Token ID the task operates on.
+     * @param handler Non null handler to notify.
+     */
+    public AbstractPipelinedTask(String tokenId, ResultHandler<T, ?> handler) {
+        super(handler);
+        this.tokenId = tokenId;
+    }
+
+    @Override
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    @Override
+    public Promise<Void, NeverThrowsException> executeAsync(TokenStorageAdapter adapter) {
+        if (isError()) {
+            return Promises.newResultPromise(null);
+        }
+
+        return performTaskAsync(adapter).then(
+                new Function<T, Void, NeverThrowsException>() {
+                    @Override
+                    public Void apply(T result) {
+                        handler.processResults(result);
+                        return null;
+                    }
+                },
+                new Function<DataLayerException, Void, NeverThrowsException>() {
+                    @Override
+                    public Void apply(DataLayerException error) {
+                        processError(error);
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Starts the task against the adapter without blocking for the result.
+     *
+     * @param adapter Required for datalayer operations.
+     * @return Non null promise of the result of the operation.
+     */
+    protected abstract Promise<T, DataLayerException> performTaskAsync(TokenStorageAdapter adapter);
+}
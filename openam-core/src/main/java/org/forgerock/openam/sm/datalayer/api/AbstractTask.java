@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm.datalayer.api;
 
@@ -22,7 +23,7 @@ package org.forgerock.openam.sm.datalayer.api;
 public abstract class AbstractTask<T> implements Task {
 
     protected final ResultHandler<T, ?> handler;
-    private boolean isError = false;
+    private volatile boolean isError = false;
 
     /**
      * A new abstract task constructor - requires at least a ResultHandler to be configured.
@@ -53,6 +54,13 @@ public abstract class AbstractTask<T> implements Task {
         }
     }
 
+    /**
+     * @return True if this task has already been notified of an error.
+     */
+    protected boolean isError() {
+        return isError;
+    }
+
     /**
      * Performs a task.
      *
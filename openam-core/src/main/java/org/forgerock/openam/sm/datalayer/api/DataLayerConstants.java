@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.sm.datalayer.api;
@@ -26,12 +27,20 @@ public class DataLayerConstants {
      */
     public static final String CORE_TOKEN_ASYNC_TIMEOUT = "org.forgerock.services.datalayer.connection.timeout.cts.async";
     public static final String CORE_TOKEN_WORKER_TIMEOUT = "org.forgerock.services.datalayer.connection.timeout.cts.reaper";
+    public static final String CORE_TOKEN_PAGED_QUERY_TIMEOUT =
+            "org.forgerock.services.datalayer.connection.timeout.cts.paged.query";
     public static final String DATA_LAYER_TIMEOUT = "org.forgerock.services.datalayer.connection.timeout";
     public static final String RESOURCE_SETS_TIMEOUT = "org.forgerock.services.datalayer.connection.timeout.resourcesets";
     public static final String UMA_AUDIT_ENTRY_TIMEOUT = "org.forgerock.services.datalayer.connection.timeout.umaauditentry";
     public static final String UMA_PENDING_REQUESTS_TIMEOUT = "org.forgerock.services.datalayer.connection.timeout.uma.pendingrequests";
     public static final String UMA_LABELS_TIMEOUT = "org.forgerock.services.datalayer.connection.timeout.uma.labels";
 
+    /**
+     * The number of connections available to paged CTS queries, each of which holds a connection until it completes.
+     */
+    public static final String CORE_TOKEN_PAGED_QUERY_CONNECTIONS =
+            "org.forgerock.services.datalayer.connection.max.cts.paged.query";
+
     /**
      * Guice bindings for ConnectionConfig instances
      */
@@ -0,0 +1,46 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.sm.datalayer.api;
+
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * A {@link Task} which can be started without waiting for its result, allowing several tasks to be
+ * outstanding against the same connection at once.
+ *
+ * The returned {@link Promise} is completed once the task's result handler has been notified of either
+ * the result or the error, which allows the caller to bound the number of tasks in flight.
+ *
+ * @see org.forgerock.openam.sm.datalayer.impl.SeriesTaskExecutorThread
+ */
+public interface PipelinedTask extends Task {
+
+    /**
+     * The Token ID this task operates on. Used to preserve the ordering of tasks on the same Token.
+     *
+     * @return Non null Token ID.
+     */
+    String getTokenId();
+
+    /**
+     * Start the task without waiting for it to complete.
+     *
+     * @param adapter Connection-coupled utility functions to perform the task with.
+     * @return Non null promise which is completed once the result handler has been notified.
+     */
+    Promise<Void, NeverThrowsException> executeAsync(TokenStorageAdapter adapter);
+}
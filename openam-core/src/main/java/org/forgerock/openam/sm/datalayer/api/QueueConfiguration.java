@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.sm.datalayer.api;
@@ -50,4 +51,30 @@ public interface QueueConfiguration {
      * @return A positive number of processors to initialise.
      */
     int getProcessors() throws DataLayerException;
+
+    /**
+     * The number of asynchronous Task Processors that should be initialised to process tasks which
+     * are not associated with a Token, such as queries. When zero, such tasks are placed on the least
+     * loaded of the Token queues instead.
+     *
+     * @throws DataLayerException If there was any issue resolving the configuration of the processors.
+     * @return A non negative number of processors to initialise.
+     */
+    int getQueryProcessors() throws DataLayerException;
+
+    /**
+     * The maximum number of tasks a Task Processor will take from its queue at once. A value of one
+     * disables batching, and each task is processed to completion before the next is taken.
+     *
+     * @return A positive number of tasks.
+     */
+    int getBatchSize();
+
+    /**
+     * The maximum number of tasks from a batch that a Task Processor will have outstanding on its
+     * connection at once.
+     *
+     * @return A positive number of tasks.
+     */
+    int getPipelineDepth();
 }
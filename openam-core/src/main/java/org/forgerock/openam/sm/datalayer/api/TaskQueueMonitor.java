@@ -0,0 +1,41 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.sm.datalayer.api;
+
+/**
+ * Receives statistics about the asynchronous task queues as task processors take work from them.
+ */
+public interface TaskQueueMonitor {
+
+    /**
+     * Records a task being taken from an asynchronous task queue by a task processor.
+     *
+     * @param queue The name of the queue.
+     * @param queueDepth The number of tasks on the queue when the task was taken.
+     * @param waitTimeMillis The time in milliseconds the task spent waiting on the queue.
+     */
+    void addQueuedTask(String queue, int queueDepth, long waitTimeMillis);
+
+    /**
+     * Records a batch of tasks taken from an asynchronous task queue by a task processor.
+     *
+     * @param queueDepth The number of tasks waiting on the queue when the batch was taken.
+     * @param batchSize The number of tasks in the batch.
+     * @param pipelineDepth The maximum number of tasks in flight on the connection whilst processing the batch.
+     */
+    void addTaskBatch(int queueDepth, int batchSize, int pipelineDepth);
+}
@@ -0,0 +1,36 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.sm.datalayer.api;
+
+import java.text.MessageFormat;
+
+/**
+ * Signals that the CTS Async processing rejected a low priority Task rather than
+ * queue it, because the number of Tasks already in progress had reached the
+ * admission limit.
+ *
+ * @see org.forgerock.openam.cts.impl.queue.AdmissionController
+ */
+public class TaskRejectedException extends DataLayerException {
+    /**
+     * Indicates that the Task was not queued because the CTS is overloaded.
+     *
+     * @param limit The admission limit at the time.
+     */
+    public TaskRejectedException(int limit) {
+        super(MessageFormat.format("Low priority task rejected at admission limit {0}", limit));
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.sm.datalayer.api;
@@ -24,6 +25,7 @@ import org.forgerock.openam.cts.continuous.ContinuousQueryListener;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.util.Options;
+import org.forgerock.util.promise.Promise;
 
 /**
  * Adapts the token to some activity against the connection type.
@@ -62,6 +64,24 @@ public interface TokenStorageAdapter {
      */
     Token update(Token previous, Token updated, Options options) throws DataLayerException;
 
+    /**
+     * Update only the attributes of the Token which differ between the two, without first reading the
+     * stored state of the Token.
+     * <p>
+     * The caller is responsible for the accuracy of {@code previous}; implementations should expect an
+     * assertion on the tokens ETag to be supplied in the options so that a stale {@code previous} is rejected
+     * rather than silently merged.
+     *
+     * @param previous The non null Token as last known to the caller.
+     * @param updated The non null Token to update with. Attributes absent from this Token but present in
+     *                {@code previous} are removed.
+     * @param options The non null Options for the operation.
+     * @return A copy of the updated token. The token would contain the updated etag.
+     * @throws DataLayerException If the operation failed for a known reason.
+     * @throws OptimisticConcurrencyCheckFailedException If the operation failed due to an assertion on the tokens ETag.
+     */
+    Token updateAttributes(Token previous, Token updated, Options options) throws DataLayerException;
+
     /**
      * Performs a delete against the Token ID provided.
      *
@@ -73,6 +93,56 @@ public interface TokenStorageAdapter {
      */
     PartialToken delete(String tokenId, Options options) throws DataLayerException;
 
+    /**
+     * Asynchronously create the Token in the database.
+     *
+     * @param token Non null Token to create.
+     * @param options Non null Options for the operations.
+     * @return A promise of the newly created token, which would contain the additional etag information.
+     */
+    Promise<Token, DataLayerException> createAsync(Token token, Options options);
+
+    /**
+     * Asynchronously read the Token from the database.
+     *
+     * @param tokenId The id of the Token to read.
+     * @param options Non null Options for the operations.
+     * @return A promise of the Token, or of null if it was not found.
+     */
+    Promise<Token, DataLayerException> readAsync(String tokenId, Options options);
+
+    /**
+     * Asynchronously update the Token based on whether there were any changes between the two.
+     *
+     * @param previous The non null previous Token to check against.
+     * @param updated The non null Token to update with.
+     * @param options The non null Options for the operation.
+     * @return A promise of a copy of the updated token, containing the updated etag. The promise fails with an
+     * {@link OptimisticConcurrencyCheckFailedException} if the assertion on the tokens ETag failed.
+     */
+    Promise<Token, DataLayerException> updateAsync(Token previous, Token updated, Options options);
+
+    /**
+     * Asynchronously update only the attributes of the Token which differ between the two.
+     *
+     * @param previous The non null Token as last known to the caller.
+     * @param updated The non null Token to update with.
+     * @param options The non null Options for the operation.
+     * @return A promise of a copy of the updated token, containing the updated etag. The promise fails with an
+     * {@link OptimisticConcurrencyCheckFailedException} if the assertion on the tokens ETag failed.
+     * @see #updateAttributes(Token, Token, Options)
+     */
+    Promise<Token, DataLayerException> updateAttributesAsync(Token previous, Token updated, Options options);
+
+    /**
+     * Asynchronously delete the Token ID provided.
+     *
+     * @param tokenId The non null Token ID to delete.
+     * @param options The non null Options for the operation.
+     * @return A promise of a {@link PartialToken} containing at least the {@link CoreTokenField#TOKEN_ID}.
+     */
+    Promise<PartialToken, DataLayerException> deleteAsync(String tokenId, Options options);
+
     /**
      * Performs a full-token query using the provided filter.
      *
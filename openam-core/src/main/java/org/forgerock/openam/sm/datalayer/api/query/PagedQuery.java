@@ -0,0 +1,51 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.sm.datalayer.api.query;
+
+import java.util.Collection;
+
+import org.forgerock.openam.cts.exceptions.CoreTokenException;
+
+/**
+ * A query whose results are fetched from the persistence layer one page at a time, as the caller asks for them.
+ * <p>
+ * Only the current page is held in memory, and no further page is requested until the caller has finished with
+ * it, so a slow consumer holds back the query rather than letting results accumulate. The query holds resources,
+ * such as a connection, until its results are exhausted or it is closed; instances should always be used within
+ * try-with-resources statements.
+ *
+ * @param <T> The type of the results, either {@link org.forgerock.openam.cts.api.tokens.Token} or
+ *           {@link PartialToken}.
+ */
+public interface PagedQuery<T> extends AutoCloseable {
+
+    /**
+     * Fetches the next page of results. Repeated calls continue the query from where the last page ended.
+     *
+     * @return Non null, possibly empty, collection of results. Null indicates there are no further results, or
+     *         that the query has been closed.
+     * @throws CoreTokenException If there was any error fetching the page, after which the query is closed.
+     */
+    Collection<T> nextPage() throws CoreTokenException;
+
+    /**
+     * Stops the query and releases its resources. Further calls to {@link #nextPage()} return {@literal null}.
+     * <p>
+     * May be called from a thread other than the one consuming the results to cancel the query.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,29 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.sm.datalayer.impl;
+
+import org.forgerock.openam.sm.datalayer.api.Task;
+
+/**
+ * A {@link Task} which has been placed on a {@link SeriesTaskExecutor} queue.
+ */
+interface QueuedTask extends Task {
+
+    /**
+     * @return The time in milliseconds at which the task was placed on the queue.
+     */
+    long getQueuedTime();
+}
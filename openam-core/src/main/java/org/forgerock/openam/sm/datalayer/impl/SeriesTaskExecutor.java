@@ -12,12 +12,12 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.sm.datalayer.impl;
 
 import java.text.MessageFormat;
-import java.util.Random;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -34,10 +34,13 @@ import org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration;
 import org.forgerock.openam.shared.concurrency.ThreadMonitor;
 import org.forgerock.openam.sm.datalayer.api.DataLayerConstants;
 import org.forgerock.openam.sm.datalayer.api.DataLayerException;
+import org.forgerock.openam.sm.datalayer.api.PipelinedTask;
 import org.forgerock.openam.sm.datalayer.api.QueueTimeoutException;
 import org.forgerock.openam.sm.datalayer.api.Task;
 import org.forgerock.openam.sm.datalayer.api.TaskExecutor;
 import org.forgerock.openam.sm.datalayer.api.TokenStorageAdapter;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
 
 import com.sun.identity.shared.debug.Debug;
 
@@ -67,12 +70,21 @@ import com.sun.identity.shared.debug.Debug;
  * this situation persists for an extended duration, then the CTS queues will
  * throttle the caller until the CTS has had time to catch up.
  *
+ * Tasks which are not associated with a Token, such as queries, are placed on a separate
+ * query queue which is processed by dedicated TaskProcessors, so that long running queries
+ * do not delay operations on Tokens. If no query processors are configured then these tasks
+ * are placed on the least loaded Token queue.
+ *
+ * Each TaskProcessor may optionally take batches of tasks from its queue and pipeline
+ * them over its connection, see {@link SeriesTaskExecutorThread}.
+ *
+ * @see org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration#getBatchSize()
  * @see org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration#getQueueTimeout()
  */
 public class SeriesTaskExecutor implements TaskExecutor {
-    private static final Random random = new Random();
     private final Debug debug;
     private BlockingQueue<Task>[] taskQueues;
+    private BlockingQueue<Task> queryQueue;
     private int processors;
     private boolean initialised = false;
     private final SeriesTaskExecutorThreadFactory processorFactory;
@@ -121,8 +133,10 @@ public class SeriesTaskExecutor implements TaskExecutor {
             return;
         }
 
+        int queryProcessors;
         try {
             processors = configuration.getProcessors();
+            queryProcessors = configuration.getQueryProcessors();
         } catch (DataLayerException e) {
             throw new RuntimeException(e);
         }
@@ -133,20 +147,41 @@ public class SeriesTaskExecutor implements TaskExecutor {
         }
 
         for (int ii = 0; ii < processors; ii++) {
-            SeriesTaskExecutorThread processor = processorFactory.create(taskQueues[ii]);
+            SeriesTaskExecutorThread processor = processorFactory.create("token-" + ii, taskQueues[ii]);
             monitor.watchThread(poolService, processor);
         }
         debug("Created {0} Task Processors", processors);
 
-        initialised = true;    }
+        if (queryProcessors > 0) {
+            queryQueue = new LinkedBlockingQueue<>(configuration.getQueueSize());
+            for (int ii = 0; ii < queryProcessors; ii++) {
+                SeriesTaskExecutorThread processor = processorFactory.create("query", queryQueue);
+                monitor.watchThread(poolService, processor);
+            }
+            debug("Created {0} Query Task Processors", queryProcessors);
+        }
+
+        initialised = true;
+    }
 
     /**
-     * Select a random queue to use for the query operation.
+     * Select the queue to use for a task which is not associated with a Token.
+     *
+     * This is the dedicated query queue if there is one, otherwise the least loaded Token queue.
+     *
      * @return Non null.
      */
     private BlockingQueue<Task> getQueueForQuery() {
-        String key = Integer.toString(random.nextInt());
-        return getQueue(key);
+        if (queryQueue != null) {
+            return queryQueue;
+        }
+        BlockingQueue<Task> leastLoaded = taskQueues[0];
+        for (int ii = 1; ii < processors; ii++) {
+            if (taskQueues[ii].size() < leastLoaded.size()) {
+                leastLoaded = taskQueues[ii];
+            }
+        }
+        return leastLoaded;
     }
 
     /**
@@ -192,22 +227,33 @@ public class SeriesTaskExecutor implements TaskExecutor {
     }
 
     Task wrap(Task task) {
+        if (task instanceof PipelinedTask) {
+            return new AuditRequestContextPropagatingPipelinedTask((PipelinedTask) task);
+        }
         return new AuditRequestContextPropagatingTask(task);
     }
 
     /**
-     * <code>Task</code> Decorator that propagates thread local {@link AuditRequestContext} to worker thread.
+     * <code>Task</code> Decorator that propagates thread local {@link AuditRequestContext} to worker thread,
+     * and records when the task was queued.
      */
     // As there may be another implementation of TaskExecutor that transfers tasks between threads,
     // it may be a better idea to put this wrapper logic into DataLayerConnectionModule#configure
     // by creating a decorator for TaskExecutor that wraps Tasks submitted to TaskExecutor#execute
     static class AuditRequestContextPropagatingTask
-            extends AbstractAuditRequestContextPropagatingDecorator implements Task {
+            extends AbstractAuditRequestContextPropagatingDecorator implements QueuedTask {
 
         private final Task delegate;
+        private final long queuedTime;
 
         AuditRequestContextPropagatingTask(Task delegate) {
             this.delegate = delegate;
+            this.queuedTime = System.currentTimeMillis();
+        }
+
+        @Override
+        public long getQueuedTime() {
+            return queuedTime;
         }
 
         @Override
@@ -226,4 +272,34 @@ public class SeriesTaskExecutor implements TaskExecutor {
         }
     }
 
+    /**
+     * <code>PipelinedTask</code> Decorator that propagates thread local {@link AuditRequestContext} to the worker
+     * thread whilst the task is started.
+     */
+    static class AuditRequestContextPropagatingPipelinedTask extends AuditRequestContextPropagatingTask
+            implements PipelinedTask {
+
+        private final PipelinedTask delegate;
+
+        AuditRequestContextPropagatingPipelinedTask(PipelinedTask delegate) {
+            super(delegate);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getTokenId() {
+            return delegate.getTokenId();
+        }
+
+        @Override
+        public Promise<Void, NeverThrowsException> executeAsync(TokenStorageAdapter adapter) {
+            setContext();
+            try {
+                return delegate.executeAsync(adapter);
+            } finally {
+                revertContext();
+            }
+        }
+    }
+
 }
@@ -12,10 +12,15 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm.datalayer.impl;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 
 import javax.inject.Inject;
@@ -23,7 +28,12 @@ import javax.inject.Named;
 
 import org.forgerock.openam.cts.api.CoreTokenConstants;
 import org.forgerock.openam.sm.datalayer.api.DataLayerException;
+import org.forgerock.openam.sm.datalayer.api.PipelinedTask;
+import org.forgerock.openam.sm.datalayer.api.QueueConfiguration;
 import org.forgerock.openam.sm.datalayer.api.Task;
+import org.forgerock.openam.sm.datalayer.api.TaskQueueMonitor;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
 
 import com.sun.identity.shared.debug.Debug;
 
@@ -37,6 +47,13 @@ import com.sun.identity.shared.debug.Debug;
  * This decoupled design is intended to ensure that each TaskProcessor can be
  * run as part of a thread pool, and process tasks in a continuous fashion.
  *
+ * When a batch size greater than one is configured, the processor will drain up to
+ * that many tasks from its queue at once. Tasks which are {@link PipelinedTask}s are
+ * started without waiting for the previous task to complete, so that many requests are
+ * outstanding on the connection at once. Ordering for a Token is preserved by waiting for
+ * all outstanding tasks to complete before starting a task on a Token which is already in
+ * flight, or before processing a task which cannot be pipelined.
+ *
  * Thread Policy: This runnable will respond to Thread interrupts and will
  * exit cleanly in the event of an interrupt.
  *
@@ -45,18 +62,27 @@ import com.sun.identity.shared.debug.Debug;
  */
 public class SeriesTaskExecutorThread implements Runnable {
     private final SimpleTaskExecutor taskExecutor;
+    private final QueueConfiguration configuration;
+    private final TaskQueueMonitor queueMonitor;
     private BlockingQueue<Task> queue;
+    private String queueName;
     private final Debug debug;
 
     /**
      * Generate a default instance of the Task Processor.
      *
      * @param debug Required for debugging.
+     * @param taskExecutor Required to execute the tasks against a connection.
+     * @param configuration Required to determine the batch size and pipeline depth.
+     * @param queueMonitor Required to record the tasks and batches taken from the queue.
      */
     @Inject
-    public SeriesTaskExecutorThread(@Named(CoreTokenConstants.CTS_DEBUG) Debug debug, SimpleTaskExecutor taskExecutor) {
+    public SeriesTaskExecutorThread(@Named(CoreTokenConstants.CTS_DEBUG) Debug debug, SimpleTaskExecutor taskExecutor,
+            QueueConfiguration configuration, TaskQueueMonitor queueMonitor) {
         this.debug = debug;
         this.taskExecutor = taskExecutor;
+        this.configuration = configuration;
+        this.queueMonitor = queueMonitor;
     }
 
     /**
@@ -64,9 +90,11 @@ public class SeriesTaskExecutorThread implements Runnable {
      *
      * Note: This must be set before execution is started.
      *
+     * @param queueName Non null name of the queue, used for monitoring.
      * @param queue Non null BlockingQueue implementation to use for asynchronous processing.
      */
-    public void setQueue(BlockingQueue<Task> queue) {
+    public void setQueue(String queueName, BlockingQueue<Task> queue) {
+        this.queueName = queueName;
         this.queue = queue;
     }
 
@@ -85,21 +113,91 @@ public class SeriesTaskExecutorThread implements Runnable {
             throw new IllegalStateException("Cannot start task executor", e);
         }
 
+        int batchSize = configuration.getBatchSize();
+        int pipelineDepth = configuration.getPipelineDepth();
+        List<Task> batch = new ArrayList<>(batchSize);
+
         // Iterate until shutdown
         while (!Thread.currentThread().isInterrupted()) {
             try {
                 Task task = queue.take();
-                debug("process Task {0}", task);
-                taskExecutor.execute(null, task);
+                int queueDepth = queue.size() + 1;
+                if (batchSize <= 1) {
+                    recordTaken(task, queueDepth);
+                    debug("process Task {0}", task);
+                    taskExecutor.execute(null, task);
+                    continue;
+                }
+                batch.add(task);
+                queue.drainTo(batch, batchSize - 1);
+                for (Task taken : batch) {
+                    recordTaken(taken, queueDepth);
+                }
+                processBatch(batch, pipelineDepth, queueDepth);
             } catch (InterruptedException e) {
                 error("interrupt detected", e);
                 Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
             }
         }
 
         debug("Processor thread shutdown.");
     }
 
+    private void recordTaken(Task task, int queueDepth) {
+        if (task instanceof QueuedTask) {
+            long waitTime = System.currentTimeMillis() - ((QueuedTask) task).getQueuedTime();
+            queueMonitor.addQueuedTask(queueName, queueDepth, waitTime);
+        }
+    }
+
+    /**
+     * Processes a batch of tasks, pipelining those tasks which support it.
+     *
+     * @param batch Non null batch of tasks in the order they were queued.
+     * @param pipelineDepth The maximum number of tasks to have outstanding at once.
+     * @param queueDepth The depth of the queue when the batch was taken.
+     */
+    private void processBatch(List<Task> batch, int pipelineDepth, int queueDepth) {
+        debug("process batch of {0} Tasks", batch.size());
+        List<Promise<Void, NeverThrowsException>> inFlight = new ArrayList<>(pipelineDepth);
+        Set<String> inFlightTokenIds = new HashSet<>();
+        int maxInFlight = 0;
+
+        for (Task task : batch) {
+            if (task instanceof PipelinedTask) {
+                PipelinedTask pipelinedTask = (PipelinedTask) task;
+                if (inFlight.size() >= pipelineDepth || inFlightTokenIds.contains(pipelinedTask.getTokenId())) {
+                    awaitCompletion(inFlight, inFlightTokenIds);
+                }
+                debug("start Task {0}", task);
+                inFlight.add(taskExecutor.executeAsync(pipelinedTask));
+                inFlightTokenIds.add(pipelinedTask.getTokenId());
+                maxInFlight = Math.max(maxInFlight, inFlight.size());
+            } else {
+                awaitCompletion(inFlight, inFlightTokenIds);
+                debug("process Task {0}", task);
+                taskExecutor.execute(null, task);
+            }
+        }
+        awaitCompletion(inFlight, inFlightTokenIds);
+
+        queueMonitor.addTaskBatch(queueDepth, batch.size(), maxInFlight);
+    }
+
+    /**
+     * Waits for all outstanding tasks to notify their result handlers. This does not respond to interrupts,
+     * so that a batch is never abandoned part way through.
+     */
+    private void awaitCompletion(List<Promise<Void, NeverThrowsException>> inFlight, Set<String> inFlightTokenIds) {
+        for (Promise<Void, NeverThrowsException> promise : inFlight) {
+            promise.getOrThrowUninterruptibly();
+        }
+        inFlight.clear();
+        inFlightTokenIds.clear();
+    }
+
     private void debug(String format, Object... args) {
         if (debug.messageEnabled()) {
             debug.message(MessageFormat.format(
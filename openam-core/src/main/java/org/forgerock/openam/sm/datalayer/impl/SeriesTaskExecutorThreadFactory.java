@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm.datalayer.impl;
 
@@ -41,14 +42,15 @@ public class SeriesTaskExecutorThreadFactory {
      * Creates an instance of a SeriesTaskExecutorThread and assigns the BlockingQueue instance
      * to it.
      *
+     * @param queueName Non null name of the queue, used for monitoring.
      * @param queue Non null BlockingQueue to assign.
      *
      * @return Non null SeriesTaskExecutorThread, ready to be started.
      */
-    public SeriesTaskExecutorThread create(BlockingQueue<Task> queue) {
-        Reject.ifNull(queue);
+    public SeriesTaskExecutorThread create(String queueName, BlockingQueue<Task> queue) {
+        Reject.ifNull(queueName, queue);
         SeriesTaskExecutorThread processor = injector.getInstance(SeriesTaskExecutorThread.class);
-        processor.setQueue(queue);
+        processor.setQueue(queueName, queue);
         return processor;
     }
 }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.sm.datalayer.impl;
@@ -22,9 +23,12 @@ import javax.inject.Named;
 import org.forgerock.openam.cts.api.CoreTokenConstants;
 import org.forgerock.openam.sm.datalayer.api.DataLayerConstants;
 import org.forgerock.openam.sm.datalayer.api.DataLayerException;
+import org.forgerock.openam.sm.datalayer.api.PipelinedTask;
 import org.forgerock.openam.sm.datalayer.api.Task;
 import org.forgerock.openam.sm.datalayer.api.TaskExecutor;
 import org.forgerock.openam.sm.datalayer.api.TokenStorageAdapter;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
 
 import com.sun.identity.shared.debug.Debug;
 
@@ -70,6 +74,16 @@ public class SimpleTaskExecutor implements TaskExecutor {
         }
     }
 
+    /**
+     * Starts the task without waiting for it to complete.
+     *
+     * @param task The task to be started.
+     * @return A promise which is completed once the task has notified its result handler.
+     */
+    public Promise<Void, NeverThrowsException> executeAsync(PipelinedTask task) {
+        return task.executeAsync(adapter);
+    }
+
     private void error(String message, Throwable t) {
         debug.error(CoreTokenConstants.DEBUG_ASYNC_HEADER + "Task Processor Error: " + message, t);
     }
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.sm.datalayer.impl.ldap;
@@ -281,8 +282,9 @@ public class LdapQueryBuilder extends QueryBuilder<Connection, Filter> {
 
         @Override
         public Collection<T> next() {
-            // The search results can be paged by using the paging cookie.
-            if (isPagingResults()) {
+            // The search results can be paged by using the paging cookie, which starts empty and is then
+            // carried from each page to the next.
+            if (isPagingResults() && pagingCookie == null) {
                 pagingCookie = getEmptyPagingCookie();
             }
 
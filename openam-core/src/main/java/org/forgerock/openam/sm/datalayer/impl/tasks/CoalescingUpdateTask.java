@@ -0,0 +1,162 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.sm.datalayer.impl.tasks;
+
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.sm.datalayer.api.AbstractPipelinedTask;
+import org.forgerock.openam.sm.datalayer.api.DataLayerException;
+import org.forgerock.openam.sm.datalayer.api.ResultHandler;
+import org.forgerock.openam.sm.datalayer.api.TokenStorageAdapter;
+import org.forgerock.util.Options;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * An update of a Token which, whilst it is waiting to be processed, can be superseded by a newer
+ * update of the same Token. Only the latest state of the Token is written, and every caller that
+ * contributed an update is notified of the result of that write.
+ *
+ * @see UpdateTask
+ */
+public class CoalescingUpdateTask extends AbstractPipelinedTask<Token> {
+
+    private final Options options;
+    private final List<ResultHandler<Token, ?>> handlers;
+    private ConcurrentMap<String, CoalescingUpdateTask> pendingUpdates;
+    private Token token;
+    private boolean started = false;
+
+    /**
+     * @param token Non null Token to update.
+     * @param options Non null Options for the operation.
+     * @param handler Non null handler to notify.
+     */
+    public CoalescingUpdateTask(Token token, Options options, ResultHandler<Token, ?> handler) {
+        this(new CopyOnWriteArrayList<ResultHandler<Token, ?>>(), token, options);
+        handlers.add(handler);
+    }
+
+    private CoalescingUpdateTask(List<ResultHandler<Token, ?>> handlers, Token token, Options options) {
+        super(token.getTokenId(), new AllResultHandler(handlers));
+        this.token = token;
+        this.options = options;
+        this.handlers = handlers;
+    }
+
+    /**
+     * Makes this task available to be superseded, unless it has already started. Any task registered for
+     * the Token is replaced by this one, as this task will be queued after it.
+     *
+     * @param pendingUpdates Non null map of the updates waiting to be processed, by Token ID.
+     */
+    public synchronized void register(ConcurrentMap<String, CoalescingUpdateTask> pendingUpdates) {
+        if (started) {
+            return;
+        }
+        this.pendingUpdates = pendingUpdates;
+        CoalescingUpdateTask previous = pendingUpdates.putIfAbsent(getTokenId(), this);
+        while (previous != null && !pendingUpdates.replace(getTokenId(), previous, this)) {
+            previous = pendingUpdates.putIfAbsent(getTokenId(), this);
+        }
+    }
+
+    /**
+     * Replaces the Token this task will write, provided the task has not yet started.
+     *
+     * @param updated Non null newer state of the Token.
+     * @param handler Non null handler to notify of the result of the write.
+     * @return True if the update was merged into this task, false if the task had already started.
+     */
+    public synchronized boolean supersede(Token updated, ResultHandler<Token, ?> handler) {
+        if (started) {
+            return false;
+        }
+        token = updated;
+        handlers.add(handler);
+        return true;
+    }
+
+    private synchronized Token start() {
+        started = true;
+        if (pendingUpdates != null) {
+            pendingUpdates.remove(getTokenId(), this);
+        }
+        return token;
+    }
+
+    @Override
+    public void performTask(TokenStorageAdapter adapter) throws DataLayerException {
+        new UpdateTask(start(), options, handler).performTask(adapter);
+    }
+
+    @Override
+    protected Promise<Token, DataLayerException> performTaskAsync(TokenStorageAdapter adapter) {
+        return new UpdateTask(start(), options, handler).performTaskAsync(adapter);
+    }
+
+    @Override
+    public String toString() {
+        return MessageFormat.format("CoalescingUpdateTask: {0}", getTokenId());
+    }
+
+    /**
+     * Notifies every handler which contributed to the update.
+     */
+    private static final class AllResultHandler implements ResultHandler<Token, Exception> {
+
+        private final List<ResultHandler<Token, ?>> handlers;
+        private volatile Token result;
+        private volatile Exception error;
+
+        private AllResultHandler(List<ResultHandler<Token, ?>> handlers) {
+            this.handlers = handlers;
+        }
+
+        /**
+         * Does not wait for the update to complete.
+         *
+         * @return The Token which was written, or null if the update has not yet completed.
+         * @throws Exception If the update failed.
+         */
+        @Override
+        public Token getResults() throws Exception {
+            if (error != null) {
+                throw error;
+            }
+            return result;
+        }
+
+        @Override
+        public void processResults(Token result) {
+            this.result = result;
+            for (ResultHandler<Token, ?> handler : handlers) {
+                handler.processResults(result);
+            }
+        }
+
+        @Override
+        public void processError(Exception error) {
+            this.error = error;
+            for (ResultHandler<Token, ?> handler : handlers) {
+                handler.processError(error);
+            }
+        }
+    }
+}
@@ -12,22 +12,24 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm.datalayer.impl.tasks;
 
 import java.text.MessageFormat;
 
 import org.forgerock.openam.cts.api.tokens.Token;
-import org.forgerock.openam.sm.datalayer.api.AbstractTask;
+import org.forgerock.openam.sm.datalayer.api.AbstractPipelinedTask;
 import org.forgerock.openam.sm.datalayer.api.DataLayerException;
 import org.forgerock.openam.sm.datalayer.api.ResultHandler;
 import org.forgerock.openam.sm.datalayer.api.TokenStorageAdapter;
 import org.forgerock.util.Options;
+import org.forgerock.util.promise.Promise;
 
 /**
  * Responsible for creating a Token in persistence layer.
  */
-public class CreateTask extends AbstractTask {
+public class CreateTask extends AbstractPipelinedTask<Token> {
 
     private final Token token;
     private final Options options;
@@ -38,7 +40,7 @@ public class CreateTask extends AbstractTask {
      * @param handler Non null handler to notify.
      */
     public CreateTask(Token token, Options options, ResultHandler<Token, ?> handler) {
-        super(handler);
+        super(token.getTokenId(), handler);
         this.token = token;
         this.options = options;
     }
@@ -57,6 +59,11 @@ public class CreateTask extends AbstractTask {
         handler.processResults(created);
     }
 
+    @Override
+    protected Promise<Token, DataLayerException> performTaskAsync(TokenStorageAdapter adapter) {
+        return adapter.createAsync(token, options);
+    }
+
     @Override
     public String toString() {
         return MessageFormat.format("CreateTask: {0}", token.getTokenId());
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm.datalayer.impl.tasks;
 
@@ -19,17 +20,18 @@ import java.text.MessageFormat;
 import java.util.Collections;
 
 import org.forgerock.openam.cts.api.CTSOptions;
-import org.forgerock.openam.sm.datalayer.api.AbstractTask;
+import org.forgerock.openam.sm.datalayer.api.AbstractPipelinedTask;
 import org.forgerock.openam.sm.datalayer.api.DataLayerException;
 import org.forgerock.openam.sm.datalayer.api.ResultHandler;
 import org.forgerock.openam.sm.datalayer.api.TokenStorageAdapter;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.util.Options;
+import org.forgerock.util.promise.Promise;
 
 /**
  * Deletes a given Token from the persistence layer.
  */
-public class DeleteTask extends AbstractTask<PartialToken> {
+public class DeleteTask extends AbstractPipelinedTask<PartialToken> {
 
     private final String tokenId;
     private final Options options;
@@ -40,7 +42,7 @@ public class DeleteTask extends AbstractTask<PartialToken> {
      * @param handler Non null result handler for signalling status of operation.
      */
     public DeleteTask(String tokenID, Options options, ResultHandler<PartialToken, ?> handler) {
-        super(handler);
+        super(tokenID, handler);
         this.tokenId = tokenID;
         this.options = options;
     }
@@ -58,6 +60,11 @@ public class DeleteTask extends AbstractTask<PartialToken> {
         handler.processResults(token);
     }
 
+    @Override
+    protected Promise<PartialToken, DataLayerException> performTaskAsync(TokenStorageAdapter adapter) {
+        return adapter.deleteAsync(tokenId, options);
+    }
+
     @Override
     public String toString() {
         return MessageFormat.format("DeleteTask: {0}", tokenId);
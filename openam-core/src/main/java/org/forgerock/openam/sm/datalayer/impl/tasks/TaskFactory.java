@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm.datalayer.impl.tasks;
 
@@ -68,6 +69,33 @@ public class TaskFactory {
         return new UpdateTask(token, options, handler);
     }
 
+    /**
+     * Used to signal an update of only the changed attributes of the given Token, without
+     * a read of its stored state.
+     *
+     * @param previous Non null. The token as last known to the caller.
+     * @param updated Non null. The token to update with.
+     * @param options Non null. The Options for the operation.
+     * @param handler Required handler to notify when operation is complete.
+     * @return Non null. Token update Task.
+     */
+    public Task updateAttributes(Token previous, Token updated, Options options, ResultHandler<Token, ?> handler) {
+        return new UpdateAttributesTask(previous, updated, options, handler);
+    }
+
+    /**
+     * Used to signal an update operation for the given Token, which may be superseded by a later
+     * update of the same Token before it is processed.
+     *
+     * @param token Non null. The token to update.
+     * @param options Non null. The Options for the operation.
+     * @param handler Required handler to notify when operation is complete.
+     * @return Non null. Token update Task.
+     */
+    public CoalescingUpdateTask coalescingUpdate(Token token, Options options, ResultHandler<Token, ?> handler) {
+        return new CoalescingUpdateTask(token, options, handler);
+    }
+
     /**
      * Used to signal a delete operation for the given Token ID.
      *
@@ -0,0 +1,72 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.sm.datalayer.impl.tasks;
+
+import java.text.MessageFormat;
+
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.sm.datalayer.api.AbstractPipelinedTask;
+import org.forgerock.openam.sm.datalayer.api.DataLayerException;
+import org.forgerock.openam.sm.datalayer.api.ResultHandler;
+import org.forgerock.openam.sm.datalayer.api.TokenStorageAdapter;
+import org.forgerock.util.Options;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * Responsible for updating the attributes of a Token which have changed since the caller last
+ * observed it. Unlike {@link UpdateTask} the stored state is not read first; the caller supplied
+ * previous Token is trusted, and is expected to be guarded by an ETag assertion in the options.
+ */
+public class UpdateAttributesTask extends AbstractPipelinedTask<Token> {
+
+    private final Token previous;
+    private final Token updated;
+    private final Options options;
+
+    /**
+     * @param previous Non null Token as last known to the caller.
+     * @param updated Non null Token to update with.
+     * @param options Non null Options for the operation.
+     * @param handler Non null handler to notify.
+     */
+    public UpdateAttributesTask(Token previous, Token updated, Options options, ResultHandler<Token, ?> handler) {
+        super(updated.getTokenId(), handler);
+        this.previous = previous;
+        this.updated = updated;
+        this.options = options;
+    }
+
+    /**
+     * Performs a modification of only the changed attributes of the Token.
+     *
+     * @param adapter Non null for connection-coupled operations.
+     * @throws DataLayerException If there was an error of any kind.
+     */
+    @Override
+    public void performTask(TokenStorageAdapter adapter) throws DataLayerException {
+        handler.processResults(adapter.updateAttributes(previous, updated, options));
+    }
+
+    @Override
+    protected Promise<Token, DataLayerException> performTaskAsync(TokenStorageAdapter adapter) {
+        return adapter.updateAttributesAsync(previous, updated, options);
+    }
+
+    @Override
+    public String toString() {
+        return MessageFormat.format("UpdateAttributesTask: {0}", updated.getTokenId());
+    }
+}
@@ -12,22 +12,26 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm.datalayer.impl.tasks;
 
 import java.text.MessageFormat;
 
+import org.forgerock.openam.audit.context.AbstractAuditRequestContextPropagatingDecorator;
 import org.forgerock.openam.cts.api.tokens.Token;
-import org.forgerock.openam.sm.datalayer.api.AbstractTask;
+import org.forgerock.openam.sm.datalayer.api.AbstractPipelinedTask;
 import org.forgerock.openam.sm.datalayer.api.DataLayerException;
 import org.forgerock.openam.sm.datalayer.api.ResultHandler;
 import org.forgerock.openam.sm.datalayer.api.TokenStorageAdapter;
+import org.forgerock.util.AsyncFunction;
 import org.forgerock.util.Options;
+import org.forgerock.util.promise.Promise;
 
 /**
  * Responsible for updating the persistence layer with the provided Token.
  */
-public class UpdateTask extends AbstractTask {
+public class UpdateTask extends AbstractPipelinedTask<Token> {
 
     private final Token token;
     private final Options options;
@@ -38,7 +42,7 @@ public class UpdateTask extends AbstractTask {
      * @param handler Non null handler to notify.
      */
     public UpdateTask(Token token, Options options, ResultHandler<Token, ?> handler) {
-        super(handler);
+        super(token.getTokenId(), handler);
         this.token = token;
         this.options = options;
     }
@@ -64,8 +68,52 @@ public class UpdateTask extends AbstractTask {
         handler.processResults(updated);
     }
 
+    /**
+     * Performs the same read followed by an update or create as {@link #performTask(TokenStorageAdapter)},
+     * chaining the second operation onto the completion of the read.
+     *
+     * @param adapter Non null for connection-coupled operations.
+     * @return A promise of the updated Token.
+     */
+    @Override
+    protected Promise<Token, DataLayerException> performTaskAsync(final TokenStorageAdapter adapter) {
+        final AuditContextPropagator auditContext = new AuditContextPropagator();
+        return adapter.readAsync(token.getTokenId(), options).thenAsync(
+                new AsyncFunction<Token, Token, DataLayerException>() {
+                    @Override
+                    public Promise<Token, DataLayerException> apply(Token previous) {
+                        // The update is generated on the thread completing the read.
+                        auditContext.setContext();
+                        try {
+                            if (previous == null) {
+                                return adapter.createAsync(token, options);
+                            }
+                            return adapter.updateAsync(previous, token, options);
+                        } finally {
+                            auditContext.revertContext();
+                        }
+                    }
+                });
+    }
+
     @Override
     public String toString() {
         return MessageFormat.format("UpdateTask: {0}", token.getTokenId());
     }
+
+    /**
+     * Carries the audit request context of the caller over to the thread which completes the read.
+     */
+    private static final class AuditContextPropagator extends AbstractAuditRequestContextPropagatingDecorator {
+
+        @Override
+        protected void setContext() {
+            super.setContext();
+        }
+
+        @Override
+        protected void revertContext() {
+            super.revertContext();
+        }
+    }
 }
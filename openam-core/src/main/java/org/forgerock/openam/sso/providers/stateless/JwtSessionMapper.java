@@ -12,9 +12,13 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2017 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sso.providers.stateless;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.forgerock.openam.utils.Time.currentTimeMillis;
+
 import java.security.Key;
 import java.util.Map;
 import java.util.TreeMap;
@@ -57,6 +61,13 @@ public final class JwtSessionMapper {
     private static final JwtBuilderFactory jwtBuilderFactory = new JwtBuilderFactory();
     private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
     };
+    private static final String EXPIRY_CLAIM = "exp";
+    private static final int SIGNED_SEPARATORS = 2;
+    private static final int ENCRYPTED_SEPARATORS = 4;
+    /** The bit of the third part, the signature, of a signed JWT. */
+    private static final int SIGNATURE_PART = 1 << 2;
+    /** The bit of the second part, the encrypted key, of an encrypted JWT. */
+    private static final int ENCRYPTED_KEY_PART = 1 << 1;
 
     @VisibleForTesting
     final JwsAlgorithm jwsAlgorithm;
@@ -157,10 +168,12 @@ public final class JwtSessionMapper {
                 }
 
                 signedEncryptedJwt.decrypt(decryptionKey);
+                rejectIfExpired(signedEncryptedJwt.getClaimsSet());
                 signedJwt = signedEncryptedJwt;
             } else {
                 EncryptedJwt encryptedJwt = jwtBuilderFactory.reconstruct(jwtString, EncryptedJwt.class);
                 encryptedJwt.decrypt(decryptionKey);
+                rejectIfExpired(encryptedJwt.getClaimsSet());
                 return fromJson(encryptedJwt.getClaimsSet());
             }
 
@@ -169,6 +182,8 @@ public final class JwtSessionMapper {
             // could throw JwtRuntimeException
             signedJwt = jwtBuilderFactory.reconstruct(jwtString, SignedJwt.class);
 
+            // The claims are readable before the signature is verified, no need to verify an expired JWT.
+            rejectIfExpired(signedJwt.getClaimsSet());
             if (!doesJwtAlgorithmMatch(signedJwt) || !signedJwt.verify(verificationHandler)) {
                 throw new JwtRuntimeException("Invalid JWT!");
             }
@@ -179,6 +194,65 @@ public final class JwtSessionMapper {
         return fromJson(claimsSet);
     }
 
+    /**
+     * Cheaply checks that the provided string has the shape of a JWT in compact serialization: three (signed) or
+     * five (encrypted) dot separated, base64url encoded parts. Every part must be non empty, except the signature,
+     * which is empty when the JWT is not signed, and the encrypted key, which is empty when the content encryption
+     * key is used directly. Used to reject garbage before any cryptographic operation is attempted.
+     *
+     * @param jwtString Possibly null string to check.
+     *
+     * @return {@code true} if the string could be a JWT.
+     */
+    static boolean isWellFormed(String jwtString) {
+        if (jwtString == null) {
+            return false;
+        }
+        int separators = 0;
+        int emptyParts = 0;
+        int partStart = 0;
+        for (int i = 0; i < jwtString.length(); i++) {
+            char c = jwtString.charAt(i);
+            if (c == '.') {
+                if (i == partStart) {
+                    emptyParts |= 1 << separators;
+                }
+                if (++separators > ENCRYPTED_SEPARATORS) {
+                    return false;
+                }
+                partStart = i + 1;
+            } else if (!isBase64UrlCharacter(c)) {
+                return false;
+            }
+        }
+        if (partStart == jwtString.length()) {
+            emptyParts |= 1 << separators;
+        }
+        if (separators == SIGNED_SEPARATORS) {
+            return (emptyParts & ~SIGNATURE_PART) == 0;
+        }
+        return separators == ENCRYPTED_SEPARATORS && (emptyParts & ~ENCRYPTED_KEY_PART) == 0;
+    }
+
+    private static boolean isBase64UrlCharacter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '=';
+    }
+
+    /**
+     * Rejects the JWT if the session it holds has expired. An expiry time of zero is left unset by
+     * {@link SessionInfo}, and so is not taken as expired.
+     */
+    private static void rejectIfExpired(JwtClaimsSet claimsSet) {
+        Object expiry = claimsSet.get(EXPIRY_CLAIM).getObject();
+        if (expiry instanceof Number) {
+            long expiryTimeSeconds = ((Number) expiry).longValue();
+            if (expiryTimeSeconds > 0 && MILLISECONDS.toSeconds(currentTimeMillis()) >= expiryTimeSeconds) {
+                throw new JwtRuntimeException("JWT has expired");
+            }
+        }
+    }
+
     private SessionInfo fromJson(JwtClaimsSet claimsSet) {
         return MAPPER.convertValue(toMap(claimsSet), SessionInfo.class);
     }
@@ -12,7 +12,7 @@
 * information: "Portions copyright [year] [name of copyright owner]".
 *
 * Copyright 2015-2017 ForgeRock AS.
-* Portions Copyright 2023 Wren Security
+* Portions Copyright 2023-2026 Wren Security
 */
 
 package org.forgerock.openam.sso.providers.stateless;
@@ -127,16 +127,22 @@ public class StatelessSessionManager {
      */
     public SessionInfo getSessionInfo(SessionID sessionID) throws SessionException {
         String jwt = getJWTFromSessionID(sessionID, true);
-        if (cache.contains(jwt)) {
+        SessionInfo sessionInfo = cache.getSessionInfo(jwt);
+        if (sessionInfo != null) {
             debug.message("StatelessSessionFactory.getSessionInfo: JWT {} found in cache", jwt);
-            return cache.getSessionInfo(jwt);
+            return sessionInfo;
+        }
+
+        if (!JwtSessionMapper.isWellFormed(jwt) || cache.isRejected(jwt)) {
+            debug.message("StatelessSessionFactory.getSessionInfo: JWT {} rejected without verification", jwt);
+            throw new SessionException("Invalid JWT in sessionID " + sessionID);
         }
 
-        SessionInfo sessionInfo;
         try {
             sessionInfo = getJwtSessionMapper().fromJwt(jwt);
         } catch (JwtRuntimeException e) {
             debug.message("StatelessSessionFactory.getSessionInfo: JWT {} Does not map to passed sessionID {}", jwt, sessionID, e);
+            cache.reject(jwt);
             throw new SessionException(e);
         }
         cache.cache(sessionInfo, jwt);
@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 
 package com.iplanet.dpro.session.service;
@@ -27,10 +27,12 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import org.forgerock.openam.session.SessionEventType;
+import org.forgerock.openam.session.service.access.SessionPersistenceManager;
 import org.forgerock.openam.utils.TimeTravelUtil;
 import org.forgerock.openam.utils.TimeTravelUtil.FrozenTimeService;
 import org.forgerock.util.time.TimeService;
@@ -337,6 +339,32 @@ public class InternalSessionTest extends AbstractMockBasedTest {
         assertThat(session.isTimedOut()).isTrue();
     }
 
+    @Test
+    public void shouldPersistFrequentlyAccessedSessionOnceStoredAccessTimeLagsByFlushThreshold() {
+        // Given
+        final InternalSession session = createSession();
+        SessionPersistenceManager persistenceManager = mock(SessionPersistenceManager.class);
+        session.setPersistenceManager(persistenceManager);
+        long threshold = session.getAccessTimeFlushThreshold();
+
+        // When the session is accessed every second until just before the threshold is exceeded
+        for (int i = 0; i < threshold; i++) {
+            FrozenTimeService.INSTANCE.fastForward(1, SECONDS);
+            session.setLatestAccessTime();
+        }
+
+        // Then
+        verify(persistenceManager, never()).notifyUpdate(session);
+        assertThat(session.getLatestAccessTime(SECONDS)).isEqualTo(threshold);
+
+        // When
+        FrozenTimeService.INSTANCE.fastForward(1, SECONDS);
+        session.setLatestAccessTime();
+
+        // Then
+        verify(persistenceManager, times(1)).notifyUpdate(session);
+    }
+
     private void verifyEvent(InternalSession session, SessionEventType eventType) {
         ArgumentCaptor<InternalSessionEvent> eventCaptor = ArgumentCaptor.forClass(InternalSessionEvent.class);
         verify(mockInternalSessionEventBroker, times(1)).onEvent(eventCaptor.capture());
@@ -0,0 +1,200 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.iplanet.dpro.session.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.Executor;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.iplanet.dpro.session.service.SessionNotificationDispatcher.Transport;
+import com.sun.identity.shared.debug.Debug;
+
+public class SessionNotificationDispatcherTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private Transport transport;
+    private URL agentUrl;
+    private URL otherUrl;
+    private SessionNotificationDispatcher dispatcher;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        transport = mock(Transport.class);
+        agentUrl = new URL("http://agent.example.com:8080/agentapp/notification");
+        otherUrl = new URL("http://other.example.com:8080/agentapp/notification");
+        dispatcher = new SessionNotificationDispatcher(transport, DIRECT_EXECUTOR, 10, mock(Debug.class));
+    }
+
+    @Test
+    public void shouldBatchNotificationsQueuedWhileARequestIsInFlight() throws Exception {
+        // Given
+        given(transport.post(eq(agentUrl), anyString()))
+                .willAnswer(sending(agentUrl, "<second/>", "<third/>"))
+                .willReturn(true);
+
+        // When
+        dispatcher.send(agentUrl, "<first/>");
+
+        // Then
+        ArgumentCaptor<String> requests = ArgumentCaptor.forClass(String.class);
+        verify(transport, times(2)).post(eq(agentUrl), requests.capture());
+        assertThat(requests.getAllValues().get(0)).contains("<first/>").doesNotContain("<second/>");
+        assertThat(requests.getAllValues().get(1)).contains("<second/>", "<third/>");
+        assertThat(dispatcher.getDeliveredCount()).isEqualTo(3);
+        assertThat(dispatcher.getRequestCount()).isEqualTo(2);
+        assertThat(dispatcher.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void shouldDropNotificationsWhenDestinationQueueIsFull() throws Exception {
+        // Given
+        final int[] pendingInFlight = new int[1];
+        given(transport.post(eq(agentUrl), anyString())).willAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                if (dispatcher.getRequestCount() == 1) {
+                    for (int i = 0; i < 10; i++) {
+                        dispatcher.send(agentUrl, "<queued/>");
+                    }
+                    pendingInFlight[0] = dispatcher.getPendingCount();
+                }
+                return true;
+            }
+        });
+
+        // When
+        dispatcher.send(agentUrl, "<inflight/>");
+
+        // Then
+        assertThat(pendingInFlight[0]).isEqualTo(5);
+        assertThat(dispatcher.getDroppedCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldOpenCircuitAfterConsecutiveFailures() throws Exception {
+        // Given
+        given(transport.post(eq(agentUrl), anyString())).willReturn(false);
+        for (int i = 0; i < SessionNotificationDispatcher.FAILURE_THRESHOLD; i++) {
+            dispatcher.send(agentUrl, "<failing/>");
+        }
+
+        // When
+        dispatcher.send(agentUrl, "<suspended/>");
+
+        // Then
+        verify(transport, times(SessionNotificationDispatcher.FAILURE_THRESHOLD)).post(eq(agentUrl), anyString());
+        assertThat(dispatcher.getFailedCount()).isEqualTo(SessionNotificationDispatcher.FAILURE_THRESHOLD);
+        assertThat(dispatcher.getDroppedCount()).isEqualTo(1);
+        assertThat(dispatcher.getOpenCircuitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCountRequestsWhichCouldNotBeSentAsFailed() throws Exception {
+        // Given
+        given(transport.post(eq(agentUrl), anyString())).willThrow(new IOException("Read timed out"));
+
+        // When
+        dispatcher.send(agentUrl, "<timedout/>");
+
+        // Then
+        assertThat(dispatcher.getFailedCount()).isEqualTo(1);
+        assertThat(dispatcher.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void shouldNotHoldUpOtherDestinationsBehindASlowDestination() throws Exception {
+        // Given
+        given(transport.post(eq(agentUrl), anyString())).willAnswer(sending(otherUrl, "<fast/>"));
+        given(transport.post(eq(otherUrl), anyString())).willReturn(true);
+
+        // When
+        dispatcher.send(agentUrl, "<slow/>");
+
+        // Then
+        verify(transport).post(eq(otherUrl), anyString());
+        assertThat(dispatcher.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldForgetIdleDestinations() throws Exception {
+        // Given
+        dispatcher = new SessionNotificationDispatcher(transport, DIRECT_EXECUTOR, 10, 0, mock(Debug.class));
+        given(transport.post(any(URL.class), anyString())).willReturn(true);
+        dispatcher.send(agentUrl, "<first/>");
+
+        // When
+        dispatcher.send(otherUrl, "<second/>");
+
+        // Then
+        assertThat(dispatcher.getDestinationCount()).isEqualTo(1);
+        assertThat(dispatcher.getDeliveredCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldForgetIdleDestinationsWithAnOpenCircuit() throws Exception {
+        // Given
+        dispatcher = new SessionNotificationDispatcher(transport, DIRECT_EXECUTOR, 10, 0, mock(Debug.class));
+        given(transport.post(eq(agentUrl), anyString())).willReturn(false);
+        given(transport.post(eq(otherUrl), anyString())).willReturn(true);
+        for (int i = 0; i < SessionNotificationDispatcher.FAILURE_THRESHOLD; i++) {
+            dispatcher.send(agentUrl, "<failing/>");
+        }
+
+        // When
+        dispatcher.send(otherUrl, "<other/>");
+
+        // Then
+        assertThat(dispatcher.getDestinationCount()).isEqualTo(1);
+        assertThat(dispatcher.getOpenCircuitCount()).isEqualTo(0);
+    }
+
+    /**
+     * Answers a post by queueing further notifications whilst it is in flight, and then succeeding.
+     */
+    private Answer<Boolean> sending(final URL url, final String... notifications) {
+        return new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                for (String notification : notifications) {
+                    dispatcher.send(url, notification);
+                }
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.sun.identity.entitlement;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.Subject;
+
+import org.forgerock.openam.utils.TimeTravelUtil;
+import org.forgerock.openam.utils.TimeTravelUtil.FrozenTimeService;
+import org.forgerock.util.time.TimeService;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.iplanet.sso.SSOToken;
+import com.iplanet.sso.SSOTokenID;
+
+public class DecisionCacheTest {
+
+    private static final String REALM = "/";
+    private static final String APPLICATION = "iPlanetAMWebAgentService";
+    private static final String RESOURCE = "http://www.example.com:80/index.html";
+    private static final String USER = "id=demo,ou=user,dc=openam,dc=forgerock,dc=org";
+    private static final Map<String, Set<String>> ENVIRONMENT =
+            Collections.singletonMap("requestIp", Collections.singleton("10.0.0.1"));
+
+    private DecisionCache cache;
+
+    @BeforeMethod
+    public void setUp() {
+        TimeTravelUtil.setBackingTimeService(FrozenTimeService.INSTANCE);
+        FrozenTimeService.INSTANCE.setCurrentTimeMillis(0);
+        cache = new DecisionCache(true, 100, SECONDS.toMillis(60));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        TimeTravelUtil.setBackingTimeService(TimeService.SYSTEM);
+    }
+
+    @Test
+    public void shouldReturnCopyOfCachedDecisionUntilMaximumTimeToLive() throws Exception {
+        // Given
+        DecisionCache.Key key = key(subject(USER, "token1"), ENVIRONMENT);
+        cache.put(key, decision(Long.MAX_VALUE), cache.getSequence());
+
+        // When
+        List<Entitlement> cached = cache.get(key(subject(USER, "token1"), ENVIRONMENT));
+        cached.get(0).getActionValues().put("GET", false);
+
+        // Then
+        assertThat(cache.get(key).get(0).getActionValue("GET")).isTrue();
+        FrozenTimeService.INSTANCE.fastForward(60, SECONDS);
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    public void shouldExpireDecisionAtEarliestConditionTimeToLive() throws Exception {
+        // Given
+        DecisionCache.Key key = key(subject(USER, "token1"), ENVIRONMENT);
+        cache.put(key, decision(SECONDS.toMillis(5)), cache.getSequence());
+
+        // When
+        FrozenTimeService.INSTANCE.fastForward(5, SECONDS);
+
+        // Then
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    public void shouldNotShareDecisionsBetweenSessionsOrEnvironments() throws Exception {
+        // Given
+        cache.put(key(subject(USER, "token1"), ENVIRONMENT), decision(Long.MAX_VALUE), cache.getSequence());
+
+        // Then
+        assertThat(cache.get(key(subject(USER, "token2"), ENVIRONMENT))).isNull();
+        assertThat(cache.get(key(subject(USER, "token1"), Collections.<String, Set<String>>emptyMap()))).isNull();
+    }
+
+    @Test
+    public void shouldInvalidateDecisionsOfUser() throws Exception {
+        // Given
+        DecisionCache.Key key = key(subject(USER, "token1"), ENVIRONMENT);
+        DecisionCache.Key otherKey = key(subject("id=other", "token2"), ENVIRONMENT);
+        cache.put(key, decision(Long.MAX_VALUE), cache.getSequence());
+        cache.put(otherKey, decision(Long.MAX_VALUE), cache.getSequence());
+
+        // When
+        cache.invalidateUser(USER);
+
+        // Then
+        assertThat(cache.get(key)).isNull();
+        assertThat(cache.get(otherKey)).isNotNull();
+    }
+
+    @Test
+    public void shouldNotCacheDecisionEvaluatedBeforeInvalidation() throws Exception {
+        // Given
+        DecisionCache.Key key = key(subject(USER, "token1"), ENVIRONMENT);
+        long sequence = cache.getSequence();
+
+        // When
+        cache.invalidateAll();
+        cache.put(key, decision(Long.MAX_VALUE), sequence);
+
+        // Then
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    public void shouldNotCreateKeyForSubjectWithoutSession() {
+        Subject subject = new Subject(false, Collections.singleton(principal(USER)), Collections.emptySet(),
+                Collections.emptySet());
+
+        assertThat(key(subject, ENVIRONMENT)).isNull();
+    }
+
+    @Test
+    public void shouldNotCreateKeyWhenDisabled() throws Exception {
+        cache = new DecisionCache(false, 100, SECONDS.toMillis(60));
+
+        assertThat(key(subject(USER, "token1"), ENVIRONMENT)).isNull();
+    }
+
+    private DecisionCache.Key key(Subject subject, Map<String, Set<String>> environment) {
+        return cache.createKey(REALM, APPLICATION, RESOURCE, RESOURCE, subject, environment, false);
+    }
+
+    private static List<Entitlement> decision(long timeToLive) {
+        Entitlement entitlement = new Entitlement(APPLICATION, RESOURCE, Collections.singletonMap("GET", true));
+        entitlement.setTTL(timeToLive);
+        return Collections.singletonList(entitlement);
+    }
+
+    private static Subject subject(String user, String tokenId) throws Exception {
+        SSOToken token = mock(SSOToken.class);
+        SSOTokenID ssoTokenId = mock(SSOTokenID.class);
+        given(ssoTokenId.toString()).willReturn(tokenId);
+        given(token.getTokenID()).willReturn(ssoTokenId);
+        given(token.getAuthLevel()).willReturn(0);
+        Set<Object> credentials = new HashSet<>();
+        credentials.add(token);
+        return new Subject(false, Collections.singleton(principal(user)), Collections.emptySet(), credentials);
+    }
+
+    private static Principal principal(final String name) {
+        return new Principal() {
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
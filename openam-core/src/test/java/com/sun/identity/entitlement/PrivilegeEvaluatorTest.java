@@ -0,0 +1,217 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.sun.identity.entitlement;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.forgerock.openam.entitlement.PrivilegeEvaluatorContext;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.mockito.verification.VerificationMode;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PrivilegeEvaluatorTest {
+
+    private static final String APP_NAME = "testAppName";
+    private static final String RESOURCE_NAME = "http://test.web.com:80/hello/world/page.html";
+    private static final String ACTION = "GET";
+
+    private ForkJoinPool workerPool;
+    private ForkJoinPool pool;
+    private PrivilegeEvaluator evaluator;
+    private PrivilegeEvaluatorContext context;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        workerPool = new ForkJoinPool(4);
+        pool = mock(ForkJoinPool.class);
+        given(pool.invoke(any(ForkJoinTask.class))).willAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return workerPool.invoke(invocation.<ForkJoinTask<?>>getArgument(0));
+            }
+        });
+
+        Application application = mock(Application.class);
+        given(application.getName()).willReturn(APP_NAME);
+        EntitlementCombiner combiner = new DenyOverride();
+        combiner.init(RESOURCE_NAME, RESOURCE_NAME, Collections.singleton(ACTION), false, application);
+        evaluator = new PrivilegeEvaluator(combiner);
+        context = new PrivilegeEvaluatorContext("/", RESOURCE_NAME, APP_NAME);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        workerPool.shutdownNow();
+    }
+
+    @Test
+    public void shouldEvaluateFewPrivilegesOnTheCallingThread() throws Exception {
+        // Given
+        List<IPrivilege> privileges = privileges(3, true);
+
+        // When
+        List<Entitlement> results = evaluator.evaluate(privileges, null, context, pool);
+
+        // Then
+        verify(pool, never()).invoke(any(ForkJoinTask.class));
+        verifyEvaluatedOnce(privileges);
+        assertThat(results.get(0).getActionValue(ACTION)).isTrue();
+    }
+
+    @Test
+    public void shouldShareManyPrivilegesBetweenTheWorkerThreads() throws Exception {
+        // Given
+        List<IPrivilege> privileges = privileges(20, true);
+
+        // When
+        List<Entitlement> results = evaluator.evaluate(privileges, null, context, pool);
+
+        // Then
+        verify(pool).invoke(any(ForkJoinTask.class));
+        verifyEvaluatedOnce(privileges);
+        assertThat(results.get(0).getActionValue(ACTION)).isTrue();
+    }
+
+    @Test
+    public void shouldEvaluateCheapPrivilegesOnTheCallingThread() throws Exception {
+        // Given
+        List<IPrivilege> privileges = privileges(20, true);
+        for (IPrivilege privilege : privileges) {
+            PrivilegeEvaluator.recordCost("/", privilege, 1000L);
+        }
+
+        // When
+        evaluator.evaluate(privileges, null, context, pool);
+
+        // Then
+        verify(pool, never()).invoke(any(ForkJoinTask.class));
+        verifyEvaluatedOnce(privileges);
+    }
+
+    @Test
+    public void shouldEvaluateOnTheCallingThreadWhenThePoolRejectsThePrivileges() throws Exception {
+        // Given
+        List<IPrivilege> privileges = privileges(20, true);
+        given(pool.invoke(any(ForkJoinTask.class))).willThrow(new RejectedExecutionException());
+
+        // When
+        List<Entitlement> results = evaluator.evaluate(privileges, null, context, pool);
+
+        // Then
+        verifyEvaluatedOnce(privileges);
+        assertThat(results.get(0).getActionValue(ACTION)).isTrue();
+    }
+
+    @Test
+    public void shouldEvaluateOnTheCallingThreadOnceThePoolIsShutDown() throws Exception {
+        // Given
+        List<IPrivilege> privileges = privileges(20, true);
+        given(pool.isShutdown()).willReturn(true);
+
+        // When
+        evaluator.evaluate(privileges, null, context, pool);
+
+        // Then
+        verify(pool, never()).invoke(any(ForkJoinTask.class));
+        verifyEvaluatedOnce(privileges);
+    }
+
+    @Test
+    public void shouldStopEvaluatingOnceDenyOverridesHasDecided() throws Exception {
+        // Given
+        List<IPrivilege> privileges = privileges(3, true);
+        privileges.add(0, privilege(false));
+
+        // When
+        List<Entitlement> results = evaluator.evaluate(privileges, null, context, null);
+
+        // Then
+        assertThat(results.get(0).getActionValue(ACTION)).isFalse();
+        verifyEvaluated(privileges.get(0), times(1));
+        for (IPrivilege privilege : privileges.subList(1, privileges.size())) {
+            verifyEvaluated(privilege, never());
+        }
+    }
+
+    @Test
+    public void shouldPropagateFailureFromWorkerThreads() throws Exception {
+        // Given
+        List<IPrivilege> privileges = privileges(20, true);
+        EntitlementException failure = new EntitlementException(EntitlementException.INVALID_VALUE);
+        IPrivilege failing = mock(IPrivilege.class);
+        given(failing.getName()).willReturn(UUID.randomUUID().toString());
+        given(failing.evaluate(any(), any(), any(), any(), any(), any(), any(), any(), anyBoolean(), any()))
+                .willThrow(failure);
+        privileges.set(10, failing);
+
+        // When
+        Throwable thrown = catchThrowable(() -> evaluator.evaluate(privileges, null, context, pool));
+
+        // Then
+        verify(pool).invoke(any(ForkJoinTask.class));
+        assertThat(thrown).isSameAs(failure);
+    }
+
+    private List<IPrivilege> privileges(int count, boolean allow) throws EntitlementException {
+        List<IPrivilege> privileges = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            privileges.add(privilege(allow));
+        }
+        return privileges;
+    }
+
+    private IPrivilege privilege(boolean allow) throws EntitlementException {
+        // Each privilege has its own name, so that its evaluation cost is unknown until it has been evaluated
+        IPrivilege privilege = mock(IPrivilege.class);
+        given(privilege.getName()).willReturn(UUID.randomUUID().toString());
+        given(privilege.evaluate(any(), any(), any(), any(), any(), any(), any(), any(), anyBoolean(), any()))
+                .willReturn(Collections.singletonList(new Entitlement(APP_NAME, RESOURCE_NAME,
+                        singletonMap(ACTION, allow))));
+        return privilege;
+    }
+
+    private void verifyEvaluatedOnce(List<IPrivilege> privileges) throws EntitlementException {
+        for (IPrivilege privilege : privileges) {
+            verifyEvaluated(privilege, times(1));
+        }
+    }
+
+    private void verifyEvaluated(IPrivilege privilege, VerificationMode mode)
+            throws EntitlementException {
+        verify(privilege, mode).evaluate(any(), any(), any(), any(), any(), any(), any(), any(), anyBoolean(), any());
+    }
+}
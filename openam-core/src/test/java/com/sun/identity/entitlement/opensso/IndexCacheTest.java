@@ -0,0 +1,260 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.sun.identity.entitlement.opensso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.sun.identity.entitlement.ResourceSaveIndexes;
+import com.sun.identity.entitlement.ResourceSearchIndexes;
+
+public class IndexCacheTest {
+
+    @Test
+    public void matchesOnHostAndPathIndexes() {
+        IndexCache cache = new IndexCache(100);
+        cache.cache(saveIndexes("http://www.example.com", "/home"), null, "dn1");
+        cache.cache(saveIndexes("http://www.example.com", "/admin"), null, "dn2");
+
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.example.com", "/home"), null, false))
+                .containsOnly("dn1");
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.example.com", "/"), null, true))
+                .containsOnly("dn1", "dn2");
+    }
+
+    @Test
+    public void matchesIndexesRegardlessOfCase() {
+        IndexCache cache = new IndexCache(100);
+        cache.cache(saveIndexes("http://WWW.example.com", "/Home"), Collections.singleton("Subject"), "dn1");
+
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.EXAMPLE.com", "/home"),
+                Collections.singleton("subject"), false)).containsOnly("dn1");
+    }
+
+    @Test
+    public void keepsCachingBusyIndexes() {
+        IndexCache cache = new IndexCache(100);
+        Set<String> expected = new HashSet<String>();
+
+        for (int i = 0; i < 100; i++) {
+            cache.cache(saveIndexes("http://www.example.com", "/home"), null, "dn" + i);
+            expected.add("dn" + i);
+        }
+
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.example.com", "/home"), null, false))
+                .isEqualTo(expected);
+        assertThat(cache.isComplete()).isTrue();
+    }
+
+    @Test
+    public void clearRemovesPrivilegeFromPostings() {
+        IndexCache cache = new IndexCache(100);
+        ResourceSaveIndexes indexes = saveIndexes("http://www.example.com", "/home");
+        cache.cache(indexes, null, "dn1");
+        cache.cache(indexes, null, "dn2");
+
+        cache.clear(indexes, "dn1");
+
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.example.com", "/home"), null, false))
+                .containsOnly("dn2");
+    }
+
+    @Test
+    public void clearRemovesPrivilegeFromLargePostings() {
+        IndexCache cache = new IndexCache(100);
+        ResourceSaveIndexes indexes = saveIndexes("http://www.example.com", "/home");
+        for (int i = 0; i < IndexCache.LARGE_POSTINGS * 2; i++) {
+            cache.cache(indexes, null, "dn" + i);
+        }
+
+        for (int i = 1; i < IndexCache.LARGE_POSTINGS * 2; i++) {
+            cache.clear(indexes, "dn" + i);
+        }
+
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.example.com", "/home"), null, false))
+                .containsOnly("dn0");
+
+        cache.clear(indexes, "dn0");
+        cache.cache(indexes, null, "dn1");
+
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.example.com", "/home"), null, false))
+                .containsOnly("dn1");
+    }
+
+    @Test
+    public void concurrentlyCachedPrivilegesAreNotLost() throws Exception {
+        final IndexCache cache = new IndexCache(100);
+        final ResourceSaveIndexes indexes = saveIndexes("http://www.example.com", "/home");
+        final int threads = 4;
+        final int perThread = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int i = 0; i < perThread; i++) {
+                            cache.cache(indexes, null, "dn" + thread + "-" + i);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.example.com", "/home"), null, false))
+                .hasSize(threads * perThread);
+    }
+
+    @Test
+    public void reportsIncompleteOnceFull() {
+        IndexCache cache = new IndexCache(2);
+        cache.cache(saveIndexes("http://www.example.com", "/a"), null, "dn1");
+        assertThat(cache.isComplete()).isTrue();
+
+        cache.cache(saveIndexes("http://www.test.com", "/b"), null, "dn2");
+        cache.cache(saveIndexes("http://www.other.com", "/c"), null, "dn3");
+
+        assertThat(cache.isComplete()).isFalse();
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.other.com", "/c"), null, false)).isEmpty();
+    }
+
+    @Test
+    public void becomesCompleteOnceRefusedPrivilegesAreCleared() {
+        IndexCache cache = new IndexCache(2);
+        ResourceSaveIndexes refused = saveIndexes("http://www.other.com", "/c");
+        cache.cache(saveIndexes("http://www.example.com", "/a"), null, "dn1");
+        cache.cache(refused, null, "dn2");
+        assertThat(cache.isComplete()).isFalse();
+
+        cache.clear(refused, "dn2");
+
+        assertThat(cache.isComplete()).isTrue();
+    }
+
+    @Test
+    public void becomesCompleteOnceRefusedPrivilegesAreCachedInFull() {
+        IndexCache cache = new IndexCache(2);
+        ResourceSaveIndexes first = saveIndexes("http://www.example.com", "/a");
+        ResourceSaveIndexes refused = saveIndexes("http://www.other.com", "/c");
+        cache.cache(first, null, "dn1");
+        cache.cache(refused, null, "dn2");
+        cache.clear(first, "dn1");
+
+        cache.cache(refused, null, "dn2");
+
+        assertThat(cache.isComplete()).isTrue();
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.other.com", "/c"), null, false))
+                .containsOnly("dn2");
+    }
+
+    @Test
+    public void removesEmptyLargePostings() {
+        IndexCache cache = new IndexCache(3);
+        ResourceSaveIndexes indexes = saveIndexes("http://www.example.com", "/home");
+        for (int i = 0; i < IndexCache.LARGE_POSTINGS * 2; i++) {
+            cache.cache(indexes, null, "dn" + i);
+        }
+        for (int i = 0; i < IndexCache.LARGE_POSTINGS * 2; i++) {
+            cache.clear(indexes, "dn" + i);
+        }
+
+        cache.cache(saveIndexes("http://www.other.com", "/c"), null, "dn");
+
+        assertThat(cache.isComplete()).isTrue();
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.other.com", "/c"), null, false))
+                .containsOnly("dn");
+    }
+
+    @Test
+    public void concurrentlyCachedPrivilegesAreNotLostToEmptiedPostings() throws Exception {
+        final IndexCache cache = new IndexCache(100);
+        final ResourceSaveIndexes indexes = saveIndexes("http://www.example.com", "/home");
+        final int threads = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        Set<String> kept = new HashSet<String>();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                kept.add("kept" + thread);
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int round = 0; round < 200; round++) {
+                            for (int i = 0; i < IndexCache.LARGE_POSTINGS / 2; i++) {
+                                cache.cache(indexes, null, "dn" + thread + "-" + i);
+                            }
+                            for (int i = 0; i < IndexCache.LARGE_POSTINGS / 2; i++) {
+                                cache.clear(indexes, "dn" + thread + "-" + i);
+                            }
+                        }
+                        cache.cache(indexes, null, "kept" + thread);
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cache.getMatchingEntries(searchIndexes("http://www.example.com", "/home"), null, false))
+                .isEqualTo(kept);
+        assertThat(cache.isComplete()).isTrue();
+    }
+
+    private static ResourceSaveIndexes saveIndexes(String host, String path) {
+        return new ResourceSaveIndexes(Collections.singleton(host), Collections.singleton(host + path),
+                new HashSet<String>(Arrays.asList(host + "/", host + path)));
+    }
+
+    private static ResourceSearchIndexes searchIndexes(String host, String path) {
+        return new ResourceSearchIndexes(Collections.singleton(host), Collections.singleton(host + path),
+                Collections.singleton(host + path));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.sun.identity.entitlement.opensso;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.sun.identity.entitlement.IPrivilege;
+import com.sun.identity.entitlement.Privilege;
+import com.sun.identity.entitlement.ResourceSaveIndexes;
+import com.sun.identity.entitlement.ResourceSearchIndexes;
+import com.sun.identity.entitlement.util.SimpleIterator;
+
+public class PreloadedRealmTest {
+
+    @Test
+    public void searchFeedsMatchingPrivileges() {
+        Privilege home = mock(Privilege.class);
+        Privilege admin = mock(Privilege.class);
+        PreloadedRealm realm = new PreloadedRealm.Builder()
+                .add("ou=home", home, saveIndexes("http://www.example.com", "/home"), null, 100)
+                .add("ou=admin", admin, saveIndexes("http://www.example.com", "/admin"), null, 100)
+                .build();
+
+        assertThat(search(realm, searchIndexes("http://www.example.com", "/home"), false)).containsOnly(home);
+        assertThat(search(realm, searchIndexes("http://www.example.com", "/"), true)).containsOnly(home, admin);
+    }
+
+    @Test
+    public void privilegesWithoutIndexesAreHeldButNeverMatched() {
+        Privilege privilege = mock(Privilege.class);
+        PreloadedRealm realm = new PreloadedRealm.Builder().add("ou=none", privilege, null, null, 100).build();
+
+        assertThat(realm.getPrivilegeCount()).isEqualTo(1);
+        assertThat(realm.getPrivilege("ou=none")).isSameAs(privilege);
+        assertThat(search(realm, searchIndexes("http://www.example.com", "/"), true)).isEmpty();
+    }
+
+    @Test
+    public void footprintGrowsWithPrivilegeSize() {
+        PreloadedRealm small = new PreloadedRealm.Builder()
+                .add("ou=p", mock(Privilege.class), saveIndexes("http://www.example.com", "/a"), null, 100)
+                .build();
+        PreloadedRealm large = new PreloadedRealm.Builder()
+                .add("ou=p", mock(Privilege.class), saveIndexes("http://www.example.com", "/a"), null, 1000)
+                .build();
+
+        assertThat(small.getFootprint()).isPositive();
+        assertThat(large.getFootprint()).isGreaterThan(small.getFootprint());
+        assertThat(new PreloadedRealm.Builder().build().getFootprint()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<IPrivilege> search(PreloadedRealm realm, ResourceSearchIndexes indexes, boolean bSubTree) {
+        SimpleIterator iterator = new SimpleIterator();
+        realm.search(indexes, null, bSubTree, iterator);
+        List<IPrivilege> results = new ArrayList<IPrivilege>();
+        while (iterator.hasNext()) {
+            results.add((IPrivilege) iterator.next());
+        }
+        return results;
+    }
+
+    private static ResourceSaveIndexes saveIndexes(String host, String path) {
+        return new ResourceSaveIndexes(Collections.singleton(host), Collections.singleton(host + path),
+                new HashSet<String>(Arrays.asList(host + "/", host + path)));
+    }
+
+    private static ResourceSearchIndexes searchIndexes(String host, String path) {
+        return new ResourceSearchIndexes(Collections.singleton(host), Collections.singleton(host + path),
+                Collections.singleton(host + path));
+    }
+}
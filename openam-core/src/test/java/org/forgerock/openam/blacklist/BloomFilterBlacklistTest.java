@@ -12,19 +12,24 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 
 package org.forgerock.openam.blacklist;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.openam.utils.Time.currentTimeMillis;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.util.concurrent.TimeUnit;
+
 import org.forgerock.bloomfilter.BloomFilter;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
@@ -37,10 +42,15 @@ import com.iplanet.dpro.session.Session;
 public class BloomFilterBlacklistTest extends AbstractMockBasedTest {
 
     private static final long PURGE_DELAY = 1000L;
+    private static final long BUCKET_DURATION = TimeUnit.MINUTES.toMillis(1);
+    private static final int BUCKET_CAPACITY = 100;
 
     @Mock
     private Blacklist<Blacklistable> mockDelegate;
 
+    @Mock
+    private BloomFilterBlacklist.BucketFactory mockBucketFactory;
+
     @Mock
     private BloomFilter<BloomFilterBlacklist.BlacklistEntry> mockBloomFilter;
 
@@ -48,10 +58,20 @@ public class BloomFilterBlacklistTest extends AbstractMockBasedTest {
     private Session mockSession;
 
     private BloomFilterBlacklist<Blacklistable> testBlacklist;
+    private Blacklist.Listener listener;
+    private long expiryTime;
 
     @BeforeMethod
     public void setup() {
-        testBlacklist = new BloomFilterBlacklist<>(mockDelegate, PURGE_DELAY, mockBloomFilter);
+        ArgumentCaptor<Blacklist.Listener> listenerArgumentCaptor
+                = ArgumentCaptor.forClass(Blacklist.Listener.class);
+        willDoNothing().given(mockDelegate).subscribe(listenerArgumentCaptor.capture());
+        given(mockBucketFactory.create(anyInt())).willReturn(mockBloomFilter);
+        testBlacklist = new BloomFilterBlacklist<>(mockDelegate, PURGE_DELAY, BUCKET_DURATION, BUCKET_CAPACITY,
+                mockBucketFactory);
+        listener = listenerArgumentCaptor.getValue();
+        // The middle of a bucket an hour from now
+        expiryTime = (currentTimeMillis() / BUCKET_DURATION + 60) * BUCKET_DURATION + BUCKET_DURATION / 2;
     }
 
     @Test
@@ -62,21 +82,37 @@ public class BloomFilterBlacklistTest extends AbstractMockBasedTest {
     @Test
     public void shouldAddNotifiedBlacklistedSessionsToTheBloomFilter() {
         // Given
-        ArgumentCaptor<Blacklist.Listener> listenerArgumentCaptor
-                = ArgumentCaptor.forClass(Blacklist.Listener.class);
-        willDoNothing().given(mockDelegate).subscribe(listenerArgumentCaptor.capture());
-        testBlacklist = new BloomFilterBlacklist<>(mockDelegate, PURGE_DELAY, mockBloomFilter);
-        Blacklist.Listener listener = listenerArgumentCaptor.getValue();
         String id = "testSession";
-        long expiryTime = 1234l;
 
         // When
         listener.onBlacklisted(id, expiryTime);
 
         // Then
+        verify(mockBucketFactory).create(BUCKET_CAPACITY);
         verify(mockBloomFilter).add(new BloomFilterBlacklist.BlacklistEntry(id, expiryTime));
     }
 
+    @Test
+    public void shouldShareBucketBetweenEntriesExpiringTogether() {
+        // When
+        listener.onBlacklisted("testSession1", expiryTime);
+        listener.onBlacklisted("testSession2", expiryTime + 1);
+
+        // Then
+        verify(mockBucketFactory, times(1)).create(anyInt());
+        assertThat(testBlacklist.getBucketCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotAddEntriesThatHaveAlreadyExpired() {
+        // When
+        listener.onBlacklisted("testSession", currentTimeMillis() - 1);
+
+        // Then
+        verify(mockBucketFactory, never()).create(anyInt());
+        assertThat(testBlacklist.getBucketCount()).isEqualTo(0);
+    }
+
     @Test
     public void shouldDelegateBlacklistToDelegate() throws Exception {
         testBlacklist.blacklist(mockSession);
@@ -87,10 +123,10 @@ public class BloomFilterBlacklistTest extends AbstractMockBasedTest {
     public void shouldNotCheckDelegateIfSessionNotInBloomFilter() throws Exception {
         // Given
         String id = "testSession";
-        long expiryTime = 1234l;
+        listener.onBlacklisted("otherSession", expiryTime + PURGE_DELAY);
         given(mockSession.getStableStorageID()).willReturn(id);
         given(mockSession.getBlacklistExpiryTime()).willReturn(expiryTime);
-        given(mockBloomFilter.mightContain(new BloomFilterBlacklist.BlacklistEntry(id, expiryTime)))
+        given(mockBloomFilter.mightContain(new BloomFilterBlacklist.BlacklistEntry(id, expiryTime + PURGE_DELAY)))
                 .willReturn(false);
 
         // When
@@ -101,11 +137,28 @@ public class BloomFilterBlacklistTest extends AbstractMockBasedTest {
         verify(mockDelegate, never()).isBlacklisted(any(Session.class));
     }
 
+    @Test
+    public void shouldNotCheckDelegateIfNoBucketCoversSessionExpiry() throws Exception {
+        // Given
+        listener.onBlacklisted("otherSession", expiryTime);
+        given(mockSession.getStableStorageID()).willReturn("testSession");
+        given(mockSession.getBlacklistExpiryTime()).willReturn(expiryTime + 10 * BUCKET_DURATION);
+        given(mockBloomFilter.mightContain(any(BloomFilterBlacklist.BlacklistEntry.class))).willReturn(true);
+
+        // When
+        boolean result = testBlacklist.isBlacklisted(mockSession);
+
+        // Then
+        assertThat(result).isFalse();
+        verify(mockBloomFilter, never()).mightContain(any(BloomFilterBlacklist.BlacklistEntry.class));
+        verify(mockDelegate, never()).isBlacklisted(any(Session.class));
+    }
+
     @Test
     public void shouldCheckDelegateIfSessionIsInBloomFilter() throws Exception {
         // Given
         String id = "testSession";
-        long expiryTime = 1234L;
+        listener.onBlacklisted(id, expiryTime + PURGE_DELAY);
         given(mockSession.getStableStorageID()).willReturn(id);
         given(mockSession.getBlacklistExpiryTime()).willReturn(expiryTime);
         given(mockBloomFilter.mightContain(new BloomFilterBlacklist.BlacklistEntry(id, expiryTime + PURGE_DELAY)))
@@ -118,6 +171,48 @@ public class BloomFilterBlacklistTest extends AbstractMockBasedTest {
         // Then
         assertThat(result).isTrue();
         verify(mockDelegate).isBlacklisted(mockSession);
+        assertThat(testBlacklist.getFallThroughCount()).isEqualTo(1);
+        assertThat(testBlacklist.getFalsePositiveCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCheckAdjacentBucketForExpiryNearBoundary() throws Exception {
+        // Given
+        String id = "testSession";
+        long boundary = (expiryTime / BUCKET_DURATION) * BUCKET_DURATION;
+        listener.onBlacklisted(id, boundary - 1);
+        given(mockSession.getStableStorageID()).willReturn(id);
+        given(mockSession.getBlacklistExpiryTime()).willReturn(boundary - PURGE_DELAY);
+        given(mockBloomFilter.mightContain(any(BloomFilterBlacklist.BlacklistEntry.class))).willReturn(true);
+        given(mockDelegate.isBlacklisted(mockSession)).willReturn(true);
+
+        // When
+        boolean result = testBlacklist.isBlacklisted(mockSession);
+
+        // Then
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    public void shouldRecordFalsePositives() throws Exception {
+        // Given
+        listener.onBlacklisted("otherSession", expiryTime + PURGE_DELAY);
+        given(mockSession.getStableStorageID()).willReturn("testSession");
+        given(mockSession.getBlacklistExpiryTime()).willReturn(expiryTime);
+        given(mockBloomFilter.mightContain(any(BloomFilterBlacklist.BlacklistEntry.class)))
+                .willReturn(true, false);
+        given(mockDelegate.isBlacklisted(mockSession)).willReturn(false);
+
+        // When
+        testBlacklist.isBlacklisted(mockSession);
+        testBlacklist.isBlacklisted(mockSession);
+
+        // Then
+        assertThat(testBlacklist.getCheckCount()).isEqualTo(2);
+        assertThat(testBlacklist.getFallThroughCount()).isEqualTo(1);
+        assertThat(testBlacklist.getFalsePositiveCount()).isEqualTo(1);
+        assertThat(testBlacklist.getFallThroughRate()).isEqualTo(0.5d);
+        assertThat(testBlacklist.getFalsePositiveRate()).isEqualTo(0.5d);
     }
 
     @Test
@@ -129,4 +224,4 @@ public class BloomFilterBlacklistTest extends AbstractMockBasedTest {
         // Then
         mockDelegate.subscribe(listener);
     }
-}
\ No newline at end of file
+}
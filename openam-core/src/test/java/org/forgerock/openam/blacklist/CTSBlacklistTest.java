@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 
 package org.forgerock.openam.blacklist;
@@ -22,19 +22,34 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.iplanet.dpro.session.Session;
 import com.iplanet.dpro.session.service.SessionServiceConfig;
 import com.iplanet.services.naming.WebtopNamingQuery;
 import org.assertj.core.api.ThrowableAssert;
 import org.forgerock.openam.cts.CTSPersistentStore;
+import org.forgerock.openam.cts.api.filter.TokenFilter;
 import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.continuous.ChangeType;
+import org.forgerock.openam.cts.continuous.ContinuousQueryListener;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.cts.monitoring.CTSOperationsMonitoringStore;
 import org.forgerock.openam.shared.concurrency.ThreadMonitor;
+import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.openam.tokens.TokenType;
+import org.forgerock.opendj.ldap.Attribute;
+import org.forgerock.opendj.ldap.GeneralizedTime;
+import org.forgerock.opendj.ldap.LinkedAttribute;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -66,13 +81,19 @@ public class CTSBlacklistTest extends AbstractMockBasedTest {
     @Mock
     private SessionServiceConfig mockServiceConfig;
 
+    @Mock
+    private CTSOperationsMonitoringStore mockMonitoringStore;
+
+    @Mock
+    private Blacklist.Listener mockListener;
+
     private CTSBlacklist<Blacklistable> testBlacklist;
 
     @BeforeMethod
     public void setup() throws Exception {
         given(mockServerConfig.getAMServerID()).willReturn("testServer1");
         testBlacklist = new CTSBlacklist<>(mockCts, TokenType.SESSION_BLACKLIST, mockScheduler, mockThreadMonitor,
-                mockServerConfig, PURGE_DELAY, POLL_INTERVAL);
+                mockServerConfig, PURGE_DELAY, POLL_INTERVAL, mockMonitoringStore, false);
 
         given(mockSession.getStableStorageID()).willReturn(SID);
     }
@@ -165,4 +186,79 @@ public class CTSBlacklistTest extends AbstractMockBasedTest {
                 })
                 .isInstanceOf(BlacklistException.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldRegisterContinuousQueryInsteadOfPollingWhenPushEnabled() throws Exception {
+        // Given
+        testBlacklist = new CTSBlacklist<>(mockCts, TokenType.SESSION_BLACKLIST, mockScheduler, mockThreadMonitor,
+                mockServerConfig, PURGE_DELAY, POLL_INTERVAL, mockMonitoringStore, true);
+
+        // When
+        testBlacklist.subscribe(mockListener);
+
+        // Then
+        verify(mockCts).addContinuousQueryListener(any(ContinuousQueryListener.class), any(TokenFilter.class));
+        verifyZeroInteractions(mockThreadMonitor);
+    }
+
+    @Test
+    public void shouldNotifyEntriesPushedFromOtherServers() throws Exception {
+        // Given
+        ContinuousQueryListener<Attribute> queryListener = subscribeWithPush();
+
+        // When
+        queryListener.objectChanged(SID, entry(SID, "testServer2", 5000L), ChangeType.ADD);
+
+        // Then
+        verify(mockListener).onBlacklisted(SID, 5000L);
+        verify(mockMonitoringStore).addBlacklistPropagationLag(anyLong());
+    }
+
+    @Test
+    public void shouldIgnoreEntriesPushedFromLocalServer() throws Exception {
+        // Given
+        ContinuousQueryListener<Attribute> queryListener = subscribeWithPush();
+
+        // When
+        queryListener.objectChanged(SID, entry(SID, "testServer1", 5000L), ChangeType.ADD);
+
+        // Then
+        verify(mockListener, never()).onBlacklisted(eq(SID), anyLong());
+    }
+
+    @Test
+    public void shouldReconcileAfterContinuousQueryReconnects() throws Exception {
+        // Given
+        ContinuousQueryListener<Attribute> queryListener = subscribeWithPush();
+
+        // When
+        queryListener.connectionLost();
+
+        // Then
+        verify(mockScheduler).schedule(any(Runnable.class), eq(POLL_INTERVAL), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ContinuousQueryListener<Attribute> subscribeWithPush() throws Exception {
+        testBlacklist = new CTSBlacklist<>(mockCts, TokenType.SESSION_BLACKLIST, mockScheduler, mockThreadMonitor,
+                mockServerConfig, PURGE_DELAY, POLL_INTERVAL, mockMonitoringStore, true);
+        testBlacklist.subscribe(mockListener);
+        ArgumentCaptor<ContinuousQueryListener> captor = ArgumentCaptor.forClass(ContinuousQueryListener.class);
+        verify(mockCts).addContinuousQueryListener(captor.capture(), any(TokenFilter.class));
+        return captor.getValue();
+    }
+
+    private static Map<String, Attribute> entry(String id, String serverId, long expiryTime) {
+        Map<String, Attribute> changeSet = new HashMap<>();
+        put(changeSet, CoreTokenField.TOKEN_ID, id);
+        put(changeSet, CoreTokenField.STRING_ONE, serverId);
+        put(changeSet, CoreTokenField.EXPIRY_DATE, GeneralizedTime.valueOf(expiryTime).toString());
+        put(changeSet, CoreTokenField.DATE_ONE, GeneralizedTime.valueOf(System.currentTimeMillis()).toString());
+        return changeSet;
+    }
+
+    private static void put(Map<String, Attribute> changeSet, CoreTokenField field, String value) {
+        changeSet.put(field.toString(), new LinkedAttribute(field.toString(), value));
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.core.guice;
@@ -81,6 +82,8 @@ public class DataLayerGuiceModuleTest extends GuiceTestCase {
                 new Object[]{TaskFactory.class, ConnectionType.CTS_SESSION_IDLE_TIMEOUT_WORKER},
                 new Object[]{QueryFactory.class, ConnectionType.CTS_SESSION_IDLE_TIMEOUT_WORKER},
                 new Object[]{ConnectionFactory.class, ConnectionType.CTS_SESSION_IDLE_TIMEOUT_WORKER},
+                new Object[]{QueryFactory.class, ConnectionType.CTS_PAGED_QUERY},
+                new Object[]{ConnectionFactory.class, ConnectionType.CTS_PAGED_QUERY},
                 new Object[]{TaskExecutor.class, ConnectionType.RESOURCE_SETS},
                 new Object[]{TaskFactory.class, ConnectionType.RESOURCE_SETS},
                 new Object[]{QueryFactory.class, ConnectionType.RESOURCE_SETS},
@@ -12,34 +12,47 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts;
 
 import com.sun.identity.shared.debug.Debug;
+import org.forgerock.openam.cts.api.filter.TokenFilter;
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.continuous.ContinuousQueryListener;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.cts.impl.CTSNearCache;
 import org.forgerock.openam.cts.impl.CoreTokenAdapter;
 import org.forgerock.openam.cts.utils.blob.TokenBlobStrategy;
+import org.forgerock.openam.sm.datalayer.api.ResultHandler;
+import org.forgerock.openam.tokens.TokenType;
 import org.forgerock.util.Options;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 public class CTSPersistentStoreImplTest {
 
     private CoreTokenAdapter mockAdapter;
+    private CTSNearCache mockNearCache;
     private CTSPersistentStoreImpl impl;
 
     @BeforeMethod
     public void setup() {
         mockAdapter = mock(CoreTokenAdapter.class);
-        impl = new CTSPersistentStoreImpl(mockAdapter, mock(Debug.class));
+        mockNearCache = mock(CTSNearCache.class);
+        impl = new CTSPersistentStoreImpl(mockAdapter, mockNearCache, mock(Debug.class));
     }
 
     @Test
@@ -54,4 +67,106 @@ public class CTSPersistentStoreImplTest {
         given(mockAdapter.read(anyString(), any(Options.class))).willReturn(null);
         assertThat(impl.read("")).isNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldServeReadFromNearCache() throws CoreTokenException {
+        // Given
+        Token token = mock(Token.class);
+        given(mockNearCache.isEnabled()).willReturn(true);
+        given(mockNearCache.get("badger")).willReturn(token);
+
+        // When
+        Token result = impl.read("badger");
+
+        // Then
+        assertThat(result).isSameAs(token);
+        verify(mockAdapter).continuousQuery(any(ContinuousQueryListener.class), any(TokenFilter.class));
+        verify(mockAdapter, never()).read(anyString(), any(Options.class));
+    }
+
+    @Test
+    public void shouldBypassNearCacheWhenReadingWithOptions() throws CoreTokenException {
+        // Given
+        Token token = mock(Token.class);
+        given(mockNearCache.isEnabled()).willReturn(true);
+        given(mockNearCache.isListening()).willReturn(true);
+        given(mockAdapter.read(eq("badger"), any(Options.class))).willReturn(token);
+
+        // When
+        Token result = impl.read("badger", Options.defaultOptions());
+
+        // Then
+        assertThat(result).isSameAs(token);
+        verify(mockNearCache, never()).get(anyString());
+        verify(mockNearCache, never()).fill(any(Token.class), anyLong());
+    }
+
+    @Test
+    public void shouldNotUseNearCacheUntilListening() throws CoreTokenException {
+        // Given
+        given(mockNearCache.isEnabled()).willReturn(true);
+        willThrow(new CoreTokenException("failed")).given(mockAdapter)
+                .continuousQuery(any(ContinuousQueryListener.class), any(TokenFilter.class));
+
+        // When
+        impl.read("badger");
+
+        // Then
+        verify(mockNearCache, never()).get(anyString());
+        verify(mockAdapter).read(eq("badger"), any(Options.class));
+    }
+
+    @Test
+    public void shouldCacheTokenReadFromAdapter() throws CoreTokenException {
+        // Given
+        Token token = mock(Token.class);
+        given(mockNearCache.stamp()).willReturn(7L);
+        given(mockAdapter.read(eq("badger"), any(Options.class))).willReturn(token);
+
+        // When
+        impl.read("badger");
+
+        // Then
+        verify(mockNearCache).fill(token, 7L);
+    }
+
+    @Test
+    public void shouldInvalidateNearCacheOnAsyncUpdate() throws CoreTokenException {
+        // Given
+        Token token = mock(Token.class);
+        given(token.getTokenId()).willReturn("badger");
+
+        // When
+        impl.updateAsync(token);
+
+        // Then
+        verify(mockNearCache).write("badger");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldCacheDecodedBlobAfterUpdateAttributes() throws CoreTokenException {
+        // Given
+        given(mockNearCache.isEnabled()).willReturn(true);
+        given(mockNearCache.isListening()).willReturn(true);
+        given(mockNearCache.stamp()).willReturn(7L);
+        Token previous = new Token("badger", TokenType.SESSION);
+        Token updated = new Token(previous);
+        updated.setBlob(new byte[] {1});
+        Token written = new Token(updated);
+        written.setBlob(new byte[] {9});
+        ResultHandler<Token, CoreTokenException> handler = mock(ResultHandler.class);
+        given(handler.getResults()).willReturn(written);
+        given(mockAdapter.updateAttributes(eq(previous), eq(updated), any(Options.class))).willReturn(handler);
+
+        // When
+        Token result = impl.updateAttributes(previous, updated, Options.defaultOptions());
+
+        // Then
+        assertThat(result.getBlob()).isEqualTo(new byte[] {1});
+        ArgumentCaptor<Token> cached = ArgumentCaptor.forClass(Token.class);
+        verify(mockNearCache).write("badger");
+        verify(mockNearCache).put(cached.capture(), eq(7L));
+        assertThat(cached.getValue().getBlob()).isEqualTo(new byte[] {1});
+    }
+}
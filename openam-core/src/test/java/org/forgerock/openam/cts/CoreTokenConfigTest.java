@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2014 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts;
 
@@ -22,6 +23,7 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.mock;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 public class CoreTokenConfigTest {
     @Test
@@ -40,4 +42,9 @@ public class CoreTokenConfigTest {
         // Then
         assertEquals(result, badger.toLowerCase());
     }
+
+    @Test
+    public void shouldWriteLegacyTokenCompressionByDefault() {
+        assertTrue(new CoreTokenConfig().isLegacyTokenCompression());
+    }
 }
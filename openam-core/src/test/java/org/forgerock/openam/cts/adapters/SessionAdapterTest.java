@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.adapters;
 
@@ -34,6 +35,7 @@ import org.forgerock.openam.cts.api.fields.SessionTokenField;
 import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.api.tokens.TokenIdFactory;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.cts.utils.BinarySerialisation;
 import org.forgerock.openam.cts.utils.JSONSerialisation;
 import org.forgerock.openam.cts.utils.blob.TokenBlobUtils;
 import org.forgerock.openam.tokens.CoreTokenField;
@@ -54,6 +56,7 @@ public class SessionAdapterTest {
     private TokenIdFactory mockTokenIdFactory;
     private CoreTokenConfig mockCoreTokenConfig;
     private JSONSerialisation mockJsonSerialisation;
+    private BinarySerialisation mockBinarySerialisation;
     private TokenBlobUtils blobUtils;
     private DNWrapper dnWrapper;
 
@@ -62,10 +65,11 @@ public class SessionAdapterTest {
         mockTokenIdFactory = mock(TokenIdFactory.class);
         mockCoreTokenConfig = mock(CoreTokenConfig.class);
         mockJsonSerialisation = mock(JSONSerialisation.class);
+        mockBinarySerialisation = mock(BinarySerialisation.class);
         blobUtils = new TokenBlobUtils();
         dnWrapper = mock(DNWrapper.class);
-        adapter = new SessionAdapter(mockTokenIdFactory, mockCoreTokenConfig, mockJsonSerialisation, blobUtils,
-                dnWrapper);
+        adapter = new SessionAdapter(mockTokenIdFactory, mockCoreTokenConfig, mockJsonSerialisation,
+                mockBinarySerialisation, blobUtils, dnWrapper);
     }
 
     @Test
@@ -133,7 +137,8 @@ public class SessionAdapterTest {
                 .withSetterVisibility(JsonAutoDetect.Visibility.NONE)
                 .withCreatorVisibility(JsonAutoDetect.Visibility.NONE));
         JSONSerialisation serialisation = new JSONSerialisation(mapper);
-        adapter = new SessionAdapter(mockTokenIdFactory, mockCoreTokenConfig, serialisation, blobUtils, dnWrapper);
+        adapter = new SessionAdapter(mockTokenIdFactory, mockCoreTokenConfig, serialisation, mockBinarySerialisation,
+                blobUtils, dnWrapper);
 
         // When
         InternalSession session = adapter.fromToken(token);
@@ -282,6 +287,60 @@ public class SessionAdapterTest {
         assertThat(realm).isEqualTo("PRETTY_REALM");
     }
 
+    @Test
+    public void shouldWriteBinaryBlobWhenConfigured() {
+        // Given
+        InternalSession mockSession = prototypeMockInternalSession();
+        byte[] binary = {':', ')', '\n', 0x05};
+        given(mockCoreTokenConfig.isSessionBinarySerialised()).willReturn(true);
+        given(mockBinarySerialisation.serialise(mockSession, "latestAccessTime")).willReturn(binary);
+        given(mockSession.getLatestAccessTime(SECONDS)).willReturn(1376308558L);
+
+        // When
+        Token token = adapter.toToken(mockSession);
+
+        // Then
+        assertThat(token.getBlob()).isEqualTo(binary);
+        assertThat(token.<String>getAttribute(SessionTokenField.LATEST_ACCESS_TIME.getField()))
+                .isEqualTo("1376308558");
+        verify(mockJsonSerialisation, never()).serialise(any());
+    }
+
+    @Test
+    public void shouldReadBinaryBlobRegardlessOfConfiguration() {
+        // Given
+        InternalSession mockSession = prototypeMockInternalSession();
+        byte[] binary = {':', ')', '\n', 0x05};
+        Token token = new Token("badger", TokenType.SESSION);
+        token.setBlob(binary);
+        given(mockBinarySerialisation.deserialise(binary, InternalSession.class)).willReturn(mockSession);
+
+        // When
+        InternalSession result = adapter.fromToken(token);
+
+        // Then
+        assertThat(result).isSameAs(mockSession);
+        verify(mockJsonSerialisation, never()).deserialise(anyString(), eq(InternalSession.class));
+    }
+
+    @Test
+    public void shouldRestoreLatestAccessTimeIntoBinaryBlob() {
+        // Given
+        InternalSession mockSession = prototypeMockInternalSession();
+        byte[] binary = {':', ')', '\n', 0x05};
+        Token token = new Token("badger", TokenType.SESSION);
+        token.setBlob(binary);
+        token.setAttribute(SessionTokenField.LATEST_ACCESS_TIME.getField(), "12345");
+        given(mockBinarySerialisation.deserialise(binary, InternalSession.class, "latestAccessTime", 12345L))
+                .willReturn(mockSession);
+
+        // When
+        InternalSession result = adapter.fromToken(token);
+
+        // Then
+        assertThat(result).isSameAs(mockSession);
+    }
+
     @Test
     public void shouldFilterLatestAccessTime() throws CoreTokenException {
         // Given
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.api.filter;
 
@@ -58,4 +59,10 @@ public class TokenFilterTest {
         //then
         assertThat(result).isTrue();
     }
+
+    @Test
+    public void shouldOnlyBeLowPriorityWhenRequested() {
+        assertThat(new TokenFilterBuilder().build().isLowPriority()).isFalse();
+        assertThat(new TokenFilterBuilder().withLowPriority().build().isLowPriority()).isTrue();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,239 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Calendar;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.continuous.ChangeType;
+import org.forgerock.openam.cts.monitoring.CTSOperationsMonitoringStore;
+import org.forgerock.openam.tokens.CoreTokenField;
+import org.forgerock.openam.tokens.TokenType;
+import org.forgerock.opendj.ldap.Attribute;
+import org.forgerock.opendj.ldap.LinkedAttribute;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.identity.shared.debug.Debug;
+
+public class CTSNearCacheTest {
+
+    private CTSOperationsMonitoringStore monitoringStore;
+    private CTSNearCache cache;
+
+    @BeforeMethod
+    public void setup() {
+        monitoringStore = mock(CTSOperationsMonitoringStore.class);
+        cache = new CTSNearCache(EnumSet.of(TokenType.OAUTH), 10, 60000L, monitoringStore, mock(Debug.class));
+        cache.setListening();
+    }
+
+    @Test
+    public void shouldServeCopyOfCachedToken() {
+        // Given
+        Token token = token("badger", TokenType.OAUTH, "etag1");
+        cache.put(token, cache.stamp());
+
+        // When
+        Token result = cache.get("badger");
+
+        // Then
+        assertThat(result).isNotSameAs(token);
+        assertThat(result.getTokenId()).isEqualTo("badger");
+        verify(monitoringStore).addNearCacheRead(true);
+    }
+
+    @Test
+    public void shouldNotServeBeforeListening() {
+        // Given
+        cache = new CTSNearCache(EnumSet.of(TokenType.OAUTH), 10, 60000L, monitoringStore, mock(Debug.class));
+        cache.put(token("badger", TokenType.OAUTH, "etag1"), cache.stamp());
+        cache.setListening();
+
+        // When / Then
+        assertThat(cache.get("badger")).isNull();
+    }
+
+    @Test
+    public void shouldNotCacheTokenTypesNotConfigured() {
+        // Given
+        cache.put(token("badger", TokenType.SAML2, "etag1"), cache.stamp());
+
+        // When / Then
+        assertThat(cache.get("badger")).isNull();
+        verify(monitoringStore).addNearCacheRead(false);
+    }
+
+    @Test
+    public void shouldNotServeTokenPastItsExpiry() {
+        // Given
+        Token token = token("badger", TokenType.OAUTH, "etag1");
+        Calendar expiry = Calendar.getInstance();
+        expiry.add(Calendar.SECOND, -1);
+        token.setExpiryTimestamp(expiry);
+        cache.put(token, cache.stamp());
+
+        // When / Then
+        assertThat(cache.get("badger")).isNull();
+    }
+
+    @Test
+    public void shouldNotCacheReadOverlappingInvalidation() {
+        // Given
+        long stamp = cache.stamp();
+        cache.objectChanged("dn", changeSet("badger", "etag2"), ChangeType.MODIFY);
+
+        // When
+        cache.put(token("badger", TokenType.OAUTH, "etag1"), stamp);
+
+        // Then
+        assertThat(cache.get("badger")).isNull();
+    }
+
+    @Test
+    public void shouldCacheReadsOfOtherTokensOverlappingInvalidation() {
+        // Given
+        long badgerStamp = cache.stamp();
+        long weaselStamp = cache.stamp();
+        cache.objectChanged("dn", changeSet("badger", "etag2"), ChangeType.MODIFY);
+
+        // When
+        cache.fill(token("badger", TokenType.OAUTH, "etag1"), badgerStamp);
+        cache.fill(token("weasel", TokenType.OAUTH, "etag1"), weaselStamp);
+
+        // Then
+        assertThat(cache.get("badger")).isNull();
+        assertThat(cache.get("weasel")).isNotNull();
+    }
+
+    @Test
+    public void shouldCacheConcurrentReadsOfTheSameToken() {
+        // Given
+        long firstStamp = cache.stamp();
+        long secondStamp = cache.stamp();
+
+        // When
+        cache.fill(token("badger", TokenType.OAUTH, "etag1"), firstStamp);
+        cache.write("weasel");
+        cache.fill(token("badger", TokenType.OAUTH, "etag1"), secondStamp);
+
+        // Then
+        assertThat(cache.get("badger")).isNotNull();
+    }
+
+    @Test
+    public void shouldNotReplaceWrittenTokenWithOverlappingRead() {
+        // Given
+        cache.write("badger");
+        long stamp = cache.stamp();
+        cache.put(token("badger", TokenType.OAUTH, "etag2"), stamp);
+
+        // When
+        cache.fill(token("badger", TokenType.OAUTH, "etag1"), stamp);
+
+        // Then
+        assertThat(cache.get("badger").<String>getAttribute(CoreTokenField.ETAG)).isEqualTo("etag2");
+    }
+
+    @Test
+    public void shouldInvalidateOnChangeFromAnotherServer() {
+        // Given
+        cache.put(token("badger", TokenType.OAUTH, "etag1"), cache.stamp());
+
+        // When
+        cache.objectChanged("dn", changeSet("badger", "etag2"), ChangeType.MODIFY);
+
+        // Then
+        assertThat(cache.get("badger")).isNull();
+        verify(monitoringStore).addNearCacheInvalidation();
+    }
+
+    @Test
+    public void shouldKeepTokenOnEchoOfOwnWrite() {
+        // Given
+        cache.write("badger");
+        cache.put(token("badger", TokenType.OAUTH, "etag1"), cache.stamp());
+
+        // When
+        cache.objectChanged("dn", changeSet("badger", "etag1"), ChangeType.MODIFY);
+
+        // Then
+        assertThat(cache.get("badger")).isNotNull();
+        verify(monitoringStore).addNearCacheInvalidationLag(anyLong());
+        verify(monitoringStore, never()).addNearCacheInvalidation();
+    }
+
+    @Test
+    public void shouldInvalidateOnDelete() {
+        // Given
+        cache.put(token("badger", TokenType.OAUTH, "etag1"), cache.stamp());
+
+        // When
+        cache.objectChanged("dn", changeSet("badger", "etag1"), ChangeType.DELETE);
+
+        // Then
+        assertThat(cache.get("badger")).isNull();
+    }
+
+    @Test
+    public void shouldClearWhenConnectionLost() {
+        // Given
+        cache.put(token("badger", TokenType.OAUTH, "etag1"), cache.stamp());
+
+        // When
+        cache.connectionLost();
+
+        // Then
+        assertThat(cache.get("badger")).isNull();
+    }
+
+    @Test
+    public void shouldRecordEvictions() {
+        // Given
+        cache = new CTSNearCache(EnumSet.of(TokenType.OAUTH), 1, 60000L, monitoringStore, mock(Debug.class));
+        cache.setListening();
+
+        // When
+        cache.put(token("badger", TokenType.OAUTH, "etag1"), cache.stamp());
+        cache.put(token("weasel", TokenType.OAUTH, "etag1"), cache.stamp());
+
+        // Then
+        verify(monitoringStore).addNearCacheEviction();
+    }
+
+    private static Token token(String tokenId, TokenType type, String etag) {
+        Token token = new Token(tokenId, type);
+        token.setAttribute(CoreTokenField.ETAG, etag);
+        return token;
+    }
+
+    private static Map<String, Attribute> changeSet(String tokenId, String etag) {
+        Map<String, Attribute> changeSet = new HashMap<>();
+        changeSet.put(CoreTokenField.TOKEN_ID.toString(), new LinkedAttribute(CoreTokenField.TOKEN_ID.toString(),
+                tokenId));
+        changeSet.put(CoreTokenField.ETAG.toString(), new LinkedAttribute(CoreTokenField.ETAG.toString(), etag));
+        return changeSet;
+    }
+}
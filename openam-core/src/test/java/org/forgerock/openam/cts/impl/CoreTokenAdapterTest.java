@@ -12,26 +12,30 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 package org.forgerock.openam.cts.impl;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.forgerock.openam.cts.api.CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION;
 import static org.mockito.BDDMockito.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 
 import com.sun.identity.shared.debug.Debug;
 import org.forgerock.openam.cts.api.filter.TokenFilter;
 import org.forgerock.openam.cts.api.filter.TokenFilterBuilder;
 import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.cts.impl.query.CTSPagedQueryFactory;
 import org.forgerock.openam.cts.impl.queue.ResultHandlerFactory;
 import org.forgerock.openam.cts.impl.queue.TaskDispatcher;
 import org.forgerock.openam.cts.utils.blob.TokenBlobStrategy;
 import org.forgerock.openam.cts.worker.CTSWorkerManager;
 import org.forgerock.openam.sm.datalayer.api.ResultHandler;
+import org.forgerock.openam.sm.datalayer.api.query.PagedQuery;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.openam.tokens.TokenType;
@@ -47,6 +51,7 @@ public class CoreTokenAdapterTest {
     private TokenBlobStrategy mockStrategy;
     private TaskDispatcher mockTaskDispatcher;
     private ResultHandlerFactory mockResultHandlerFactory;
+    private CTSPagedQueryFactory mockPagedQueryFactory;
     private Debug mockDebug;
     private CTSWorkerManager mockReaperInit;
     private Options options;
@@ -60,8 +65,9 @@ public class CoreTokenAdapterTest {
         mockDebug = mock(Debug.class);
         options = Options.defaultOptions();
 
-        adapter = new CoreTokenAdapter(mockStrategy, mockTaskDispatcher, mockResultHandlerFactory, mockReaperInit,
-                mockDebug);
+        mockPagedQueryFactory = mock(CTSPagedQueryFactory.class);
+        adapter = new CoreTokenAdapter(mockStrategy, mockTaskDispatcher, mockResultHandlerFactory,
+                mockPagedQueryFactory, mockReaperInit, mockDebug);
     }
 
     @Test
@@ -148,6 +154,107 @@ public class CoreTokenAdapterTest {
         verify(mockTaskDispatcher).update(eq(token), any(Options.class), any());
     }
 
+    @Test
+    public void shouldSkipBlobStrategyWhenBlobUnchangedOnUpdateAttributes() throws Exception {
+        // Given
+        Token previous = new Token("badger", TokenType.SESSION);
+        previous.setBlob(new byte[] {1, 2, 3});
+        previous.setAttribute(CoreTokenField.ETAG, "ETAG");
+        Token updated = new Token(previous);
+        updated.setAttribute(CoreTokenField.STRING_ONE, "weasel");
+
+        // When
+        adapter.updateAttributes(previous, updated, options);
+
+        // Then
+        verify(mockStrategy, never()).perform(any(byte[].class));
+        ArgumentCaptor<Token> afterCaptor = ArgumentCaptor.forClass(Token.class);
+        ArgumentCaptor<Options> optionsCaptor = ArgumentCaptor.forClass(Options.class);
+        verify(mockTaskDispatcher).updateAttributes(any(Token.class), afterCaptor.capture(),
+                optionsCaptor.capture(), any());
+        assertThat(afterCaptor.getValue().getBlob()).isNull();
+        assertThat(afterCaptor.getValue().<String>getAttribute(CoreTokenField.STRING_ONE)).isEqualTo("weasel");
+        assertThat(optionsCaptor.getValue().get(OPTIMISTIC_CONCURRENCY_CHECK_OPTION)).isEqualTo("ETAG");
+        assertThat(updated.getBlob()).isEqualTo(new byte[] {1, 2, 3});
+    }
+
+    @Test
+    public void shouldApplyBlobStrategyWhenBlobChangedOnUpdateAttributes() throws Exception {
+        // Given
+        Token previous = new Token("badger", TokenType.SESSION);
+        previous.setBlob(new byte[] {1, 2, 3});
+        previous.setAttribute(CoreTokenField.ETAG, "ETAG");
+        Token updated = new Token(previous);
+        updated.setBlob(new byte[] {4, 5, 6});
+        given(mockStrategy.perform(any(byte[].class))).willReturn(new byte[] {7});
+
+        // When
+        adapter.updateAttributes(previous, updated, options);
+
+        // Then
+        ArgumentCaptor<Token> afterCaptor = ArgumentCaptor.forClass(Token.class);
+        verify(mockTaskDispatcher).updateAttributes(any(Token.class), afterCaptor.capture(), any(Options.class),
+                any());
+        assertThat(afterCaptor.getValue().getBlob()).isEqualTo(new byte[] {7});
+        assertThat(updated.getBlob()).isEqualTo(new byte[] {4, 5, 6});
+    }
+
+    @Test
+    public void shouldUpdateOrCreateWhenPreviousHasNoETag() throws CoreTokenException {
+        // Given
+        Token previous = new Token("badger", TokenType.SESSION);
+        Token updated = new Token(previous);
+
+        // When
+        adapter.updateAttributes(previous, updated, options);
+
+        // Then
+        ArgumentCaptor<Token> captor = ArgumentCaptor.forClass(Token.class);
+        verify(mockTaskDispatcher).update(captor.capture(), any(Options.class), any());
+        assertThat(captor.getValue().getTokenId()).isEqualTo("badger");
+        verify(mockTaskDispatcher, never()).updateAttributes(any(Token.class), any(Token.class), any(Options.class),
+                any());
+    }
+
+    @Test
+    public void shouldUpdateOrCreateWithoutModifyingTokenWhenPreviousIsUnknown() throws Exception {
+        // Given
+        Token updated = new Token("badger", TokenType.SESSION);
+        updated.setBlob(new byte[] {1, 2, 3});
+        given(mockStrategy.perform(any(byte[].class))).willReturn(new byte[] {9});
+
+        // When
+        adapter.updateAttributes(null, updated, options);
+
+        // Then
+        verify(mockTaskDispatcher).update(any(Token.class), any(Options.class), any());
+        assertThat(updated.getBlob()).isEqualTo(new byte[] {1, 2, 3});
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReverseBlobStrategyOnEachPageOfPagedQuery() throws Exception {
+        // Given
+        TokenFilter filter = new TokenFilterBuilder().build();
+        Token token = new Token("badger", TokenType.SESSION);
+        token.setBlob(new byte[] {1});
+        PagedQuery<Token> query = mock(PagedQuery.class);
+        given(query.nextPage()).willReturn(Collections.singletonList(token), null);
+        given(mockPagedQueryFactory.query(filter)).willReturn(query);
+        given(mockStrategy.reverse(any(byte[].class))).willReturn(new byte[] {2});
+
+        // When
+        PagedQuery<Token> result = adapter.pagedQuery(filter);
+
+        // Then
+        verify(query, never()).nextPage();
+        assertThat(result.nextPage()).containsOnly(token);
+        assertThat(token.getBlob()).isEqualTo(new byte[] {2});
+        assertThat(result.nextPage()).isNull();
+        result.close();
+        verify(query).close();
+    }
+
     @Test
     public void shouldPerformDelete() throws CoreTokenException {
         // Given
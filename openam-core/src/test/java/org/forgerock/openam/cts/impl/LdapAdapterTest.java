@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.impl;
@@ -22,6 +22,8 @@ import static org.forgerock.openam.cts.api.CTSOptions.OPTIMISTIC_CONCURRENCY_CHE
 import static org.forgerock.openam.cts.api.CTSOptions.PRE_DELETE_READ_OPTION;
 import static org.forgerock.openam.utils.CollectionUtils.asSet;
 import static org.forgerock.opendj.ldap.controls.PostReadResponseControl.newControl;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.newFailedLdapPromise;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.newSuccessfulLdapPromise;
 import static org.mockito.BDDMockito.*;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.fail;
@@ -41,6 +43,7 @@ import org.forgerock.openam.cts.utils.LdapTokenAttributeConversion;
 import org.forgerock.openam.ldap.LDAPRequests;
 import org.forgerock.openam.sm.datalayer.api.ConnectionFactory;
 import org.forgerock.openam.sm.datalayer.api.LdapOperationFailedException;
+import org.forgerock.openam.sm.datalayer.api.OptimisticConcurrencyCheckFailedException;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.sm.datalayer.api.query.QueryBuilder;
 import org.forgerock.openam.sm.datalayer.impl.ldap.LdapDataLayerConfiguration;
@@ -57,6 +60,8 @@ import org.forgerock.opendj.ldap.DecodeOptions;
 import org.forgerock.opendj.ldap.Entry;
 import org.forgerock.opendj.ldap.Filter;
 import org.forgerock.opendj.ldap.LdapException;
+import org.forgerock.opendj.ldap.Modification;
+import org.forgerock.opendj.ldap.ModificationType;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.controls.AssertionRequestControl;
 import org.forgerock.opendj.ldap.controls.PostReadRequestControl;
@@ -68,6 +73,7 @@ import org.forgerock.opendj.ldap.requests.DeleteRequest;
 import org.forgerock.opendj.ldap.requests.ModifyRequest;
 import org.forgerock.opendj.ldap.requests.SearchRequest;
 import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.responses.SearchResultEntry;
 import org.forgerock.util.Option;
 import org.forgerock.util.Options;
 import org.forgerock.util.query.QueryFilter;
@@ -312,6 +318,64 @@ public class LdapAdapterTest {
         assertThat(assertionRequestControl.getFilter().toString()).isEqualTo("(etag=ETAG)");
     }
 
+    @Test
+    public void shouldReplaceOnlyChangedAttributesOnUpdateAttributes() throws Exception {
+        // Given
+        Token first = new Token("badger", TokenType.SESSION);
+        first.setAttribute(CoreTokenField.STRING_ONE, "weasel");
+        first.setAttribute(CoreTokenField.STRING_TWO, "ferret");
+        first.setAttribute(CoreTokenField.STRING_THREE, "stoat");
+        Token second = new Token(first);
+        second.setAttribute(CoreTokenField.STRING_TWO, "otter");
+        second.clearAttribute(CoreTokenField.STRING_THREE);
+        Options options = Options.defaultOptions();
+
+        given(mockConnection.modify(any(ModifyRequest.class))).willReturn(mockSuccessfulResult());
+
+        LdapDataLayerConfiguration config = mock(LdapDataLayerConfiguration.class);
+        when(config.getTokenStoreRootSuffix()).thenReturn(DN.valueOf("ou=unit-test"));
+        LdapTokenAttributeConversion conversion = new LdapTokenAttributeConversion(new LDAPDataConversion(), config);
+        LdapAdapter adapter = new LdapAdapter(conversion, null, null, mockConnectionFactoryProvider, optionFunctionMap);
+
+        // When
+        adapter.updateAttributes(first, second, options);
+
+        // Then
+        ArgumentCaptor<ModifyRequest> requestCaptor = ArgumentCaptor.forClass(ModifyRequest.class);
+        verify(mockConnection).modify(requestCaptor.capture());
+        verify(mockConnection, never()).searchSingleEntry(any(SearchRequest.class));
+        Map<String, Modification> modifications = new HashMap<>();
+        for (Modification modification : requestCaptor.getValue().getModifications()) {
+            assertThat(modification.getModificationType()).isEqualTo(ModificationType.REPLACE);
+            modifications.put(modification.getAttribute().getAttributeDescriptionAsString(), modification);
+        }
+        assertThat(modifications.keySet()).containsOnly(CoreTokenField.STRING_TWO.toString(),
+                CoreTokenField.STRING_THREE.toString());
+        assertThat(modifications.get(CoreTokenField.STRING_TWO.toString()).getAttribute().firstValueAsString())
+                .isEqualTo("otter");
+        assertThat(modifications.get(CoreTokenField.STRING_THREE.toString()).getAttribute().isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldNotModifyWhenNoAttributesChangedOnUpdateAttributes() throws Exception {
+        // Given
+        Token first = new Token("badger", TokenType.SESSION);
+        first.setAttribute(CoreTokenField.STRING_ONE, "weasel");
+        Token second = new Token(first);
+
+        LdapDataLayerConfiguration config = mock(LdapDataLayerConfiguration.class);
+        when(config.getTokenStoreRootSuffix()).thenReturn(DN.valueOf("ou=unit-test"));
+        LdapTokenAttributeConversion conversion = new LdapTokenAttributeConversion(new LDAPDataConversion(), config);
+        LdapAdapter adapter = new LdapAdapter(conversion, null, null, mockConnectionFactoryProvider, optionFunctionMap);
+
+        // When
+        Token result = adapter.updateAttributes(first, second, Options.defaultOptions());
+
+        // Then
+        assertThat(result).isSameAs(first);
+        verify(mockConnection, never()).modify(any(ModifyRequest.class));
+    }
+
     @Test
     public void shouldAddPreReadRequestControlWhenRequested() throws Exception {
         // Given
@@ -543,6 +607,204 @@ public class LdapAdapterTest {
         verify(mockConnection).modify(any(ModifyRequest.class));
     }
 
+    @Test
+    public void shouldCompleteAsyncCreateWithETagOfCreatedToken() throws Exception {
+        // Given
+        Token token = new Token("badger", TokenType.SESSION);
+        given(mockConversion.getEntry(any(Token.class))).willReturn(mock(Entry.class));
+        given(mockConnection.addAsync(any(AddRequest.class)))
+                .willReturn(newSuccessfulLdapPromise(mockSuccessfulResult()));
+
+        // When
+        Token result = adapter.createAsync(token, Options.defaultOptions()).getOrThrow();
+
+        // Then
+        verify(mockConnection, never()).add(any(AddRequest.class));
+        assertThat(result.getTokenId()).isEqualTo("badger");
+        assertThat(result.<String>getAttribute(CoreTokenField.ETAG)).isNotNull();
+    }
+
+    @Test(expectedExceptions = LdapOperationFailedException.class)
+    public void shouldFailAsyncCreateWhenLdapOperationFails() throws Exception {
+        // Given
+        given(mockConversion.getEntry(any(Token.class))).willReturn(mock(Entry.class));
+        given(mockConnection.addAsync(any(AddRequest.class)))
+                .willReturn(newFailedLdapPromise(LdapException.newLdapException(ResultCode.OTHER)));
+
+        // When
+        adapter.createAsync(new Token("badger", TokenType.SESSION), Options.defaultOptions()).getOrThrow();
+    }
+
+    @Test(expectedExceptions = LdapOperationFailedException.class)
+    public void shouldFailAsyncCreateWhenLdapOperationIsCancelled() throws Exception {
+        // Given
+        given(mockConversion.getEntry(any(Token.class))).willReturn(mock(Entry.class));
+        given(mockConnection.addAsync(any(AddRequest.class)))
+                .willReturn(newFailedLdapPromise(LdapException.newLdapException(ResultCode.CANCELLED)));
+
+        // When
+        adapter.createAsync(new Token("badger", TokenType.SESSION), Options.defaultOptions()).getOrThrow();
+    }
+
+    @Test(expectedExceptions = LdapOperationFailedException.class)
+    public void shouldFailAsyncCreateWhenConnectionCannotBeCreated() throws Exception {
+        // Given
+        given(mockConversion.getEntry(any(Token.class))).willReturn(mock(Entry.class));
+        given(mockConnectionFactory.create()).willThrow(new LdapOperationFailedException("no connection"));
+
+        // When
+        adapter.createAsync(new Token("badger", TokenType.SESSION), Options.defaultOptions()).getOrThrow();
+    }
+
+    @Test
+    public void shouldCompleteAsyncReadWithToken() throws Exception {
+        // Given
+        Token token = new Token("badger", TokenType.SESSION);
+        SearchResultEntry entry = mock(SearchResultEntry.class);
+        given(mockConversion.generateTokenDN(anyString())).willReturn(DN.rootDN());
+        given(mockConversion.tokenFromEntry(entry)).willReturn(token);
+        given(mockConnection.searchSingleEntryAsync(any(SearchRequest.class)))
+                .willReturn(newSuccessfulLdapPromise(entry));
+
+        // When
+        Token result = adapter.readAsync("badger", Options.defaultOptions()).getOrThrow();
+
+        // Then
+        verify(mockConnection, never()).searchSingleEntry(any(SearchRequest.class));
+        assertThat(result).isSameAs(token);
+    }
+
+    @Test
+    public void shouldCompleteAsyncReadWithNullWhenObjectNotFound() throws Exception {
+        // Given
+        given(mockConversion.generateTokenDN(anyString())).willReturn(DN.rootDN());
+        given(mockConnection.searchSingleEntryAsync(any(SearchRequest.class)))
+                .willReturn(newFailedLdapPromise(LdapException.newLdapException(ResultCode.NO_SUCH_OBJECT)));
+
+        // When
+        Token result = adapter.readAsync("badger", Options.defaultOptions()).getOrThrow();
+
+        // Then
+        assertThat(result).isNull();
+    }
+
+    @Test(expectedExceptions = LdapOperationFailedException.class)
+    public void shouldFailAsyncReadWhenLdapOperationIsCancelled() throws Exception {
+        // Given
+        given(mockConversion.generateTokenDN(anyString())).willReturn(DN.rootDN());
+        given(mockConnection.searchSingleEntryAsync(any(SearchRequest.class)))
+                .willReturn(newFailedLdapPromise(LdapException.newLdapException(ResultCode.CANCELLED)));
+
+        // When
+        adapter.readAsync("badger", Options.defaultOptions()).getOrThrow();
+    }
+
+    @Test
+    public void shouldCompleteAsyncUpdateAttributesWithETagOfUpdatedToken() throws Exception {
+        // Given
+        Token first = new Token("badger", TokenType.SESSION);
+        first.setAttribute(CoreTokenField.STRING_ONE, "weasel");
+        Token second = new Token(first);
+        second.setAttribute(CoreTokenField.STRING_ONE, "otter");
+        given(mockConnection.modifyAsync(any(ModifyRequest.class)))
+                .willReturn(newSuccessfulLdapPromise(mockSuccessfulResult()));
+
+        // When
+        Token result = adapterWithTokenConversion().updateAttributesAsync(first, second, Options.defaultOptions())
+                .getOrThrow();
+
+        // Then
+        ArgumentCaptor<ModifyRequest> requestCaptor = ArgumentCaptor.forClass(ModifyRequest.class);
+        verify(mockConnection).modifyAsync(requestCaptor.capture());
+        verify(mockConnection, never()).modify(any(ModifyRequest.class));
+        assertThat(requestCaptor.getValue().getModifications()).hasSize(1);
+        assertThat(result.<String>getAttribute(CoreTokenField.STRING_ONE)).isEqualTo("otter");
+        assertThat(result.<String>getAttribute(CoreTokenField.ETAG)).isNotNull();
+    }
+
+    @Test
+    public void shouldCompleteAsyncUpdateWithoutModifyingWhenNothingChanged() throws Exception {
+        // Given
+        Token first = new Token("badger", TokenType.OAUTH);
+        Token second = new Token("badger", TokenType.OAUTH);
+
+        // When
+        Token result = adapterWithTokenConversion().updateAsync(first, second, Options.defaultOptions())
+                .getOrThrow();
+
+        // Then
+        assertThat(result).isSameAs(first);
+        verify(mockConnection, never()).modifyAsync(any(ModifyRequest.class));
+    }
+
+    @Test(expectedExceptions = OptimisticConcurrencyCheckFailedException.class)
+    public void shouldFailAsyncUpdateWhenETagAssertionFails() throws Exception {
+        // Given
+        Token first = new Token("weasel", TokenType.SESSION);
+        Token second = new Token("badger", TokenType.SESSION);
+        Options options = Options.defaultOptions().set(OPTIMISTIC_CONCURRENCY_CHECK_OPTION, "ETAG");
+        optionFunctionMap.put(OPTIMISTIC_CONCURRENCY_CHECK_OPTION, new ETagAssertionCTSOptionFunction());
+        given(mockConnection.modifyAsync(any(ModifyRequest.class)))
+                .willReturn(newFailedLdapPromise(LdapException.newLdapException(ResultCode.ASSERTION_FAILED)));
+
+        // When
+        adapterWithTokenConversion().updateAsync(first, second, options).getOrThrow();
+    }
+
+    @Test(expectedExceptions = LdapOperationFailedException.class)
+    public void shouldFailAsyncUpdateAttributesWhenLdapOperationIsCancelled() throws Exception {
+        // Given
+        Token first = new Token("badger", TokenType.SESSION);
+        Token second = new Token(first);
+        second.setAttribute(CoreTokenField.STRING_ONE, "otter");
+        given(mockConnection.modifyAsync(any(ModifyRequest.class)))
+                .willReturn(newFailedLdapPromise(LdapException.newLdapException(ResultCode.CANCELLED)));
+
+        // When
+        adapterWithTokenConversion().updateAttributesAsync(first, second, Options.defaultOptions()).getOrThrow();
+    }
+
+    @Test
+    public void shouldCompleteAsyncDeleteWithTokenId() throws Exception {
+        // Given
+        given(mockConversion.generateTokenDN(anyString())).willReturn(DN.rootDN());
+        given(mockConnection.deleteAsync(any(DeleteRequest.class)))
+                .willReturn(newSuccessfulLdapPromise(mockSuccessfulResult()));
+
+        // When
+        PartialToken result = adapter.deleteAsync("badger", Options.defaultOptions()).getOrThrow();
+
+        // Then
+        verify(mockConnection, never()).delete(any(DeleteRequest.class));
+        assertThat(result.getFields()).containsOnly(CoreTokenField.TOKEN_ID);
+        assertThat(result.<String>getValue(CoreTokenField.TOKEN_ID)).isEqualTo("badger");
+    }
+
+    @Test
+    public void shouldCompleteAsyncDeleteWhenObjectNotFound() throws Exception {
+        // Given
+        given(mockConversion.generateTokenDN(anyString())).willReturn(DN.rootDN());
+        given(mockConnection.deleteAsync(any(DeleteRequest.class)))
+                .willReturn(newFailedLdapPromise(LdapException.newLdapException(ResultCode.NO_SUCH_OBJECT)));
+
+        // When
+        PartialToken result = adapter.deleteAsync("badger", Options.defaultOptions()).getOrThrow();
+
+        // Then
+        assertThat(result.getFields()).containsOnly(CoreTokenField.TOKEN_ID);
+    }
+
+    @Test(expectedExceptions = LdapOperationFailedException.class)
+    public void shouldFailAsyncDeleteWhenLdapOperationIsCancelled() throws Exception {
+        // Given
+        given(mockConversion.generateTokenDN(anyString())).willReturn(DN.rootDN());
+        given(mockConnection.deleteAsync(any(DeleteRequest.class)))
+                .willReturn(newFailedLdapPromise(LdapException.newLdapException(ResultCode.CANCELLED)));
+
+        // When
+        adapter.deleteAsync("badger", Options.defaultOptions()).getOrThrow();
+    }
+
     @Test
     public void shouldQuery() throws Exception {
         // Given
@@ -600,6 +862,13 @@ public class LdapAdapterTest {
         assertThat(result).containsOnly(partialToken);
     }
 
+    private LdapAdapter adapterWithTokenConversion() {
+        LdapDataLayerConfiguration config = mock(LdapDataLayerConfiguration.class);
+        when(config.getTokenStoreRootSuffix()).thenReturn(DN.valueOf("ou=unit-test"));
+        LdapTokenAttributeConversion conversion = new LdapTokenAttributeConversion(new LDAPDataConversion(), config);
+        return new LdapAdapter(conversion, null, null, mockConnectionFactoryProvider, optionFunctionMap);
+    }
+
     private static Result mockSuccessfulResult() throws DecodeException {
         Result result = mock(Result.class);
         Entry entry = mock(Entry.class);
@@ -0,0 +1,114 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.impl.query;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.BDDMockito.*;
+import static org.testng.Assert.fail;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.forgerock.openam.cts.api.filter.TokenFilter;
+import org.forgerock.openam.cts.api.filter.TokenFilterBuilder;
+import org.forgerock.openam.cts.exceptions.QueryFailedException;
+import org.forgerock.openam.sm.datalayer.api.ConnectionFactory;
+import org.forgerock.openam.sm.datalayer.api.DataLayerRuntimeException;
+import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
+import org.forgerock.openam.sm.datalayer.api.query.QueryBuilder;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("unchecked")
+public class CTSPagedQueryTest {
+
+    private ConnectionFactory<Closeable> mockFactory;
+    private QueryBuilder<Closeable, Object> mockBuilder;
+    private Closeable mockConnection;
+    private Iterator<Collection<PartialToken>> mockResults;
+    private TokenFilter filter;
+    private CTSPagedQuery<Closeable, PartialToken> query;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        mockFactory = mock(ConnectionFactory.class);
+        mockBuilder = mock(QueryBuilder.class);
+        mockConnection = mock(Closeable.class);
+        mockResults = mock(Iterator.class);
+        filter = new TokenFilterBuilder().build();
+
+        given(mockFactory.create()).willReturn(mockConnection);
+        given(mockBuilder.executeRawResults(mockConnection, PartialToken.class)).willReturn(mockResults);
+
+        query = new CTSPagedQuery<>(mockFactory, mockBuilder, PartialToken.class, filter);
+    }
+
+    @Test
+    public void shouldNotQueryUntilFirstPageRequested() throws Exception {
+        verifyNoInteractions(mockFactory, mockBuilder);
+    }
+
+    @Test
+    public void shouldReturnPagesOverOneConnectionAndReleaseItWhenExhausted() throws Exception {
+        // Given
+        Collection<PartialToken> first = Collections.singletonList(mock(PartialToken.class));
+        Collection<PartialToken> second = Collections.singletonList(mock(PartialToken.class));
+        given(mockResults.hasNext()).willReturn(true, true, false);
+        given(mockResults.next()).willReturn(first, second);
+
+        // When / Then
+        assertThat(query.nextPage()).isSameAs(first);
+        assertThat(query.nextPage()).isSameAs(second);
+        verify(mockConnection, never()).close();
+        assertThat(query.nextPage()).isNull();
+        verify(mockFactory, times(1)).create();
+        verify(mockConnection).close();
+    }
+
+    @Test
+    public void shouldStopReturningPagesOnceClosed() throws Exception {
+        // Given
+        given(mockResults.hasNext()).willReturn(true);
+        given(mockResults.next()).willReturn(Collections.<PartialToken>emptyList());
+        query.nextPage();
+
+        // When
+        query.close();
+
+        // Then
+        verify(mockConnection).close();
+        assertThat(query.nextPage()).isNull();
+        verify(mockResults, times(1)).next();
+    }
+
+    @Test
+    public void shouldCloseConnectionWhenPageFails() throws Exception {
+        // Given
+        given(mockResults.hasNext()).willReturn(true);
+        given(mockResults.next()).willThrow(new DataLayerRuntimeException("failed"));
+
+        // When
+        try {
+            query.nextPage();
+            fail();
+        } catch (QueryFailedException e) {
+            // Then
+            verify(mockConnection).close();
+        }
+    }
+}
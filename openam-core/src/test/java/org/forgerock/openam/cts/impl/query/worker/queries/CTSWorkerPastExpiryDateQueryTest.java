@@ -12,15 +12,19 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.impl.query.worker.queries;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.BDDMockito.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.verify;
 
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
 
 import org.forgerock.openam.cts.CoreTokenConfig;
 import org.forgerock.openam.sm.datalayer.api.ConnectionFactory;
@@ -29,7 +33,9 @@ import org.forgerock.openam.sm.datalayer.api.query.QueryFactory;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.opendj.ldap.Connection;
 import org.forgerock.opendj.ldap.Filter;
+import org.forgerock.util.query.QueryFilter;
 import org.forgerock.util.query.QueryFilterVisitor;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -90,4 +96,25 @@ public class CTSWorkerPastExpiryDateQueryTest {
         verify(mockBuilder).returnTheseAttributes(CoreTokenField.TOKEN_ID);
     }
 
+    @Test
+    public void shouldBoundSliceByExpiryDate() {
+        // Given
+        CTSWorkerPastExpiryDateQuery<Connection> query = new CTSWorkerPastExpiryDateQuery<>(mockConnectionFactory,
+                mockFactory, mockConfig);
+        Calendar from = Calendar.getInstance();
+        from.setTimeInMillis(1000L);
+        Calendar to = Calendar.getInstance();
+        to.setTimeInMillis(2000L);
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+
+        // When
+        ((CTSWorkerPastExpiryDateQuery<Connection>) query.slice(from, to)).getQuery();
+
+        // Then
+        verify(mockQueryFilterConverter).visitAndFilter((Void) isNull(), captor.capture());
+        assertThat(captor.getValue().toString()).isEqualTo(Arrays.asList(
+                QueryFilter.greaterThanOrEqualTo(CoreTokenField.EXPIRY_DATE, from),
+                QueryFilter.lessThan(CoreTokenField.EXPIRY_DATE, to)).toString());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.impl.queue;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.BDDMockito.*;
+import static org.testng.Assert.fail;
+
+import org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration;
+import org.forgerock.openam.cts.monitoring.CTSConnectionMonitoringStore;
+import org.forgerock.openam.sm.datalayer.api.ResultHandler;
+import org.forgerock.openam.sm.datalayer.api.TaskRejectedException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.identity.shared.debug.Debug;
+
+public class AdmissionControllerTest {
+
+    private CTSQueueConfiguration mockConfiguration;
+    private CTSConnectionMonitoringStore mockMonitoringStore;
+    private ResultHandler<String, Exception> mockHandler;
+    private AdmissionController controller;
+
+    @BeforeMethod
+    public void setup() {
+        mockConfiguration = mock(CTSQueueConfiguration.class);
+        given(mockConfiguration.isAdaptiveAdmissionEnabled()).willReturn(true);
+        given(mockConfiguration.getMinimumAdmissionLimit()).willReturn(1);
+        given(mockConfiguration.getMaximumAdmissionLimit()).willReturn(2);
+        given(mockConfiguration.getAdmissionLatencyThreshold()).willReturn(60000);
+        mockMonitoringStore = mock(CTSConnectionMonitoringStore.class);
+        mockHandler = mock(ResultHandler.class);
+
+        controller = new AdmissionController(mockConfiguration, mockMonitoringStore, mock(Debug.class));
+    }
+
+    @Test
+    public void shouldNotWrapHandlerWhenDisabled() throws Exception {
+        given(mockConfiguration.isAdaptiveAdmissionEnabled()).willReturn(false);
+
+        assertThat(controller.admit(mockHandler, false)).isSameAs(mockHandler);
+        assertThat(controller.getInProgress()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldStartAtMaximumLimit() throws Exception {
+        controller.admit(mockHandler, false);
+
+        assertThat(controller.getLimit()).isEqualTo(2);
+        verify(mockMonitoringStore).setAdmissionLimit(2);
+    }
+
+    @Test
+    public void shouldRejectLowPriorityTaskAtLimit() throws Exception {
+        controller.admit(mockHandler, false);
+        controller.admit(mockHandler, true);
+
+        try {
+            controller.admit(mockHandler, true);
+            fail("Expected the task to be rejected");
+        } catch (TaskRejectedException e) {
+            verify(mockMonitoringStore).addRejectedTask();
+        }
+    }
+
+    @Test
+    public void shouldAdmitOtherTasksBeyondLimit() throws Exception {
+        controller.admit(mockHandler, false);
+        controller.admit(mockHandler, false);
+        controller.admit(mockHandler, false);
+
+        assertThat(controller.getInProgress()).isEqualTo(3);
+        verify(mockMonitoringStore, never()).addRejectedTask();
+    }
+
+    @Test
+    public void shouldReleaseAdmissionWhenTaskCompletes() throws Exception {
+        ResultHandler<String, Exception> admitted = controller.admit(mockHandler, false);
+
+        admitted.processResults("badger");
+        admitted.processError(new Exception());
+
+        assertThat(controller.getInProgress()).isEqualTo(0);
+        verify(mockHandler).processResults("badger");
+    }
+
+    @Test
+    public void shouldReleaseAdmissionWhenTaskIsCancelled() throws Exception {
+        ResultHandler<String, Exception> admitted = controller.admit(mockHandler, false);
+
+        controller.cancel(admitted);
+
+        assertThat(controller.getInProgress()).isEqualTo(0);
+        verify(mockHandler, never()).processError(any(Exception.class));
+    }
+
+    @Test
+    public void shouldReduceLimitWhenTaskExceedsLatencyThreshold() throws Exception {
+        given(mockConfiguration.getMaximumAdmissionLimit()).willReturn(10);
+        given(mockConfiguration.getAdmissionLatencyThreshold()).willReturn(0);
+        ResultHandler<String, Exception> admitted = controller.admit(mockHandler, false);
+        Thread.sleep(1);
+
+        admitted.processResults("badger");
+
+        assertThat(controller.getLimit()).isEqualTo(9);
+        verify(mockMonitoringStore).setAdmissionLimit(9);
+    }
+
+    @Test
+    public void shouldNotReduceLimitBelowMinimum() throws Exception {
+        given(mockConfiguration.getAdmissionLatencyThreshold()).willReturn(0);
+        ResultHandler<String, Exception> admitted = controller.admit(mockHandler, false);
+        Thread.sleep(1);
+
+        admitted.processResults("badger");
+
+        assertThat(controller.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRaiseLimitWhilstBusyAndWithinLatencyThreshold() throws Exception {
+        // Given
+        given(mockConfiguration.getMaximumAdmissionLimit()).willReturn(10);
+        given(mockConfiguration.getAdmissionLatencyThreshold()).willReturn(0);
+        ResultHandler<String, Exception> slow = controller.admit(mockHandler, false);
+        Thread.sleep(1);
+        slow.processResults("badger");
+        given(mockConfiguration.getAdmissionLatencyThreshold()).willReturn(60000);
+        for (int i = 0; i < 9; i++) {
+            controller.admit(mockHandler, false);
+        }
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            controller.admit(mockHandler, false).processResults("badger");
+        }
+
+        // Then
+        assertThat(controller.getLimit()).isEqualTo(10);
+    }
+}
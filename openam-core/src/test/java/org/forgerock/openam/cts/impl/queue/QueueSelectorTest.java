@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.impl.queue;
 
@@ -51,4 +52,26 @@ public class QueueSelectorTest {
             assertThat(select).isGreaterThanOrEqualTo(0);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldNotReturnNegativeNumberForMinimumHashCode() {
+        String minimumHashCode = "polygenelubricants";
+        assertThat(minimumHashCode.hashCode()).isEqualTo(Integer.MIN_VALUE);
+        for (int queues = 1; queues <= 64; queues++) {
+            assertThat(QueueSelector.select(minimumHashCode, queues)).isGreaterThanOrEqualTo(0);
+        }
+    }
+
+    @Test
+    public void shouldSpreadSequentialTokensEvenly() {
+        int queues = 16;
+        int tokens = 16000;
+        int[] counts = new int[queues];
+        for (int ii = 0; ii < tokens; ii++) {
+            counts[QueueSelector.select("token" + (ii * queues), queues)]++;
+        }
+        for (int count : counts) {
+            assertThat(count).isGreaterThan(tokens / queues / 2).isLessThan(tokens / queues * 2);
+        }
+    }
+}
@@ -12,27 +12,39 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.impl.queue;
 
+import static org.forgerock.openam.cts.api.CTSOptions.LOW_PRIORITY_OPTION;
+import static org.forgerock.openam.cts.api.CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION;
 import static org.mockito.BDDMockito.*;
 import static org.mockito.Mockito.verify;
+import static org.testng.Assert.fail;
 
 import java.util.Collection;
 
 import org.forgerock.openam.cts.api.filter.TokenFilter;
+import org.forgerock.openam.cts.api.filter.TokenFilterBuilder;
 import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration;
+import org.forgerock.openam.cts.monitoring.CTSConnectionMonitoringStore;
+import org.forgerock.openam.cts.monitoring.CTSOperationsMonitoringStore;
+import org.forgerock.openam.sm.datalayer.api.DataLayerException;
 import org.forgerock.openam.sm.datalayer.api.ResultHandler;
 import org.forgerock.openam.sm.datalayer.api.Task;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.sm.datalayer.impl.SeriesTaskExecutor;
+import org.forgerock.openam.sm.datalayer.impl.tasks.CoalescingUpdateTask;
 import org.forgerock.openam.sm.datalayer.impl.tasks.TaskFactory;
 import org.forgerock.util.Options;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import com.sun.identity.shared.debug.Debug;
+
 public class TaskDispatcherTest {
 
     private TaskDispatcher queue;
@@ -41,6 +53,9 @@ public class TaskDispatcherTest {
     private Options options;
     private ResultHandler mockHandler;
     private SeriesTaskExecutor mockExecutor;
+    private CTSQueueConfiguration mockConfiguration;
+    private CTSOperationsMonitoringStore mockMonitoringStore;
+    private CTSConnectionMonitoringStore mockConnectionMonitoringStore;
 
     @BeforeMethod
     public void setup() {
@@ -52,9 +67,15 @@ public class TaskDispatcherTest {
         given(mockToken.getTokenId()).willReturn("badger");
         options = Options.defaultOptions();
 
+        mockConfiguration = mock(CTSQueueConfiguration.class);
+        mockMonitoringStore = mock(CTSOperationsMonitoringStore.class);
+        mockConnectionMonitoringStore = mock(CTSConnectionMonitoringStore.class);
+
         queue = new TaskDispatcher(
                 mockTaskFactory,
-                mockExecutor);
+                mockExecutor,
+                new UpdateCoalescer(mockConfiguration, mockMonitoringStore),
+                new AdmissionController(mockConfiguration, mockConnectionMonitoringStore, mock(Debug.class)));
     }
 
     @Test
@@ -164,6 +185,111 @@ public class TaskDispatcherTest {
         verify(mockExecutor).execute("123", task);
     }
 
+    @Test
+    public void shouldUpdateAttributes() throws Exception {
+        // Given
+        Token previous = mock(Token.class);
+        Token updated = mock(Token.class);
+        given(updated.getTokenId()).willReturn("123");
+        Task task = mock(Task.class);
+        given(mockTaskFactory.updateAttributes(previous, updated, options, mockHandler)).willReturn(task);
+
+        // When
+        queue.updateAttributes(previous, updated, options, mockHandler);
+
+        // Then
+        verify(mockExecutor).execute("123", task);
+    }
+
+    @Test
+    public void shouldCoalesceUpdatesWhilstWaiting() throws Exception {
+        // Given
+        given(mockConfiguration.isUpdateCoalescingEnabled()).willReturn(true);
+        Token first = mock(Token.class);
+        given(first.getTokenId()).willReturn("123");
+        Token second = mock(Token.class);
+        given(second.getTokenId()).willReturn("123");
+        CoalescingUpdateTask task = new CoalescingUpdateTask(first, options, mockHandler);
+        given(mockTaskFactory.coalescingUpdate(first, options, mockHandler)).willReturn(task);
+
+        // When
+        queue.update(first, options, mockHandler);
+        queue.update(second, options, mockHandler);
+
+        // Then
+        verify(mockExecutor).execute("123", task);
+        verify(mockTaskFactory, never()).coalescingUpdate(second, options, mockHandler);
+        verify(mockMonitoringStore).addCoalescedUpdate();
+    }
+
+    @Test
+    public void shouldNotCoalesceUpdatesAfterAnotherOperationOnTheToken() throws Exception {
+        // Given
+        given(mockConfiguration.isUpdateCoalescingEnabled()).willReturn(true);
+        Token first = mock(Token.class);
+        given(first.getTokenId()).willReturn("123");
+        Token second = mock(Token.class);
+        given(second.getTokenId()).willReturn("123");
+        given(mockTaskFactory.coalescingUpdate(first, options, mockHandler))
+                .willReturn(new CoalescingUpdateTask(first, options, mockHandler));
+        given(mockTaskFactory.coalescingUpdate(second, options, mockHandler))
+                .willReturn(new CoalescingUpdateTask(second, options, mockHandler));
+
+        // When
+        queue.update(first, options, mockHandler);
+        queue.read("123", options, mockHandler);
+        queue.update(second, options, mockHandler);
+
+        // Then
+        verify(mockTaskFactory).coalescingUpdate(second, options, mockHandler);
+        verify(mockMonitoringStore, never()).addCoalescedUpdate();
+    }
+
+    @Test
+    public void shouldNotCoalesceIntoUpdateWhichCouldNotBeQueued() throws Exception {
+        // Given
+        given(mockConfiguration.isUpdateCoalescingEnabled()).willReturn(true);
+        Token first = mock(Token.class);
+        given(first.getTokenId()).willReturn("123");
+        Token second = mock(Token.class);
+        given(second.getTokenId()).willReturn("123");
+        CoalescingUpdateTask failed = new CoalescingUpdateTask(first, options, mockHandler);
+        given(mockTaskFactory.coalescingUpdate(first, options, mockHandler)).willReturn(failed);
+        given(mockTaskFactory.coalescingUpdate(second, options, mockHandler))
+                .willReturn(new CoalescingUpdateTask(second, options, mockHandler));
+        willThrow(new DataLayerException("queue full")).given(mockExecutor).execute("123", failed);
+
+        // When
+        try {
+            queue.update(first, options, mockHandler);
+            fail();
+        } catch (CoreTokenException e) {
+            // expected
+        }
+        queue.update(second, options, mockHandler);
+
+        // Then
+        verify(mockTaskFactory).coalescingUpdate(second, options, mockHandler);
+        verify(mockMonitoringStore, never()).addCoalescedUpdate();
+    }
+
+    @Test
+    public void shouldNotCoalesceUpdatesWithOptimisticConcurrencyCheck() throws Exception {
+        // Given
+        given(mockConfiguration.isUpdateCoalescingEnabled()).willReturn(true);
+        Options etagOptions = Options.defaultOptions().set(OPTIMISTIC_CONCURRENCY_CHECK_OPTION, "ETAG");
+        Token token = mock(Token.class);
+        given(token.getTokenId()).willReturn("123");
+        Task task = mock(Task.class);
+        given(mockTaskFactory.update(token, etagOptions, mockHandler)).willReturn(task);
+
+        // When
+        queue.update(token, etagOptions, mockHandler);
+
+        // Then
+        verify(mockExecutor).execute("123", task);
+    }
+
     @Test
     public void shouldDelete() throws Exception {
         // Given
@@ -177,6 +303,26 @@ public class TaskDispatcherTest {
         verify(mockExecutor).execute("123", task);
     }
 
+    @Test
+    public void shouldRejectLowPriorityDeleteAtAdmissionLimit() throws Exception {
+        // Given
+        given(mockConfiguration.isAdaptiveAdmissionEnabled()).willReturn(true);
+        given(mockConfiguration.getMinimumAdmissionLimit()).willReturn(1);
+        given(mockConfiguration.getMaximumAdmissionLimit()).willReturn(1);
+        given(mockTaskFactory.read(eq("123"), eq(options), any(ResultHandler.class))).willReturn(mock(Task.class));
+        queue.read("123", options, mockHandler);
+
+        // When
+        try {
+            queue.delete("456", Options.defaultOptions().set(LOW_PRIORITY_OPTION, true), mockHandler);
+            fail("Expected the delete to be rejected");
+        } catch (CoreTokenException e) {
+            // Then
+            verify(mockExecutor, never()).execute(eq("456"), any(Task.class));
+            verify(mockConnectionMonitoringStore).addRejectedTask();
+        }
+    }
+
     @Test
     public void shouldRead() throws Exception {
         // Given
@@ -218,4 +364,45 @@ public class TaskDispatcherTest {
         verify(mockExecutor).execute(null, task);
     }
 
+    @Test
+    public void shouldAdmitQueryAtAdmissionLimit() throws Exception {
+        // Given
+        givenAdmissionLimitReached();
+        TokenFilter filter = new TokenFilterBuilder().build();
+        Task task = mock(Task.class);
+        given(mockTaskFactory.partialQuery(eq(filter), any(ResultHandler.class))).willReturn(task);
+
+        // When
+        queue.partialQuery(filter, mockHandler);
+
+        // Then
+        verify(mockExecutor).execute(null, task);
+        verify(mockConnectionMonitoringStore, never()).addRejectedTask();
+    }
+
+    @Test
+    public void shouldRejectLowPriorityQueryAtAdmissionLimit() throws Exception {
+        // Given
+        givenAdmissionLimitReached();
+        TokenFilter filter = new TokenFilterBuilder().withLowPriority().build();
+
+        // When
+        try {
+            queue.query(filter, mockHandler);
+            fail("Expected the query to be rejected");
+        } catch (CoreTokenException e) {
+            // Then
+            verify(mockTaskFactory, never()).query(eq(filter), any(ResultHandler.class));
+            verify(mockConnectionMonitoringStore).addRejectedTask();
+        }
+    }
+
+    private void givenAdmissionLimitReached() throws Exception {
+        given(mockConfiguration.isAdaptiveAdmissionEnabled()).willReturn(true);
+        given(mockConfiguration.getMinimumAdmissionLimit()).willReturn(1);
+        given(mockConfiguration.getMaximumAdmissionLimit()).willReturn(1);
+        given(mockTaskFactory.read(eq("123"), eq(options), any(ResultHandler.class))).willReturn(mock(Task.class));
+        queue.read("123", options, mockHandler);
+    }
+
 }
\ No newline at end of file
@@ -59,6 +59,21 @@ public class CTSQueueConfigurationTest {
         assertThat(result).isLessThan(count);
     }
 
+    @Test
+    public void shouldReserveQueryProcessorConnectionsOnTopOfTokenProcessors() throws Exception {
+        // 9 configured connections, and one added for the default query processor
+        given(mockConfig.getMaxConnections()).willReturn(10);
+        assertThat(config.getProcessors()).isEqualTo(8);
+        assertThat(config.getQueryProcessors()).isEqualTo(CTSQueueConfiguration.DEFAULT_QUERY_PROCESSORS);
+    }
+
+    @Test
+    public void shouldNotReduceTokenProcessorsForQueryProcessors() throws Exception {
+        // 17 configured connections, and one added for the default query processor
+        given(mockConfig.getMaxConnections()).willReturn(18);
+        assertThat(config.getProcessors()).isEqualTo(16);
+    }
+
     @Test
     public void shouldThrowExceptionIfConnectionsTooLow() throws Exception {
         given(mockConfig.getMaxConnections()).willReturn(1);
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.monitoring;
@@ -22,7 +23,10 @@ import org.forgerock.openam.tokens.TokenType;
 import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.monitoring.impl.CTSMonitoringStoreImpl;
 import org.forgerock.openam.cts.monitoring.impl.connections.ConnectionStore;
+import org.forgerock.openam.cts.monitoring.impl.operations.NearCacheMonitor;
 import org.forgerock.openam.cts.monitoring.impl.operations.TokenOperationsStore;
+import org.forgerock.openam.cts.monitoring.impl.queue.QueueMonitor;
+import org.forgerock.openam.cts.monitoring.impl.queue.TaskBatchMonitor;
 import org.forgerock.openam.cts.monitoring.impl.reaper.ReaperMonitor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.invocation.InvocationOnMock;
@@ -61,6 +65,9 @@ public class CTSMonitoringStoreImplTest {
                 tokenOperationsStore,
                 reaperMonitor,
                 connectionStore,
+                mock(TaskBatchMonitor.class),
+                mock(QueueMonitor.class),
+                mock(NearCacheMonitor.class),
                 debug);
         ctsReaperMonitoringStore = (CTSReaperMonitoringStore) ctsOperationsMonitoringStore;
 
@@ -283,4 +290,38 @@ public class CTSMonitoringStoreImplTest {
         //Then
         assertEquals(result, 2.0D);
     }
+
+    @Test
+    public void shouldAddReaperSlices() {
+
+        //Given
+
+        //When
+        ctsReaperMonitoringStore.addReaperSliceScheduled(1000);
+        ctsReaperMonitoringStore.addReaperSliceCompleted(1000, 12);
+        ctsReaperMonitoringStore.addReaperSliceSkipped(2000);
+        ctsReaperMonitoringStore.addReaperSliceFailed(3000);
+
+        //Then
+        verify(reaperMonitor).addSliceScheduled(1000);
+        verify(reaperMonitor).addSliceCompleted(1000, 12);
+        verify(reaperMonitor).addSliceSkipped(2000);
+        verify(reaperMonitor).addSliceFailed(3000);
+    }
+
+    @Test
+    public void shouldGetReaperBacklog() {
+
+        //Given
+        given(reaperMonitor.getPendingSlices()).willReturn(3L);
+        given(reaperMonitor.getBacklogAge()).willReturn(60000L);
+
+        //When
+        long pending = ctsReaperMonitoringStore.getReaperPendingSlices();
+        long age = ctsReaperMonitoringStore.getReaperBacklogAge();
+
+        //Then
+        assertEquals(pending, 3L);
+        assertEquals(age, 60000L);
+    }
 }
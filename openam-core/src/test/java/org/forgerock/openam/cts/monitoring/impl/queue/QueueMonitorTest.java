@@ -0,0 +1,64 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.monitoring.impl.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class QueueMonitorTest {
+
+    private QueueMonitor monitor;
+
+    @BeforeMethod
+    public void setUp() {
+        monitor = new QueueMonitor();
+    }
+
+    @Test
+    public void shouldBucketByPowerOfTwo() {
+        assertThat(QueueMonitor.bucket(0)).isEqualTo(0);
+        assertThat(QueueMonitor.bucket(1)).isEqualTo(1);
+        assertThat(QueueMonitor.bucket(2)).isEqualTo(2);
+        assertThat(QueueMonitor.bucket(3)).isEqualTo(2);
+        assertThat(QueueMonitor.bucket(4)).isEqualTo(3);
+        assertThat(QueueMonitor.bucket(Long.MAX_VALUE)).isEqualTo(QueueMonitor.BUCKETS - 1);
+    }
+
+    @Test
+    public void shouldRecordHistogramsPerQueue() {
+        // Given
+        monitor.add("token-0", 0, 5);
+        monitor.add("token-0", 3, 5);
+        monitor.add("query", 1, 0);
+
+        // When
+        long[] depth = monitor.getDepthHistogram("token-0");
+        long[] waitTime = monitor.getWaitTimeHistogram("token-0");
+
+        // Then
+        assertThat(monitor.getQueueNames()).containsOnly("token-0", "query");
+        assertThat(depth[0]).isEqualTo(1);
+        assertThat(depth[2]).isEqualTo(1);
+        assertThat(waitTime[3]).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReturnEmptyHistogramForUnknownQueue() {
+        assertThat(monitor.getDepthHistogram("unknown")).containsOnly(0L);
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.cts.monitoring.impl.reaper;
@@ -20,6 +21,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 public class ReaperMonitorTest {
 
@@ -73,4 +75,55 @@ public class ReaperMonitorTest {
         //Then
         assertEquals(result, 12.5D);
     }
+
+    @Test
+    public void shouldTrackPendingSlices() {
+
+        //Given
+        reaperMonitor.addSliceScheduled(1000);
+        reaperMonitor.addSliceScheduled(2000);
+        reaperMonitor.addSliceScheduled(2000);
+
+        //When
+        reaperMonitor.addSliceCompleted(2000, 15);
+        reaperMonitor.addSliceSkipped(1000);
+        reaperMonitor.addSliceFailed(2000);
+
+        //Then
+        assertEquals(reaperMonitor.getPendingSlices(), 0);
+        assertEquals(reaperMonitor.getCompletedSlices(), 1);
+        assertEquals(reaperMonitor.getSkippedSlices(), 1);
+        assertEquals(reaperMonitor.getFailedSlices(), 1);
+        assertEquals(reaperMonitor.getReapedTokens(), 15);
+    }
+
+    @Test
+    public void shouldMeasureBacklogFromOldestPendingSlice() {
+
+        //Given
+        long now = System.currentTimeMillis();
+        reaperMonitor.addSliceScheduled(now - 60000);
+        reaperMonitor.addSliceScheduled(now - 30000);
+
+        //When
+        reaperMonitor.addSliceCompleted(now - 60000, 0);
+
+        //Then
+        assertTrue(reaperMonitor.getBacklogAge() >= 30000);
+        assertTrue(reaperMonitor.getBacklogAge() < 60000);
+    }
+
+    @Test
+    public void shouldHaveNoBacklogWhenNoSlicesPending() {
+
+        //Given
+        reaperMonitor.addSliceScheduled(1000);
+        reaperMonitor.addSliceCompleted(1000, 0);
+
+        //When
+        long result = reaperMonitor.getBacklogAge();
+
+        //Then
+        assertEquals(result, 0);
+    }
 }
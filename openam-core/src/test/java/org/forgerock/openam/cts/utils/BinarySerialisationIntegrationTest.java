@@ -0,0 +1,136 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.utils;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.forgerock.guice.core.GuiceModules;
+import org.forgerock.guice.core.InjectorHolder;
+import org.forgerock.openam.audit.AuditCoreGuiceModule;
+import org.forgerock.openam.core.DNWrapper;
+import org.forgerock.openam.core.guice.CoreGuiceModule;
+import org.forgerock.openam.core.guice.DataLayerGuiceModule;
+import org.forgerock.openam.cts.CTSBasedGuiceTestCase;
+import org.forgerock.openam.cts.CoreTokenConfig;
+import org.forgerock.openam.cts.adapters.SessionAdapter;
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.api.tokens.TokenIdFactory;
+import org.forgerock.openam.cts.utils.blob.TokenBlobUtils;
+import org.forgerock.openam.shared.guice.SharedGuiceModule;
+import org.forgerock.openam.utils.IOUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.iplanet.dpro.session.service.InternalSession;
+
+@GuiceModules({DataLayerGuiceModule.class,
+        AuditCoreGuiceModule.class,
+        SharedGuiceModule.class,
+        CoreGuiceModule.class})
+public class BinarySerialisationIntegrationTest extends CTSBasedGuiceTestCase {
+
+    private JSONSerialisation json;
+    private BinarySerialisation binary;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        json = InjectorHolder.getInstance(JSONSerialisation.class);
+        binary = InjectorHolder.getInstance(BinarySerialisation.class);
+    }
+
+    @DataProvider(name = "complex")
+    public Object[][] getComplexJSONs() {
+        return new Object[][]{
+                {"/json/complex-session-with-restriction-v11.json"},
+                {"/json/complex-session-with-restriction-v12.json"}
+        };
+    }
+
+    @Test(dataProvider = "complex")
+    public void shouldRoundTripInternalSession(String path) throws Exception {
+        // Given
+        InternalSession session = json.deserialise(getJSON(path), InternalSession.class);
+
+        // When
+        InternalSession result = binary.deserialise(binary.serialise(session), InternalSession.class);
+
+        // Then
+        assertThat(json.serialise(result)).isEqualTo(json.serialise(session));
+        assertThat(Collections.list(result.getPropertyNames())).hasSize(23);
+    }
+
+    @Test(dataProvider = "complex")
+    public void shouldBeSmallerThanJSON(String path) throws Exception {
+        // Given
+        InternalSession session = json.deserialise(getJSON(path), InternalSession.class);
+
+        // When
+        byte[] data = binary.serialise(session);
+
+        // Then
+        assertThat(data.length).isLessThan(json.serialise(session).getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    public void shouldWriteSessionsDifferingOnlyInAccessTimeIdentically() throws Exception {
+        // Given
+        TokenIdFactory tokenIdFactory = mock(TokenIdFactory.class);
+        CoreTokenConfig config = mock(CoreTokenConfig.class);
+        given(config.isSessionBinarySerialised()).willReturn(true);
+        DNWrapper dnWrapper = mock(DNWrapper.class);
+        given(dnWrapper.orgNameToRealmName(anyString())).willReturn("/");
+        SessionAdapter adapter = new SessionAdapter(tokenIdFactory, config, json, binary, new TokenBlobUtils(),
+                dnWrapper);
+        String sessionJson = getJSON("/json/complex-session-with-restriction-v12.json");
+        InternalSession session = json.deserialise(sessionJson, InternalSession.class);
+        InternalSession accessed = json.deserialise(
+                sessionJson.replace("\"latestAccessTime\":0,", "\"latestAccessTime\":1396296600,"),
+                InternalSession.class);
+        session.setSessionHandle("shandle");
+        accessed.setSessionHandle("shandle");
+        given(tokenIdFactory.toSessionTokenId(session)).willReturn("badger");
+        given(tokenIdFactory.toSessionTokenId(accessed)).willReturn("badger");
+
+        // When
+        Token token = adapter.toToken(session);
+        Token accessedToken = adapter.toToken(accessed);
+
+        // Then
+        assertThat(accessedToken.getBlob()).isEqualTo(token.getBlob());
+        assertThat(adapter.fromToken(accessedToken).getLatestAccessTime(SECONDS)).isEqualTo(1396296600L);
+    }
+
+    @Test
+    public void shouldDetectBinaryData() throws Exception {
+        InternalSession session = new InternalSession();
+        assertThat(BinarySerialisation.isBinary(binary.serialise(session))).isTrue();
+        assertThat(BinarySerialisation.isBinary(json.serialise(session).getBytes(StandardCharsets.UTF_8))).isFalse();
+        assertThat(BinarySerialisation.isBinary(new byte[0])).isFalse();
+        assertThat(BinarySerialisation.isBinary(null)).isFalse();
+    }
+
+    private static String getJSON(String path) throws Exception {
+        return IOUtils.getFileContentFromClassPath(JSONSerialisationTest.class, path).replaceAll("\\s", "");
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.openam.core.guice.CTSObjectMapperProvider;
+import org.forgerock.openam.utils.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iplanet.dpro.session.service.InternalSession;
+
+/**
+ * Compares the time to serialise and deserialise a session as JSON, as the CTS has always done, and as binary.
+ * <p/>
+ * Not run as part of the unit tests; run with {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionSerialisationBenchmark {
+
+    @Param({"json", "binary"})
+    public String format;
+
+    private JSONSerialisation json;
+    private BinarySerialisation binary;
+    private InternalSession session;
+    private String serialisedJSON;
+    private byte[] serialisedBinary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ObjectMapper mapper = new CTSObjectMapperProvider().get();
+        json = new JSONSerialisation(mapper);
+        binary = new BinarySerialisation(mapper);
+        String text = IOUtils.getFileContentFromClassPath(JSONSerialisationTest.class,
+                "/json/complex-session-with-restriction-v12.json").replaceAll("\\s", "");
+        session = json.deserialise(text, InternalSession.class);
+        serialisedJSON = json.serialise(session);
+        serialisedBinary = binary.serialise(session);
+    }
+
+    @Benchmark
+    public Object serialise() {
+        return "binary".equals(format) ? binary.serialise(session) : json.serialise(session);
+    }
+
+    @Benchmark
+    public InternalSession deserialise() {
+        return "binary".equals(format)
+                ? binary.deserialise(serialisedBinary, InternalSession.class)
+                : json.deserialise(serialisedJSON, InternalSession.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SessionSerialisationBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -40,7 +40,7 @@ public class TokenStrategyFactoryTest {
 
     @BeforeMethod
     public void setup() {
-        compression = new CompressionStrategy();
+        compression = new CompressionStrategy(mock(CoreTokenConfig.class));
         encryption = new EncryptionStrategy(mock(Debug.class));
         attributeCompression = new AttributeCompressionStrategy(new TokenBlobUtils());
         factory = new TokenStrategyFactory(compression, encryption, attributeCompression);
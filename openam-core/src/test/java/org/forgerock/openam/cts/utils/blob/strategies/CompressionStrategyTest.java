@@ -12,31 +12,41 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.utils.blob.strategies;
 
 import org.HdrHistogram.AbstractHistogram;
 import org.HdrHistogram.AtomicHistogram;
+import org.forgerock.openam.cts.CoreTokenConfig;
 import org.forgerock.openam.cts.utils.blob.TokenStrategyFailedException;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Locale;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
 import static org.forgerock.openam.utils.Time.*;
 
 public class CompressionStrategyTest {
+    private CoreTokenConfig config;
     private CompressionStrategy compression;
     private byte[] data;
 
@@ -75,7 +85,9 @@ public class CompressionStrategyTest {
     @BeforeMethod
     public void setUp() throws Exception {
         data = JSON_SAMPLE.getBytes();
-        compression = new CompressionStrategy();
+        config = mock(CoreTokenConfig.class);
+        given(config.getTokenCompressionLevel()).willReturn(Deflater.BEST_SPEED);
+        compression = new CompressionStrategy(config);
     }
 
     @Test (expectedExceptions = NullPointerException.class)
@@ -98,6 +110,119 @@ public class CompressionStrategyTest {
         assertThat(compression.reverse(compression.perform(data))).isEqualTo(data);
     }
 
+    @Test
+    public void shouldWriteCodecMarkerAndLength() throws TokenStrategyFailedException {
+        // When
+        byte[] compressed = compression.perform(data);
+
+        // Then
+        assertThat(compressed[0]).isEqualTo(DeflateCompressionCodec.MARKER);
+        assertThat((compressed[1] & 0xff) << 24 | (compressed[2] & 0xff) << 16 | (compressed[3] & 0xff) << 8
+                | (compressed[4] & 0xff)).isEqualTo(data.length);
+    }
+
+    @Test
+    public void shouldDecompressLegacyGzipContents() throws Exception {
+        // Given
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bout);
+        out.write(data);
+        out.close();
+
+        // When / Then
+        assertThat(compression.reverse(bout.toByteArray())).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldWriteLegacyGzipWhenConfigured() throws TokenStrategyFailedException {
+        // Given
+        given(config.isLegacyTokenCompression()).willReturn(true);
+
+        // When
+        byte[] compressed = compression.perform(data);
+
+        // Then
+        assertThat(compressed[0]).isEqualTo((byte) 0x1f);
+        assertThat(compressed[1]).isEqualTo((byte) 0x8b);
+        assertThat(compression.reverse(compressed)).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldNotCompressBelowThreshold() throws TokenStrategyFailedException {
+        // Given
+        given(config.getTokenCompressionThreshold()).willReturn(data.length + 1);
+
+        // When
+        byte[] stored = compression.perform(data);
+
+        // Then
+        assertThat(stored.length).isEqualTo(data.length + 1);
+        assertThat(stored[0]).isEqualTo(CompressionStrategy.UNCOMPRESSED);
+        assertThat(compression.reverse(stored)).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldStoreContentsWhichDoNotCompress() throws TokenStrategyFailedException {
+        // Given
+        byte[] random = new byte[512];
+        new Random(42).nextBytes(random);
+
+        // When
+        byte[] stored = compression.perform(random);
+
+        // Then
+        assertThat(stored[0]).isEqualTo(CompressionStrategy.UNCOMPRESSED);
+        assertThat(compression.reverse(stored)).isEqualTo(random);
+    }
+
+    @Test
+    public void shouldDecompressContentsCompressedAtAnotherLevel() throws TokenStrategyFailedException {
+        // Given
+        byte[] compressed = compression.perform(data);
+        given(config.getTokenCompressionLevel()).willReturn(Deflater.BEST_COMPRESSION);
+
+        // When / Then
+        assertThat(compression.reverse(compressed)).isEqualTo(data);
+        assertThat(compression.reverse(compression.perform(data))).isEqualTo(data);
+    }
+
+    @Test (expectedExceptions = TokenStrategyFailedException.class)
+    public void shouldRejectUnknownCodecMarker() throws TokenStrategyFailedException {
+        compression.reverse(new byte[] { 0x7f, 0, 0, 0, 1, 0 });
+    }
+
+    @Test (expectedExceptions = TokenStrategyFailedException.class)
+    public void shouldRejectTruncatedContents() throws TokenStrategyFailedException {
+        byte[] compressed = compression.perform(data);
+        compression.reverse(Arrays.copyOf(compressed, compressed.length / 2));
+    }
+
+    @Test (expectedExceptions = TokenStrategyFailedException.class)
+    public void shouldRejectNegativeLength() throws TokenStrategyFailedException {
+        byte[] compressed = compression.perform(data);
+        compressed[1] = (byte) 0x80;
+        compression.reverse(compressed);
+    }
+
+    @Test (expectedExceptions = TokenStrategyFailedException.class)
+    public void shouldRejectLengthBeyondAnyCompressionRatio() throws TokenStrategyFailedException {
+        compression.reverse(new byte[] { DeflateCompressionCodec.MARKER, 0x7f, 0, 0, 0, 0 });
+    }
+
+    @Test (expectedExceptions = TokenStrategyFailedException.class)
+    public void shouldRejectLegacyGzipLengthBeyondAnyCompressionRatio() throws Exception {
+        // Given
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bout);
+        out.write(data);
+        out.close();
+        byte[] compressed = bout.toByteArray();
+        compressed[compressed.length - 1] = 0x7f;
+
+        // When
+        compression.reverse(compressed);
+    }
+
     @DataProvider
     public Object[][] numThreads() {
         return new Object[][]{
@@ -209,12 +334,16 @@ public class CompressionStrategyTest {
         }
     }
 
-    private static final class MonitoredCompressionStrategy extends CompressionStrategy {
+    private final class MonitoredCompressionStrategy extends CompressionStrategy {
         // Histograms for storing millisecond precision timings: max=10000 (10 seconds), 5 significant digits
         // Should be slightly less than 2MB total storage per Histogram
         private final AtomicHistogram performSamples = new AtomicHistogram(10000, 5);
         private final AtomicHistogram reverseSamples = new AtomicHistogram(10000, 5);
 
+        MonitoredCompressionStrategy() {
+            super(config);
+        }
+
         @Override
         public byte[] perform(final byte[] data) throws TokenStrategyFailedException {
             // Cannot use System.nanoTime() as it gives invalid results if thread gets scheduled to
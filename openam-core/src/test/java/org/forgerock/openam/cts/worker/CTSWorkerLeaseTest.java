@@ -0,0 +1,226 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.worker;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.*;
+
+import java.util.Calendar;
+
+import org.forgerock.openam.cts.CTSPersistentStore;
+import org.forgerock.openam.cts.api.CTSOptions;
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.tokens.CoreTokenField;
+import org.forgerock.openam.tokens.TokenType;
+import org.forgerock.util.Options;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.iplanet.services.naming.WebtopNamingQuery;
+import com.sun.identity.shared.debug.Debug;
+
+public class CTSWorkerLeaseTest {
+
+    private static final String LEASE_ID = "CTSReaperLease-badger-1000";
+
+    private CTSPersistentStore mockStore;
+    private CTSWorkerLease lease;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        mockStore = mock(CTSPersistentStore.class);
+        WebtopNamingQuery mockServerConfig = mock(WebtopNamingQuery.class);
+        given(mockServerConfig.getAMServerID()).willReturn("01");
+        lease = new CTSWorkerLease(mockStore, mockServerConfig, mock(Debug.class));
+    }
+
+    @Test
+    public void shouldAcquireLeaseByCreatingToken() throws Exception {
+        // When
+        boolean acquired = lease.acquire(LEASE_ID, 60000);
+
+        // Then
+        assertThat(acquired).isTrue();
+        ArgumentCaptor<Token> captor = ArgumentCaptor.forClass(Token.class);
+        verify(mockStore).create(captor.capture());
+        assertThat(captor.getValue().getTokenId()).isEqualTo(LEASE_ID);
+        assertThat(captor.getValue().getType()).isEqualTo(TokenType.GENERIC);
+        assertThat(captor.getValue().getExpiryTimestamp().getTimeInMillis())
+                .isGreaterThan(System.currentTimeMillis());
+    }
+
+    @Test
+    public void shouldNotAcquireLeaseHeldByAnotherServer() throws Exception {
+        // Given
+        willThrow(new CoreTokenException("exists")).given(mockStore).create(any(Token.class));
+        given(mockStore.read(LEASE_ID)).willReturn(leaseToken(System.currentTimeMillis() + 60000));
+
+        // When
+        boolean acquired = lease.acquire(LEASE_ID, 60000);
+
+        // Then
+        assertThat(acquired).isFalse();
+        verify(mockStore, never()).delete(anyString(), any(Options.class));
+    }
+
+    @Test
+    public void shouldAcquireLeaseAlreadyHeldByThisServer() throws Exception {
+        // Given
+        willThrow(new CoreTokenException("exists")).given(mockStore).create(any(Token.class));
+        Token current = leaseToken(System.currentTimeMillis() + 1000);
+        current.setAttribute(CoreTokenField.STRING_ONE, "01");
+        given(mockStore.read(LEASE_ID)).willReturn(current);
+
+        // When
+        boolean acquired = lease.acquire(LEASE_ID, 60000);
+
+        // Then
+        assertThat(acquired).isTrue();
+        verify(mockStore).update(any(Token.class), any(Options.class));
+        verify(mockStore, never()).delete(anyString(), any(Options.class));
+    }
+
+    @Test
+    public void shouldTakeOverLapsedLease() throws Exception {
+        // Given
+        willThrow(new CoreTokenException("exists")).willDoNothing().given(mockStore).create(any(Token.class));
+        given(mockStore.read(LEASE_ID)).willReturn(leaseToken(System.currentTimeMillis() - 1000));
+
+        // When
+        boolean acquired = lease.acquire(LEASE_ID, 60000);
+
+        // Then
+        assertThat(acquired).isTrue();
+        ArgumentCaptor<Options> captor = ArgumentCaptor.forClass(Options.class);
+        verify(mockStore).delete(eq(LEASE_ID), captor.capture());
+        assertThat(captor.getValue().get(CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION)).isEqualTo("etag");
+        verify(mockStore, times(2)).create(any(Token.class));
+    }
+
+    @Test
+    public void shouldNotAcquireLeaseTakenOverByAnotherServer() throws Exception {
+        // Given
+        willThrow(new CoreTokenException("exists")).given(mockStore).create(any(Token.class));
+        given(mockStore.read(LEASE_ID)).willReturn(leaseToken(System.currentTimeMillis() - 1000));
+        willThrow(new CoreTokenException("etag")).given(mockStore).delete(eq(LEASE_ID), any(Options.class));
+
+        // When
+        boolean acquired = lease.acquire(LEASE_ID, 60000);
+
+        // Then
+        assertThat(acquired).isFalse();
+        verify(mockStore, times(1)).create(any(Token.class));
+    }
+
+    @Test
+    public void shouldRenewLeaseHeldByThisServer() throws Exception {
+        // Given
+        Token current = leaseToken(System.currentTimeMillis() + 1000);
+        current.setAttribute(CoreTokenField.STRING_ONE, "01");
+        given(mockStore.read(LEASE_ID)).willReturn(current);
+
+        // When
+        boolean renewed = lease.renew(LEASE_ID, 60000);
+
+        // Then
+        assertThat(renewed).isTrue();
+        ArgumentCaptor<Token> tokenCaptor = ArgumentCaptor.forClass(Token.class);
+        ArgumentCaptor<Options> optionsCaptor = ArgumentCaptor.forClass(Options.class);
+        verify(mockStore).update(tokenCaptor.capture(), optionsCaptor.capture());
+        assertThat(tokenCaptor.getValue().getExpiryTimestamp().getTimeInMillis())
+                .isGreaterThan(System.currentTimeMillis() + 30000);
+        assertThat(optionsCaptor.getValue().get(CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION)).isEqualTo("etag");
+    }
+
+    @Test
+    public void shouldNotRenewLeaseTakenOverByAnotherServer() throws Exception {
+        // Given
+        Token current = leaseToken(System.currentTimeMillis() + 60000);
+        current.setAttribute(CoreTokenField.STRING_ONE, "02");
+        given(mockStore.read(LEASE_ID)).willReturn(current);
+
+        // When
+        boolean renewed = lease.renew(LEASE_ID, 60000);
+
+        // Then
+        assertThat(renewed).isFalse();
+        verify(mockStore, never()).update(any(Token.class), any(Options.class));
+    }
+
+    @Test
+    public void shouldNotRenewLeaseWhenUpdateFails() throws Exception {
+        // Given
+        Token current = leaseToken(System.currentTimeMillis() + 1000);
+        current.setAttribute(CoreTokenField.STRING_ONE, "01");
+        given(mockStore.read(LEASE_ID)).willReturn(current);
+        willThrow(new CoreTokenException("etag")).given(mockStore).update(any(Token.class), any(Options.class));
+
+        // When
+        boolean renewed = lease.renew(LEASE_ID, 60000);
+
+        // Then
+        assertThat(renewed).isFalse();
+    }
+
+    @Test
+    public void shouldReleaseLeaseByEndingItNow() throws Exception {
+        // Given
+        Token current = leaseToken(System.currentTimeMillis() + 60000);
+        current.setAttribute(CoreTokenField.STRING_ONE, "01");
+        given(mockStore.read(LEASE_ID)).willReturn(current);
+
+        // When
+        lease.release(LEASE_ID);
+
+        // Then
+        ArgumentCaptor<Token> tokenCaptor = ArgumentCaptor.forClass(Token.class);
+        ArgumentCaptor<Options> optionsCaptor = ArgumentCaptor.forClass(Options.class);
+        verify(mockStore).update(tokenCaptor.capture(), optionsCaptor.capture());
+        assertThat(tokenCaptor.getValue().getExpiryTimestamp().getTimeInMillis())
+                .isLessThanOrEqualTo(System.currentTimeMillis());
+        assertThat(optionsCaptor.getValue().get(CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION)).isEqualTo("etag");
+    }
+
+    @Test
+    public void shouldNotReleaseLeaseTakenOverByAnotherServer() throws Exception {
+        // Given
+        Token current = leaseToken(System.currentTimeMillis() + 60000);
+        current.setAttribute(CoreTokenField.STRING_ONE, "02");
+        given(mockStore.read(LEASE_ID)).willReturn(current);
+
+        // When
+        lease.release(LEASE_ID);
+
+        // Then
+        verify(mockStore, never()).update(any(Token.class), any(Options.class));
+    }
+
+    private Token leaseToken(long expiry) {
+        Token token = new Token(LEASE_ID, TokenType.GENERIC);
+        Calendar expiryDate = Calendar.getInstance();
+        expiryDate.setTimeInMillis(expiry);
+        token.setExpiryTimestamp(expiryDate);
+        token.setAttribute(CoreTokenField.ETAG, "etag");
+        return token;
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.cts.worker;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.openam.cts.CTSPersistentStore;
+import org.forgerock.openam.cts.CoreTokenConfig;
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.cts.impl.query.worker.CTSWorkerQuery;
+import org.forgerock.openam.cts.impl.query.worker.CTSWorkerSliceableQuery;
+import org.forgerock.openam.cts.monitoring.CTSReaperMonitoringStore;
+import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
+import org.forgerock.util.Options;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.iplanet.services.naming.WebtopNamingQuery;
+import com.sun.identity.shared.debug.Debug;
+
+public class CTSWorkerPartitionerTest {
+
+    private static final int SLICES = 4;
+
+    private CoreTokenConfig mockConfig;
+    private CTSWorkerLease mockLease;
+    private CTSReaperMonitoringStore mockMonitoringStore;
+    private CTSWorkerSliceableQuery mockQuery;
+    private ExecutorService executorService;
+    private CTSWorkerPartitioner partitioner;
+    private final List<Calendar[]> slices = Collections.synchronizedList(new ArrayList<Calendar[]>());
+
+    @BeforeMethod
+    public void setup() {
+        mockConfig = mock(CoreTokenConfig.class);
+        given(mockConfig.getReaperPartitionSlices()).willReturn(SLICES);
+        given(mockConfig.getReaperPartitionWindow(MILLISECONDS)).willReturn(HOURS.toMillis(SLICES));
+        given(mockConfig.getReaperPartitionConcurrency()).willReturn(2);
+        given(mockConfig.getRunPeriod()).willReturn(60000);
+        mockLease = mock(CTSWorkerLease.class);
+        given(mockLease.acquire(anyString(), anyLong())).willReturn(true);
+        mockMonitoringStore = mock(CTSReaperMonitoringStore.class);
+        mockQuery = mock(CTSWorkerSliceableQuery.class);
+        slices.clear();
+        given(mockQuery.slice(nullable(Calendar.class), any(Calendar.class))).will(new Answer<CTSWorkerQuery>() {
+            @Override
+            public CTSWorkerQuery answer(InvocationOnMock invocation) throws CoreTokenException {
+                slices.add(new Calendar[] {invocation.getArgument(0), invocation.getArgument(1)});
+                CTSWorkerQuery mockSlice = mock(CTSWorkerQuery.class);
+                given(mockSlice.nextPage()).willReturn(Collections.<PartialToken>emptySet());
+                return mockSlice;
+            }
+        });
+        executorService = Executors.newCachedThreadPool();
+        partitioner = new CTSWorkerPartitioner(mockConfig, mockLease, executorService, mockMonitoringStore,
+                mock(Debug.class));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executorService.shutdownNow();
+        Thread.interrupted();
+    }
+
+    @Test
+    public void shouldBeDisabledWithOneSlice() {
+        given(mockConfig.getReaperPartitionSlices()).willReturn(1);
+        assertThat(partitioner.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void shouldCoverTheWholeWindowWithContiguousSlices() throws Exception {
+        // When
+        long before = System.currentTimeMillis();
+        partitioner.process(mockQuery, countingProcessor(new AtomicInteger(), new AtomicInteger(), 0));
+
+        // Then
+        List<Calendar[]> sorted = sortedSlices();
+        assertThat(sorted.size()).isGreaterThan(2 * SLICES);
+        assertThat(sorted.get(0)[0]).isNull();
+        for (int i = 1; i < sorted.size(); i++) {
+            assertThat(sorted.get(i)[0]).isEqualTo(sorted.get(i - 1)[1]);
+        }
+        assertThat(sorted.get(sorted.size() - 1)[1].getTimeInMillis()).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    public void shouldSplitTheBacklogIntoSlicesWhichDoubleInWidth() throws Exception {
+        // When
+        partitioner.process(mockQuery, countingProcessor(new AtomicInteger(), new AtomicInteger(), 0));
+
+        // Then
+        List<Calendar[]> sorted = sortedSlices();
+        assertThat(sorted.get(0)[0]).isNull();
+        assertThat(width(sorted.get(1))).isEqualTo(HOURS.toMillis(4));
+        assertThat(width(sorted.get(2))).isEqualTo(HOURS.toMillis(2));
+        assertThat(width(sorted.get(3))).isEqualTo(HOURS.toMillis(1));
+        assertThat(width(sorted.get(4))).isEqualTo(HOURS.toMillis(1));
+    }
+
+    @Test
+    public void shouldRenewLeaseWhileProcessingSlice() throws Exception {
+        // Given
+        given(mockConfig.getRunPeriod()).willReturn(0);
+        given(mockLease.renew(anyString(), anyLong())).willReturn(true);
+        final AtomicInteger pages = new AtomicInteger();
+
+        // When
+        partitioner.process(mockQuery, pagingProcessor(pages));
+
+        // Then
+        verify(mockLease, times(2 * slices.size())).renew(anyString(), anyLong());
+        verify(mockMonitoringStore, times(slices.size())).addReaperSliceCompleted(anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldStopProcessingSliceWhenLeaseCannotBeRenewed() throws Exception {
+        // Given
+        given(mockConfig.getRunPeriod()).willReturn(0);
+        given(mockLease.renew(anyString(), anyLong())).willReturn(false);
+        final AtomicInteger pages = new AtomicInteger();
+
+        // When
+        partitioner.process(mockQuery, pagingProcessor(pages));
+
+        // Then
+        assertThat(pages.get()).isEqualTo(0);
+        verify(mockMonitoringStore, never()).addReaperSliceCompleted(anyLong(), anyLong());
+        verify(mockMonitoringStore, times(slices.size())).addReaperSliceSkipped(anyLong());
+        verify(mockLease, never()).release(anyString());
+    }
+
+    @Test
+    public void shouldProcessAndRecordEveryLeasedSlice() throws Exception {
+        // Given
+        AtomicInteger count = new AtomicInteger();
+
+        // When
+        long total = partitioner.process(mockQuery, countingProcessor(count, new AtomicInteger(), 0));
+
+        // Then
+        assertThat(total).isEqualTo(10L * count.get());
+        verify(mockMonitoringStore, times(count.get())).addReaperSliceScheduled(anyLong());
+        verify(mockMonitoringStore, times(count.get())).addReaperSliceCompleted(anyLong(), eq(10L));
+        verify(mockMonitoringStore, never()).addReaperSliceSkipped(anyLong());
+        verify(mockLease, times(count.get())).release(anyString());
+    }
+
+    @Test
+    public void shouldProcessEverySliceAgainOnTheNextRun() throws Exception {
+        // Given
+        final Map<String, Token> leases = new ConcurrentHashMap<>();
+        CTSPersistentStore mockStore = mock(CTSPersistentStore.class);
+        willAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws CoreTokenException {
+                Token token = invocation.getArgument(0);
+                if (leases.putIfAbsent(token.getTokenId(), token) != null) {
+                    throw new CoreTokenException("exists");
+                }
+                return null;
+            }
+        }).given(mockStore).create(any(Token.class));
+        willAnswer(new Answer<Token>() {
+            @Override
+            public Token answer(InvocationOnMock invocation) {
+                return leases.get(invocation.<String>getArgument(0));
+            }
+        }).given(mockStore).read(anyString());
+        willAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                leases.remove(invocation.<String>getArgument(0));
+                return null;
+            }
+        }).given(mockStore).delete(anyString(), any(Options.class));
+        WebtopNamingQuery mockServerConfig = mock(WebtopNamingQuery.class);
+        given(mockServerConfig.getAMServerID()).willReturn("01");
+        partitioner = new CTSWorkerPartitioner(mockConfig, new CTSWorkerLease(mockStore, mockServerConfig,
+                mock(Debug.class)), executorService, mockMonitoringStore, mock(Debug.class));
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        partitioner.process(mockQuery, countingProcessor(first, new AtomicInteger(), 0));
+
+        // When
+        partitioner.process(mockQuery, countingProcessor(second, new AtomicInteger(), 0));
+
+        // Then
+        assertThat(first.get()).isGreaterThan(0);
+        assertThat(second.get()).isEqualTo(first.get());
+        verify(mockMonitoringStore, times(first.get() + second.get())).addReaperSliceCompleted(anyLong(), eq(10L));
+        verify(mockMonitoringStore, never()).addReaperSliceSkipped(anyLong());
+    }
+
+    @Test
+    public void shouldRecordFailedSlicesAndReportTheFailure() throws Exception {
+        // Given
+        final CoreTokenException failure = new CoreTokenException("failed");
+        CTSWorkerPartitioner.SliceProcessor failingProcessor = new CTSWorkerPartitioner.SliceProcessor() {
+            @Override
+            public long process(CTSWorkerQuery slice) throws CoreTokenException {
+                throw failure;
+            }
+        };
+
+        // When
+        CoreTokenException thrown = null;
+        try {
+            partitioner.process(mockQuery, failingProcessor);
+        } catch (CoreTokenException e) {
+            thrown = e;
+        }
+
+        // Then
+        assertThat(thrown).isSameAs(failure);
+        verify(mockMonitoringStore, times(slices.size())).addReaperSliceFailed(anyLong());
+        verify(mockMonitoringStore, never()).addReaperSliceSkipped(anyLong());
+        verify(mockLease, times(slices.size())).release(anyString());
+    }
+
+    @Test
+    public void shouldSkipSlicesLeasedByAnotherServer() throws Exception {
+        // Given
+        given(mockLease.acquire(anyString(), anyLong())).willReturn(false);
+        AtomicInteger count = new AtomicInteger();
+
+        // When
+        long total = partitioner.process(mockQuery, countingProcessor(count, new AtomicInteger(), 0));
+
+        // Then
+        assertThat(total).isEqualTo(0L);
+        assertThat(count.get()).isEqualTo(0);
+        verify(mockQuery, never()).slice(nullable(Calendar.class), any(Calendar.class));
+        verify(mockMonitoringStore, atLeast(SLICES + 1)).addReaperSliceSkipped(anyLong());
+        verify(mockMonitoringStore, never()).addReaperSliceCompleted(anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldLimitTheNumberOfConcurrentSlices() throws Exception {
+        // Given
+        AtomicInteger maximum = new AtomicInteger();
+
+        // When
+        partitioner.process(mockQuery, countingProcessor(new AtomicInteger(), maximum, 20));
+
+        // Then
+        assertThat(maximum.get()).isGreaterThan(0);
+        assertThat(maximum.get()).isLessThanOrEqualTo(2);
+    }
+
+    private List<Calendar[]> sortedSlices() {
+        List<Calendar[]> sorted = new ArrayList<>(slices);
+        Collections.sort(sorted, new Comparator<Calendar[]>() {
+            @Override
+            public int compare(Calendar[] a, Calendar[] b) {
+                return a[1].compareTo(b[1]);
+            }
+        });
+        return sorted;
+    }
+
+    private long width(Calendar[] slice) {
+        return slice[1].getTimeInMillis() - slice[0].getTimeInMillis();
+    }
+
+    private CTSWorkerPartitioner.SliceProcessor pagingProcessor(final AtomicInteger pages) {
+        return new CTSWorkerPartitioner.SliceProcessor() {
+            @Override
+            public long process(CTSWorkerQuery slice) throws CoreTokenException {
+                int processed = 0;
+                for (int i = 0; i < 2 && slice.nextPage() != null; i++) {
+                    pages.incrementAndGet();
+                    processed++;
+                }
+                return processed;
+            }
+        };
+    }
+
+    private CTSWorkerPartitioner.SliceProcessor countingProcessor(final AtomicInteger count,
+            final AtomicInteger maximum, final long sleep) {
+        final AtomicInteger running = new AtomicInteger();
+        return new CTSWorkerPartitioner.SliceProcessor() {
+            @Override
+            public long process(CTSWorkerQuery slice) throws InterruptedException {
+                int now = running.incrementAndGet();
+                synchronized (maximum) {
+                    maximum.set(Math.max(maximum.get(), now));
+                }
+                Thread.sleep(sleep);
+                count.incrementAndGet();
+                running.decrementAndGet();
+                return 10;
+            }
+        };
+    }
+}
@@ -12,16 +12,21 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
- * Portions Copyright 2023 Wren Security
+ * Portions Copyright 2023-2026 Wren Security
  */
 package org.forgerock.openam.cts.worker.process;
 
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.verify;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.withSettings;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -29,7 +34,9 @@ import java.util.concurrent.CountDownLatch;
 
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
 import org.forgerock.openam.cts.impl.query.worker.CTSWorkerQuery;
+import org.forgerock.openam.cts.impl.query.worker.CTSWorkerSliceableQuery;
 import org.forgerock.openam.cts.worker.CTSWorkerFilter;
+import org.forgerock.openam.cts.worker.CTSWorkerPartitioner;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -102,6 +109,58 @@ public class CTSWorkerBaseProcessTest {
         verify(mockProcess, times(0)).handleBatch(anyCollection());
     }
 
+    @Test
+    public void shouldPartitionSliceableQueryWhenEnabled() throws Exception {
+        // Given
+        CTSWorkerPartitioner partitioner = mock(CTSWorkerPartitioner.class);
+        given(partitioner.isEnabled()).willReturn(true);
+        CTSWorkerBaseProcess process = mock(CTSWorkerBaseProcess.class,
+                withSettings().useConstructor(partitioner).defaultAnswer(CALLS_REAL_METHODS));
+        CTSWorkerSliceableQuery query = mock(CTSWorkerSliceableQuery.class);
+
+        // When
+        process.handle(query, mockFilter);
+
+        // Then
+        verify(partitioner).process(eq(query), any(CTSWorkerPartitioner.SliceProcessor.class));
+        verify(query, never()).nextPage();
+    }
+
+    @Test
+    public void shouldReportFailureOfPartitionedQuery() throws Exception {
+        // Given
+        CTSWorkerPartitioner partitioner = mock(CTSWorkerPartitioner.class);
+        given(partitioner.isEnabled()).willReturn(true);
+        CoreTokenException failure = new CoreTokenException("failed");
+        given(partitioner.process(any(CTSWorkerSliceableQuery.class), any(CTSWorkerPartitioner.SliceProcessor.class)))
+                .willThrow(failure);
+        CTSWorkerBaseProcess process = mock(CTSWorkerBaseProcess.class,
+                withSettings().useConstructor(partitioner).defaultAnswer(CALLS_REAL_METHODS));
+
+        // When
+        process.handle(mock(CTSWorkerSliceableQuery.class), mockFilter);
+
+        // Then
+        verify(process).handleFailed(failure);
+    }
+
+    @Test
+    public void shouldNotPartitionWhenDisabled() throws Exception {
+        // Given
+        CTSWorkerPartitioner partitioner = mock(CTSWorkerPartitioner.class);
+        CTSWorkerBaseProcess process = mock(CTSWorkerBaseProcess.class,
+                withSettings().useConstructor(partitioner).defaultAnswer(CALLS_REAL_METHODS));
+        CTSWorkerSliceableQuery query = mock(CTSWorkerSliceableQuery.class);
+
+        // When
+        process.handle(query, mockFilter);
+
+        // Then
+        verify(partitioner, never()).process(any(CTSWorkerSliceableQuery.class),
+                any(CTSWorkerPartitioner.SliceProcessor.class));
+        verify(query).nextPage();
+    }
+
     private PartialToken partialToken() {
         return mock(PartialToken.class);
     }
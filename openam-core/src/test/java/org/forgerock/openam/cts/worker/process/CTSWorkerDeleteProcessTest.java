@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.cts.worker.process;
 
@@ -51,7 +52,7 @@ public class CTSWorkerDeleteProcessTest {
         monitoringStore = mock(CTSReaperMonitoringStore.class);
         mockQuery = mock(CTSWorkerQuery.class);
 
-        process = new CTSWorkerDeleteProcess(mockTokenDeletion, monitoringStore, mock(Debug.class));
+        process = new CTSWorkerDeleteProcess(mockTokenDeletion, monitoringStore, null, mock(Debug.class));
     }
 
     @AfterMethod
@@ -12,11 +12,12 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 package org.forgerock.openam.cts.worker.process;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.forgerock.openam.cts.api.CTSOptions.LOW_PRIORITY_OPTION;
 import static org.forgerock.openam.cts.api.CTSOptions.OPTIMISTIC_CONCURRENCY_CHECK_OPTION;
 import static org.forgerock.openam.cts.api.CTSOptions.PRE_DELETE_READ_OPTION;
 import static org.mockito.ArgumentMatchers.any;
@@ -101,6 +102,7 @@ public class SessionExpiryBatchHandlerTest extends AbstractMockBasedTest {
         Options options = optionsCaptor.getValue();
         assertThat(options.get(PRE_DELETE_READ_OPTION)).containsExactly(CoreTokenField.values());
         assertThat(options.get(OPTIMISTIC_CONCURRENCY_CHECK_OPTION)).isNull();
+        assertThat(options.get(LOW_PRIORITY_OPTION)).isTrue();
     }
 
     @DataProvider(name = "timeoutTypes")
@@ -12,11 +12,12 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 package org.forgerock.openam.cts.worker.process;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.forgerock.openam.cts.api.CTSOptions.LOW_PRIORITY_OPTION;
 import static org.mockito.BDDMockito.*;
 
 import java.util.Arrays;
@@ -27,6 +28,8 @@ import org.forgerock.openam.cts.impl.queue.TaskDispatcher;
 import org.forgerock.openam.cts.worker.process.CTSWorkerDeleteProcess.TokenDeletion;
 import org.forgerock.openam.sm.datalayer.api.ResultHandler;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
+import org.forgerock.util.Options;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -46,7 +49,15 @@ public class TokenDeletionTest {
     @Test
     public void shouldQueueEachTokenProvided() throws CoreTokenException {
         deletion.deleteBatch(tokens);
-        verify(mockQueue, times(3)).delete(any(), any(ResultHandler.class));
+        verify(mockQueue, times(3)).delete(any(), any(Options.class), any(ResultHandler.class));
+    }
+
+    @Test
+    public void shouldQueueDeletesAsLowPriority() throws CoreTokenException {
+        deletion.deleteBatch(tokens);
+        ArgumentCaptor<Options> optionsCaptor = ArgumentCaptor.forClass(Options.class);
+        verify(mockQueue, times(3)).delete(any(), optionsCaptor.capture(), any(ResultHandler.class));
+        assertThat(optionsCaptor.getValue().get(LOW_PRIORITY_OPTION)).isTrue();
     }
 
     @Test
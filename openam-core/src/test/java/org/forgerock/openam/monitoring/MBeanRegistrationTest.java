@@ -0,0 +1,85 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.monitoring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.sun.identity.shared.debug.Debug;
+
+public class MBeanRegistrationTest {
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @AfterMethod
+    public void unregister() throws Exception {
+        for (ObjectName name : server.queryNames(new ObjectName("OpenAM:type=MBeanRegistrationTest,*"), null)) {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void shouldRegisterUnderType() throws Exception {
+        // When
+        MBeanRegistration.register(new Counter(1), CounterMXBean.class, "MBeanRegistrationTest", mock(Debug.class));
+
+        // Then
+        assertThat(server.getAttribute(new ObjectName("OpenAM:type=MBeanRegistrationTest"), "Count"))
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldReplaceMBeanRegisteredUnderTheSameName() throws Exception {
+        // Given
+        MBeanRegistration.register(new Counter(1), CounterMXBean.class, "MBeanRegistrationTest", "a b",
+                mock(Debug.class));
+
+        // When
+        MBeanRegistration.register(new Counter(2), CounterMXBean.class, "MBeanRegistrationTest", "a b",
+                mock(Debug.class));
+
+        // Then
+        ObjectName name = new ObjectName("OpenAM:type=MBeanRegistrationTest,name=" + ObjectName.quote("a b"));
+        assertThat(server.getAttribute(name, "Count")).isEqualTo(2L);
+    }
+
+    public interface CounterMXBean {
+        long getCount();
+    }
+
+    private static final class Counter implements CounterMXBean {
+
+        private final long count;
+
+        private Counter(long count) {
+            this.count = count;
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.session.service.access;
@@ -27,9 +28,17 @@ import org.forgerock.openam.cts.adapters.SessionAdapter;
 import org.forgerock.openam.cts.api.filter.TokenFilter;
 import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.api.tokens.TokenIdFactory;
+import org.forgerock.openam.cts.exceptions.CoreTokenException;
 import org.forgerock.openam.session.service.access.persistence.SessionPersistenceStore;
+import org.forgerock.openam.session.service.access.persistence.UserSessionIndex;
 import org.forgerock.openam.dpro.session.PartialSessionFactory;
 import org.forgerock.openam.identity.idm.IdentityUtils;
+import org.forgerock.openam.sm.datalayer.api.OptimisticConcurrencyCheckFailedException;
+import org.forgerock.openam.tokens.CoreTokenField;
+import org.forgerock.openam.tokens.TokenType;
+import org.forgerock.util.Options;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeClass;
@@ -69,7 +78,8 @@ public class SessionPersistenceStoreTest extends GuiceTestCase {
         MockitoAnnotations.initMocks(this);
 
         sessionPersistenceStore = new SessionPersistenceStore(mockDebug, mockCoreTokenService, mockTokenAdapter,
-                mockTokenIdFactory, mockSessionServiceConfig, mockPartialSessionFactory, mockIdentityUtils);
+                mockTokenIdFactory, mockSessionServiceConfig, mockPartialSessionFactory, mockIdentityUtils,
+                new UserSessionIndex(mockDebug));
 
         given(mockSession.getID()).willReturn(mockSessionID);
         given(mockTokenIdFactory.toSessionTokenId(mockSessionID)).willReturn(TOKEN);
@@ -82,7 +92,99 @@ public class SessionPersistenceStoreTest extends GuiceTestCase {
     public void savesToken() throws Exception {
         sessionPersistenceStore.save(mockSession);
 
-        verify(mockCoreTokenService).update(mockToken);
+        verify(mockCoreTokenService).updateAttributes(isNull(), eq(mockToken), any(Options.class));
+    }
+
+    @Test
+    public void savesOnlyChangedAttributesOfTokenLastWritten() throws Exception {
+        // Given
+        CTSPersistentStore coreTokenService = mock(CTSPersistentStore.class);
+        SessionPersistenceStore store = cachingStore(coreTokenService);
+        Token written = tokenWithETag();
+        given(coreTokenService.updateAttributes(nullable(Token.class), eq(mockToken), any(Options.class)))
+                .willReturn(written);
+
+        // When
+        store.save(mockSession);
+        store.save(mockSession);
+
+        // Then
+        verify(coreTokenService).updateAttributes(isNull(), eq(mockToken), any(Options.class));
+        verify(coreTokenService).updateAttributes(withETag(), eq(mockToken), any(Options.class));
+    }
+
+    @Test
+    public void comparesUnchangedBlobWithoutKeepingIt() throws Exception {
+        // Given
+        CTSPersistentStore coreTokenService = mock(CTSPersistentStore.class);
+        SessionAdapter tokenAdapter = mock(SessionAdapter.class);
+        SessionPersistenceStore store = cachingStore(coreTokenService, tokenAdapter);
+        Token updated = new Token(TOKEN, TokenType.SESSION);
+        updated.setBlob(new byte[] {1, 2, 3});
+        Token changed = new Token(TOKEN, TokenType.SESSION);
+        changed.setBlob(new byte[] {1, 2, 4});
+        Token written = tokenWithETag();
+        written.setBlob(new byte[] {1, 2, 3});
+        given(tokenAdapter.toToken(mockSession)).willReturn(updated, updated, changed);
+        given(coreTokenService.updateAttributes(nullable(Token.class), any(Token.class), any(Options.class)))
+                .willReturn(written);
+
+        // When
+        store.save(mockSession);
+        store.save(mockSession);
+        store.save(mockSession);
+
+        // Then
+        ArgumentCaptor<Token> previous = ArgumentCaptor.forClass(Token.class);
+        verify(coreTokenService, times(3)).updateAttributes(previous.capture(), any(Token.class),
+                any(Options.class));
+        assertThat(previous.getAllValues().get(1).getBlob()).isSameAs(updated.getBlob());
+        assertThat(previous.getAllValues().get(2).getBlob()).isNull();
+    }
+
+    @Test
+    public void savesWholeTokenWhenChangedElsewhere() throws Exception {
+        // Given
+        CTSPersistentStore coreTokenService = mock(CTSPersistentStore.class);
+        SessionPersistenceStore store = cachingStore(coreTokenService);
+        Token written = tokenWithETag();
+        given(coreTokenService.updateAttributes(isNull(), eq(mockToken), any(Options.class))).willReturn(written);
+        given(coreTokenService.updateAttributes(withETag(), eq(mockToken), any(Options.class))).willThrow(
+                new CoreTokenException("Failed", new OptimisticConcurrencyCheckFailedException(TOKEN, "ETAG", null)));
+        store.save(mockSession);
+
+        // When
+        store.save(mockSession);
+
+        // Then
+        verify(coreTokenService).updateAttributes(withETag(), eq(mockToken), any(Options.class));
+        verify(coreTokenService, times(2)).updateAttributes(isNull(), eq(mockToken), any(Options.class));
+    }
+
+    private static Token withETag() {
+        return argThat(new ArgumentMatcher<Token>() {
+            @Override
+            public boolean matches(Token token) {
+                return token != null && "ETAG".equals(token.getAttribute(CoreTokenField.ETAG));
+            }
+        });
+    }
+
+    private SessionPersistenceStore cachingStore(CTSPersistentStore coreTokenService) {
+        return cachingStore(coreTokenService, mockTokenAdapter);
+    }
+
+    private SessionPersistenceStore cachingStore(CTSPersistentStore coreTokenService, SessionAdapter tokenAdapter) {
+        SessionServiceConfig sessionServiceConfig = mock(SessionServiceConfig.class);
+        given(sessionServiceConfig.getMaxSessionCacheSize()).willReturn(10);
+        return new SessionPersistenceStore(mockDebug, coreTokenService, tokenAdapter, mockTokenIdFactory,
+                sessionServiceConfig, mockPartialSessionFactory, mockIdentityUtils, new UserSessionIndex(mockDebug));
+    }
+
+    private Token tokenWithETag() {
+        Token token = new Token(TOKEN, TokenType.SESSION);
+        token.setAttribute(CoreTokenField.ETAG, "ETAG");
+        return token;
     }
 
     @Test
@@ -0,0 +1,219 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.session.service.access.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.forgerock.openam.cts.CTSPersistentStore;
+import org.forgerock.openam.cts.api.fields.SessionTokenField;
+import org.forgerock.openam.cts.continuous.ChangeType;
+import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.tokens.CoreTokenField;
+import org.forgerock.openam.utils.TimeUtils;
+import org.forgerock.opendj.ldap.Attribute;
+import org.forgerock.opendj.ldap.GeneralizedTime;
+import org.forgerock.opendj.ldap.LinkedAttribute;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.identity.shared.debug.Debug;
+
+public class UserSessionIndexTest {
+
+    private static final String USER = "id=demo,ou=user,dc=openam,dc=forgerock,dc=org";
+
+    private UserSessionIndex index;
+    private UserSessionIndex.SessionLoader loader;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        index = new UserSessionIndex(mock(Debug.class));
+        index.setupContinuousQuery(mock(CTSPersistentStore.class));
+        loader = mock(UserSessionIndex.SessionLoader.class);
+        given(loader.load(USER)).willReturn(sessions("one", 2000L, "two", 1000L));
+    }
+
+    @Test
+    public void shouldLoadUserOnlyOnce() throws Exception {
+        // When
+        index.getSessionCount(USER, loader);
+        int count = index.getSessionCount(USER, loader);
+
+        // Then
+        assertThat(count).isEqualTo(2);
+        verify(loader).load(USER);
+    }
+
+    @Test
+    public void shouldAlwaysLoadBeforeListening() throws Exception {
+        // Given
+        index = new UserSessionIndex(mock(Debug.class));
+
+        // When
+        index.getSessionCount(USER, loader);
+        index.getSessionCount(USER, loader);
+
+        // Then
+        verify(loader, times(2)).load(USER);
+    }
+
+    @Test
+    public void shouldApplyChangesToIndexedUser() throws Exception {
+        // Given
+        index.getSessions(USER, loader);
+
+        // When
+        index.objectChanged("dn", changeSet(USER, "three", 500L), ChangeType.ADD);
+        index.objectChanged("dn", changeSet(USER, "one", 3000L), ChangeType.MODIFY);
+        index.objectChanged("dn", changeSet(USER, "two", 1000L), ChangeType.DELETE);
+
+        // Then
+        assertThat(index.getSessions(USER, loader)).isEqualTo(sessions("one", 3000L, "three", 500L));
+        assertThat(index.getNextExpiringSession(USER, loader).getKey()).isEqualTo("three");
+        verify(loader).load(USER);
+    }
+
+    @Test
+    public void shouldIgnoreChangesToUsersNotIndexed() throws Exception {
+        // Given
+        index.objectChanged("dn", changeSet(USER, "three", 500L), ChangeType.ADD);
+
+        // When
+        Map<String, Long> result = index.getSessions(USER, loader);
+
+        // Then
+        assertThat(result).isEqualTo(sessions("one", 2000L, "two", 1000L));
+    }
+
+    @Test
+    public void shouldNotResurrectSessionDeletedWhileLoading() throws Exception {
+        // Given
+        loader = new UserSessionIndex.SessionLoader() {
+            @Override
+            public Map<String, Long> load(String uuid) {
+                index.objectChanged("dn", changeSet(USER, "two", 1000L), ChangeType.DELETE);
+                index.objectChanged("dn", changeSet(USER, "one", 4000L), ChangeType.MODIFY);
+                return sessions("one", 2000L, "two", 1000L);
+            }
+        };
+
+        // When
+        Map<String, Long> result = index.getSessions(USER, loader);
+
+        // Then
+        assertThat(result).isEqualTo(sessions("one", 4000L));
+    }
+
+    @Test
+    public void shouldReloadUserOnceLastSessionIsDeleted() throws Exception {
+        // Given
+        index.getSessions(USER, loader);
+        index.objectChanged("dn", changeSet(USER, "one", 2000L), ChangeType.DELETE);
+        index.objectChanged("dn", changeSet(USER, "two", 1000L), ChangeType.DELETE);
+
+        // When
+        index.getSessionCount(USER, loader);
+
+        // Then
+        verify(loader, times(2)).load(USER);
+    }
+
+    @Test
+    public void shouldReloadUserAfterConnectionLost() throws Exception {
+        // Given
+        index.getSessions(USER, loader);
+
+        // When
+        index.connectionLost();
+        index.getSessions(USER, loader);
+
+        // Then
+        verify(loader, times(2)).load(USER);
+    }
+
+    @Test
+    public void shouldRetryLoadAfterFailure() throws Exception {
+        // Given
+        given(loader.load(USER)).willThrow(new CoreTokenException("failed"))
+                .willReturn(sessions("one", 2000L));
+
+        // When
+        try {
+            index.getSessions(USER, loader);
+        } catch (CoreTokenException e) {
+            // expected
+        }
+        Map<String, Long> result = index.getSessions(USER, loader);
+
+        // Then
+        assertThat(result).isEqualTo(sessions("one", 2000L));
+    }
+
+    @Test
+    public void shouldIndexExpiryTimesFromLoaderAndChangesInTheSameUnit() throws Exception {
+        // Given
+        final Calendar later = TimeUtils.fromUnixTime(1700001000L);
+        Calendar earlier = TimeUtils.fromUnixTime(1700000000L);
+        loader = new UserSessionIndex.SessionLoader() {
+            @Override
+            public Map<String, Long> load(String uuid) {
+                // As loaded by SessionPersistenceStore from the expiry date of each token
+                return sessions("one", TimeUtils.toUnixTime(later));
+            }
+        };
+        index.getSessions(USER, loader);
+
+        // When
+        Map<String, Attribute> changeSet = changeSet(USER, "two", 0L);
+        put(changeSet, CoreTokenField.EXPIRY_DATE.toString(), GeneralizedTime.valueOf(earlier).toString());
+        index.objectChanged("dn", changeSet, ChangeType.ADD);
+
+        // Then
+        assertThat(index.getSessions(USER, loader))
+                .isEqualTo(sessions("one", 1700001000L, "two", 1700000000L));
+        assertThat(index.getNextExpiringSession(USER, loader).getKey()).isEqualTo("two");
+    }
+
+    private static Map<String, Long> sessions(Object... values) {
+        Map<String, Long> sessions = new HashMap<>();
+        for (int i = 0; i < values.length; i += 2) {
+            sessions.put((String) values[i], (Long) values[i + 1]);
+        }
+        return sessions;
+    }
+
+    private static Map<String, Attribute> changeSet(String user, String sessionId, long expiry) {
+        Map<String, Attribute> changeSet = new HashMap<>();
+        put(changeSet, CoreTokenField.USER_ID.toString(), user);
+        put(changeSet, SessionTokenField.SESSION_ID.getField().toString(), sessionId);
+        put(changeSet, CoreTokenField.EXPIRY_DATE.toString(),
+                GeneralizedTime.valueOf(TimeUtils.fromUnixTime(expiry)).toString());
+        return changeSet;
+    }
+
+    private static void put(Map<String, Attribute> changeSet, String name, String value) {
+        changeSet.put(name, new LinkedAttribute(name, value));
+    }
+}
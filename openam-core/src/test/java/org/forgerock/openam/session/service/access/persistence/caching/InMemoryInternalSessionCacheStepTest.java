@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2016 ForgeRock AS.
- * Portions Copyright 2021 Wren Security.
+ * Portions Copyright 2021-2026 Wren Security.
  */
 
 package org.forgerock.openam.session.service.access.persistence.caching;
@@ -22,6 +22,7 @@ import static org.mockito.BDDMockito.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import java.util.Collections;
@@ -141,6 +142,43 @@ public class InMemoryInternalSessionCacheStepTest extends AbstractMockBasedTest
         assertThat(testCache.getBySessionID(SESSION_ID, mockStore)).isNull();
     }
 
+    @Test
+    public void shouldNotCacheSessionChangedWhilstBeingLoaded() throws Exception {
+        // Given
+        given(mockStore.getBySessionID(SESSION_ID)).willAnswer(new Answer<InternalSession>() {
+            @Override
+            public InternalSession answer(InvocationOnMock invocation) throws Throwable {
+                sessionModificationListener.sessionChanged(SESSION_ID);
+                return mockSession;
+            }
+        });
+
+        // When
+        testCache.getBySessionID(SESSION_ID, mockStore);
+
+        // Then
+        assertThat(testCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCacheLoadedSessionWhenAnotherSessionChangedWhilstLoading() throws Exception {
+        // Given
+        given(mockStore.getBySessionID(SESSION_ID)).willAnswer(new Answer<InternalSession>() {
+            @Override
+            public InternalSession answer(InvocationOnMock invocation) throws Throwable {
+                sessionModificationListener.sessionChanged(new SessionID("other"));
+                return mockSession;
+            }
+        });
+
+        // When
+        testCache.getBySessionID(SESSION_ID, mockStore);
+
+        // Then
+        assertThat(testCache.getBySessionID(SESSION_ID, mockStore)).isEqualTo(mockSession);
+        verify(mockStore).getBySessionID(SESSION_ID);
+    }
+
     @Test
     public void shouldRemoveAllReferencesToTheSessionWhenRemovingItByMasterSessionId() throws Exception {
         // Given
@@ -187,6 +225,93 @@ public class InMemoryInternalSessionCacheStepTest extends AbstractMockBasedTest
         assertThat(testCache.size()).as("Cache size after reconfiguration").isLessThanOrEqualTo(MAX_SESSIONS * 2);
     }
 
+    @Test
+    public void shouldCountEachSessionOnceRegardlessOfItsKeys() throws Exception {
+        // Given
+        InternalSession session = sessionWithHandleAndRestrictedTokens();
+
+        // When
+        testCache.store(session, mockStore);
+
+        // Then
+        assertThat(testCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepCachedSessionsWhenCacheSizeIncreased() throws Exception {
+        // Given
+        testCache.store(mockSession, mockStore);
+
+        // When
+        given(mockSessionConfig.getMaxSessionCacheSize()).willReturn(MAX_SESSIONS * 2);
+
+        // Then
+        assertThat(testCache.getBySessionID(SESSION_ID, mockStore)).isEqualTo(mockSession);
+        verify(mockStore, never()).getBySessionID(SESSION_ID);
+    }
+
+    @Test
+    public void shouldCacheSessionFoundByHandleUnderAllItsKeys() throws Exception {
+        // Given
+        InternalSession session = sessionWithHandleAndRestrictedTokens();
+        given(mockStore.getByHandle(session.getSessionHandle())).willReturn(session);
+
+        // When
+        testCache.getByHandle(session.getSessionHandle(), mockStore);
+
+        // Then
+        assertThat(testCache.getBySessionID(SESSION_ID, mockStore)).isEqualTo(session);
+        assertThat(testCache.getByRestrictedID(new SessionID("one"), mockStore)).isEqualTo(session);
+        verify(mockStore, never()).getBySessionID(SESSION_ID);
+    }
+
+    @Test
+    public void shouldRemoveReferencesNoLongerHeldByRestoredSession() throws Exception {
+        // Given
+        InternalSession session = sessionWithHandleAndRestrictedTokens();
+        testCache.store(session, mockStore);
+
+        // When
+        given(session.getSessionHandle()).willReturn("newHandle");
+        given(session.getRestrictedTokens()).willReturn(Collections.<SessionID>emptySet());
+        testCache.store(session, mockStore);
+
+        // Then
+        assertThat(testCache.getByHandle("sessionHandle", mockStore)).isNull();
+        assertThat(testCache.getByRestrictedID(new SessionID("one"), mockStore)).isNull();
+        assertThat(testCache.getByHandle("newHandle", mockStore)).isEqualTo(session);
+    }
+
+    @Test
+    public void shouldReportHitRatesPerLookupType() throws Exception {
+        // Given
+        InternalSession session = sessionWithHandleAndRestrictedTokens();
+        testCache.store(session, mockStore);
+
+        // When
+        testCache.getBySessionID(SESSION_ID, mockStore);
+        testCache.getByHandle("sessionHandle", mockStore);
+        testCache.getByHandle("unknownHandle", mockStore);
+
+        // Then
+        assertThat(testCache.getStatistics().getSessionIdHitRate()).isEqualTo(1.0d);
+        assertThat(testCache.getStatistics().getHandleHitRate()).isEqualTo(0.5d);
+        assertThat(testCache.getStatistics().getRestrictedIdHitRate()).isEqualTo(0.0d);
+    }
+
+    @Test
+    public void shouldNotCacheAnythingWhenCachingDisabled() throws Exception {
+        // Given
+        testCache.store(mockSession, mockStore);
+
+        // When
+        given(mockSessionConfig.getMaxSessionCacheSize()).willReturn(0);
+        testCache.store(mockSession, mockStore);
+
+        // Then
+        assertThat(testCache.size()).isEqualTo(0);
+        assertThat(testCache.getBySessionID(SESSION_ID, mockStore)).isNull();
+    }
 
     private InternalSession sessionWithHandleAndRestrictedTokens() {
         String sessionHandle = "sessionHandle";
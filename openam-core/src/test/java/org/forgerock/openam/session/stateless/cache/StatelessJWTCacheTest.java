@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.session.stateless.cache;
 
@@ -23,6 +24,7 @@ import static org.mockito.Mockito.mock;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.forgerock.openam.session.stateless.StatelessConfig;
 import org.mockito.invocation.InvocationOnMock;
@@ -121,6 +123,112 @@ public class StatelessJWTCacheTest {
         assertThat(cache.contains(mockSessionInfo)).isFalse();
     }
 
+    @Test
+    public void shouldFindSessionInfoOfCachedJWT() {
+        // Given
+        given(mockConfig.getJWTCacheSize()).willReturn(1);
+        cache = new StatelessJWTCache(mockConfig, mockListeners);
+        SessionInfo mockSessionInfo = mock(SessionInfo.class);
+
+        // When
+        cache.cache(mockSessionInfo, "badger");
+
+        // Then
+        assertThat(cache.contains(mockSessionInfo)).isTrue();
+    }
+
+    @Test
+    public void shouldNotFindSessionInfoOfRemovedJWT() {
+        // Given
+        given(mockConfig.getJWTCacheSize()).willReturn(1);
+        cache = new StatelessJWTCache(mockConfig, mockListeners);
+        SessionInfo mockSessionInfo = mock(SessionInfo.class);
+        cache.cache(mockSessionInfo, "badger");
+
+        // When
+        cache.remove("badger");
+
+        // Then
+        assertThat(cache.contains(mockSessionInfo)).isFalse();
+    }
+
+    @Test
+    public void shouldNotFindSessionInfoOfEvictedJWT() {
+        // Given
+        given(mockConfig.getJWTCacheSize()).willReturn(1);
+        cache = new StatelessJWTCache(mockConfig, mockListeners);
+        SessionInfo mockSessionInfo = mock(SessionInfo.class);
+        cache.cache(mockSessionInfo, "badger");
+
+        // When
+        cache.cache(mock(SessionInfo.class), "weasel");
+
+        // Then
+        assertThat(cache.contains(mockSessionInfo)).isFalse();
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRecordHitsAndMisses() {
+        // Given
+        given(mockConfig.getJWTCacheSize()).willReturn(1);
+        cache = new StatelessJWTCache(mockConfig, mockListeners);
+        cache.cache(mock(SessionInfo.class), "badger");
+
+        // When
+        cache.getSessionInfo("badger");
+        cache.getSessionInfo("weasel");
+
+        // Then
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotServeExpiredSessionInfo() {
+        // Given
+        given(mockConfig.getJWTCacheSize()).willReturn(1);
+        cache = new StatelessJWTCache(mockConfig, mockListeners);
+        SessionInfo mockSessionInfo = mock(SessionInfo.class);
+        given(mockSessionInfo.getExpiryTime(TimeUnit.SECONDS)).willReturn(1L);
+        cache.cache(mockSessionInfo, "badger");
+
+        // When / Then
+        assertThat(cache.getSessionInfo("badger")).isNull();
+        assertThat(cache.contains("badger")).isFalse();
+    }
+
+    @Test
+    public void shouldRememberRejectedJWT() {
+        // Given
+        given(mockConfig.getJWTCacheSize()).willReturn(1);
+        cache = new StatelessJWTCache(mockConfig, mockListeners);
+
+        // When
+        cache.reject("badger");
+
+        // Then
+        assertThat(cache.isRejected("badger")).isTrue();
+        assertThat(cache.isRejected("weasel")).isFalse();
+        assertThat(cache.isRejected(null)).isFalse();
+    }
+
+    @Test
+    public void shouldForgetRejectedJWTOnServiceListenersNotification() {
+        // Given
+        given(mockConfig.getJWTCacheSize()).willReturn(1);
+        cache = new StatelessJWTCache(mockConfig, mockListeners);
+        cache.reject("badger");
+
+        // When
+        for (Action action : actions) {
+            action.performUpdate();
+        }
+
+        // Then
+        assertThat(cache.isRejected("badger")).isFalse();
+    }
+
     @Test
     public void shouldRegisterListenersForNotification() {
         given(mockConfig.getJWTCacheSize()).willReturn(1);
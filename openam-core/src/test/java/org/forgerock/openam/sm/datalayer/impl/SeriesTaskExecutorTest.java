@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.sm.datalayer.impl;
@@ -65,7 +66,8 @@ public class SeriesTaskExecutorTest {
     public void shouldStartTaskProcessorsWithThreadMonitor() throws Exception {
         // Given
         int processors = 3;
-        given(processorFactory.create(any(BlockingQueue.class))).willReturn(mock(SeriesTaskExecutorThread.class));
+        given(processorFactory.create(anyString(), any(BlockingQueue.class)))
+                .willReturn(mock(SeriesTaskExecutorThread.class));
         given(configuration.getProcessors()).willReturn(processors);
 
         // When
@@ -82,7 +84,8 @@ public class SeriesTaskExecutorTest {
 
         // Capture the blocking queue that is provided to the mock processor
         ArgumentCaptor<BlockingQueue> captor = ArgumentCaptor.forClass(BlockingQueue.class);
-        given(processorFactory.create(captor.capture())).willReturn(mock(SeriesTaskExecutorThread.class));
+        given(processorFactory.create(anyString(), captor.capture()))
+                .willReturn(mock(SeriesTaskExecutorThread.class));
         given(configuration.getProcessors()).willReturn(processors);
 
         executor.start();
@@ -95,6 +98,48 @@ public class SeriesTaskExecutorTest {
     }
 
 
+    @Test
+    public void shouldPlaceQueriesOnQueryQueue() throws Exception {
+        // Given
+        ArgumentCaptor<BlockingQueue> tokenCaptor = ArgumentCaptor.forClass(BlockingQueue.class);
+        ArgumentCaptor<BlockingQueue> queryCaptor = ArgumentCaptor.forClass(BlockingQueue.class);
+        given(processorFactory.create(eq("token-0"), tokenCaptor.capture()))
+                .willReturn(mock(SeriesTaskExecutorThread.class));
+        given(processorFactory.create(eq("query"), queryCaptor.capture()))
+                .willReturn(mock(SeriesTaskExecutorThread.class));
+        given(configuration.getProcessors()).willReturn(1);
+        given(configuration.getQueryProcessors()).willReturn(1);
+
+        executor.start();
+
+        // When
+        executor.execute(null, mock(Task.class));
+
+        // Then
+        assertThat(queryCaptor.getValue().size()).isEqualTo(1);
+        assertThat(tokenCaptor.getValue().size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldPlaceQueriesOnLeastLoadedQueueWithoutQueryProcessors() throws Exception {
+        // Given
+        ArgumentCaptor<BlockingQueue> captor = ArgumentCaptor.forClass(BlockingQueue.class);
+        given(processorFactory.create(anyString(), captor.capture()))
+                .willReturn(mock(SeriesTaskExecutorThread.class));
+        given(configuration.getProcessors()).willReturn(2);
+
+        executor.start();
+        BlockingQueue first = captor.getAllValues().get(0);
+        BlockingQueue second = captor.getAllValues().get(1);
+        first.add(mock(Task.class));
+
+        // When
+        executor.execute(null, mock(Task.class));
+
+        // Then
+        assertThat(second.size()).isEqualTo(1);
+    }
+
     @Test
     public void shouldCatchTimeoutWhenOfferingTaskToQueue() throws Exception {
         // Given
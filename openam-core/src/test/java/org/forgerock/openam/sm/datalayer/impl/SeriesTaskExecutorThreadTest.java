@@ -12,14 +12,23 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm.datalayer.impl;
 
 import static org.mockito.BDDMockito.*;
 
+import java.util.Collection;
 import java.util.concurrent.BlockingQueue;
 
+import org.forgerock.openam.sm.datalayer.api.PipelinedTask;
+import org.forgerock.openam.sm.datalayer.api.QueueConfiguration;
 import org.forgerock.openam.sm.datalayer.api.Task;
+import org.forgerock.openam.sm.datalayer.api.TaskQueueMonitor;
+import org.forgerock.util.promise.NeverThrowsException;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.Promises;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.testng.annotations.AfterMethod;
@@ -32,12 +41,17 @@ public class SeriesTaskExecutorThreadTest {
 
     private SeriesTaskExecutorThread processor;
     private SimpleTaskExecutor mockExecutor;
+    private QueueConfiguration mockConfiguration;
+    private TaskQueueMonitor mockMonitoringStore;
 
     @BeforeMethod
     public void setup() {
         Thread.interrupted();
         mockExecutor = mock(SimpleTaskExecutor.class);
-        processor = new SeriesTaskExecutorThread(mock(Debug.class), mockExecutor);
+        mockConfiguration = mock(QueueConfiguration.class);
+        mockMonitoringStore = mock(TaskQueueMonitor.class);
+        processor = new SeriesTaskExecutorThread(mock(Debug.class), mockExecutor, mockConfiguration,
+                mockMonitoringStore);
     }
 
     // NB: TaskProcessor has a threading policy around interrupted. This tear down clears the interrupted state.
@@ -54,7 +68,7 @@ public class SeriesTaskExecutorThreadTest {
     @Test
     public void shouldInitialiseExecutor() throws Exception {
         // Given
-        processor.setQueue(generateTestQueue(mock(Task.class)));
+        processor.setQueue("token-0", generateTestQueue(mock(Task.class)));
 
         // When
         processor.run();
@@ -67,7 +81,7 @@ public class SeriesTaskExecutorThreadTest {
     public void shouldExecuteTaskFromQueue() throws Exception {
         // Given
         Task mockTask = mock(Task.class);
-        processor.setQueue(generateTestQueue(mockTask));
+        processor.setQueue("token-0", generateTestQueue(mockTask));
 
         // When
         processor.run();
@@ -76,6 +90,105 @@ public class SeriesTaskExecutorThreadTest {
         verify(mockExecutor).execute(null, mockTask);
     }
 
+    @Test
+    public void shouldPipelineBatchedTasks() throws Exception {
+        // Given
+        given(mockConfiguration.getBatchSize()).willReturn(10);
+        given(mockConfiguration.getPipelineDepth()).willReturn(10);
+        PipelinedTask first = pipelinedTask("one");
+        PipelinedTask second = pipelinedTask("two");
+        given(mockExecutor.executeAsync(first)).willReturn(completed());
+        given(mockExecutor.executeAsync(second)).willReturn(completed());
+        processor.setQueue("token-0", generateTestQueue(first, second));
+
+        // When
+        processor.run();
+
+        // Then
+        verify(mockExecutor).executeAsync(first);
+        verify(mockExecutor).executeAsync(second);
+        verify(mockExecutor, never()).execute(any(), any());
+        verify(mockMonitoringStore).addTaskBatch(2, 2, 2);
+    }
+
+    @Test
+    public void shouldNotPipelineTasksForTheSameToken() throws Exception {
+        // Given
+        given(mockConfiguration.getBatchSize()).willReturn(10);
+        given(mockConfiguration.getPipelineDepth()).willReturn(10);
+        PipelinedTask first = pipelinedTask("one");
+        PipelinedTask second = pipelinedTask("one");
+        given(mockExecutor.executeAsync(first)).willReturn(completed());
+        given(mockExecutor.executeAsync(second)).willReturn(completed());
+        processor.setQueue("token-0", generateTestQueue(first, second));
+
+        // When
+        processor.run();
+
+        // Then
+        verify(mockMonitoringStore).addTaskBatch(2, 2, 1);
+    }
+
+    @Test
+    public void shouldExecuteTasksWhichCannotBePipelinedInOrder() throws Exception {
+        // Given
+        given(mockConfiguration.getBatchSize()).willReturn(10);
+        given(mockConfiguration.getPipelineDepth()).willReturn(10);
+        PipelinedTask first = pipelinedTask("one");
+        Task second = mock(Task.class);
+        given(mockExecutor.executeAsync(first)).willReturn(completed());
+        processor.setQueue("token-0", generateTestQueue(first, second));
+
+        // When
+        processor.run();
+
+        // Then
+        InOrder inOrder = inOrder(mockExecutor);
+        inOrder.verify(mockExecutor).executeAsync(first);
+        inOrder.verify(mockExecutor).execute(null, second);
+    }
+
+    @Test
+    public void shouldRecordTimeTaskWaitedOnQueue() throws Exception {
+        // Given
+        QueuedTask task = mock(QueuedTask.class);
+        given(task.getQueuedTime()).willReturn(System.currentTimeMillis());
+        processor.setQueue("token-0", generateTestQueue(task));
+
+        // When
+        processor.run();
+
+        // Then
+        verify(mockMonitoringStore).addQueuedTask(eq("token-0"), eq(1), anyLong());
+    }
+
+    private PipelinedTask pipelinedTask(String tokenId) {
+        PipelinedTask task = mock(PipelinedTask.class);
+        given(task.getTokenId()).willReturn(tokenId);
+        return task;
+    }
+
+    private Promise<Void, NeverThrowsException> completed() {
+        return Promises.newResultPromise(null);
+    }
+
+    private BlockingQueue<Task> generateTestQueue(final Task first, final Task... remaining)
+            throws InterruptedException {
+        BlockingQueue<Task> queue = generateTestQueue(first);
+        given(queue.size()).willReturn(remaining.length);
+        given(queue.drainTo(any(Collection.class), anyInt())).willAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+                Collection<Task> batch = (Collection<Task>) invocationOnMock.getArguments()[0];
+                for (Task task : remaining) {
+                    batch.add(task);
+                }
+                return remaining.length;
+            }
+        });
+        return queue;
+    }
+
     private BlockingQueue<Task> generateTestQueue(final Task first) throws InterruptedException {
         BlockingQueue<Task> queue = mock(BlockingQueue.class);
         given(queue.take()).willAnswer(new Answer<Object>() {
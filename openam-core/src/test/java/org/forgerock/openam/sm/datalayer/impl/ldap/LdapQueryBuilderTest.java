@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm.datalayer.impl.ldap;
 
@@ -36,11 +37,15 @@ import org.forgerock.openam.sm.datalayer.api.query.QueryBuilder;
 import org.forgerock.openam.sm.datalayer.providers.LdapConnectionFactoryProvider;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.openam.tokens.TokenType;
+import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.Connection;
+import org.forgerock.opendj.ldap.DecodeOptions;
 import org.forgerock.opendj.ldap.Entry;
 import org.forgerock.opendj.ldap.LinkedHashMapEntry;
+import org.forgerock.opendj.ldap.controls.SimplePagedResultsControl;
 import org.forgerock.opendj.ldap.requests.SearchRequest;
 import org.forgerock.opendj.ldap.responses.Result;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
@@ -127,6 +132,35 @@ public class LdapQueryBuilderTest {
         verify(tokenEntryConverter, times(2)).convert(any(Entry.class), any(String[].class));
     }
 
+    @Test
+    public void shouldContinuePagedSearchFromPreviousPage() throws Exception {
+        // Given
+        ByteString cookie = ByteString.valueOfUtf8("badger");
+        Result firstResult = mock(Result.class);
+        given(firstResult.getControl(eq(SimplePagedResultsControl.DECODER), any(DecodeOptions.class)))
+                .willReturn(SimplePagedResultsControl.newControl(true, 0, cookie));
+        Result lastResult = mock(Result.class);
+        given(lastResult.getControl(eq(SimplePagedResultsControl.DECODER), any(DecodeOptions.class)))
+                .willReturn(SimplePagedResultsControl.newControl(true, 0, ByteString.empty()));
+        given(searchHandler.performSearch(any(Connection.class), any(SearchRequest.class), any(Collection.class)))
+                .willReturn(firstResult, lastResult);
+
+        // When
+        Iterator<Collection<PartialToken>> results = builder.pageResultsBy(1)
+                .returnTheseAttributes(CoreTokenField.TOKEN_ID)
+                .executeAttributeQuery(mockConnection);
+        results.next();
+        results.next();
+
+        // Then
+        assertThat(results.hasNext()).isFalse();
+        ArgumentCaptor<SearchRequest> requests = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(searchHandler, times(2)).performSearch(eq(mockConnection), requests.capture(), any(Collection.class));
+        SimplePagedResultsControl second = requests.getAllValues().get(1)
+                .getControl(SimplePagedResultsControl.DECODER, new DecodeOptions());
+        assertThat(second.getCookie()).isEqualTo(cookie);
+    }
+
     @Test (expectedExceptions = IllegalArgumentException.class)
     public void shouldPreventSettingReturnAttributesWithEmptyArray() {
         builder.returnTheseAttributes();
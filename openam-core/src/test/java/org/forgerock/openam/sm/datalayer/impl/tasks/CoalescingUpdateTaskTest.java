@@ -0,0 +1,116 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.sm.datalayer.impl.tasks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.forgerock.openam.cts.api.tokens.Token;
+import org.forgerock.openam.cts.impl.LdapAdapter;
+import org.forgerock.openam.sm.datalayer.api.ResultHandler;
+import org.forgerock.util.Options;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class CoalescingUpdateTaskTest {
+    private CoalescingUpdateTask task;
+    private LdapAdapter mockAdapter;
+    private Token mockFirst;
+    private Token mockSecond;
+    private Options options;
+    private ResultHandler<Token, ?> mockFirstHandler;
+    private ResultHandler<Token, ?> mockSecondHandler;
+    private ConcurrentMap<String, CoalescingUpdateTask> pendingUpdates;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        mockFirst = mock(Token.class);
+        given(mockFirst.getTokenId()).willReturn("badger");
+        mockSecond = mock(Token.class);
+        given(mockSecond.getTokenId()).willReturn("badger");
+        mockAdapter = mock(LdapAdapter.class);
+        options = Options.defaultOptions();
+        mockFirstHandler = mock(ResultHandler.class);
+        mockSecondHandler = mock(ResultHandler.class);
+        pendingUpdates = new ConcurrentHashMap<>();
+        task = new CoalescingUpdateTask(mockFirst, options, mockFirstHandler);
+    }
+
+    @Test
+    public void shouldWriteLatestTokenAndNotifyAllHandlers() throws Exception {
+        // Given
+        given(mockAdapter.read(any(), eq(options))).willReturn(null);
+        given(mockAdapter.create(mockSecond, options)).willReturn(mockSecond);
+        task.register(pendingUpdates);
+
+        // When
+        boolean superseded = task.supersede(mockSecond, mockSecondHandler);
+        task.execute(mockAdapter);
+
+        // Then
+        assertThat(superseded).isTrue();
+        verify(mockAdapter, never()).create(mockFirst, options);
+        verify(mockFirstHandler).processResults(mockSecond);
+        verify(mockSecondHandler).processResults(mockSecond);
+        assertThat(pendingUpdates).isEmpty();
+    }
+
+    @Test
+    public void shouldNotSupersedeOnceStarted() throws Exception {
+        // Given
+        task.execute(mockAdapter);
+
+        // When
+        boolean superseded = task.supersede(mockSecond, mockSecondHandler);
+
+        // Then
+        assertThat(superseded).isFalse();
+    }
+
+    @Test
+    public void shouldReplaceEarlierRegistrationOfTheToken() throws Exception {
+        // Given
+        CoalescingUpdateTask later = new CoalescingUpdateTask(mockSecond, options, mockSecondHandler);
+        task.register(pendingUpdates);
+
+        // When
+        later.register(pendingUpdates);
+        task.execute(mockAdapter);
+
+        // Then
+        assertThat(pendingUpdates).containsEntry("badger", later);
+    }
+
+    @Test
+    public void shouldNotRegisterOnceStarted() throws Exception {
+        // Given
+        task.execute(mockAdapter);
+
+        // When
+        task.register(pendingUpdates);
+
+        // Then
+        assertThat(pendingUpdates).isEmpty();
+    }
+}
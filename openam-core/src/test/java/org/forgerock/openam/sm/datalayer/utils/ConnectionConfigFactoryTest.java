@@ -12,14 +12,18 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2015 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.sm.datalayer.utils;
 
 import static org.fest.assertions.Assertions.*;
 import static org.mockito.BDDMockito.*;
 
+import org.forgerock.openam.cts.CoreTokenConfig;
+import org.forgerock.openam.cts.impl.queue.config.CTSQueueConfiguration;
 import org.forgerock.openam.sm.ConnectionConfig;
 import org.forgerock.openam.sm.ConnectionConfigFactory;
+import org.forgerock.openam.sm.datalayer.api.ConnectionType;
 import org.forgerock.openam.sm.datalayer.api.StoreMode;
 import org.forgerock.openam.sm.datalayer.impl.ldap.LdapDataLayerConfiguration;
 import org.forgerock.openam.sm.exceptions.InvalidConfigurationException;
@@ -33,6 +37,7 @@ public class ConnectionConfigFactoryTest {
     private ConnectionConfig mockExternalCTSConfig;
     private ConfigurationValidator mockConfigurationValidator;
     private LdapDataLayerConfiguration mockDataLayerConfiguration;
+    private CoreTokenConfig mockCoreTokenConfig;
 
     @BeforeMethod
     public void setup() {
@@ -40,13 +45,15 @@ public class ConnectionConfigFactoryTest {
         mockExternalCTSConfig = mock(ConnectionConfig.class);
         mockConfigurationValidator = mock(ConfigurationValidator.class);
         mockDataLayerConfiguration = mock(LdapDataLayerConfiguration.class);
+        mockCoreTokenConfig = mock(CoreTokenConfig.class);
     }
 
     @Test
     public void shouldReturnConfigForDefaultStoreMode() throws InvalidConfigurationException {
         // given
         ConnectionConfigFactory factory = new ConnectionConfigFactory(
-                mockDataLayerConfig, mockExternalCTSConfig, mockDataLayerConfiguration, mockConfigurationValidator);
+                mockDataLayerConfig, mockExternalCTSConfig, mockDataLayerConfiguration, mockConfigurationValidator,
+                mockCoreTokenConfig);
         when(mockDataLayerConfiguration.getStoreMode()).thenReturn(StoreMode.DEFAULT);
 
         // when
@@ -70,7 +77,8 @@ public class ConnectionConfigFactoryTest {
     public void shouldReturnConfigForExternalStoreMode() throws InvalidConfigurationException {
         // given
         ConnectionConfigFactory factory = new ConnectionConfigFactory(
-                mockDataLayerConfig, mockExternalCTSConfig, mockDataLayerConfiguration, mockConfigurationValidator);
+                mockDataLayerConfig, mockExternalCTSConfig, mockDataLayerConfiguration, mockConfigurationValidator,
+                mockCoreTokenConfig);
         when(mockDataLayerConfiguration.getStoreMode()).thenReturn(StoreMode.EXTERNAL);
 
         // when
@@ -79,4 +87,55 @@ public class ConnectionConfigFactoryTest {
         // then
         assertThat(config).isSameAs(mockExternalCTSConfig);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldSizeCtsWorkerPoolToPartitionConcurrency() throws InvalidConfigurationException {
+        // given
+        ConnectionConfigFactory factory = new ConnectionConfigFactory(
+                mockDataLayerConfig, mockExternalCTSConfig, mockDataLayerConfiguration, mockConfigurationValidator,
+                mockCoreTokenConfig);
+        when(mockDataLayerConfiguration.getStoreMode()).thenReturn(StoreMode.EXTERNAL);
+        when(mockCoreTokenConfig.getReaperPartitionSlices()).thenReturn(8);
+        when(mockCoreTokenConfig.getReaperPartitionConcurrency()).thenReturn(3);
+
+        // when
+        ConnectionConfig config = factory.getConfig(ConnectionType.CTS_EXPIRY_DATE_WORKER);
+
+        // then
+        assertThat(config.getMaxConnections()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldUseOneCtsWorkerConnectionWhenNotPartitioned() throws InvalidConfigurationException {
+        // given
+        ConnectionConfigFactory factory = new ConnectionConfigFactory(
+                mockDataLayerConfig, mockExternalCTSConfig, mockDataLayerConfiguration, mockConfigurationValidator,
+                mockCoreTokenConfig);
+        when(mockDataLayerConfiguration.getStoreMode()).thenReturn(StoreMode.EXTERNAL);
+        when(mockCoreTokenConfig.getReaperPartitionSlices()).thenReturn(1);
+
+        // when
+        ConnectionConfig config = factory.getConfig(ConnectionType.CTS_EXPIRY_DATE_WORKER);
+
+        // then
+        assertThat(config.getMaxConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAddQueryProcessorConnectionsToCtsAsyncPool() throws InvalidConfigurationException {
+        // given
+        ConnectionConfigFactory factory = new ConnectionConfigFactory(
+                mockDataLayerConfig, mockExternalCTSConfig, mockDataLayerConfiguration, mockConfigurationValidator,
+                mockCoreTokenConfig);
+        when(mockDataLayerConfiguration.getStoreMode()).thenReturn(StoreMode.EXTERNAL);
+        when(mockExternalCTSConfig.getMaxConnections()).thenReturn(9);
+        when(mockExternalCTSConfig.isAffinityEnabled()).thenReturn(true);
+
+        // when
+        ConnectionConfig config = factory.getConfig(ConnectionType.CTS_ASYNC);
+
+        // then
+        assertThat(config.getMaxConnections()).isEqualTo(9 + CTSQueueConfiguration.DEFAULT_QUERY_PROCESSORS);
+        assertThat(config.isAffinityEnabled()).isTrue();
+    }
+}
@@ -12,11 +12,14 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2015-2017 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.sso.providers.stateless;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -160,6 +163,68 @@ public class JwtSessionMapperTest {
         // expect InvalidJwtException
     }
 
+    @Test(expectedExceptions = JwtRuntimeException.class)
+    public void throwsExceptionIfSignedJwtHasExpired() throws Exception {
+
+        // Given
+        SessionInfo inputSessionInfo = newExampleSessionInfo();
+        inputSessionInfo.setTimeLeft(-10);
+        JwtSessionMapper jwtSessionMapper = new JwtSessionMapperBuilder().signedUsingHS256("SHARED_SECRET").build();
+
+        // When
+        jwtSessionMapper.fromJwt(jwtSessionMapper.asJwt(inputSessionInfo));
+
+        // Then
+        // expect JwtRuntimeException
+    }
+
+    @Test(expectedExceptions = JwtRuntimeException.class)
+    public void throwsExceptionIfEncryptedJwtHasExpired() throws Exception {
+
+        // Given
+        SessionInfo inputSessionInfo = newExampleSessionInfo();
+        inputSessionInfo.setTimeLeft(-10);
+        KeyPair keyPair = newKeyPair();
+        JwtSessionMapper jwtSessionMapper =
+                new JwtSessionMapperBuilder().signedUsingRS256(keyPair).encryptedUsingKeyPair(keyPair).build();
+
+        // When
+        jwtSessionMapper.fromJwt(jwtSessionMapper.asJwt(inputSessionInfo));
+
+        // Then
+        // expect JwtRuntimeException
+    }
+
+    @Test
+    public void acceptsWellFormedJwts() throws Exception {
+        // Given
+        SessionInfo inputSessionInfo = newExampleSessionInfo();
+        KeyPair keyPair = newKeyPair();
+        JwtSessionMapper signed = new JwtSessionMapperBuilder().signedUsingHS256("SHARED_SECRET").build();
+        JwtSessionMapper encrypted = new JwtSessionMapperBuilder().encryptedUsingKeyPair(keyPair).build();
+
+        // When / Then
+        assertTrue(JwtSessionMapper.isWellFormed(signed.asJwt(inputSessionInfo)));
+        assertTrue(JwtSessionMapper.isWellFormed(encrypted.asJwt(inputSessionInfo)));
+        assertTrue(JwtSessionMapper.isWellFormed("a.b."));
+        assertTrue(JwtSessionMapper.isWellFormed("a..c.d.e"));
+    }
+
+    @Test
+    public void rejectsMalformedJwts() {
+        assertFalse(JwtSessionMapper.isWellFormed(null));
+        assertFalse(JwtSessionMapper.isWellFormed(""));
+        assertFalse(JwtSessionMapper.isWellFormed("badger"));
+        assertFalse(JwtSessionMapper.isWellFormed(".a.b"));
+        assertFalse(JwtSessionMapper.isWellFormed("a.b.c.d"));
+        assertFalse(JwtSessionMapper.isWellFormed("a.b c.d"));
+        assertFalse(JwtSessionMapper.isWellFormed("a..c"));
+        assertFalse(JwtSessionMapper.isWellFormed("a.b.c."));
+        assertFalse(JwtSessionMapper.isWellFormed("a.b..d.e"));
+        assertFalse(JwtSessionMapper.isWellFormed("a.b.c.d."));
+        assertFalse(JwtSessionMapper.isWellFormed("a.b.c.d.e.f"));
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void throwsExceptionIfConfigSpecifiesHmacSigningButDoesntProvideSharedSecret() throws Exception {
         new JwtSessionMapperBuilder().signedUsingHS256("").build();
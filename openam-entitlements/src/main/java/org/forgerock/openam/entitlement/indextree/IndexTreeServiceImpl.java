@@ -12,11 +12,16 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.entitlement.indextree;
 
+import com.iplanet.am.util.SystemProperties;
 import com.iplanet.sso.SSOToken;
+import com.sun.identity.entitlement.DecisionCache;
 import com.sun.identity.entitlement.EntitlementException;
+import com.sun.identity.entitlement.opensso.PolicyPreloader;
+import com.sun.identity.shared.Constants;
 import com.sun.identity.shared.debug.Debug;
 import com.sun.identity.sm.SMSDataEntry;
 import com.sun.identity.sm.SMSException;
@@ -28,6 +33,7 @@ import org.forgerock.openam.entitlement.indextree.events.IndexChangeEvent;
 import org.forgerock.openam.entitlement.indextree.events.IndexChangeObserver;
 import org.forgerock.openam.entitlement.indextree.events.ModificationEvent;
 import org.forgerock.openam.entitlement.indextree.events.ModificationEventType;
+import org.forgerock.openam.entitlement.utils.indextree.CompiledIndexRuleTree;
 import org.forgerock.openam.entitlement.utils.indextree.IndexRuleTree;
 import org.forgerock.openam.entitlement.utils.indextree.SimpleReferenceTree;
 import org.forgerock.util.thread.listener.ShutdownListener;
@@ -64,16 +70,23 @@ public class IndexTreeServiceImpl implements IndexTreeService, IndexChangeObserv
     private final PrivilegedAction<SSOToken> adminAction;
     private final ServiceManagementDAO smDAO;
     private final DNWrapper dnMapper;
+    private final DecisionCache decisionCache;
+    private final PolicyPreloader policyPreloader;
+    private final boolean compiledTrees;
 
     @Inject
     public IndexTreeServiceImpl(IndexChangeManager manager, PrivilegedAction<SSOToken> adminTokenAction,
                                 ServiceManagementDAO smDAO, DNWrapper dnMapper,
-                                ShutdownManager shutdownManager) {
+                                ShutdownManager shutdownManager, DecisionCache decisionCache,
+                                PolicyPreloader policyPreloader) {
 
         this.manager = manager;
         this.adminAction = adminTokenAction;
         this.smDAO = smDAO;
         this.dnMapper = dnMapper;
+        this.decisionCache = decisionCache;
+        this.policyPreloader = policyPreloader;
+        this.compiledTrees = SystemProperties.getAsBoolean(Constants.ENTITLEMENT_INDEX_TREE_COMPILED, false);
 
         indexTreeCache = new ConcurrentHashMap<String, IndexRuleTree>();
 
@@ -156,7 +169,7 @@ public class IndexTreeServiceImpl implements IndexTreeService, IndexChangeObserv
         SSOToken token = AccessController.doPrivileged(adminAction);
 
         if (smDAO.checkIfEntryExists(baseDN, token)) {
-            indexTree = new SimpleReferenceTree();
+            indexTree = compiledTrees ? new CompiledIndexRuleTree() : new SimpleReferenceTree();
 
             try {
                 Set<String> excludes = Collections.emptySet();
@@ -191,6 +204,10 @@ public class IndexTreeServiceImpl implements IndexTreeService, IndexChangeObserv
     public void update(IndexChangeEvent event) {
         EventType type = event.getType();
 
+        // Any policy change, on this or another server, may change cached policy decisions. Preloaded realms are
+        // reloaded in the background, and the preloader invalidates the decisions again once the reload is published.
+        decisionCache.invalidateAll();
+
         if (ModificationEventType.contains(type)) {
             // Modification event received, update the appropriate cached tree.
             ModificationEventType modificationType = (ModificationEventType)type;
@@ -199,6 +216,9 @@ public class IndexTreeServiceImpl implements IndexTreeService, IndexChangeObserv
             String realm = modification.getRealm();
             IndexRuleTree tree = indexTreeCache.get(realm);
 
+            // Preloaded policies are only ever reloaded for realms already held in memory.
+            policyPreloader.reload(realm);
+
             if (tree != null) {
                 String pathIndex = modification.getPathIndex();
 
@@ -220,6 +240,7 @@ public class IndexTreeServiceImpl implements IndexTreeService, IndexChangeObserv
             // Error event received, destroy the cache as policy updates may well have been lost, resulting in cached
             // trees becoming inconsistent. This will force all trees to be reloaded with clean data.
             indexTreeCache.clear();
+            policyPreloader.reloadAll();
 
             if (DEBUG.messageEnabled()) {
                 DEBUG.message("Potential policy path index loss, cached index trees cleared.");
@@ -0,0 +1,291 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.entitlement.utils.indextree;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An index rule tree that compiles its rules into an immutable {@link IndexRuleAutomaton}.
+ * <p/>
+ * Searches read a single volatile snapshot and never lock. A snapshot consists of the compiled automaton together with
+ * the changes made since it was compiled: rules added since are held in a small automaton of their own and rules
+ * removed since are filtered from the results. Every change therefore becomes visible to searches immediately, whilst
+ * the full automaton is recompiled on a background thread and swapped in atomically once complete, folding the
+ * pending changes back into it. Bulk additions, as made when a realm's tree is first populated, are compiled
+ * synchronously.
+ * <p/>
+ * Rules are counted as in {@link SimpleReferenceTree}, so a rule added twice must be removed twice before it no longer
+ * matches.
+ */
+public class CompiledIndexRuleTree implements IndexRuleTree {
+
+    private static final ExecutorService COMPILER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "IndexRuleTreeCompiler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Executor compiler;
+
+    // Guarded by this.
+    private final Map<String, Integer> ruleCounts = new HashMap<String, Integer>();
+    private final Set<String> pendingAdditions = new HashSet<String>();
+    private final Set<String> pendingRemovals = new HashSet<String>();
+    private boolean compileScheduled;
+    private long modifications;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public CompiledIndexRuleTree() {
+        this(COMPILER);
+    }
+
+    /**
+     * @param compiler
+     *         The executor on which the automaton is recompiled following changes.
+     */
+    public CompiledIndexRuleTree(Executor compiler) {
+        this.compiler = compiler;
+    }
+
+    @Override
+    public void addIndexRule(String indexRule) {
+        if (indexRule == null) {
+            throw new IllegalArgumentException("Pattern must not be null");
+        }
+
+        synchronized (this) {
+            if (increment(indexRule)) {
+                publishPendingChanges();
+                scheduleCompile();
+            }
+        }
+    }
+
+    @Override
+    public void addIndexRules(Collection<String> indexRules) {
+        synchronized (this) {
+            boolean modified = false;
+
+            for (String indexRule : indexRules) {
+                if (indexRule == null) {
+                    throw new IllegalArgumentException("Pattern must not be null");
+                }
+                modified |= increment(indexRule);
+            }
+
+            if (modified) {
+                // Bulk additions are compiled up front rather than matched as pending changes.
+                publish(IndexRuleAutomaton.compile(ruleCounts.keySet()));
+            }
+        }
+    }
+
+    @Override
+    public void removeIndexRule(String indexRule) {
+        if (indexRule == null) {
+            throw new IllegalArgumentException("Pattern must not be null");
+        }
+
+        synchronized (this) {
+            Integer count = ruleCounts.get(indexRule);
+
+            if (count == null) {
+                return;
+            }
+
+            if (count > 1) {
+                ruleCounts.put(indexRule, count - 1);
+                return;
+            }
+
+            ruleCounts.remove(indexRule);
+            modifications++;
+
+            if (snapshot.compiled.contains(indexRule)) {
+                pendingRemovals.add(indexRule);
+            } else {
+                pendingAdditions.remove(indexRule);
+            }
+
+            publishPendingChanges();
+            scheduleCompile();
+        }
+    }
+
+    @Override
+    public Set<String> searchTree(String resource) {
+        if (resource == null) {
+            throw new IllegalArgumentException("The search term must not be null");
+        }
+
+        Snapshot current = snapshot;
+        Set<String> results = new HashSet<String>();
+
+        current.compiled.match(resource, results);
+
+        if (!current.removals.isEmpty()) {
+            results.removeAll(current.removals);
+        }
+
+        current.additions.match(resource, results);
+        return results;
+    }
+
+    /**
+     * Counts an occurrence of the given rule, tracking it as a pending addition if it is new.
+     *
+     * @return Whether the rule was not previously present.
+     */
+    private boolean increment(String indexRule) {
+        Integer count = ruleCounts.get(indexRule);
+        ruleCounts.put(indexRule, count == null ? 1 : count + 1);
+
+        if (count != null) {
+            return false;
+        }
+
+        modifications++;
+
+        if (snapshot.compiled.contains(indexRule)) {
+            pendingRemovals.remove(indexRule);
+        } else {
+            pendingAdditions.add(indexRule);
+        }
+
+        return true;
+    }
+
+    /**
+     * Publishes a snapshot combining the current compiled automaton with the pending changes.
+     */
+    private void publishPendingChanges() {
+        snapshot = new Snapshot(snapshot.compiled, IndexRuleAutomaton.compile(pendingAdditions),
+                Collections.unmodifiableSet(new HashSet<String>(pendingRemovals)));
+    }
+
+    /**
+     * Publishes a snapshot of the given, fully compiled, automaton, with any rules that it does not reflect carried
+     * forward as pending changes.
+     */
+    private void publish(IndexRuleAutomaton compiled) {
+        pendingAdditions.clear();
+        pendingRemovals.clear();
+
+        for (String indexRule : ruleCounts.keySet()) {
+            if (!compiled.contains(indexRule)) {
+                pendingAdditions.add(indexRule);
+            }
+        }
+
+        for (String indexRule : compiled.getRules()) {
+            if (!ruleCounts.containsKey(indexRule)) {
+                pendingRemovals.add(indexRule);
+            }
+        }
+
+        snapshot = new Snapshot(compiled, IndexRuleAutomaton.EMPTY, Collections.<String>emptySet());
+
+        if (!pendingAdditions.isEmpty() || !pendingRemovals.isEmpty()) {
+            publishPendingChanges();
+        }
+    }
+
+    /**
+     * Schedules a recompile of the full automaton, unless one is already waiting to run.
+     */
+    private void scheduleCompile() {
+        if (compileScheduled) {
+            return;
+        }
+
+        compileScheduled = true;
+        compiler.execute(new Runnable() {
+            @Override
+            public void run() {
+                compile();
+            }
+        });
+    }
+
+    /**
+     * Compiles the current rules outside of the lock, then swaps the result in. Changes that arrive whilst compiling
+     * remain pending against the new automaton and will have scheduled a further compile.
+     */
+    private void compile() {
+        Set<String> rules;
+        long compiledModifications;
+
+        synchronized (this) {
+            compileScheduled = false;
+            rules = new HashSet<String>(ruleCounts.keySet());
+            compiledModifications = modifications;
+        }
+
+        IndexRuleAutomaton compiled = IndexRuleAutomaton.compile(rules);
+
+        synchronized (this) {
+            if (compiledModifications == modifications) {
+                pendingAdditions.clear();
+                pendingRemovals.clear();
+                snapshot = new Snapshot(compiled, IndexRuleAutomaton.EMPTY, Collections.<String>emptySet());
+            } else {
+                publish(compiled);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        Snapshot current = snapshot;
+        return "CompiledIndexRuleTree{compiled=" + current.compiled.getRules().size()
+                + ", pendingAdditions=" + current.additions.getRules().size()
+                + ", pendingRemovals=" + current.removals.size() + "}";
+    }
+
+    /**
+     * An immutable view of the rules at a point in time.
+     */
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY =
+                new Snapshot(IndexRuleAutomaton.EMPTY, IndexRuleAutomaton.EMPTY, Collections.<String>emptySet());
+
+        private final IndexRuleAutomaton compiled;
+        private final IndexRuleAutomaton additions;
+        private final Set<String> removals;
+
+        private Snapshot(IndexRuleAutomaton compiled, IndexRuleAutomaton additions, Set<String> removals) {
+            this.compiled = compiled;
+            this.additions = additions;
+            this.removals = removals;
+        }
+
+    }
+
+}
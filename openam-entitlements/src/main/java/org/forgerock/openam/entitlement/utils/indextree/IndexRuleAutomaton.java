@@ -0,0 +1,380 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.entitlement.utils.indextree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An immutable automaton compiled from a set of index rules.
+ * <p/>
+ * The rules are laid out as a character trie, numbered breadth first so that the children of every state occupy a
+ * contiguous range of a handful of primitive arrays. Literal children are sorted so that a transition is a binary
+ * search, and wildcard children are kept in a separate range so that zero length wildcard matches can be followed
+ * without inspecting any literal transitions. Each state that completes a rule holds the rule itself, so no paths need
+ * to be rebuilt when reporting matches.
+ * <p/>
+ * Matching simulates the automaton over the set of active states, as the {@link SimpleReferenceTree} election does
+ * over tree nodes, using per thread scratch arrays so that a search allocates nothing other than its result. Where the
+ * tree records a reached URL level in a context shared by every node of the search, the automaton carries it in the
+ * state of each single level wildcard, so that one wildcard reaching a new level never affects another.
+ */
+final class IndexRuleAutomaton {
+
+    private static final byte LITERAL = 0;
+    private static final byte MULTI_WILDCARD = 1;
+    private static final byte SINGLE_WILDCARD = 2;
+
+    private static final int ROOT = 0;
+    private static final int LEVEL_REACHED = 1;
+
+    /**
+     * Shared by every automaton, as a thread only ever runs one search at a time. Each thread's scratch grows to fit
+     * the largest set of active states it has needed, so a thread which searches a series of realms' automata
+     * allocates scratch arrays once rather than once per automaton.
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    static final IndexRuleAutomaton EMPTY = compile(Collections.<String>emptySet());
+
+    private final Set<String> rules;
+    private final byte[] kinds;
+    private final char[] values;
+    private final int[] childStart;
+    private final int[] wildcardStart;
+    private final int[] childEnd;
+    private final String[] endPoints;
+
+    private IndexRuleAutomaton(Set<String> rules, int size) {
+        this.rules = rules;
+        kinds = new byte[size];
+        values = new char[size];
+        childStart = new int[size];
+        wildcardStart = new int[size];
+        childEnd = new int[size];
+        endPoints = new String[size];
+    }
+
+    /**
+     * Compiles the given index rules into an automaton.
+     *
+     * @param indexRules
+     *         The index rules.
+     * @return The compiled automaton.
+     */
+    static IndexRuleAutomaton compile(Collection<String> indexRules) {
+        Set<String> rules = Collections.unmodifiableSet(new HashSet<String>(indexRules));
+
+        // Sorted rules build the trie with children already in character order.
+        BuildNode root = new BuildNode((char) 0);
+        int size = 1;
+
+        for (String rule : new TreeSet<String>(rules)) {
+            BuildNode node = root;
+
+            for (int i = 0; i < rule.length(); i++) {
+                char value = rule.charAt(i);
+                BuildNode last = node.children.isEmpty() ? null : node.children.get(node.children.size() - 1);
+
+                if (last == null || last.value != value) {
+                    last = new BuildNode(value);
+                    node.children.add(last);
+                    size++;
+                }
+
+                node = last;
+            }
+
+            node.rule = rule;
+        }
+
+        IndexRuleAutomaton automaton = new IndexRuleAutomaton(rules, size);
+        automaton.layout(root);
+        return automaton;
+    }
+
+    /**
+     * Numbers the trie breadth first, literal children ahead of wildcard children.
+     */
+    private void layout(BuildNode root) {
+        BuildNode[] queue = new BuildNode[kinds.length];
+        queue[0] = root;
+        int next = 1;
+
+        for (int state = 0; state < next; state++) {
+            BuildNode node = queue[state];
+            kinds[state] = state == ROOT ? LITERAL : kindOf(node.value);
+            values[state] = node.value;
+            endPoints[state] = node.rule;
+
+            childStart[state] = next;
+            for (BuildNode child : node.children) {
+                if (kindOf(child.value) == LITERAL) {
+                    queue[next++] = child;
+                }
+            }
+
+            wildcardStart[state] = next;
+            for (BuildNode child : node.children) {
+                if (kindOf(child.value) != LITERAL) {
+                    queue[next++] = child;
+                }
+            }
+
+            childEnd[state] = next;
+            // The build node is no longer needed once numbered.
+            queue[state] = null;
+        }
+    }
+
+    private static byte kindOf(char value) {
+        switch (value) {
+            case '*':
+                return MULTI_WILDCARD;
+            case '^':
+                return SINGLE_WILDCARD;
+            default:
+                return LITERAL;
+        }
+    }
+
+    /**
+     * @param indexRule
+     *         The index rule.
+     * @return Whether the index rule was compiled into this automaton.
+     */
+    boolean contains(String indexRule) {
+        return rules.contains(indexRule);
+    }
+
+    /**
+     * @return The index rules compiled into this automaton.
+     */
+    Set<String> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return Whether this automaton contains no rules.
+     */
+    boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Identifies all rules that match the given resource.
+     *
+     * @param resource
+     *         The resource.
+     * @param results
+     *         The set to which matching rules are added.
+     */
+    void match(String resource, Set<String> results) {
+        int length = resource.length();
+
+        if (length == 0 || rules.isEmpty()) {
+            return;
+        }
+
+        Scratch active = SCRATCH.get();
+        active.next();
+        elect(active, ROOT, 0);
+
+        for (int i = 0; i < length && active.size > 0; i++) {
+            char value = resource.charAt(i);
+            boolean lastCharacter = i == length - 1;
+            boolean illegal = value == '?' || value == '#';
+
+            active.next();
+            int[] candidates = active.previous;
+
+            for (int c = 0, l = active.previousSize; c < l; c++) {
+                int state = candidates[c] >>> 1;
+                int level = candidates[c] & LEVEL_REACHED;
+
+                if (kinds[state] == MULTI_WILDCARD) {
+                    if (!illegal || lastCharacter) {
+                        elect(active, state, 0);
+                    }
+                } else if (kinds[state] == SINGLE_WILDCARD) {
+                    if (illegal) {
+                        // Ignore illegal character unless it is the last character.
+                        if (lastCharacter) {
+                            elect(active, state, 0);
+                        }
+                    } else if (level == 0) {
+                        elect(active, state, value == '/' ? LEVEL_REACHED : 0);
+                    }
+                }
+
+                int child = findLiteral(state, value);
+                if (child != -1) {
+                    elect(active, child, 0);
+                }
+            }
+        }
+
+        for (int c = 0; c < active.size; c++) {
+            String endPoint = endPoints[active.current[c] >>> 1];
+            if (endPoint != null) {
+                results.add(endPoint);
+            }
+        }
+    }
+
+    /**
+     * Elects the given state, along with any wildcards that follow it as they may match zero characters.
+     */
+    private void elect(Scratch active, int state, int level) {
+        if (active.add(state << 1 | level)) {
+            for (int wildcard = wildcardStart[state], end = childEnd[state]; wildcard < end; wildcard++) {
+                elect(active, wildcard, 0);
+            }
+        }
+    }
+
+    /**
+     * Binary searches the literal children of the given state for the given character.
+     */
+    private int findLiteral(int state, char value) {
+        int low = childStart[state];
+        int high = wildcardStart[state] - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char candidate = values[middle];
+
+            if (candidate < value) {
+                low = middle + 1;
+            } else if (candidate > value) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Mutable trie node used only whilst compiling.
+     */
+    private static final class BuildNode {
+
+        private final char value;
+        private final List<BuildNode> children = new ArrayList<BuildNode>(1);
+        private String rule;
+
+        private BuildNode(char value) {
+            this.value = value;
+        }
+
+    }
+
+    /**
+     * Per thread active state sets, reused across searches of any automaton. Each set is deduplicated with a
+     * generation stamped open addressing table so that nothing needs clearing between characters.
+     */
+    private static final class Scratch {
+
+        private int[] current = new int[16];
+        private int size;
+        private int[] previous = new int[16];
+        private int previousSize;
+
+        private int[] keys = new int[32];
+        private int[] stamps = new int[32];
+        private int stamp;
+
+        /**
+         * Makes the current set the previous set and starts a new, empty, current set.
+         */
+        private void next() {
+            int[] swap = previous;
+            previous = current;
+            previousSize = size;
+            current = swap;
+            size = 0;
+
+            if (++stamp == 0) {
+                // Stamp has wrapped, so old stamps could be mistaken for the current generation.
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+        }
+
+        /**
+         * @return Whether the state was added, false if already present in the current set.
+         */
+        private boolean add(int state) {
+            if (size * 2 >= keys.length) {
+                grow();
+            }
+
+            int mask = keys.length - 1;
+            int slot = mix(state) & mask;
+
+            while (stamps[slot] == stamp) {
+                if (keys[slot] == state) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            stamps[slot] = stamp;
+            keys[slot] = state;
+
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size++] = state;
+            return true;
+        }
+
+        private void grow() {
+            keys = new int[keys.length * 2];
+            stamps = new int[stamps.length * 2];
+            int mask = keys.length - 1;
+
+            for (int i = 0; i < size; i++) {
+                int slot = mix(current[i]) & mask;
+                while (stamps[slot] == stamp) {
+                    slot = (slot + 1) & mask;
+                }
+                stamps[slot] = stamp;
+                keys[slot] = current[i];
+            }
+        }
+
+        private static int mix(int state) {
+            int hash = state * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+
+    }
+
+}
@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package org.forgerock.openam.entitlement.indextree;
@@ -20,6 +21,8 @@ import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
 
 import com.iplanet.sso.SSOToken;
+import com.sun.identity.entitlement.DecisionCache;
+import com.sun.identity.entitlement.opensso.PolicyPreloader;
 import com.sun.identity.sm.SMSDataEntry;
 import com.sun.identity.sm.ServiceManagementDAO;
 import java.security.PrivilegedAction;
@@ -29,6 +32,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import org.forgerock.openam.core.DNWrapper;
+import org.forgerock.openam.entitlement.indextree.events.ErrorEventType;
+import org.forgerock.openam.entitlement.indextree.events.ModificationEventType;
 import org.forgerock.opendj.ldap.LdapException;
 import org.forgerock.util.thread.listener.ShutdownManager;
 import org.testng.annotations.BeforeMethod;
@@ -60,6 +65,8 @@ public class IndexTreeServiceImplTest {
     private ShutdownManager shutdownManager;
     private DNWrapper dnMapper;
     private SSOToken ssoToken;
+    private DecisionCache decisionCache;
+    private PolicyPreloader policyPreloader;
 
     private Set<String> excludes;
 
@@ -72,10 +79,13 @@ public class IndexTreeServiceImplTest {
         dnMapper = mock(DNWrapper.class);
         shutdownManager = mock(ShutdownManager.class);
         ssoToken = mock(SSOToken.class);
+        decisionCache = mock(DecisionCache.class);
+        policyPreloader = mock(PolicyPreloader.class);
         excludes = Collections.emptySet();
 
         treeService = new IndexTreeServiceImpl(
-                manager, privilegedAction, serviceManagementDAO, dnMapper, shutdownManager);
+                manager, privilegedAction, serviceManagementDAO, dnMapper, shutdownManager, decisionCache,
+                policyPreloader);
 
         verify(shutdownManager).addShutdownListener(treeService);
         verify(manager).registerObserver(treeService);
@@ -264,6 +274,36 @@ public class IndexTreeServiceImplTest {
 
     }
 
+    /**
+     * Verify that policy index changes invalidate cached policy decisions.
+     */
+    @Test
+    public void indexChangeInvalidatesCachedDecisions() {
+        treeService.update(ModificationEventType.ADD.createEvent("http://www.test.com", REALM));
+
+        verify(decisionCache).invalidateAll();
+    }
+
+    /**
+     * Verify that policy index changes reload the realm's preloaded policies.
+     */
+    @Test
+    public void indexChangeReloadsPreloadedRealm() {
+        treeService.update(ModificationEventType.DELETE.createEvent("http://www.test.com", REALM));
+
+        verify(policyPreloader).reload(REALM);
+    }
+
+    /**
+     * Verify that potential index loss reloads all preloaded policies.
+     */
+    @Test
+    public void dataLossReloadsAllPreloadedRealms() {
+        treeService.update(ErrorEventType.DATA_LOSS.createEvent());
+
+        verify(policyPreloader).reloadAll();
+    }
+
     // Type marker interface.
     private static interface MockPrivilegedAction extends PrivilegedAction<SSOToken> {
     }
@@ -12,6 +12,7 @@
 * information: "Portions copyright [year] [name of copyright owner]".
 *
 * Copyright 2014 ForgeRock AS.
+* Portions copyright 2026 Wren Security.
 */
 package org.forgerock.openam.entitlement.monitoring;
 
@@ -139,6 +140,24 @@ public class PolicyMonitorImplTest {
         assertEquals(slowest, 100l);
     }
 
+    @Test
+    public void testPreloadedRealmsAreTotalledAndReplaced() {
+        //given
+        testPolicyMonitor.preloadStarted(3);
+        testPolicyMonitor.addPreloadedRealm("o=one", 10, 1000l);
+        testPolicyMonitor.addPreloadedRealm("o=two", 5, 500l);
+
+        //when
+        testPolicyMonitor.addPreloadedRealm("o=one", 12, 1200l);
+        testPolicyMonitor.removePreloadedRealm("o=two");
+
+        //then
+        assertEquals(testPolicyMonitor.getPreloadRealmTotal(), 3);
+        assertEquals(testPolicyMonitor.getPreloadedRealmCount(), 1);
+        assertEquals(testPolicyMonitor.getPreloadedPolicyCount(), 12l);
+        assertEquals(testPolicyMonitor.getPreloadFootprint(), 1200l);
+    }
+
     // Executor that runs everything in the calling thread without a pool
     private class CallerRunsExecutor extends AbstractExecutorService {
 
@@ -0,0 +1,151 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.entitlement.utils.indextree;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for CompiledIndexRuleTree. The shared tests run with recompiles left queued, so that individually added
+ * and removed rules are matched through the pending changes of each snapshot.
+ */
+public class CompiledIndexRuleTreeTest extends AbstractIndexRuleTreeTest {
+
+    private QueuedExecutor compiler;
+
+    @Override
+    protected IndexRuleTree createTree() {
+        compiler = new QueuedExecutor();
+        return new CompiledIndexRuleTree(compiler);
+    }
+
+    @Test
+    public void changesAreVisibleBeforeAndAfterRecompile() {
+        tree.addIndexRules(Arrays.asList("http://www.example.com/*", "http://www.test.com/^"));
+
+        tree.addIndexRule("http://www.example.com/^/home");
+        tree.removeIndexRule("http://www.test.com/^");
+
+        assertEquals(tree.searchTree("http://www.example.com/abc/home"),
+                new HashSet<String>(Arrays.asList("http://www.example.com/*",
+                        "http://www.example.com/^/home")));
+        assertTrue(tree.searchTree("http://www.test.com/abc").isEmpty());
+
+        compiler.runAll();
+
+        assertEquals(tree.searchTree("http://www.example.com/abc/home"),
+                new HashSet<String>(Arrays.asList("http://www.example.com/*",
+                        "http://www.example.com/^/home")));
+        assertTrue(tree.searchTree("http://www.test.com/abc").isEmpty());
+        assertEquals(tree.toString(), "CompiledIndexRuleTree{compiled=2, pendingAdditions=0, pendingRemovals=0}");
+    }
+
+    @Test
+    public void recompilesAreCoalesced() {
+        tree.addIndexRule("http://www.test1.com");
+        tree.addIndexRule("http://www.test2.com");
+        tree.removeIndexRule("http://www.test1.com");
+
+        assertEquals(compiler.tasks.size(), 1);
+
+        compiler.runAll();
+        tree.addIndexRule("http://www.test3.com");
+
+        assertEquals(compiler.tasks.size(), 1);
+    }
+
+    @Test
+    public void readdingRemovedRuleCancelsPendingRemoval() {
+        tree.addIndexRules(Collections.singleton("http://www.test.com/*"));
+
+        tree.removeIndexRule("http://www.test.com/*");
+        tree.addIndexRule("http://www.test.com/*");
+
+        assertEquals(tree.searchTree("http://www.test.com/abc"), Collections.singleton("http://www.test.com/*"));
+        assertEquals(tree.toString(), "CompiledIndexRuleTree{compiled=1, pendingAdditions=0, pendingRemovals=0}");
+    }
+
+    @Test
+    public void removingUnknownRuleIsIgnored() {
+        tree.removeIndexRule("http://www.test.com");
+
+        assertTrue(compiler.tasks.isEmpty());
+        assertTrue(tree.searchTree("http://www.test.com").isEmpty());
+    }
+
+    @Test
+    public void levelIsTrackedPerWildcard() {
+        tree.addIndexRule("^a^");
+        tree.addIndexRule("http://www.test.com/^/^");
+
+        assertEquals(tree.searchTree("a/"), Collections.singleton("^a^"));
+        assertEquals(tree.searchTree("http://www.test.com/abc/def"),
+                Collections.singleton("http://www.test.com/^/^"));
+        assertTrue(tree.searchTree("http://www.test.com/a/b/c").isEmpty());
+    }
+
+    @Test
+    public void emptyResourceMatchesNothing() {
+        tree.addIndexRules(Collections.singleton("*"));
+
+        assertTrue(tree.searchTree("").isEmpty());
+    }
+
+    @Test
+    public void searchesOfDifferentTreesShareScratchSafely() {
+        IndexRuleTree small = new CompiledIndexRuleTree(compiler);
+        small.addIndexRule("http://www.test.com/*");
+        for (int i = 0; i < 100; i++) {
+            tree.addIndexRule("http://www.example.com/*/" + i + "/*");
+        }
+        compiler.runAll();
+
+        assertEquals(tree.searchTree("http://www.example.com/a/b/1/c/10/d").size(), 2);
+        assertEquals(small.searchTree("http://www.test.com/abc"), Collections.singleton("http://www.test.com/*"));
+        assertEquals(tree.searchTree("http://www.example.com/a/b/1/c/10/d").size(), 2);
+        assertTrue(small.searchTree("http://www.example.com/a/b/1/c/10/d").isEmpty());
+    }
+
+    /**
+     * Holds recompiles until explicitly run.
+     */
+    private static final class QueuedExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        private void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+
+    }
+
+}
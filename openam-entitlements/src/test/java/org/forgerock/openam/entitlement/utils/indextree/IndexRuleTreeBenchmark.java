@@ -0,0 +1,131 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.entitlement.utils.indextree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares index rule tree searches over rule sets shaped like those of a typical deployment: a number of hosts, each
+ * protected by a whole site rule, some single level rules and a tail of specific page rules, some with query strings.
+ * <p/>
+ * Not run as part of the unit tests; run with {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexRuleTreeBenchmark {
+
+    private static final String[] SEGMENTS = {
+        "home", "account", "admin", "api", "v1", "v2", "users", "orders", "reports", "static", "images", "help"
+    };
+
+    @Param({"simple", "compiled"})
+    public String implementation;
+
+    @Param({"100", "1000", "10000"})
+    public int ruleCount;
+
+    private IndexRuleTree tree;
+    private String[] resources;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(ruleCount);
+        int hosts = Math.max(1, ruleCount / 50);
+
+        List<String> rules = new ArrayList<String>(ruleCount);
+        for (int host = 0; host < hosts; host++) {
+            rules.add(hostName(host) + "/*");
+            rules.add(hostName(host) + "/*?*");
+        }
+
+        while (rules.size() < ruleCount) {
+            String host = hostName(random.nextInt(hosts));
+
+            switch (random.nextInt(4)) {
+                case 0:
+                    rules.add(host + "/" + segment(random) + "/^");
+                    break;
+                case 1:
+                    rules.add(host + "/" + segment(random) + "/*");
+                    break;
+                case 2:
+                    rules.add(host + "/" + segment(random) + "/" + segment(random) + "/" + segment(random) + ".html");
+                    break;
+                default:
+                    rules.add(host + "/" + segment(random) + "/^/" + segment(random) + "?*");
+                    break;
+            }
+        }
+
+        tree = "compiled".equals(implementation) ? new CompiledIndexRuleTree() : new SimpleReferenceTree();
+        tree.addIndexRules(rules);
+
+        resources = new String[1024];
+        for (int i = 0; i < resources.length; i++) {
+            StringBuilder resource = new StringBuilder(hostName(random.nextInt(hosts)));
+            for (int depth = 1 + random.nextInt(4); depth > 0; depth--) {
+                resource.append('/').append(segment(random));
+            }
+            if (random.nextBoolean()) {
+                resource.append("?id=").append(random.nextInt(1000));
+            }
+            resources[i] = resource.toString();
+        }
+    }
+
+    @Benchmark
+    public Set<String> searchTree() {
+        return tree.searchTree(resources[next++ & (resources.length - 1)]);
+    }
+
+    private static String hostName(int host) {
+        return "http://host" + host + ".example.com:8080";
+    }
+
+    private static String segment(Random random) {
+        return SEGMENTS[random.nextInt(SEGMENTS.length)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IndexRuleTreeBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
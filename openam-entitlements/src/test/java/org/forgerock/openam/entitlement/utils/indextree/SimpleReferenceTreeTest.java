@@ -12,20 +12,14 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2013-2014 ForgeRock Inc.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.entitlement.utils.indextree;
 
 import org.forgerock.openam.entitlement.utils.indextree.nodefactory.TreeNodeFactory;
 import org.forgerock.openam.entitlement.utils.indextree.treenodes.TreeNode;
-import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
-import static org.testng.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -36,462 +30,11 @@ import static org.testng.Assert.assertEquals;
  *
  * @author andrew.forrest@forgerock.com
  */
-public class SimpleReferenceTreeTest {
-
-    private IndexRuleTree tree;
-
-    @BeforeMethod
-    public void setUp() {
-        tree = new SimpleReferenceTree();
-    }
-
-    /**
-     * Processes some basic searches against the tree which contains simple rules.
-     */
-    @Test
-    public void simpleRuleTree() {
-        List<String> rules = new ArrayList<String>();
-        rules.add("http://www.example.com");
-        rules.add("http://www.test.com");
-        rules.add("http://www.helloworld.com");
-        tree.addIndexRules(rules);
-
-        Set<String> results = tree.searchTree("http://www.example.com");
-        Set<String> expectedResults = new HashSet<String>();
-        expectedResults.add("http://www.example.com");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test.com");
-        expectedResults.clear();
-        expectedResults.add("http://www.test.com");
-        assertEquals(expectedResults, results);
+public class SimpleReferenceTreeTest extends AbstractIndexRuleTreeTest {
 
-        results = tree.searchTree("http://www.someotherurl.com");
-        assertTrue(results.isEmpty());
-    }
-
-    /**
-     * Processes searches against the tree which contains rules with multilevel wildcards.
-     */
-    @Test
-    public void multiLevelWildcardRules() {
-        tree.addIndexRule("http://www.endurl.com/*");
-        tree.addIndexRule("http://www.middleurl.com/*/home");
-        tree.addIndexRule("http://www.substringurl.com/a*b/");
-        tree.addIndexRule("*");
-
-        Set<String> results = tree.searchTree("http://www.endurl.com");
-        Set<String> expectedResults = new HashSet<String>();
-        expectedResults.add("*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.endurl.com/");
-        expectedResults.clear();
-        expectedResults.add("http://www.endurl.com/*");
-        expectedResults.add("*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.endurl.com/home");
-        expectedResults.clear();
-        expectedResults.add("http://www.endurl.com/*");
-        expectedResults.add("*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.endurl.com/a/b/c/d");
-        expectedResults.clear();
-        expectedResults.add("http://www.endurl.com/*");
-        expectedResults.add("*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.middleurl.com/home");
-        expectedResults.clear();
-        expectedResults.add("*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.middleurl.com/abc");
-        expectedResults.clear();
-        expectedResults.add("*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.middleurl.com//home");
-        expectedResults.clear();
-        expectedResults.add("http://www.middleurl.com/*/home");
-        expectedResults.add("*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.middleurl.com/abc/home");
-        expectedResults.clear();
-        expectedResults.add("http://www.middleurl.com/*/home");
-        expectedResults.add("*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.middleurl.com/a/b/c/home");
-        expectedResults.clear();
-        expectedResults.add("http://www.middleurl.com/*/home");
-        expectedResults.add("*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.substringurl.com/");
-        expectedResults.clear();
-        expectedResults.add("*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.substringurl.com/ab/");
-        expectedResults.clear();
-        expectedResults.add("*");
-        expectedResults.add("http://www.substringurl.com/a*b/");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.substringurl.com/ahellob/");
-        expectedResults.clear();
-        expectedResults.add("*");
-        expectedResults.add("http://www.substringurl.com/a*b/");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.substringurl.com/a/c/d/e/b/");
-        expectedResults.clear();
-        expectedResults.add("*");
-        expectedResults.add("http://www.substringurl.com/a*b/");
-        assertEquals(expectedResults, results);
-    }
-
-    /**
-     * Processes searches against the tree which contains rules with single-level wildcards.
-     */
-    @Test
-    public void singleLevelWildcardRules() {
-        tree.addIndexRule("http://www.endurl.com/^");
-        tree.addIndexRule("http://www.middleurl.com/^/home");
-        tree.addIndexRule("http://www.substringurl.com/a^b/");
-        tree.addIndexRule("^");
-
-        Set<String> results = tree.searchTree("http://www.endurl.com");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.endurl.com/");
-        Set<String> expectedResults = new HashSet<String>();
-        expectedResults.add("http://www.endurl.com/^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.endurl.com/home");
-        expectedResults.clear();
-        expectedResults.add("http://www.endurl.com/^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.endurl.com/a/b/c/d");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.middleurl.com/home");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.middleurl.com/abc");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.middleurl.com//home");
-        expectedResults.clear();
-        expectedResults.add("http://www.middleurl.com/^/home");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.middleurl.com/abc/home");
-        expectedResults.clear();
-        expectedResults.add("http://www.middleurl.com/^/home");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.middleurl.com/a/b/c/home");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.substringurl.com/");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.substringurl.com/ab/");
-        expectedResults.clear();
-        expectedResults.add("http://www.substringurl.com/a^b/");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.substringurl.com/ahellob/");
-        expectedResults.clear();
-        expectedResults.add("http://www.substringurl.com/a^b/");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.substringurl.com/a/c/d/e/b/");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("www.someurl.com");
-        expectedResults.clear();
-        expectedResults.add("^");
-        assertEquals(expectedResults, results);
-    }
-
-    /**
-     * Validates the behaviour of multilevel wildcards in the context question marks.
-     */
-    @Test
-    public void queryStringMultiLevelWildcardRules() {
-        tree.addIndexRule("http://www.test1.com/?");
-        tree.addIndexRule("http://www.test2.com/*?");
-        tree.addIndexRule("http://www.test3.com/?*");
-        tree.addIndexRule("http://www.test4.com/*?*");
-
-        Set<String> results = tree.searchTree("http://www.test1.com/?");
-        Set<String> expectedResults = new HashSet<String>();
-        expectedResults.add("http://www.test1.com/?");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com/*?");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/abc?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com/*?");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/a/b/c?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com/*?");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com/?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test3.com/?*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com/?abc");
-        expectedResults.clear();
-        expectedResults.add("http://www.test3.com/?*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com/?a/b/c");
-        expectedResults.clear();
-        expectedResults.add("http://www.test3.com/?*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/*?*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/?abc");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/*?*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/abc?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/*?*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/abc?def");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/*?*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/a/b/c?d/e/f");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/*?*");
-        assertEquals(expectedResults, results);
-    }
-
-    /**
-     * Validates the behaviour of single-level wildcards in the context question marks.
-     */
-    @Test
-    public void queryStringSingleLevelWildcardRules() {
-        tree.addIndexRule("http://www.test1.com/?");
-        tree.addIndexRule("http://www.test2.com/^?");
-        tree.addIndexRule("http://www.test3.com/?^");
-        tree.addIndexRule("http://www.test4.com/^?^");
-
-        Set<String> results = tree.searchTree("http://www.test1.com/?");
-        Set<String> expectedResults = new HashSet<String>();
-        expectedResults.add("http://www.test1.com/?");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com/^?");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/abc?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com/^?");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/a/b/c?");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.test3.com/?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test3.com/?^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com/?abc");
-        expectedResults.clear();
-        expectedResults.add("http://www.test3.com/?^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com/?a/b/c");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.test4.com/?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/^?^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/?abc");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/^?^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/abc?");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/^?^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/abc?def");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/^?^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/a/b/c?d/e/f");
-        assertTrue(results.isEmpty());
-    }
-
-    /**
-     * Validates the behaviour of multilevel wildcards in the context bookmarks.
-     */
-    @Test
-    public void bookmarkMultiLevelWildcardRules() {
-        tree.addIndexRule("http://www.test1.com/#");
-        tree.addIndexRule("http://www.test2.com/*#");
-        tree.addIndexRule("http://www.test3.com/#*");
-        tree.addIndexRule("http://www.test4.com/*#*");
-
-        Set<String> results = tree.searchTree("http://www.test1.com/#");
-        Set<String> expectedResults = new HashSet<String>();
-        expectedResults.add("http://www.test1.com/#");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/#");
-        expectedResults = new HashSet<String>();
-        expectedResults.add("http://www.test2.com/*#");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/abc#");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com/*#");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/a/b/c#");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com/*#");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com/#");
-        expectedResults.clear();
-        expectedResults.add("http://www.test3.com/#*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com/#abc");
-        expectedResults.clear();
-        expectedResults.add("http://www.test3.com/#*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com/#a/b/c");
-        expectedResults.clear();
-        expectedResults.add("http://www.test3.com/#*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/#");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/*#*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/#abc");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/*#*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/abc#");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/*#*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/abc#def");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/*#*");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/a/b/c#d/e/f");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/*#*");
-        assertEquals(expectedResults, results);
-    }
-
-    /**
-     * Validates the behaviour of single-level wildcards in the context bookmarks.
-     */
-    @Test
-    public void bookmarkSingleLevelWildcardRules() {
-        tree.addIndexRule("http://www.test1.com/#");
-        tree.addIndexRule("http://www.test2.com/^#");
-        tree.addIndexRule("http://www.test3.com/#^");
-        tree.addIndexRule("http://www.test4.com/^#^");
-
-        Set<String> results = tree.searchTree("http://www.test1.com/#");
-        Set<String> expectedResults = new HashSet<String>();
-        expectedResults.add("http://www.test1.com/#");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/#");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com/^#");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/abc#");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com/^#");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com/a/b/c#");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.test3.com/#");
-        expectedResults.clear();
-        expectedResults.add("http://www.test3.com/#^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com/#abc");
-        expectedResults.clear();
-        expectedResults.add("http://www.test3.com/#^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com/#a/b/c");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.test4.com/#");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/^#^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/#abc");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/^#^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/abc#");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/^#^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/abc#def");
-        expectedResults.clear();
-        expectedResults.add("http://www.test4.com/^#^");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test4.com/a/b/c#d/e/f");
-        assertTrue(results.isEmpty());
+    @Override
+    protected IndexRuleTree createTree() {
+        return new SimpleReferenceTree();
     }
 
     @Test
@@ -517,50 +60,6 @@ public class SimpleReferenceTreeTest {
         }
     }
 
-    @Test
-    public void removalOfRules() {
-        tree.addIndexRule("http://www.test1.com");
-        tree.addIndexRule("http://www.test2.com");
-        tree.addIndexRule("http://www.test1.com");
-
-        Set<String> results = tree.searchTree("http://www.test1.com");
-        Set<String> expectedResults = new HashSet<String>();
-        expectedResults.add("http://www.test1.com");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test3.com");
-        assertTrue(results.isEmpty());
-
-        // Now remove tree entry.
-        tree.removeIndexRule("http://www.test1.com");
-
-        results = tree.searchTree("http://www.test1.com");
-        expectedResults.clear();
-        expectedResults.add("http://www.test1.com");
-        assertEquals(expectedResults, results);
-
-        results = tree.searchTree("http://www.test2.com");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com");
-        assertEquals(expectedResults, results);
-
-        // Now remove tree entry the other entry.
-        tree.removeIndexRule("http://www.test1.com");
-
-        results = tree.searchTree("http://www.test1.com");
-        assertTrue(results.isEmpty());
-
-        results = tree.searchTree("http://www.test2.com");
-        expectedResults.clear();
-        expectedResults.add("http://www.test2.com");
-        assertEquals(expectedResults, results);
-    }
-
     @Test
     public void printTreeString() {
         tree.addIndexRule("abc");
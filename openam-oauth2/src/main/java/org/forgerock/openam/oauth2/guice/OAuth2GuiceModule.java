@@ -12,7 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
- * Portions Copyright 2023 Wren Security.
+ * Portions Copyright 2023-2026 Wren Security.
  */
 package org.forgerock.openam.oauth2.guice;
 
@@ -100,6 +100,7 @@ import org.forgerock.openam.cts.adapters.JavaBeanAdapter;
 import org.forgerock.openam.cts.adapters.TokenAdapter;
 import org.forgerock.openam.cts.api.CoreTokenConstants;
 import org.forgerock.openam.cts.api.tokens.TokenIdGenerator;
+import org.forgerock.openam.cts.monitoring.CTSOperationsMonitoringStore;
 import org.forgerock.openam.oauth2.AccessTokenProtectionFilter;
 import org.forgerock.openam.oauth2.CookieExtractor;
 import org.forgerock.openam.oauth2.OAuth2AuditLogger;
@@ -150,8 +151,10 @@ import com.google.inject.TypeLiteral;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import com.google.inject.multibindings.MapBinder;
 import com.google.inject.multibindings.Multibinder;
+import com.iplanet.am.util.SystemProperties;
 import com.iplanet.services.naming.WebtopNamingQuery;
 import com.iplanet.sso.SSOTokenManager;
+import com.sun.identity.shared.Constants;
 import com.sun.identity.shared.debug.Debug;
 
 /**
@@ -434,12 +437,14 @@ public class OAuth2GuiceModule extends AbstractModule {
 
     @Provides
     public CTSBlacklist<Blacklistable> getCtsStatelessTokenBlacklist(CTSPersistentStore cts, AMExecutorServiceFactory esf,
-            ThreadMonitor threadMonitor, WebtopNamingQuery webtopNamingQuery,OAuth2GlobalSettings globalSettings) {
+            ThreadMonitor threadMonitor, WebtopNamingQuery webtopNamingQuery,OAuth2GlobalSettings globalSettings,
+            CTSOperationsMonitoringStore monitoringStore) {
         ScheduledExecutorService scheduledExecutorService = esf.createScheduledService(1, "OAuthTokenBlacklisting");
         long purgeDelayMs = globalSettings.getBlacklistPurgeDelay(TimeUnit.MILLISECONDS);
         long pollIntervalMs = globalSettings.getBlacklistPollInterval(TimeUnit.MILLISECONDS);
         return new CTSBlacklist<>(cts, TokenType.OAUTH_BLACKLIST, scheduledExecutorService, threadMonitor,
-                webtopNamingQuery, purgeDelayMs, pollIntervalMs);
+                webtopNamingQuery, purgeDelayMs, pollIntervalMs, monitoringStore,
+                SystemProperties.getAsBoolean(Constants.BLACKLIST_PUSH_ENABLED, false));
     }
 
     @Provides @Singleton @Inject
@@ -460,7 +465,7 @@ public class OAuth2GuiceModule extends AbstractModule {
         }
 
         if (pollIntervalMs > 0) {
-            blacklist = new BloomFilterBlacklist<>(blacklist, purgeDelayMs);
+            blacklist = new BloomFilterBlacklist<>(blacklist, purgeDelayMs, "oauth2");
         }
 
         return blacklist;
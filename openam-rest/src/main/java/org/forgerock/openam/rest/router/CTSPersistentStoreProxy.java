@@ -12,6 +12,7 @@
  * information: "Portions copyright [year] [name of copyright owner]".
  *
  * Copyright 2014-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package org.forgerock.openam.rest.router;
 
@@ -26,6 +27,7 @@ import org.forgerock.openam.cts.api.filter.TokenFilter;
 import org.forgerock.openam.cts.api.tokens.Token;
 import org.forgerock.openam.cts.continuous.ContinuousQueryListener;
 import org.forgerock.openam.cts.exceptions.CoreTokenException;
+import org.forgerock.openam.sm.datalayer.api.query.PagedQuery;
 import org.forgerock.openam.sm.datalayer.api.query.PartialToken;
 import org.forgerock.openam.tokens.CoreTokenField;
 import org.forgerock.util.Options;
@@ -109,6 +111,16 @@ public class CTSPersistentStoreProxy implements CTSPersistentStore {
         CTSHolder.get().updateAsync(token, options);
     }
 
+    @Override
+    public Token updateAttributes(Token previous, Token updated, Options options) throws CoreTokenException {
+        return CTSHolder.get().updateAttributes(previous, updated, options);
+    }
+
+    @Override
+    public void updateAttributesAsync(Token previous, Token updated, Options options) throws CoreTokenException {
+        CTSHolder.get().updateAttributesAsync(previous, updated, options);
+    }
+
     @Override
     public void delete(Token token) throws CoreTokenException {
         CTSHolder.get().delete(token);
@@ -171,6 +183,16 @@ public class CTSPersistentStoreProxy implements CTSPersistentStore {
         return CTSHolder.get().attributeQuery(tokenFilter);
     }
 
+    @Override
+    public PagedQuery<Token> pagedQuery(TokenFilter filter) {
+        return CTSHolder.get().pagedQuery(filter);
+    }
+
+    @Override
+    public PagedQuery<PartialToken> pagedAttributeQuery(TokenFilter tokenFilter) {
+        return CTSHolder.get().pagedAttributeQuery(tokenFilter);
+    }
+
     @Override
     public void deleteOnQueryAsync(TokenFilter tokenFilter) throws CoreTokenException {
         CTSHolder.get().deleteOnQueryAsync(tokenFilter);
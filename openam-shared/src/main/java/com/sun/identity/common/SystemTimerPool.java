@@ -25,6 +25,7 @@
  * $Id: SystemTimerPool.java,v 1.5 2008/09/05 00:51:02 ww203982 Exp $
  *
  * Portions Copyrighted 2012-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package com.sun.identity.common;
 
@@ -45,6 +46,7 @@ public class SystemTimerPool {
     protected static TimerPool instance;
     public static final int DEFAULT_POOL_SIZE = 3;
     private static int poolSize;
+    private static long tickDuration;
 
     static {
         poolSize = DEFAULT_POOL_SIZE;
@@ -61,6 +63,21 @@ public class SystemTimerPool {
                     + size + " defaulting to " + DEFAULT_POOL_SIZE);
             }
         }
+        tickDuration = TimerPool.DEFAULT_TICK_DURATION;
+        String tick = SystemPropertiesManager.get(
+            Constants.SYSTEM_TIMERPOOL_TICK_DURATION);
+        if (tick != null) {
+            try {
+                tickDuration = Long.parseLong(tick);
+            } catch (NumberFormatException ex) {
+                Debug debug = Debug.getInstance(TIMER_NAME);
+                debug.error("SystemTimerPool.<init>: incorrect tick duration "
+                    + tick + " defaulting to " + TimerPool.DEFAULT_TICK_DURATION);
+            }
+            if (tickDuration <= 0) {
+                tickDuration = TimerPool.DEFAULT_TICK_DURATION;
+            }
+        }
     }
     
     /**
@@ -73,7 +90,8 @@ public class SystemTimerPool {
 
             // Don't load the Debug object in static block as it can
             // cause issues when doing a container restart.
-            instance = new TimerPool(TIMER_NAME, poolSize, false, Debug.getInstance(TIMER_NAME));
+            instance = new TimerPool(TIMER_NAME, poolSize, false, Debug.getInstance(TIMER_NAME),
+                    tickDuration);
 
             try {
                 shutdownMan.addShutdownListener(new ShutdownListener() {
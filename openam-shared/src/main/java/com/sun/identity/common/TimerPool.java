@@ -25,6 +25,7 @@
  * $Id: TimerPool.java,v 1.6 2008/10/20 22:00:05 ww203982 Exp $
  *
  * Portions Copyrighted 2012-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 
 package com.sun.identity.common;
@@ -32,33 +33,68 @@ package com.sun.identity.common;
 import static org.forgerock.openam.utils.Time.*;
 
 import com.sun.identity.shared.debug.Debug;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
-import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.Timer;
-import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.forgerock.util.annotations.VisibleForTesting;
+import org.forgerock.util.time.TimeService;
 
 /**
  * TimerPool is a scheduleable version of ThreadPool.
+ * <p>
+ * Scheduled tasks are held in a hierarchical hashed timing wheel, so that scheduling and cancelling a task take
+ * constant time however many tasks are scheduled. Each level of the wheel has {@link #WHEEL_SIZE} buckets, and
+ * each bucket of a level spans a whole revolution of the level below it. A task is placed in the lowest level
+ * whose revolution reaches its scheduled time, and is moved down a level each time the wheel turns onto its
+ * bucket, until it is fired from the lowest level. Each bucket has its own lock.
+ * <p>
+ * Tasks scheduled for the same time share a {@link HeadTaskRunnable}, as before. The Scheduler thread advances
+ * the wheel once every tick, and hands all of the tasks which are due in that tick to the worker threads at
+ * once. Tasks are therefore run up to one tick after their scheduled time, but never before it.
  */
 
 public class TimerPool implements Triggerable {
 
     static final String SCHEDULER_SUFFIX = "-Scheduler";
-    private int poolSize;
-    private String name;
-    private int busyThreadCount;
-    private int currentThreadCount;
+    /** The default duration of a tick of the wheel, in milliseconds. */
+    public static final long DEFAULT_TICK_DURATION = 100;
+    static final int WHEEL_BITS = 9;
+    static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    static final int WHEEL_LEVELS = 4;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final TimeService LOCAL_TIME = new TimeService() {
+        @Override
+        public long now() {
+            return currentTimeMillis();
+        }
+
+        @Override
+        public long since(long past) {
+            return now() - past;
+        }
+    };
+
+    private final int poolSize;
+    private final String name;
+    private final boolean daemon;
+    private final long tickDuration;
+    private final TimeService clock;
+    private final Object turning = new Object();
+    private final Debug debug;
     private volatile boolean shutdownThePool;
-    private boolean daemon;
-    private WorkerThread[] threads;
+    private final WorkerThread[] threads;
     private Scheduler scheduler;
-    private SortedMap taskList;
-    private Date nextRun;
-    private Debug debug;
+    private final ConcurrentMap<Long, HeadTaskRunnable> heads;
+    private final Set<HeadTaskRunnable>[][] wheel;
+    private final BlockingQueue<HeadTaskRunnable> ready;
+    private volatile long currentTick;
 
     /**
      * Constructor of TimerPool.
@@ -71,114 +107,240 @@ public class TimerPool implements Triggerable {
      */
     
     public TimerPool(String name, int poolSize, boolean daemon, Debug debug) {
+        this(name, poolSize, daemon, debug, DEFAULT_TICK_DURATION);
+    }
+
+    /**
+     * Constructor of TimerPool.
+     *
+     * @param name The name of the TimerPool
+     * @param poolSize The size of the TimerPool
+     * @param daemon The boolean to indicate whether the threads in TimerPool
+     *        are daemon
+     * @param debug Debug object to send debugging message to.
+     * @param tickDuration The time (in ms) between turns of the wheel, which
+     *        is the most a task may run after its scheduled time
+     */
+
+    public TimerPool(String name, int poolSize, boolean daemon, Debug debug, long tickDuration) {
+        this(name, poolSize, daemon, debug, tickDuration, LOCAL_TIME);
+    }
+
+    @VisibleForTesting
+    @SuppressWarnings("unchecked")
+    TimerPool(String name, int poolSize, boolean daemon, Debug debug, long tickDuration, TimeService clock) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
         this.name = name;
-	this.poolSize = poolSize;
-        this.busyThreadCount = 0;
-        this.currentThreadCount = 0;
+        this.poolSize = poolSize;
         this.daemon = daemon;
         this.debug = debug;
+        this.tickDuration = tickDuration;
+        this.clock = clock;
         this.shutdownThePool = false;
+        this.heads = new ConcurrentHashMap<Long, HeadTaskRunnable>();
+        this.wheel = new Set[WHEEL_LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < WHEEL_LEVELS; level++) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[level][i] = new HashSet<HeadTaskRunnable>();
+            }
+        }
+        this.ready = new LinkedBlockingQueue<HeadTaskRunnable>();
+        this.currentTick = clock.now() / tickDuration;
         this.threads = new WorkerThread[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            threads[i] = new WorkerThread(name, this);
+            threads[i].setDaemon(daemon);
+            threads[i].start();
+        }
         this.scheduler = new Scheduler(this);
         this.scheduler.start();
-        this.taskList = Collections.synchronizedSortedMap(new TreeMap());
-        synchronized (this) {
-            createThreads(poolSize);
-        }
     }
-    
+
     /**
-     * Creates threads to the TimerPool.
+     * Returns the tick in which a task scheduled at the given time is due,
+     * rounding up so that the task is never run early.
      *
-     * @param timersToCreate Number of threads in the TimerPool after creation
+     * @param time The time (in ms) the task is scheduled
+     * @return The tick of the wheel
      */
-    
-    private void createThreads(int timersToCreate) {
-        if (timersToCreate > poolSize) {
-            timersToCreate = poolSize;
+
+    private long deadlineTick(long time) {
+        long tick = time / tickDuration;
+        return (time % tickDuration == 0) ? tick : tick + 1;
+    }
+
+    /**
+     * Returns the bucket of the wheel which holds a head with the given
+     * deadline, relative to the given tick.
+     *
+     * @param deadline The tick in which the head is due, after the given tick
+     * @param tick The current tick of the wheel
+     * @return The bucket for the head
+     */
+
+    private Set<HeadTaskRunnable> bucketFor(long deadline, long tick) {
+        long delta = deadline - tick;
+        for (int level = 0; level < WHEEL_LEVELS - 1; level++) {
+            if (delta < 1L << (WHEEL_BITS * (level + 1))) {
+                return wheel[level][(int) (deadline >> (WHEEL_BITS * level)) & WHEEL_MASK];
+            }
         }
-        for (int i = currentThreadCount; i < timersToCreate; i++) {
-            threads[i - busyThreadCount] = new WorkerThread(name, this);
-            threads[i - busyThreadCount].setDaemon(daemon);
-            threads[i - busyThreadCount].start();
+        int top = WHEEL_LEVELS - 1;
+        long span = 1L << (WHEEL_BITS * WHEEL_LEVELS);
+        if (delta >= span) {
+            // beyond the wheel, park it in the last bucket and place it again when the wheel reaches it
+            deadline = tick + span - 1;
         }
-        currentThreadCount = timersToCreate;
+        return wheel[top][(int) (deadline >> (WHEEL_BITS * top)) & WHEEL_MASK];
     }
-    
+
     /**
-     * Returns thread which is free in the pool.
+     * Places a head in the wheel.
      *
-     * @return A thread which is free from the TimerPool
+     * @param head The head of the tasks to be run
+     * @return false if the head is already due and was not placed
      */
-    
-    private WorkerThread getAvailableThread() {
-        WorkerThread t = null;
-        synchronized (this) {
-            if (currentThreadCount == busyThreadCount) {
-                createThreads(poolSize);
+
+    private boolean place(HeadTaskRunnable head) {
+        long deadline = deadlineTick(head.time.getTime());
+        while (true) {
+            long tick = currentTick;
+            if (deadline <= tick) {
+                return false;
+            }
+            Set<HeadTaskRunnable> bucket = bucketFor(deadline, tick);
+            synchronized (bucket) {
+                // the Scheduler moves the tick before it locks any bucket,
+                // so an unchanged tick means the bucket is still ahead of it
+                if (tick == currentTick) {
+                    bucket.add(head);
+                    return true;
+                }
             }
-            t = threads[currentThreadCount - busyThreadCount - 1];
-            threads[currentThreadCount - busyThreadCount - 1] = null;
-            busyThreadCount++;
         }
-        return t;
     }
-    
+
     /**
-     * Runs the next timeout task in the sorted container.
+     * Removes a head from the wheel. Levels are searched from the top down,
+     * which is the direction the Scheduler moves heads in.
+     *
+     * @param head The head of the tasks to be removed
      */
-    
-    private void runNext() {
-        WorkerThread t = null;
-        HeadTaskRunnable task = null;
-        synchronized (this) {
-            if (shutdownThePool) {
-                return;
-            } else {
-                while (busyThreadCount == poolSize) {
-                    try {
-                        wait();
-                        if (shutdownThePool) {
-                            return;
-                        }
-                    } catch(Exception ex) {
-                        if (debug != null) {
-                            debug.error("TimerPool:runNext() " + name, ex);
-                        }
-                    }
+
+    private void displace(HeadTaskRunnable head) {
+        long deadline = deadlineTick(head.time.getTime());
+        for (int level = WHEEL_LEVELS - 1; level >= 0; level--) {
+            Set<HeadTaskRunnable> bucket = wheel[level][(int) (deadline >> (WHEEL_BITS * level)) & WHEEL_MASK];
+            synchronized (bucket) {
+                if (bucket.remove(head)) {
+                    return;
                 }
-                if (nextRun != null) {
-                    long now = currentTimeMillis();
-                    if (nextRun.getTime() <= now ) {
-                        if ((task = (HeadTaskRunnable) taskList.remove(nextRun)) 
-                            != null) {
-                            t = getAvailableThread();
+            }
+        }
+        // only a head parked beyond the end of the wheel can be anywhere else
+        for (Set<HeadTaskRunnable> bucket : wheel[WHEEL_LEVELS - 1]) {
+            synchronized (bucket) {
+                if (bucket.remove(head)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands a head which is due to the worker threads.
+     *
+     * @param head The head of the tasks to be run
+     */
+
+    private void dispatch(HeadTaskRunnable head) {
+        heads.remove(head.time.getTime(), head);
+        ready.offer(head);
+    }
+
+    /**
+     * Turns the wheel onto the given tick, moving heads down from the upper
+     * levels whose buckets it reaches, and dispatching every head due in it.
+     *
+     * @param tick The next tick of the wheel
+     */
+
+    private void advance(long tick) {
+        currentTick = tick;
+        List<HeadTaskRunnable> due = new ArrayList<HeadTaskRunnable>();
+        for (int level = WHEEL_LEVELS - 1; level > 0; level--) {
+            if ((tick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                Set<HeadTaskRunnable> bucket = wheel[level][(int) (tick >> (WHEEL_BITS * level)) & WHEEL_MASK];
+                synchronized (bucket) {
+                    List<HeadTaskRunnable> moving = new ArrayList<HeadTaskRunnable>(bucket);
+                    bucket.clear();
+                    for (HeadTaskRunnable head : moving) {
+                        if (!place(head)) {
+                            due.add(head);
                         }
                     }
-                    try {
-                        nextRun = (Date) taskList.firstKey();
-                        long delay = nextRun.getTime() - now;
-                        scheduler.setDelay((delay >= 0 ? delay : 0));
-                    } catch(NoSuchElementException ex) {
-                        nextRun = null;
-                        scheduler.setDelay(-1);
-                    }
                 }
             }
         }
-        if ((t != null) && (task != null)) {
-            t.runTask(task);
+        Set<HeadTaskRunnable> bucket = wheel[0][(int) tick & WHEEL_MASK];
+        synchronized (bucket) {
+            due.addAll(bucket);
+            bucket.clear();
         }
+        for (HeadTaskRunnable head : due) {
+            heads.remove(head.time.getTime(), head);
+        }
+        ready.addAll(due);
     }
-    
+
     /**
-     * Decreases the number of current threads in the TimerPool.
+     * Moves the wheel straight to the given tick, placing every head again.
+     * This is used when the local time jumps by more than a revolution of the
+     * lowest level, rather than turning through every tick in between.
+     *
+     * @param tick The tick to move the wheel to
      */
-    
-    private synchronized void deductCurrentThreadCount(){
-        currentThreadCount--;
-        busyThreadCount--;
-        notify();
+
+    private void jump(long tick) {
+        currentTick = tick;
+        List<HeadTaskRunnable> moving = new ArrayList<HeadTaskRunnable>();
+        for (Set<HeadTaskRunnable>[] level : wheel) {
+            for (Set<HeadTaskRunnable> bucket : level) {
+                synchronized (bucket) {
+                    moving.addAll(bucket);
+                    bucket.clear();
+                }
+            }
+        }
+        for (HeadTaskRunnable head : moving) {
+            if (!place(head)) {
+                dispatch(head);
+            }
+        }
+    }
+
+    /**
+     * Turns the wheel onto every tick which has passed.
+     *
+     * @return The time (in ms) to wait before the next tick
+     */
+
+    @VisibleForTesting
+    long runNext() {
+        synchronized (turning) {
+            long now = clock.now();
+            long tick = now / tickDuration;
+            if (tick - currentTick > WHEEL_SIZE) {
+                jump(tick);
+            }
+            for (long next = currentTick + 1; next <= tick && !shutdownThePool; next++) {
+                advance(next);
+            }
+            // the local time may have moved back, so never wait for more than a tick
+            return Math.min(tickDuration, (currentTick + 1) * tickDuration - now);
+        }
     }
     
     /**
@@ -190,29 +352,22 @@ public class TimerPool implements Triggerable {
         scheduler = new Scheduler(this);
         scheduler.start();
     }
-    
+
     /**
-     * Returns the thread to the TimerPool.
+     * Replaces a worker thread which has been terminated by an error.
      *
-     * @param t The thread to be returned to the TimerPool
+     * @param t The thread to be replaced
      */
-    
-    private void returnThread(WorkerThread t) {        
+
+    private synchronized void replaceThread(WorkerThread t) {
         if (shutdownThePool) {
-            t.terminate();
-            synchronized (this) {
-                busyThreadCount--;
-                if(busyThreadCount == 0){
-                    notifyAll();
-                }
-            }
-        } else {
-            
-            synchronized (this) {
-                busyThreadCount--;
-                // return timers from the end of array
-                threads[currentThreadCount - busyThreadCount - 1] = t;
-                notify();
+            return;
+        }
+        for (int i = 0; i < poolSize; i++) {
+            if (threads[i] == t) {
+                threads[i] = new WorkerThread(name, this);
+                threads[i].setDaemon(daemon);
+                threads[i].start();
             }
         }
     }
@@ -254,38 +409,30 @@ public class TimerPool implements Triggerable {
                         }
                     }
                 } while (head != task.getHeadTask());
-                synchronized (taskList) {
-                    if((head = (HeadTaskRunnable) taskList.get(time)) == null) {
-                        task.setNext(null);
-                        taskList.put(time, new HeadTaskRunnable(this, task,
-                            time));        
+                Long key = time.getTime();
+                if ((head = heads.get(key)) == null) {
+                    task.setNext(null);
+                    HeadTaskRunnable created = new HeadTaskRunnable(this, task, new Date(key));
+                    if ((head = heads.putIfAbsent(key, created)) == null) {
+                        if (!place(created)) {
+                            dispatch(created);
+                        }
+                        return;
                     }
                 }
-                if (head == null) {
-                    synchronized (this) {
-                        if ((nextRun == null) ||
-                            (time.getTime() < nextRun.getTime())) {
-                            nextRun = time;
-                            long delay = time.getTime() -
-                                    currentTimeMillis();
-                            scheduler.setWait(((delay < 0) ? 0 : delay));
-                        }
+                if (head.acquireValidLock()) {
+                    try {
+                        task.setHeadTask(head);
+                        TaskRunnable tailTask = head.tail();
+                        task.setPrevious(tailTask);
+                        tailTask.setNext(task);
+                        task.setNext(null);
+                        head.setTail(task);
+                    } finally {
+                        head.releaseLockAndNotify();
                     }
                 } else {
-                    if (head.acquireValidLock()) {
-                        try {
-                            task.setHeadTask(head);
-                            TaskRunnable tailTask = head.tail();
-                            task.setPrevious(tailTask);
-                            tailTask.setNext(task);
-                            task.setNext(null);
-                            head.setTail(task);
-                        } finally {
-                            head.releaseLockAndNotify();
-                        }
-                    } else {
-                        schedule(task, time);
-                    }
+                    schedule(task, time);
                 }
             } else {
                 throw new IllegalArgumentException();
@@ -302,7 +449,7 @@ public class TimerPool implements Triggerable {
     
     public void schedule(TaskRunnable task, long delay) throws
         IllegalArgumentException, IllegalStateException {
-        schedule(task, new Date(currentTimeMillis() + delay));
+        schedule(task, new Date(clock.now() + delay));
     }
     
     /**
@@ -310,49 +457,60 @@ public class TimerPool implements Triggerable {
      */
     
     public void trigger(Date time) {
-        // no need to synchronize for single operation
-        taskList.remove(time);
+        // each head has its own Date, so a head which has already been
+        // dispatched cannot remove a later head for the same time
+        HeadTaskRunnable head = heads.get(time.getTime());
+        if ((head != null) && (head.time == time) && heads.remove(time.getTime(), head)) {
+            displace(head);
+        }
     }
     
     /**
      * Shuts down the TimerPool.
      */
     
-    public synchronized void shutdown() {
-        if(!shutdownThePool) {
+    public void shutdown() {
+        WorkerThread[] toJoin;
+        synchronized (this) {
+            if (shutdownThePool) {
+                return;
+            }
             shutdownThePool = true;
             scheduler.terminate();
-            for(int i = 0; i < currentThreadCount - busyThreadCount; i++) {
-                // terminate the thread from the beginning of the array
-                threads[i].terminate();
+            for (WorkerThread thread : threads) {
+                thread.terminate();
             }
-            while(busyThreadCount != 0){
-                try{
-                    // wait if there are threads running, it will be notified
-                    // when they all back.
-                    wait();
-                } catch (Exception ex) {
+            toJoin = threads.clone();
+        }
+        for (WorkerThread thread : toJoin) {
+            if (thread != Thread.currentThread()) {
+                try {
+                    // wait if the thread is running, it stops once its
+                    // tasks are done.
+                    thread.join();
+                } catch (InterruptedException ex) {
                     if (debug != null) {
                         debug.error("TimerPool:shutdown() " + name, ex);
                     }
+                    Thread.currentThread().interrupt();
+                    break;
                 }
             }
-            currentThreadCount = busyThreadCount = 0;
-            threads = null;
         }
+        heads.clear();
+        ready.clear();
     }
     
     /**
      * WorkerThread is the threads which actually do the jobs. A WorkerThread
-     * will be assigned to the task when it is time.
+     * takes the heads which are due from the ready queue in turn.
      */
     
     private class WorkerThread extends Thread{
         
         private TimerPool pool;
-        private HeadTaskRunnable task;
         private volatile boolean shouldTerminate;
-        private volatile boolean needReturn;
+        private volatile boolean running;
 
         /**
          * Constructor of WorkerThread.
@@ -365,86 +523,102 @@ public class TimerPool implements Triggerable {
             setName(name);
             this.pool = pool;
             this.shouldTerminate = false;
-            this.needReturn = true;
-            this.task = null;
-        }
-    
-        /**
-         * Runs the task.
-         *
-         * @param toRun The head of the tasks to be run
-         */
-        
-        public synchronized void runTask(HeadTaskRunnable toRun) {
-            this.task = toRun;
-            // Although the thread may not in wait state when this function
-            // is called (the taskList is not empty), it doesn't hurt to
-            // call it.  getState method can check whether the Thread is
-            // waiting, but it is available in jdk1.5 or newer.
-            this.notify();
+            this.running = false;
         }
         
         /**
-         * Terminates this WorkerThread.
+         * Terminates this WorkerThread. A thread which is waiting for a task
+         * is interrupted, a thread which is running tasks stops once they are
+         * done.
          */
         
-        // terminate the thread pool when daemon is set to false
-        // it is better to have a way to terminate the thread pool
         public synchronized void terminate() {
             shouldTerminate = true;
-            needReturn = false;
-            this.notify();
+            if (!running) {
+                interrupt();
+            }
         }
-        
+
         /**
-         * Implements the run method with errors handling for Thread object.
+         * Runs the tasks linked to the head.
+         *
+         * @param head The head of the tasks to be run
          */
-        
-        public void run() {
-            HeadTaskRunnable localHeadTask = null;
+
+        private void runTasks(HeadTaskRunnable head) {
+            if (!head.acquireValidLock()) {
+                return;
+            }
             TaskRunnable localTask = null;
             TaskRunnable runTask = null;
-            WorkerThread t = this;
-            while (true) {
-                try{
-                    synchronized(this) {
-                        if ((!shouldTerminate) && (task == null)) {
-                            this.wait();
+            boolean completed = false;
+            try {
+                // skip head task
+                head.timeout();
+                localTask = head.next();
+                while (localTask != null) {
+                    runTask = localTask;
+                    localTask = localTask.next();
+                    // cut the connection before run the task.
+                    runTask.setNext(null);
+                    try {
+                        runTask.run();
+                    } catch (RuntimeException ex) {
+                        if (debug != null) {
+                            debug.error("TimerPool$WorkerThread:run() " + name, ex);
                         }
-                        // need a local copy because they may be changed after
-                        // leaving synchronized block.
-                        localHeadTask = task;
-                        task = null;
                     }
+                    if (runTask.getRunPeriod() >= 0) {
+                        pool.schedule(runTask, new Date(
+                            head.scheduledExecutionTime()
+                            + runTask.getRunPeriod()));
+                    }
+                }
+                head.expire();
+                completed = true;
+            } finally {
+                if (!completed && (runTask != null) && (runTask.getRunPeriod() >= 0) &&
+                    (runTask.scheduledExecutionTime() == head.scheduledExecutionTime())) {
+                    try {
+                        pool.schedule(runTask, new Date(
+                            head.scheduledExecutionTime()
+                            + runTask.getRunPeriod()));
+                    } catch (IllegalStateException ex) {
+                        // the Timer has been shutdown already.
+                    }
+                }
+                if (!completed && (localTask != null)) {
+                    // hand the remaining tasks to another thread
+                    head.setNext(localTask);
+                    localTask.setPrevious(head);
+                    ready.offer(head);
+                }
+                head.releaseLockAndNotify();
+            }
+        }
+        
+        /**
+         * Implements the run method with errors handling for Thread object.
+         */
+        
+        public void run() {
+            while (!shouldTerminate) {
+                HeadTaskRunnable head;
+                try {
+                    head = ready.take();
+                } catch (InterruptedException ex) {
+                    // terminate has been called
+                    continue;
+                }
+                synchronized (this) {
                     if (shouldTerminate) {
-                        // we may need to log something here!
+                        ready.offer(head);
                         break;
                     }
-                    if(localHeadTask != null){
-                        if (localHeadTask.acquireValidLock()) {
-                            try {
-                                // skip head task
-                                localHeadTask.timeout();
-                                localTask = localHeadTask.next();
-                                while (localTask != null) {
-                                    runTask = localTask;
-                                    localTask = localTask.next();
-                                    // cut the connection before run the task.
-                                    runTask.setNext(null);
-                                    runTask.run();
-                                    if (runTask.getRunPeriod() >= 0) {
-                                        pool.schedule(runTask, new Date(
-                                            localHeadTask
-                                            .scheduledExecutionTime()
-                                            + runTask.getRunPeriod()));
-                                    }
-                                }
-                                localHeadTask.expire();
-                            } finally {
-                                localHeadTask.releaseLockAndNotify();
-                            }
-                        }
-                    }
+                    running = true;
+                }
+                try {
+                    runTasks(head);
                 } catch (IllegalStateException ex) {
                     if (debug != null) {
                         debug.message("TimerPool$WorkerThread:run() " + name,
@@ -457,118 +631,29 @@ public class TimerPool implements Triggerable {
                     if (debug != null) {
                         debug.error("TimerPool$WorkerThread:run() " + name, ex);
                     }
-                    if (localHeadTask != null) {
-                        if (localHeadTask.acquireValidLock()) {
-                            try {
-                                if ((runTask.getRunPeriod() >= 0) &&
-                                    (runTask.scheduledExecutionTime() ==
-                                    localHeadTask.scheduledExecutionTime())){
-                                    pool.schedule(runTask, new Date(
-                                        localHeadTask.scheduledExecutionTime()
-                                        + runTask.getRunPeriod()));
-                                }
-                                if (localTask != null) {
-                                    localHeadTask.setNext(localTask);
-                                    localTask.setPrevious(localHeadTask);
-                                }
-                            } catch (IllegalStateException iex) {
-                                if (debug != null) {
-                                    debug.message("TimerPool$WorkerThread:" + 
-                                        "run() " + name, iex);
-                                }
-                                // This exception will be thrown only if the
-                                // Timer has been shutdown already.
-                                shouldTerminate = true;
-                            } finally {
-                                localHeadTask.releaseLockAndNotify();
-                            }
-                        }
-                    }
-                    synchronized (pool) {
-                        pool.deductCurrentThreadCount();
-                        if (localTask != null) {
-                            WorkerThread thread = pool.getAvailableThread();
-                            thread.runTask(localHeadTask);
-                        }
-                    }
-                    shouldTerminate = true;
-                    needReturn = false;
-                } catch (Exception ex) {
-                    if (debug != null) {
-                        debug.error("TimerPool$WorkerThread:run() " + name, ex);
-                    }
-                    // don't need to rethrow
-	        } catch (Throwable e) {
+                } catch (Error e) {
                     if (debug != null) {
                         debug.error("TimerPool$WorkerThread:run() " + name, e);
                     }
-                    if (localHeadTask != null) {
-                        if (localHeadTask.acquireValidLock()) {
-                            try {                        
-                                if ((runTask.getRunPeriod() >= 0) &&
-                                    (runTask.scheduledExecutionTime() ==
-                                    localHeadTask.scheduledExecutionTime())){
-                                    pool.schedule(runTask, new Date(
-                                        localHeadTask.scheduledExecutionTime()
-                                        + runTask.getRunPeriod()));
-                                }
-                                if (localTask != null) {
-                                    localHeadTask.setNext(localTask);
-                                    localTask.setPrevious(localHeadTask);
-                                }
-                            } catch (IllegalStateException iex) {
-                                if (debug != null) {
-                                    debug.message("TimerPool$WorkerThread:" + 
-                                        "run() " + name, iex);
-                                }
-                                // This exception will be thrown only if the
-                                // Timer has been shutdown already.
-                                shouldTerminate = true;
-                            } finally {
-                                localHeadTask.releaseLockAndNotify();
-                            }
-                        }
-                    }
-                    synchronized (pool) {
-                        pool.deductCurrentThreadCount();
-                        if (localTask != null) {
-                            WorkerThread thread = pool.getAvailableThread();
-                            thread.runTask(localHeadTask);
-                        }
-                    }
-                    shouldTerminate = true;
-                    needReturn = false;
-                    // rethrow Error here
-                    throw new Error(e);
-	        } finally {
-                    localHeadTask = null;
-                    localTask = null;
-                    runTask = null;
-                    // the thread may has returned already if shutdown is
-                    // called.
-                    if (needReturn) {
-                        pool.returnThread(t);
+                    pool.replaceThread(this);
+                    throw e;
+                } finally {
+                    synchronized (this) {
+                        running = false;
                     }
                 }
-                if (shouldTerminate) {
-                    // we may need to log something here!
-                    break;
-                }
-	    }
+            }
         }
     }
     
     /**
-     * Scheduler is the one who handles the time to wait and assign a thread to
-     * the task when it is time. If there is no thread availabe when it is time
-     * to run a particular task, Scheduler will wait until thread available.
+     * Scheduler is the one who turns the wheel once every tick, and hands the
+     * tasks which are due to the worker threads.
      */
     
     private class Scheduler extends Thread {
         
         private volatile boolean shouldTerminate;
-        private boolean beingNotified;
-        private long delay;
         private TimerPool pool;
         
         /**
@@ -579,34 +664,10 @@ public class TimerPool implements Triggerable {
         
         public Scheduler(TimerPool pool) {
             this.shouldTerminate = false;
-            this.beingNotified = false;
-            this.delay = -1;
             this.pool = pool;
             setName(pool.name + SCHEDULER_SUFFIX);
         }
         
-        /**
-         * Sets the time (in ms) to wait.
-         *
-         * @param delay The time (in ms) to wait
-         */
-        
-        public synchronized void setWait(long delay) {
-            this.delay = delay;
-            this.beingNotified = true;
-            this.notify();
-        }
-        
-        /**
-         * Sets the time (in ms) to wait without notification.
-         *
-         * @param delay The time (in ms) to wait
-         */
-        
-        public synchronized void setDelay(long delay) {
-            this.delay = delay;
-        }
-        
         /**
          * Terminates this Scheduler.
          */
@@ -621,43 +682,28 @@ public class TimerPool implements Triggerable {
          */
         
         public void run() {
-            long localDelay = -1;
-            while (true) {
+            while (!shouldTerminate) {
                 try {
+                    long delay = pool.runNext();
                     synchronized (this) {
-                        if (!shouldTerminate) {
-                            if (delay > 0) {
-                                this.wait(delay);
-                                if (beingNotified) {
-                                    beingNotified = false;
-                                    continue;
-                                }
-                            } else {
-                                if (delay < 0) {
-                                    this.wait();
-                                    if (beingNotified) {
-                                        beingNotified = false;
-                                        continue;
-                                    }
-                                }
-                            }
+                        // being notified when the local time has changed
+                        if (!shouldTerminate && (delay > 0)) {
+                            this.wait(delay);
                         }
                     }
-                    if (shouldTerminate) {
-                        break;
-                    }
-                    pool.runNext();
+                } catch (InterruptedException ex) {
+                    // check for termination
                 } catch (RuntimeException ex) {
+                    if (debug != null) {
+                        debug.error("TimerPool$Scheduler:run() " + name, ex);
+                    }
                     pool.replaceScheduler();
-                } catch (Exception ex) {
-                } catch (Throwable t) {
-                    pool.replaceScheduler();
-                    throw new Error(t);
-                }
-                if (shouldTerminate) {
                     break;
+                } catch (Error e) {
+                    pool.replaceScheduler();
+                    throw e;
                 }
             }
         }
     }
-} 
+}
@@ -25,6 +25,7 @@
  * $Id: Constants.java,v 1.47 2009/08/12 23:10:44 ericow Exp $
  *
  * Portions Copyrighted 2010-2016 ForgeRock AS.
+ * Portions copyright 2026 Wren Security.
  */
 package com.sun.identity.shared;
 
@@ -994,6 +995,12 @@ public interface Constants {
     static final String SYSTEM_TIMERPOOL_SIZE =
             "com.sun.identity.common.systemtimerpool.size";
 
+    /**
+     * property string to the duration in milliseconds of a tick of SystemTimerPool
+     */
+    static final String SYSTEM_TIMERPOOL_TICK_DURATION =
+            "com.sun.identity.common.systemtimerpool.tick.duration";
+
     /**
      * property string for Distributed Authentication cluster
      */
@@ -1381,4 +1388,50 @@ public interface Constants {
      * The name of the request attribute that tells whether this authentication happened via WS-Fed AR profile.
      */
     String WSFED_ACTIVE_LOGIN = "org.forgerock.openam.federation.wsfed.active.login";
+
+    /**
+     * Property to determine whether blacklist entries made on other servers are pushed through a CTS continuous
+     * query rather than polled for.
+     */
+    String BLACKLIST_PUSH_ENABLED = "org.forgerock.openam.blacklist.push.enabled";
+
+    /**
+     * Property giving the number of blacklist entries expected to be added per minute, which the time buckets of
+     * the blacklist bloom filters are sized from.
+     */
+    String BLACKLIST_EXPECTED_REVOCATIONS_PER_MINUTE =
+            "org.forgerock.openam.blacklist.bloomfilter.expectedRevocationsPerMinute";
+
+    /**
+     * Percentage of a session's max idle time by which the stored latest access time may lag before it is written
+     * to the session repository. Zero disables lazy flushing.
+     */
+    String SESSION_IDLE_FLUSH_PERCENT = "org.forgerock.openam.session.idle.flushPercent";
+
+    /**
+     * Whether policy decisions are cached on the server until the earliest time to live of their conditions.
+     */
+    String DECISION_CACHE_ENABLED = "org.forgerock.openam.entitlement.decisionCache.enabled";
+
+    /**
+     * Maximum number of policy decisions held by the decision cache.
+     */
+    String DECISION_CACHE_MAX_SIZE = "org.forgerock.openam.entitlement.decisionCache.maxSize";
+
+    /**
+     * Maximum number of seconds a policy decision is cached for, whatever the time to live of its conditions.
+     */
+    String DECISION_CACHE_MAX_TTL = "org.forgerock.openam.entitlement.decisionCache.maxTtlSeconds";
+
+    /**
+     * Whether policy index rules are compiled into an automaton, recompiled in the background on change, rather than
+     * searched as a tree of nodes.
+     */
+    String ENTITLEMENT_INDEX_TREE_COMPILED = "org.forgerock.openam.entitlement.indexTree.compiled";
+
+    /**
+     * Whether every realm's policies are loaded into memory at startup and on change, so that policy evaluation never
+     * reads the data store.
+     */
+    String POLICY_PRELOAD_ENABLED = "org.forgerock.openam.entitlement.preload.enabled";
 }
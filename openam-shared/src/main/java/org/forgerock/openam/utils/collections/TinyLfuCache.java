@@ -0,0 +1,466 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+package org.forgerock.openam.utils.collections;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.forgerock.util.Reject;
+
+/**
+ * A size bounded, thread safe cache with a W-TinyLFU eviction policy.
+ *
+ * <p>The cache is split into independently locked segments, so that concurrent callers only contend when they
+ * touch the same segment. Each segment keeps a small admission window in Least Recently Used order in front of a
+ * main area split into probation and protected queues. An entry leaving the window is only admitted to the main
+ * area if it has been used more often than the entry it would evict, as estimated by a frequency sketch shared by
+ * all segments, which keeps one-off entries from flushing out the entries in regular use.</p>
+ *
+ * <p>Hits, misses and evictions are counted. Null keys and values are not supported.</p>
+ *
+ * @param <K> The cache key type.
+ * @param <V> The cache value type.
+ */
+public class TinyLfuCache<K, V> {
+
+    private static final int MIN_SEGMENT_SIZE = 32;
+    private static final int MAX_SEGMENTS = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors() * 4);
+
+    private final int maxSize;
+    private final Segment[] segments;
+    private final FrequencySketch sketch;
+    private final RemovalListener<K, V> removalListener;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Notified of the entries leaving the cache.
+     *
+     * @param <K> The cache key type.
+     * @param <V> The cache value type.
+     */
+    public interface RemovalListener<K, V> {
+
+        /**
+         * Called when an entry is evicted, rejected on insertion, replaced, removed or cleared.
+         *
+         * <p>Called while the segment holding the entry is locked, so should be quick and must not call back
+         * into the cache.</p>
+         *
+         * @param key The key of the entry.
+         * @param value The value of the entry.
+         */
+        void onRemoval(K key, V value);
+    }
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxSize The maximum number of entries of the cache, zero disables caching.
+     */
+    public TinyLfuCache(int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxSize The maximum number of entries of the cache, zero disables caching.
+     * @param removalListener Possibly null listener to notify of the entries leaving the cache.
+     */
+    @SuppressWarnings("unchecked")
+    public TinyLfuCache(int maxSize, RemovalListener<K, V> removalListener) {
+        Reject.ifTrue(maxSize < 0, "maxSize cannot be negative");
+        this.maxSize = maxSize;
+        this.removalListener = removalListener;
+        this.sketch = new FrequencySketch(maxSize);
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && maxSize / (segmentCount << 1) >= MIN_SEGMENT_SIZE) {
+            segmentCount <<= 1;
+        }
+        this.segments = new TinyLfuCache.Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the value cached for the key, counting a hit or a miss.
+     *
+     * @param key Possibly null key.
+     * @return Possibly null value.
+     */
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+        int hash = hash(key);
+        sketch.increment(hash);
+        V value = segmentFor(hash).get(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value cached for the key, without counting it as a use of the entry.
+     *
+     * @param key Possibly null key.
+     * @return Possibly null value.
+     */
+    public V peek(K key) {
+        if (key == null) {
+            return null;
+        }
+        return segmentFor(hash(key)).peek(key);
+    }
+
+    /**
+     * @param key Possibly null key.
+     * @return True if a value is cached for the key.
+     */
+    public boolean containsKey(K key) {
+        return peek(key) != null;
+    }
+
+    /**
+     * Caches the value for the key. The entry may be evicted straight away if the cache is full and the key is
+     * used less often than the entries already cached.
+     *
+     * @param key Non null key.
+     * @param value Non null value.
+     */
+    public void put(K key, V value) {
+        Reject.ifNull(key, value);
+        int hash = hash(key);
+        sketch.increment(hash);
+        segmentFor(hash).put(key, value);
+    }
+
+    /**
+     * Removes the entry cached for the key.
+     *
+     * @param key Possibly null key.
+     * @return The value which was cached, possibly null.
+     */
+    public V remove(K key) {
+        if (key == null) {
+            return null;
+        }
+        return segmentFor(hash(key)).remove(key);
+    }
+
+    /**
+     * Removes all the entries of the cache.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return The number of entries in the cache.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return The maximum number of entries of the cache.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of lookups which found a value.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups which found no value.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of entries evicted, or rejected on insertion, to keep the cache within its maximum size.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 16) & (segments.length - 1)];
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private void removed(K key, V value) {
+        if (removalListener != null) {
+            removalListener.onRemoval(key, value);
+        }
+    }
+
+    private void evicted(Map.Entry<K, V> entry) {
+        evictions.increment();
+        removed(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * One independently locked part of the cache.
+     */
+    private final class Segment {
+
+        private final int windowSize;
+        private final int mainSize;
+        private final int protectedSize;
+        // In insertion order, an entry is moved to the most recently used end by re-inserting it, which leaves
+        // peek free to read without reordering.
+        private final LinkedHashMap<K, V> window = new LinkedHashMap<>();
+        private final LinkedHashMap<K, V> probation = new LinkedHashMap<>();
+        private final LinkedHashMap<K, V> protectedEntries = new LinkedHashMap<>();
+
+        private Segment(int maxSize) {
+            this.windowSize = maxSize == 0 ? 0 : Math.max(1, maxSize / 100);
+            this.mainSize = maxSize - windowSize;
+            this.protectedSize = mainSize * 4 / 5;
+        }
+
+        private synchronized V get(K key) {
+            V value = touch(window, key);
+            if (value == null) {
+                value = touch(protectedEntries, key);
+            }
+            if (value == null) {
+                value = probation.remove(key);
+                if (value != null) {
+                    protectedEntries.put(key, value);
+                    while (protectedEntries.size() > protectedSize) {
+                        Map.Entry<K, V> demoted = pollEldest(protectedEntries);
+                        probation.put(demoted.getKey(), demoted.getValue());
+                    }
+                }
+            }
+            return value;
+        }
+
+        private synchronized V peek(K key) {
+            V value = window.get(key);
+            if (value == null) {
+                value = protectedEntries.get(key);
+            }
+            if (value == null) {
+                value = probation.get(key);
+            }
+            return value;
+        }
+
+        private synchronized void put(K key, V value) {
+            V previous = removeEntry(key);
+            if (previous != null) {
+                removed(key, previous);
+            }
+            if (windowSize == 0) {
+                evicted(new AbstractMap.SimpleImmutableEntry<>(key, value));
+                return;
+            }
+            window.put(key, value);
+            if (window.size() > windowSize) {
+                admit(pollEldest(window));
+            }
+        }
+
+        private void admit(Map.Entry<K, V> candidate) {
+            if (probation.size() + protectedEntries.size() < mainSize) {
+                probation.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+            LinkedHashMap<K, V> victims = probation.isEmpty() ? protectedEntries : probation;
+            if (victims.isEmpty()) {
+                evicted(candidate);
+                return;
+            }
+            Map.Entry<K, V> victim = eldest(victims);
+            if (sketch.frequency(hash(candidate.getKey())) > sketch.frequency(hash(victim.getKey()))) {
+                victims.remove(victim.getKey());
+                probation.put(candidate.getKey(), candidate.getValue());
+                evicted(victim);
+            } else {
+                evicted(candidate);
+            }
+        }
+
+        private synchronized V remove(K key) {
+            V previous = removeEntry(key);
+            if (previous != null) {
+                removed(key, previous);
+            }
+            return previous;
+        }
+
+        private V removeEntry(K key) {
+            V previous = window.remove(key);
+            if (previous == null) {
+                previous = probation.remove(key);
+            }
+            if (previous == null) {
+                previous = protectedEntries.remove(key);
+            }
+            return previous;
+        }
+
+        private synchronized void clear() {
+            List<Map<K, V>> queues = new ArrayList<>(3);
+            Collections.addAll(queues, window, probation, protectedEntries);
+            for (Map<K, V> queue : queues) {
+                for (Map.Entry<K, V> entry : queue.entrySet()) {
+                    removed(entry.getKey(), entry.getValue());
+                }
+                queue.clear();
+            }
+        }
+
+        private synchronized int size() {
+            return window.size() + probation.size() + protectedEntries.size();
+        }
+    }
+
+    private static <K, V> V touch(LinkedHashMap<K, V> queue, K key) {
+        V value = queue.remove(key);
+        if (value != null) {
+            queue.put(key, value);
+        }
+        return value;
+    }
+
+    private static <K, V> Map.Entry<K, V> eldest(LinkedHashMap<K, V> queue) {
+        return queue.entrySet().iterator().next();
+    }
+
+    private static <K, V> Map.Entry<K, V> pollEldest(LinkedHashMap<K, V> queue) {
+        Iterator<Map.Entry<K, V>> iterator = queue.entrySet().iterator();
+        Map.Entry<K, V> eldest = iterator.next();
+        Map.Entry<K, V> polled = new AbstractMap.SimpleImmutableEntry<>(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return polled;
+    }
+
+    /**
+     * A count-min sketch of the recent use of the keys, with four 4-bit counters per key, halved once the number
+     * of increments reaches ten times the maximum size of the cache so that the estimates follow changes in use.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final int MAX_TABLE_SIZE = 1 << 20;
+
+        private final AtomicLongArray table;
+        private final int counterMask;
+        private final int sampleSize;
+        private final AtomicInteger additions = new AtomicInteger();
+
+        private FrequencySketch(int maxSize) {
+            int tableSize = Math.min(ceilingPowerOfTwo(Math.max(maxSize, 8)), MAX_TABLE_SIZE);
+            this.table = new AtomicLongArray(tableSize);
+            this.counterMask = tableSize * 16 - 1;
+            this.sampleSize = (int) Math.min(10L * Math.max(maxSize, 1), Integer.MAX_VALUE);
+        }
+
+        private void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(hash, i);
+                int word = index >>> 4;
+                int shift = (index & 15) << 2;
+                while (true) {
+                    long current = table.get(word);
+                    if (((current >>> shift) & 0xfL) == 0xfL) {
+                        break;
+                    }
+                    if (table.compareAndSet(word, current, current + (1L << shift))) {
+                        added = true;
+                        break;
+                    }
+                }
+            }
+            if (added && additions.incrementAndGet() >= sampleSize) {
+                reset();
+            }
+        }
+
+        private int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table.get(index >>> 4) >>> ((index & 15) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        private synchronized void reset() {
+            if (additions.get() < sampleSize) {
+                return;
+            }
+            for (int word = 0; word < table.length(); word++) {
+                while (true) {
+                    long current = table.get(word);
+                    if (table.compareAndSet(word, current, (current >>> 1) & RESET_MASK)) {
+                        break;
+                    }
+                }
+            }
+            additions.set(additions.get() / 2);
+        }
+
+        private int indexOf(int hash, int i) {
+            long index = (hash + SEEDS[i]) * SEEDS[i];
+            index += index >>> 32;
+            return (int) index & counterMask;
+        }
+    }
+}
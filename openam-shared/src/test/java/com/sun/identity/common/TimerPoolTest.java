@@ -0,0 +1,228 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package com.sun.identity.common;
+
+import static org.testng.Assert.*;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.util.time.TimeService;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TimerPoolTest {
+
+    private TimerPool pool;
+
+    @BeforeMethod
+    public void setUp() {
+        pool = new TimerPool("TimerPoolTest", 2, true, null, 10);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void shouldRunTaskNoEarlierThanScheduledTime() throws Exception {
+        CountingTask task = new CountingTask(1, -1);
+        long time = System.currentTimeMillis() + 50;
+
+        pool.schedule(task, new Date(time));
+
+        assertTrue(task.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(task.ranAt >= time);
+    }
+
+    @Test
+    public void shouldRunTasksScheduledForTheSameTime() throws Exception {
+        CountingTask first = new CountingTask(1, -1);
+        CountingTask second = new CountingTask(1, -1);
+        Date time = new Date(System.currentTimeMillis() + 50);
+
+        pool.schedule(first, time);
+        pool.schedule(second, time);
+
+        assertSame(first.getHeadTask(), second.getHeadTask());
+        assertTrue(first.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(second.latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldNotRunCancelledTask() throws Exception {
+        CountingTask cancelled = new CountingTask(1, -1);
+        CountingTask other = new CountingTask(1, -1);
+        Date time = new Date(System.currentTimeMillis() + 100);
+        pool.schedule(cancelled, time);
+        pool.schedule(other, time);
+
+        cancelled.cancel();
+
+        assertTrue(other.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(cancelled.runs.get(), 0);
+        assertFalse(cancelled.isScheduled());
+    }
+
+    @Test
+    public void shouldRescheduleCancelledTask() throws Exception {
+        CountingTask task = new CountingTask(1, -1);
+        long now = System.currentTimeMillis();
+        pool.schedule(task, new Date(now + TimeUnit.HOURS.toMillis(2)));
+        task.cancel();
+
+        pool.schedule(task, new Date(now + 50));
+
+        assertTrue(task.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(task.runs.get(), 1);
+    }
+
+    @Test
+    public void shouldRunPeriodicTaskRepeatedly() throws Exception {
+        CountingTask task = new CountingTask(3, 20);
+
+        pool.schedule(task, 0);
+
+        assertTrue(task.latch.await(5, TimeUnit.SECONDS));
+        task.cancel();
+    }
+
+    @Test
+    public void shouldKeepRunningTasksAfterTaskFails() throws Exception {
+        CountingTask failing = new CountingTask(1, -1) {
+            @Override
+            public void run() {
+                super.run();
+                throw new IllegalArgumentException("badger");
+            }
+        };
+        CountingTask task = new CountingTask(1, -1);
+        Date time = new Date(System.currentTimeMillis() + 20);
+
+        pool.schedule(failing, time);
+        pool.schedule(task, time);
+
+        assertTrue(task.latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldRunTaskCascadingFromTheThirdLevelOfTheWheelOnTime() throws Exception {
+        // Given
+        long tickDuration = 10;
+        ManualClock clock = new ManualClock(1000 * tickDuration);
+        TimerPool wheelPool = new TimerPool("TimerPoolWheelTest", 1, true, null, tickDuration, clock);
+        CountingTask task = new CountingTask(1, -1);
+        long revolution = TimerPool.WHEEL_SIZE * tickDuration;
+        long time = clock.now() + ((1L << (2 * TimerPool.WHEEL_BITS)) + TimerPool.WHEEL_SIZE + 3) * tickDuration;
+
+        try {
+            wheelPool.schedule(task, new Date(time));
+
+            // When
+            // turn the wheel a revolution of its lowest level at a time, so every tick is passed through
+            while (clock.now() + revolution < time) {
+                clock.set(clock.now() + revolution);
+                wheelPool.runNext();
+            }
+            clock.set(time - 1);
+            wheelPool.runNext();
+            assertFalse(task.latch.await(100, TimeUnit.MILLISECONDS));
+            clock.set(time);
+            wheelPool.runNext();
+
+            // Then
+            assertTrue(task.latch.await(5, TimeUnit.SECONDS));
+            assertEquals(task.runs.get(), 1);
+        } finally {
+            wheelPool.shutdown();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void shouldRejectTaskAfterShutdown() {
+        pool.shutdown();
+
+        pool.schedule(new CountingTask(1, -1), 0);
+    }
+
+    private static final class ManualClock implements TimeService {
+
+        private volatile long now;
+
+        private ManualClock(long now) {
+            this.now = now;
+        }
+
+        private void set(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long now() {
+            return now;
+        }
+
+        @Override
+        public long since(long past) {
+            return now - past;
+        }
+    }
+
+    private static class CountingTask extends GeneralTaskRunnable {
+
+        private final CountDownLatch latch;
+        private final long period;
+        private final AtomicInteger runs = new AtomicInteger();
+        private volatile long ranAt;
+
+        private CountingTask(int expectedRuns, long period) {
+            this.latch = new CountDownLatch(expectedRuns);
+            this.period = period;
+        }
+
+        @Override
+        public boolean addElement(Object key) {
+            return false;
+        }
+
+        @Override
+        public boolean removeElement(Object key) {
+            return false;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return true;
+        }
+
+        @Override
+        public long getRunPeriod() {
+            return period;
+        }
+
+        @Override
+        public void run() {
+            ranAt = System.currentTimeMillis();
+            runs.incrementAndGet();
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.1.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.1.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.openam.utils.collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+public class TinyLfuCacheTest {
+
+    @Test
+    public void shouldLimitCacheSize() {
+        final int max = 1000;
+        final TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(max);
+        for (int ii = 0; ii < max * 5; ii++) {
+            cache.put(ii, ii);
+        }
+        assertThat(cache.size()).isEqualTo(max);
+        assertThat(cache.getEvictionCount()).isEqualTo(max * 4);
+    }
+
+    @Test
+    public void shouldNotCacheWithZeroSize() {
+        final TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(0);
+        cache.put(1, 2);
+        assertThat(cache.containsKey(1)).isFalse();
+    }
+
+    @Test
+    public void shouldKeepFrequentlyUsedEntriesThroughScan() {
+        final int max = 1000;
+        final TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(max);
+        for (int round = 0; round < 10; round++) {
+            for (int ii = 0; ii < max / 2; ii++) {
+                if (cache.get(ii) == null) {
+                    cache.put(ii, ii);
+                }
+            }
+        }
+        for (int ii = max; ii < max * 10; ii++) {
+            cache.put(ii, ii);
+        }
+        // A Least Recently Used cache would keep none, the frequency estimates leave room for a few misses.
+        int kept = 0;
+        for (int ii = 0; ii < max / 2; ii++) {
+            if (cache.containsKey(ii)) {
+                kept++;
+            }
+        }
+        assertThat(kept).isGreaterThan(max / 2 * 95 / 100);
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() {
+        final TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(10);
+        cache.put(1, 2);
+        assertThat(cache.get(1)).isEqualTo(2);
+        assertThat(cache.get(3)).isNull();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotifyRemovals() {
+        final List<Integer> removed = new ArrayList<>();
+        final TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(10,
+                new TinyLfuCache.RemovalListener<Integer, Integer>() {
+                    @Override
+                    public void onRemoval(Integer key, Integer value) {
+                        removed.add(key);
+                    }
+                });
+        cache.put(1, 2);
+        cache.put(1, 3);
+        cache.put(4, 5);
+        cache.remove(4);
+        cache.clear();
+        assertThat(removed).containsExactly(1, 4, 1);
+        assertThat(cache.size()).isEqualTo(0);
+    }
+}